@@ -0,0 +1,161 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opengrok.indexer.analysis.AbstractAnalyzer;
+import org.opengrok.indexer.analysis.AnalyzerFactory;
+import org.opengrok.indexer.analysis.AnalyzerGuru;
+import org.opengrok.indexer.search.QueryBuilder;
+
+/**
+ * Benchmarks of the analysis of single file: file type detection, tokenization of the full text
+ * and symbol fields and xref generation. There is a parameter value for each language in the corpus.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalyzerBenchmark {
+
+    @Param({
+            "ada/sample.adb",
+            "asm/sample.s",
+            "c/sample.c",
+            "c/sample.cpp",
+            "clojure/sample.clj",
+            "csharp/sample.cs",
+            "eiffel/sample.e",
+            "erlang/sample.erl",
+            "fortran/sample.f90",
+            "golang/sample.go",
+            "haskell/sample.hs",
+            "hcl/sample.hcl",
+            "java/Sample.java",
+            "javascript/sample.js",
+            "json/sample.json",
+            "kotlin/sample.kt",
+            "lisp/sample.lisp",
+            "lua/sample.lua",
+            "ocaml/sample.ml",
+            "pascal/sample.pas",
+            "perl/sample.pl",
+            "php/sample.php",
+            "plain/sample.1",
+            "plain/sample.txt",
+            "plain/sample.xml",
+            "powershell/sample.ps1",
+            "python/sample.py",
+            "r/sample.r",
+            "ruby/sample.rb",
+            "rust/sample.rs",
+            "scala/sample.scala",
+            "sh/sample.sh",
+            "sql/sample.sql",
+            "swift/sample.swift",
+            "tcl/sample.tcl",
+            "terraform/sample.tf",
+            "typescript/sample.ts",
+            "uue/sample.uue",
+            "vb/sample.vb",
+            "verilog/sample.v",
+            "yaml/sample.yml"
+    })
+    public String file;
+
+    /**
+     * How many times to repeat the content of the file.
+     */
+    @Param("8")
+    public int scale;
+
+    private String content;
+    private byte[] bytes;
+    private AnalyzerFactory factory;
+    private AbstractAnalyzer analyzer;
+
+    @Setup
+    public void setup() throws IOException {
+        content = Corpus.read(file, scale);
+        bytes = content.getBytes(StandardCharsets.UTF_8);
+        factory = AnalyzerGuru.find(new ByteArrayInputStream(bytes), file);
+        if (factory == null) {
+            throw new IllegalStateException(String.format("no analyzer for '%s'", file));
+        }
+        analyzer = factory.getAnalyzer();
+    }
+
+    @Benchmark
+    public AnalyzerFactory find() throws IOException {
+        return AnalyzerGuru.find(new ByteArrayInputStream(bytes), file);
+    }
+
+    @Benchmark
+    public int tokenizeFull() throws IOException {
+        return consume(analyzer.tokenStream(QueryBuilder.FULL, new StringReader(content)));
+    }
+
+    @Benchmark
+    public int tokenizeRefs() throws IOException {
+        return consume(analyzer.tokenStream(QueryBuilder.REFS, new StringReader(content)));
+    }
+
+    @Benchmark
+    public int writeXref() throws IOException {
+        StringWriter out = new StringWriter(content.length() * 2);
+        AnalyzerGuru.writeXref(factory, new StringReader(content), out, null, null, null, null);
+        return out.getBuffer().length();
+    }
+
+    private static int consume(TokenStream stream) throws IOException {
+        int count = 0;
+        try (stream) {
+            stream.reset();
+            while (stream.incrementToken()) {
+                count++;
+            }
+            stream.end();
+        }
+        return count;
+    }
+}
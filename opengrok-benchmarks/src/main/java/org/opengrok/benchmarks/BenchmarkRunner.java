@@ -0,0 +1,77 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark jar. Accepts the standard JMH command line options and in addition
+ * to that makes sure the results are written in JSON format to a file whose name contains a label
+ * (e.g. commit hash) given via the {@value #LABEL_PROPERTY} system property, so that the results
+ * of runs over different commits can be compared, e.g. with the JMH visualizer.
+ * <p>
+ * Example: {@code java -Dopengrok.benchmark.label=$(git rev-parse --short HEAD) -jar benchmarks.jar Search}
+ * </p>
+ */
+public final class BenchmarkRunner {
+
+    static final String LABEL_PROPERTY = "opengrok.benchmark.label";
+
+    private static final String DEFAULT_LABEL = "local";
+
+    /**
+     * The heap size is fixed so that the results are not affected by the defaults of the machine.
+     */
+    private static final String[] JVM_ARGS = {"-Xms1g", "-Xmx1g"};
+
+    private BenchmarkRunner() {
+        // private to enforce static
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .parent(cmdOptions)
+                .shouldFailOnError(true)
+                .jvmArgsPrepend(JVM_ARGS);
+        if (!cmdOptions.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cmdOptions.getResult().hasValue()) {
+            builder.result(getResultFileName(System.getProperty(LABEL_PROPERTY, DEFAULT_LABEL)));
+        }
+
+        new Runner(builder.build()).run();
+    }
+
+    static String getResultFileName(String label) {
+        return "opengrok-benchmarks-" + label.replaceAll("[^A-Za-z0-9._-]", "_") + ".json";
+    }
+}
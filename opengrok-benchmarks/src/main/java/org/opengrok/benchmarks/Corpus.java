@@ -0,0 +1,131 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Synthetic corpus checked in under the {@code corpus} resource directory.
+ * <p>
+ * The corpus contains a small file for each language analyzer. The files are listed in
+ * {@code corpus/files.txt} so that the benchmarks see the same set of files regardless of how
+ * the resources are packaged. The content can be repeated to get files of larger size.
+ * </p>
+ */
+final class Corpus {
+
+    private static final String RESOURCE_DIR = "/corpus/";
+    private static final String MANIFEST = RESOURCE_DIR + "files.txt";
+
+    private Corpus() {
+        // private to enforce static
+    }
+
+    /**
+     * @return paths of the corpus files relative to the corpus root
+     */
+    static List<String> getFiles() {
+        List<String> files = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(open(MANIFEST), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    files.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Collections.unmodifiableList(files);
+    }
+
+    /**
+     * @param file path of the corpus file relative to the corpus root
+     * @param scale how many times to repeat the content
+     * @return content of the file
+     */
+    static String read(String file, int scale) {
+        try (InputStream in = open(RESOURCE_DIR + file)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).repeat(Math.max(1, scale));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write the corpus to the file system so that it can be used as a source root.
+     * Each copy of the corpus is stored in separate subdirectory.
+     * @param sourceRoot directory to write the files to
+     * @param copies number of copies of the corpus to write
+     * @param scale how many times to repeat the content of each file
+     * @throws IOException on I/O error
+     */
+    static void extract(Path sourceRoot, int copies, int scale) throws IOException {
+        List<String> files = getFiles();
+        for (int i = 0; i < copies; i++) {
+            Path copyDir = sourceRoot.resolve("copy" + i);
+            for (String file : files) {
+                Path target = copyDir.resolve(file);
+                Files.createDirectories(target.getParent());
+                Files.writeString(target, read(file, scale), StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    /**
+     * Remove the directory tree.
+     * @param root root of the tree
+     * @throws IOException on I/O error
+     */
+    static void delete(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            List<Path> list = paths.sorted(Collections.reverseOrder()).toList();
+            for (Path path : list) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static InputStream open(String resource) throws IOException {
+        InputStream in = Corpus.class.getResourceAsStream(resource);
+        if (in == null) {
+            throw new IOException(String.format("cannot find corpus resource '%s'", resource));
+        }
+        return in;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opengrok.indexer.analysis.Definitions;
+
+/**
+ * Benchmarks of the (de)serialization of {@link Definitions} which is stored with each document
+ * and deserialized for each hit when producing the search results.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DefinitionsBenchmark {
+
+    private static final String[] TYPES = {"function", "variable", "macro", "struct", "member"};
+
+    /**
+     * Number of tags in the definitions.
+     */
+    @Param({"100", "1000"})
+    public int tags;
+
+    private Definitions definitions;
+    private byte[] serialized;
+
+    @Setup
+    public void setup() throws IOException {
+        definitions = new Definitions();
+        for (int i = 0; i < tags; i++) {
+            int line = i / 2 + 1;
+            String symbol = "symbol" + i;
+            definitions.addTag(line, symbol, TYPES[i % TYPES.length], "int " + symbol + "(void);", 4, 4 + symbol.length());
+        }
+        serialized = definitions.serialize();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return definitions.serialize();
+    }
+
+    @Benchmark
+    public Definitions deserialize() throws IOException, ClassNotFoundException {
+        return Definitions.deserialize(serialized);
+    }
+}
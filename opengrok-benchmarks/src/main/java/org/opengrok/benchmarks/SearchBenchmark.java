@@ -0,0 +1,156 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.benchmarks;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opengrok.indexer.analysis.AbstractAnalyzer;
+import org.opengrok.indexer.analysis.AnalyzerGuru;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.index.IndexDatabase;
+import org.opengrok.indexer.search.Hit;
+import org.opengrok.indexer.search.SearchEngine;
+
+/**
+ * Benchmarks of the search over an index of the corpus built during the setup.
+ * The {@code searchWithContext} benchmark produces the first page of results including the source context
+ * of the hits, i.e. what is done for each search in the web application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final int PAGE_SIZE = 25;
+
+    @Param({"hello", "buffer AND main", "\"hello world\"", "buf*"})
+    public String query;
+
+    /**
+     * Number of copies of the corpus in the source root.
+     */
+    @Param("20")
+    public int copies;
+
+    private Path root;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, InterruptedException {
+        root = Files.createTempDirectory("opengrok-benchmark");
+        Path sourceRoot = root.resolve("src");
+        Path dataRoot = root.resolve("data");
+        Corpus.extract(sourceRoot, copies, 1);
+
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        env.setSourceRoot(sourceRoot.toString());
+        env.setDataRoot(dataRoot.toString());
+        env.setProjectsEnabled(false);
+        env.setHistoryEnabled(false);
+
+        index(sourceRoot, dataRoot.resolve(IndexDatabase.INDEX_DIR));
+    }
+
+    private static void index(Path sourceRoot, Path indexDir) throws IOException, InterruptedException {
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(sourceRoot)) {
+            files = paths.filter(Files::isRegularFile).sorted().toList();
+        }
+
+        AnalyzerGuru analyzerGuru = new AnalyzerGuru();
+        try (Directory directory = FSDirectory.open(indexDir);
+             IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(AnalyzerGuru.getAnalyzer()))) {
+            for (Path file : files) {
+                String path = "/" + sourceRoot.relativize(file).toString().replace(File.separatorChar, '/');
+                AbstractAnalyzer analyzer;
+                try (InputStream in = new BufferedInputStream(new FileInputStream(file.toFile()))) {
+                    analyzer = AnalyzerGuru.getAnalyzer(in, path);
+                }
+                Document doc = new Document();
+                analyzerGuru.populateDocument(doc, file.toFile(), path, analyzer, null);
+                writer.addDocument(doc);
+            }
+            writer.commit();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Corpus.delete(root);
+    }
+
+    @Benchmark
+    public int search() {
+        SearchEngine engine = new SearchEngine();
+        engine.setFreetext(query);
+        try {
+            return engine.search();
+        } finally {
+            engine.destroy();
+        }
+    }
+
+    @Benchmark
+    public List<Hit> searchWithContext() {
+        SearchEngine engine = new SearchEngine();
+        engine.setFreetext(query);
+        try {
+            int count = engine.search();
+            List<Hit> hits = new ArrayList<>();
+            engine.results(0, Math.min(count, PAGE_SIZE), hits);
+            return hits;
+        } finally {
+            engine.destroy();
+        }
+    }
+}
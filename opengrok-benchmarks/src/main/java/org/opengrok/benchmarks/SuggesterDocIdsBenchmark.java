@@ -0,0 +1,158 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.benchmarks;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.FixedBitSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opengrok.suggest.query.data.BitIntsHolder;
+import org.opengrok.suggest.query.data.DocIdSetIntsHolder;
+
+/**
+ * Benchmarks of the intersection of the documents matching the query with the postings of a term
+ * which the suggester does for each term when computing the suggestions for a complex query.
+ * The {@code bitIntsHolder} benchmark is the former way, i.e. probing a {@link BitIntsHolder} for each
+ * document of the postings, the {@code docIdSet} benchmark uses {@link DocIdSetIntsHolder}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SuggesterDocIdsBenchmark {
+
+    private static final String FIELD = "full";
+
+    private static final Term TERM = new Term(FIELD, "term");
+
+    /**
+     * Number of documents in the index segment.
+     */
+    @Param("1000000")
+    public int documents;
+
+    /**
+     * Fraction of the documents matching the query.
+     */
+    @Param({"0.0001", "0.01", "0.3"})
+    public double queryDensity;
+
+    /**
+     * Fraction of the documents containing the term.
+     */
+    @Param({"0.001", "0.1", "0.9"})
+    public double termDensity;
+
+    private Directory directory;
+
+    private DirectoryReader directoryReader;
+
+    private LeafReader reader;
+
+    private BitIntsHolder bitIntsHolder;
+
+    private DocIdSetIntsHolder docIdSetIntsHolder;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Random random = new Random(42);
+        directory = new ByteBuffersDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+            for (int i = 0; i < documents; i++) {
+                Document doc = new Document();
+                if (random.nextDouble() < termDensity) {
+                    doc.add(new StringField(FIELD, TERM.text(), Field.Store.NO));
+                }
+                writer.addDocument(doc);
+            }
+            writer.forceMerge(1);
+        }
+        directoryReader = DirectoryReader.open(directory);
+        reader = directoryReader.leaves().get(0).reader();
+
+        FixedBitSet bits = new FixedBitSet(documents);
+        bitIntsHolder = new BitIntsHolder();
+        for (int i = 0; i < documents; i++) {
+            if (random.nextDouble() < queryDensity) {
+                bits.set(i);
+                bitIntsHolder.set(i);
+            }
+        }
+        docIdSetIntsHolder = new DocIdSetIntsHolder(bits);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        directoryReader.close();
+        directory.close();
+    }
+
+    private PostingsEnum postings() throws IOException {
+        return reader.postings(TERM, PostingsEnum.NONE);
+    }
+
+    @Benchmark
+    public long bitIntsHolder() throws IOException {
+        PostingsEnum postings = postings();
+        int count = 0;
+        while (postings.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+            if (bitIntsHolder.has(postings.docID())) {
+                count++;
+            }
+        }
+        return (long) count * bitIntsHolder.numberOfElements();
+    }
+
+    @Benchmark
+    public long docIdSet() throws IOException {
+        return (long) docIdSetIntsHolder.intersectionCount(postings()) * docIdSetIntsHolder.numberOfElements();
+    }
+}
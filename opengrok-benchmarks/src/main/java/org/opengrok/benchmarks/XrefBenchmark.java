@@ -0,0 +1,94 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opengrok.indexer.analysis.AnalyzerFactory;
+import org.opengrok.indexer.analysis.AnalyzerGuru;
+import org.opengrok.indexer.web.Util;
+
+/**
+ * Benchmarks of the web side processing of the xref: HTML escaping of the source
+ * and transformation of stored xref for serving to the client.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XrefBenchmark {
+
+    @Param({"c/sample.c", "java/Sample.java", "python/sample.py", "plain/sample.txt"})
+    public String file;
+
+    /**
+     * How many times to repeat the content of the file.
+     */
+    @Param("8")
+    public int scale;
+
+    private String content;
+    private String xref;
+
+    @Setup
+    public void setup() throws IOException {
+        content = Corpus.read(file, scale);
+        AnalyzerFactory factory = AnalyzerGuru.find(
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), file);
+        StringWriter out = new StringWriter();
+        AnalyzerGuru.writeXref(factory, new StringReader(content), out, null, null, null, null);
+        xref = out.toString();
+    }
+
+    @Benchmark
+    public int htmlize() throws IOException {
+        StringBuilder out = new StringBuilder(content.length() * 2);
+        Util.htmlize(content, out, true);
+        return out.length();
+    }
+
+    @Benchmark
+    public int dumpXref() throws IOException {
+        StringWriter out = new StringWriter(xref.length() + 1024);
+        Util.dumpXref(out, new StringReader(xref), "/source", null);
+        return out.getBuffer().length();
+    }
+}
@@ -0,0 +1,13 @@
+with Ada.Text_IO; use Ada.Text_IO;
+
+procedure Sample is
+   type Buffer is array (1 .. 16) of Integer;
+   Data : Buffer := (others => 0);
+   Total : Integer := 0;
+begin
+   for I in Data'Range loop
+      Data (I) := I * 2;
+      Total := Total + Data (I);
+   end loop;
+   Put_Line ("total =" & Integer'Image (Total));
+end Sample;
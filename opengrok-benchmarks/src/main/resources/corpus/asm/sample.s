@@ -0,0 +1,13 @@
+        .text
+        .globl  main
+main:
+        pushq   %rbp
+        movq    %rsp, %rbp
+        movl    $0, %eax    # return value
+        leaq    message(%rip), %rdi
+        call    puts
+        popq    %rbp
+        ret
+        .data
+message:
+        .string "hello world"
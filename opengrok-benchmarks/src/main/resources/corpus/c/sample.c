@@ -0,0 +1,38 @@
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+
+#define BUFFER_SIZE 64
+
+struct buffer {
+    char *data;
+    size_t length;
+};
+
+/* Append the string to the buffer, growing it as needed. */
+static int buffer_append(struct buffer *buf, const char *str)
+{
+    size_t len = strlen(str);
+    char *tmp = realloc(buf->data, buf->length + len + 1);
+    if (tmp == NULL) {
+        return -1;
+    }
+    memcpy(tmp + buf->length, str, len + 1);
+    buf->data = tmp;
+    buf->length += len;
+    return 0;
+}
+
+int main(int argc, char *argv[])
+{
+    struct buffer buf = { NULL, 0 };
+    for (int i = 1; i < argc; i++) {
+        if (buffer_append(&buf, argv[i]) != 0) {
+            fprintf(stderr, "out of memory\n");
+            return EXIT_FAILURE;
+        }
+    }
+    printf("hello world: %s\n", buf.data != NULL ? buf.data : "");
+    free(buf.data);
+    return EXIT_SUCCESS;
+}
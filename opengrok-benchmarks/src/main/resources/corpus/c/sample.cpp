@@ -0,0 +1,30 @@
+#include <iostream>
+#include <map>
+#include <string>
+#include <vector>
+
+namespace sample {
+
+template <typename T>
+class Counter {
+public:
+    void add(const T& value) { counts_[value]++; }
+    std::size_t get(const T& value) const {
+        auto it = counts_.find(value);
+        return it == counts_.end() ? 0 : it->second;
+    }
+private:
+    std::map<T, std::size_t> counts_;
+};
+
+} // namespace sample
+
+int main(int argc, char** argv) {
+    sample::Counter<std::string> counter;
+    std::vector<std::string> words(argv + 1, argv + argc);
+    for (const auto& word : words) {
+        counter.add(word);
+    }
+    std::cout << "hello world " << counter.get("hello") << std::endl;
+    return 0;
+}
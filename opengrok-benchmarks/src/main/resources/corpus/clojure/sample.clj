@@ -0,0 +1,13 @@
+(ns sample.core
+  (:require [clojure.string :as str]))
+
+(defn word-count
+  "Count the words in the text."
+  [text]
+  (frequencies (str/split text #"\s+")))
+
+(defn -main [& args]
+  (let [counts (word-count (str/join " " args))]
+    (doseq [[word n] counts]
+      (println word n))
+    (println "hello world")))
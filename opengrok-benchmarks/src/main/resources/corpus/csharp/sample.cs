@@ -0,0 +1,32 @@
+using System;
+using System.Collections.Generic;
+using System.Linq;
+
+namespace Sample
+{
+    public class Buffer
+    {
+        private readonly List<string> items = new List<string>();
+
+        public int Count => items.Count;
+
+        public void Add(string item)
+        {
+            if (item == null)
+            {
+                throw new ArgumentNullException(nameof(item));
+            }
+            items.Add(item);
+        }
+
+        public static void Main(string[] args)
+        {
+            var buffer = new Buffer();
+            foreach (var arg in args.Where(a => a.Length > 0))
+            {
+                buffer.Add(arg);
+            }
+            Console.WriteLine($"hello world {buffer.Count}");
+        }
+    }
+}
@@ -0,0 +1,20 @@
+class
+    SAMPLE
+
+create
+    make
+
+feature -- Initialization
+
+    make
+            -- Print the greeting.
+        local
+            total: INTEGER
+        do
+            across 1 |..| 10 as i loop
+                total := total + i.item
+            end
+            print ("hello world " + total.out + "%N")
+        end
+
+end
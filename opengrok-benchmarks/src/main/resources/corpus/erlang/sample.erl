@@ -0,0 +1,10 @@
+-module(sample).
+-export([start/0, count/1]).
+
+%% Count the elements of the list.
+count([]) -> 0;
+count([_ | Tail]) -> 1 + count(Tail).
+
+start() ->
+    Buffer = lists:seq(1, 16),
+    io:format("hello world ~p~n", [count(Buffer)]).
@@ -0,0 +1,13 @@
+program sample
+  implicit none
+  integer, parameter :: n = 16
+  integer :: i
+  real :: buffer(n), total
+
+  total = 0.0
+  do i = 1, n
+     buffer(i) = real(i) * 2.0
+     total = total + buffer(i)
+  end do
+  print *, 'hello world', total
+end program sample
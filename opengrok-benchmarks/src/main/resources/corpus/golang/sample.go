@@ -0,0 +1,24 @@
+package main
+
+import (
+	"fmt"
+	"os"
+	"strings"
+)
+
+// Buffer collects the words.
+type Buffer struct {
+	words []string
+}
+
+func (b *Buffer) Add(word string) {
+	b.words = append(b.words, strings.TrimSpace(word))
+}
+
+func main() {
+	buffer := &Buffer{}
+	for _, arg := range os.Args[1:] {
+		buffer.Add(arg)
+	}
+	fmt.Printf("hello world %d\n", len(buffer.words))
+}
@@ -0,0 +1,15 @@
+module Main where
+
+import qualified Data.Map as Map
+import System.Environment (getArgs)
+
+-- | Count the occurrences of each word.
+wordCount :: [String] -> Map.Map String Int
+wordCount = foldr (\w -> Map.insertWith (+) w 1) Map.empty
+
+main :: IO ()
+main = do
+  args <- getArgs
+  let counts = wordCount args
+  mapM_ print (Map.toList counts)
+  putStrLn "hello world"
@@ -0,0 +1,12 @@
+service "buffer" {
+  port    = 8080
+  enabled = true
+
+  limits {
+    memory = "64M"
+    cpu    = 2
+  }
+
+  # Greeting printed at start.
+  message = "hello world"
+}
@@ -0,0 +1,29 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Sample class with a buffer of words.
+ */
+public class Sample {
+
+    private final List<String> buffer = new ArrayList<>();
+
+    public void add(String word) {
+        buffer.add(Objects.requireNonNull(word));
+    }
+
+    public int size() {
+        return buffer.size();
+    }
+
+    public static void main(String[] args) {
+        Sample sample = new Sample();
+        for (String arg : args) {
+            sample.add(arg);
+        }
+        System.out.println("hello world " + sample.size());
+    }
+}
@@ -0,0 +1,16 @@
+'use strict';
+
+/**
+ * Count the words in the buffer.
+ */
+function wordCount(buffer) {
+    const counts = new Map();
+    for (const word of buffer.split(/\s+/)) {
+        counts.set(word, (counts.get(word) || 0) + 1);
+    }
+    return counts;
+}
+
+const counts = wordCount(process.argv.slice(2).join(' '));
+counts.forEach((value, key) => console.log(`${key}: ${value}`));
+console.log("hello world");
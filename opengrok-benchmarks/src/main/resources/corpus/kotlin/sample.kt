@@ -0,0 +1,18 @@
+package org.example
+
+class Buffer {
+    private val words = mutableListOf<String>()
+
+    fun add(word: String) {
+        words += word.trim()
+    }
+
+    val size: Int
+        get() = words.size
+}
+
+fun main(args: Array<String>) {
+    val buffer = Buffer()
+    args.forEach { buffer.add(it) }
+    println("hello world ${buffer.size}")
+}
@@ -0,0 +1,14 @@
+(defpackage :sample
+  (:use :common-lisp))
+
+(in-package :sample)
+
+(defun word-count (words)
+  "Count the words in the list."
+  (let ((table (make-hash-table :test 'equal)))
+    (dolist (word words table)
+      (incf (gethash word table 0)))))
+
+(defun main ()
+  (word-count '("hello" "world" "hello"))
+  (format t "hello world~%"))
@@ -0,0 +1,14 @@
+-- Count the words in the buffer.
+local function word_count(buffer)
+  local counts = {}
+  for word in string.gmatch(buffer, "%S+") do
+    counts[word] = (counts[word] or 0) + 1
+  end
+  return counts
+end
+
+local counts = word_count("hello world hello")
+for word, n in pairs(counts) do
+  print(word, n)
+end
+print("hello world")
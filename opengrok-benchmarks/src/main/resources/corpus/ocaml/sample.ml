@@ -0,0 +1,14 @@
+(* Count the words in the list. *)
+let word_count words =
+  let table = Hashtbl.create 16 in
+  List.iter
+    (fun w ->
+      let n = try Hashtbl.find table w with Not_found -> 0 in
+      Hashtbl.replace table w (n + 1))
+    words;
+  table
+
+let () =
+  let counts = word_count [ "hello"; "world"; "hello" ] in
+  Hashtbl.iter (fun w n -> Printf.printf "%s %d\n" w n) counts;
+  print_endline "hello world"
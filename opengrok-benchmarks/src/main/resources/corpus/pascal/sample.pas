@@ -0,0 +1,20 @@
+program Sample;
+
+uses SysUtils;
+
+type
+  TBuffer = array[1..16] of Integer;
+
+var
+  Buffer: TBuffer;
+  I, Total: Integer;
+
+begin
+  Total := 0;
+  for I := Low(Buffer) to High(Buffer) do
+  begin
+    Buffer[I] := I * 2;
+    Total := Total + Buffer[I];
+  end;
+  WriteLn('hello world ', Total);
+end.
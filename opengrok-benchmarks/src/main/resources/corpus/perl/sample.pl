@@ -0,0 +1,17 @@
+#!/usr/bin/perl
+use strict;
+use warnings;
+
+# Count the words in the buffer.
+sub word_count {
+    my ($buffer) = @_;
+    my %counts;
+    $counts{$_}++ for split /\s+/, $buffer;
+    return \%counts;
+}
+
+my $counts = word_count(join ' ', @ARGV);
+foreach my $word (sort keys %$counts) {
+    printf "%s: %d\n", $word, $counts->{$word};
+}
+print "hello world\n";
@@ -0,0 +1,26 @@
+<?php
+namespace Sample;
+
+/**
+ * Buffer of words.
+ */
+class Buffer
+{
+    private $words = array();
+
+    public function add($word)
+    {
+        $this->words[] = trim($word);
+    }
+
+    public function size()
+    {
+        return count($this->words);
+    }
+}
+
+$buffer = new Buffer();
+foreach ($argv as $arg) {
+    $buffer->add($arg);
+}
+echo "hello world " . $buffer->size() . "\n";
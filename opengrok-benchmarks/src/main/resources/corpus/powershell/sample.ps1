@@ -0,0 +1,13 @@
+# Count the words in the buffer.
+function Get-WordCount {
+    param([string]$Buffer)
+    $counts = @{}
+    foreach ($word in $Buffer -split '\s+') {
+        $counts[$word] = $counts[$word] + 1
+    }
+    return $counts
+}
+
+$counts = Get-WordCount -Buffer ($args -join ' ')
+$counts.GetEnumerator() | ForEach-Object { Write-Output "$($_.Key): $($_.Value)" }
+Write-Output "hello world"
@@ -0,0 +1,30 @@
+#!/usr/bin/env python3
+"""Count the words in the buffer."""
+
+import sys
+from collections import Counter
+
+
+class Buffer:
+    def __init__(self):
+        self.words = []
+
+    def add(self, word):
+        self.words.append(word.strip())
+
+    def counts(self):
+        return Counter(self.words)
+
+
+def main(args):
+    buffer = Buffer()
+    for arg in args:
+        buffer.add(arg)
+    for word, n in buffer.counts().items():
+        print(f"{word}: {n}")
+    print("hello world")
+    return 0
+
+
+if __name__ == "__main__":
+    sys.exit(main(sys.argv[1:]))
@@ -0,0 +1,11 @@
+# Count the words in the buffer.
+word_count <- function(buffer) {
+  words <- strsplit(buffer, "\\s+")[[1]]
+  table(words)
+}
+
+counts <- word_count("hello world hello")
+for (word in names(counts)) {
+  cat(word, counts[[word]], "\n")
+}
+print("hello world")
@@ -0,0 +1,21 @@
+# Buffer of words.
+class Buffer
+  attr_reader :words
+
+  def initialize
+    @words = []
+  end
+
+  def add(word)
+    @words << word.strip
+  end
+
+  def counts
+    @words.each_with_object(Hash.new(0)) { |w, h| h[w] += 1 }
+  end
+end
+
+buffer = Buffer.new
+ARGV.each { |arg| buffer.add(arg) }
+buffer.counts.each { |word, n| puts "#{word}: #{n}" }
+puts "hello world"
@@ -0,0 +1,33 @@
+use std::collections::HashMap;
+use std::env;
+
+/// Buffer of words.
+struct Buffer {
+    words: Vec<String>,
+}
+
+impl Buffer {
+    fn new() -> Self {
+        Buffer { words: Vec::new() }
+    }
+
+    fn add(&mut self, word: &str) {
+        self.words.push(word.trim().to_string());
+    }
+
+    fn counts(&self) -> HashMap<&str, usize> {
+        let mut map = HashMap::new();
+        for w in &self.words {
+            *map.entry(w.as_str()).or_insert(0) += 1;
+        }
+        map
+    }
+}
+
+fn main() {
+    let mut buffer = Buffer::new();
+    for arg in env::args().skip(1) {
+        buffer.add(&arg);
+    }
+    println!("hello world {:?}", buffer.counts());
+}
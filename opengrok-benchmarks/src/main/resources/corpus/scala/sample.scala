@@ -0,0 +1,20 @@
+package org.example
+
+import scala.collection.mutable
+
+/** Buffer of words. */
+class Buffer {
+  private val words = mutable.ListBuffer[String]()
+
+  def add(word: String): Unit = words += word.trim
+
+  def counts: Map[String, Int] = words.groupBy(identity).view.mapValues(_.size).toMap
+}
+
+object Sample {
+  def main(args: Array[String]): Unit = {
+    val buffer = new Buffer
+    args.foreach(buffer.add)
+    println(s"hello world ${buffer.counts}")
+  }
+}
@@ -0,0 +1,17 @@
+#!/bin/sh
+#
+# Count the words in the arguments.
+#
+
+BUFFER=""
+for word in "$@"; do
+    BUFFER="$BUFFER $word"
+done
+
+count_words() {
+    echo "$1" | tr ' ' '\n' | grep -v '^$' | sort | uniq -c
+}
+
+count_words "$BUFFER"
+echo "hello world"
+exit 0
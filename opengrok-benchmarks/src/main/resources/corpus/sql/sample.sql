@@ -0,0 +1,14 @@
+-- Word counts.
+CREATE TABLE buffer (
+    id INTEGER PRIMARY KEY,
+    word VARCHAR(64) NOT NULL
+);
+
+INSERT INTO buffer (id, word) VALUES (1, 'hello');
+INSERT INTO buffer (id, word) VALUES (2, 'world');
+
+SELECT word, COUNT(*) AS total
+  FROM buffer
+ WHERE word <> ''
+ GROUP BY word
+ ORDER BY total DESC;
@@ -0,0 +1,18 @@
+import Foundation
+
+/// Buffer of words.
+struct Buffer {
+    private(set) var words: [String] = []
+
+    mutating func add(_ word: String) {
+        words.append(word.trimmingCharacters(in: .whitespaces))
+    }
+
+    var counts: [String: Int] {
+        return words.reduce(into: [:]) { $0[$1, default: 0] += 1 }
+    }
+}
+
+var buffer = Buffer()
+CommandLine.arguments.dropFirst().forEach { buffer.add($0) }
+print("hello world \(buffer.counts)")
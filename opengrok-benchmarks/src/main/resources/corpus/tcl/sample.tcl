@@ -0,0 +1,15 @@
+# Count the words in the buffer.
+proc word_count {buffer} {
+    array set counts {}
+    foreach word [split $buffer] {
+        if {$word eq ""} continue
+        incr counts($word)
+    }
+    return [array get counts]
+}
+
+set counts [word_count "hello world hello"]
+foreach {word n} $counts {
+    puts "$word: $n"
+}
+puts "hello world"
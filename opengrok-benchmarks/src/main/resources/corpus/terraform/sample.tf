@@ -0,0 +1,13 @@
+variable "buffer_size" {
+  type    = number
+  default = 64
+}
+
+resource "local_file" "sample" {
+  filename = "${path.module}/hello.txt"
+  content  = "hello world ${var.buffer_size}"
+}
+
+output "path" {
+  value = local_file.sample.filename
+}
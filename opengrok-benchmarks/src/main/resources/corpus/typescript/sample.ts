@@ -0,0 +1,22 @@
+/**
+ * Buffer of words.
+ */
+export class Buffer {
+    private readonly words: string[] = [];
+
+    add(word: string): void {
+        this.words.push(word.trim());
+    }
+
+    counts(): Map<string, number> {
+        const result = new Map<string, number>();
+        for (const word of this.words) {
+            result.set(word, (result.get(word) ?? 0) + 1);
+        }
+        return result;
+    }
+}
+
+const buffer = new Buffer();
+process.argv.slice(2).forEach((arg: string) => buffer.add(arg));
+console.log(`hello world ${buffer.counts().size}`);
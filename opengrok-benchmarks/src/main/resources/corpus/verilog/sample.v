@@ -0,0 +1,15 @@
+// Simple counter.
+module counter (
+    input  wire       clk,
+    input  wire       reset,
+    output reg  [7:0] value
+);
+
+    always @(posedge clk or posedge reset) begin
+        if (reset)
+            value <= 8'd0;
+        else
+            value <= value + 1'b1;
+    end
+
+endmodule
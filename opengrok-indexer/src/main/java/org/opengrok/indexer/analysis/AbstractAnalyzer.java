@@ -45,6 +45,7 @@ public abstract class AbstractAnalyzer extends Analyzer {
     protected Supplier<JFlexTokenizer> symbolTokenizerFactory;
     protected Project project;
     protected Ctags ctags;
+    protected Definitions definitions;
     protected NumLinesLOCAggregator countsAggregator;
     protected boolean scopesEnabled;
     protected boolean foldingEnabled;
@@ -78,6 +79,15 @@ public abstract class AbstractAnalyzer extends Analyzer {
         this.ctags = ctags;
     }
 
+    /**
+     * Set definitions computed previously for the analyzed file (e.g. stored in the index)
+     * so that they are used instead of running ctags.
+     * @param definitions definitions or {@code null} to let the analyzer use ctags
+     */
+    public void setDefinitions(Definitions definitions) {
+        this.definitions = definitions;
+    }
+
     public void setCountsAggregator(NumLinesLOCAggregator countsAggregator) {
         this.countsAggregator = countsAggregator;
     }
@@ -606,6 +606,7 @@ public class AnalyzerGuru {
 
         // 'path' is not null, as it was passed to Util.path2uid() above.
         doc.add(new TextField(QueryBuilder.PATH, path, Store.YES));
+        doc.add(new SortedDocValuesField(QueryBuilder.PATHDV, new BytesRef(path)));
         Project project = Project.getProject(path);
         if (project != null) {
             doc.add(new TextField(QueryBuilder.PROJECT, project.getPath(), Store.YES));
@@ -47,6 +47,13 @@ public class ExpandTabsReader extends FilterReader {
      */
     private int spacesToInsert;
 
+    /**
+     * Characters read in bulk from the underlying stream but not yet processed.
+     */
+    private final char[] rawBuffer = new char[8192];
+    private int rawPos;
+    private int rawLen;
+
     /**
      * Create a new ExpandTabsReader to expand tabs to spaces.
      *
@@ -136,7 +143,7 @@ public class ExpandTabsReader extends FilterReader {
             return ' ';
         }
 
-        int c = super.read();
+        int c = rawPos < rawLen ? rawBuffer[rawPos++] : super.read();
 
         if (c == '\t') {
             // Fill up with spaces up to the next tab stop
@@ -158,14 +165,43 @@ public class ExpandTabsReader extends FilterReader {
 
     @Override
     public int read(char[] cbuf, int off, int len) throws IOException {
-        for (int i = 0; i < len; i++) {
-            int c = read();
-            if (c == -1) {
-                return (i > 0 ? i : -1);
+        int n = 0;
+        while (n < len) {
+            if (spacesToInsert > 0) {
+                cbuf[off + n++] = ' ';
+                pos++;
+                spacesToInsert--;
+                continue;
+            }
+
+            if (rawPos >= rawLen) {
+                rawPos = 0;
+                rawLen = Math.max(in.read(rawBuffer, 0, rawBuffer.length), 0);
+                if (rawLen == 0) {
+                    return (n > 0 ? n : -1);
+                }
+            }
+
+            char c = rawBuffer[rawPos++];
+            if (c == '\t') {
+                // Fill up with spaces up to the next tab stop
+                spacesToInsert = tabSize - (pos % tabSize);
+            } else {
+                cbuf[off + n++] = c;
+                if (c == '\n' || c == '\r') {
+                    // Reset position on new line
+                    pos = 0;
+                } else {
+                    pos++;
+                }
             }
-            cbuf[off + i] = (char) c;
         }
-        return len;
+        return n;
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        return spacesToInsert > 0 || rawPos < rawLen || super.ready();
     }
 
     @Override
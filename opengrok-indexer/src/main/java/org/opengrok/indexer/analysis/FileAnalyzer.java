@@ -36,6 +36,7 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.document.StoredField;
 import org.opengrok.indexer.analysis.plain.PlainFullTokenizer;
 import org.opengrok.indexer.analysis.plain.PlainSymbolTokenizer;
+import org.opengrok.indexer.index.NumLinesLOCUtil;
 import org.opengrok.indexer.logger.LoggerFactory;
 import org.opengrok.indexer.search.QueryBuilder;
 
@@ -207,6 +208,7 @@ public class FileAnalyzer extends AbstractAnalyzer {
     protected void addNumLinesLOC(Document doc, NumLinesLOC counts) {
         doc.add(new StoredField(QueryBuilder.NUML, counts.getNumLines()));
         doc.add(new StoredField(QueryBuilder.LOC, counts.getLOC()));
+        NumLinesLOCUtil.addDocValues(doc, counts.getNumLines(), counts.getLOC());
 
         if (countsAggregator != null) {
             countsAggregator.register(counts);
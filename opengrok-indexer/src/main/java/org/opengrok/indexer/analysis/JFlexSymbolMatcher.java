@@ -39,6 +39,7 @@ public abstract class JFlexSymbolMatcher extends JFlexStateStacker
     private SymbolMatchedListener symbolListener;
     private NonSymbolMatchedListener nonSymbolListener;
     private String disjointSpanClassName;
+    private char[] lowerCaseBuffer = new char[0];
 
     /**
      * Associates the specified listener, replacing the former one.
@@ -91,7 +92,7 @@ public abstract class JFlexSymbolMatcher extends JFlexStateStacker
 
     /**
      * Raises
-     * {@link SymbolMatchedListener#symbolMatched(org.opengrok.indexer.analysis.SymbolMatchedEvent)}
+     * {@link SymbolMatchedListener#symbolMatched(Object, String, long, long)}
      * for a subscribed listener.
      * @param str the symbol string
      * @param start the symbol start position
@@ -99,23 +100,67 @@ public abstract class JFlexSymbolMatcher extends JFlexStateStacker
     protected void onSymbolMatched(String str, long start) {
         SymbolMatchedListener l = symbolListener;
         if (l != null) {
-            SymbolMatchedEvent evt = new SymbolMatchedEvent(this, str, start,
-                start + str.length());
-            l.symbolMatched(evt);
+            l.symbolMatched(this, str, start, start + str.length());
         }
     }
 
     /**
      * Raises
-     * {@link SymbolMatchedListener#sourceCodeSeen(org.opengrok.indexer.analysis.SourceCodeSeenEvent)}
-     * for all subscribed listeners in turn.
+     * {@link SymbolMatchedListener#symbolMatched(Object, char[], int, int, long, long)}
+     * for a subscribed listener so that the symbol is not materialized as a
+     * {@link String} unless the listener needs it.
+     * @param buffer the buffer containing the symbol, e.g. of the scanner
+     * @param offset the offset of the symbol in {@code buffer}
+     * @param length the length of the symbol
+     * @param start the symbol start position
+     */
+    protected void onSymbolMatched(char[] buffer, int offset, int length, long start) {
+        SymbolMatchedListener l = symbolListener;
+        if (l != null) {
+            l.symbolMatched(this, buffer, offset, length, start, start + length);
+        }
+    }
+
+    /**
+     * Raises {@link #onSymbolMatched(char[], int, int, long)} for the
+     * lower-case equivalent of the symbol. This is the same as
+     * {@code onSymbolMatched(new String(buffer, offset, length).toLowerCase(Locale.ROOT), start)},
+     * however no {@link String} is created if the symbol consists of ASCII
+     * characters only.
+     * @param buffer the buffer containing the symbol, e.g. of the scanner
+     * @param offset the offset of the symbol in {@code buffer}
+     * @param length the length of the symbol
+     * @param start the symbol start position
+     */
+    protected void onLowerCaseSymbolMatched(char[] buffer, int offset, int length, long start) {
+        if (symbolListener == null) {
+            return;
+        }
+        if (lowerCaseBuffer.length < length) {
+            lowerCaseBuffer = new char[Math.max(length, lowerCaseBuffer.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            char c = buffer[offset + i];
+            if (c >= 0x80) {
+                // Non-ASCII characters might change the length when converted.
+                onSymbolMatched(new String(buffer, offset, length).toLowerCase(Locale.ROOT), start);
+                return;
+            }
+            lowerCaseBuffer[i] = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        onSymbolMatched(lowerCaseBuffer, 0, length, start);
+    }
+
+    /**
+     * Raises
+     * {@link SymbolMatchedListener#sourceCodeSeen(Object, long)}
+     * for a subscribed listener.
      * @param start the source code start position
      */
     protected void onSourceCodeSeen(long start) {
         SymbolMatchedListener l = symbolListener;
         if (l != null) {
-            SourceCodeSeenEvent evt = new SourceCodeSeenEvent(this, start);
-            l.sourceCodeSeen(evt);
+            l.sourceCodeSeen(this, start);
         }
     }
 
@@ -126,7 +171,9 @@ public abstract class JFlexSymbolMatcher extends JFlexStateStacker
      * @param start the text start position
      */
     protected void onNonSymbolMatched(char c, long start) {
-        onNonSymbolMatched(String.valueOf(c), start);
+        if (nonSymbolListener != null) {
+            onNonSymbolMatched(String.valueOf(c), start);
+        }
     }
 
     /**
@@ -116,6 +116,24 @@ public class JFlexTokenizer extends Tokenizer
         setAttribs(evt.getStr(), evt.getStart(), evt.getEnd());
     }
 
+    /**
+     * Calls {@link #setAttribs(String, long, long)} without the intermediate
+     * {@link SymbolMatchedEvent}.
+     */
+    @Override
+    public void symbolMatched(Object source, String str, long start, long end) {
+        setAttribs(str, start, end);
+    }
+
+    /**
+     * Calls {@link #setAttribs(char[], int, int, long, long)} so that the
+     * symbol is copied directly from the scanner buffer.
+     */
+    @Override
+    public void symbolMatched(Object source, char[] buffer, int offset, int length, long start, long end) {
+        setAttribs(buffer, offset, length, start, end);
+    }
+
     /**
      * Does nothing.
      * @param evt ignored
@@ -124,6 +142,13 @@ public class JFlexTokenizer extends Tokenizer
     public void sourceCodeSeen(SourceCodeSeenEvent evt) {
     }
 
+    /**
+     * Does nothing, avoiding the allocation of {@link SourceCodeSeenEvent}.
+     */
+    @Override
+    public void sourceCodeSeen(Object source, long start) {
+    }
+
     /**
      * Clears, and then resets the instances attributes per the specified
      * arguments. If {@code start} or {@code end} is past
@@ -158,6 +183,27 @@ public class JFlexTokenizer extends Tokenizer
         }
     }
 
+    /**
+     * Clears, and then resets the instances attributes per the specified
+     * arguments the same way as {@link #setAttribs(String, long, long)}, but
+     * with the symbol copied from the region of {@code buffer}.
+     * @param buffer the buffer containing the matched symbol
+     * @param offset the offset of the symbol in {@code buffer}
+     * @param length the length of the symbol
+     * @param start the match start position
+     * @param end the match end position
+     */
+    protected void setAttribs(char[] buffer, int offset, int length, long start, long end) {
+        clearAttributesEtc();
+        if (start < Integer.MAX_VALUE && end < Integer.MAX_VALUE) {
+            this.posIncrAtt.setPositionIncrement(1);
+            // Truncate the same way as in setAttribs(String, long, long).
+            this.termAtt.copyBuffer(buffer, offset, Math.min(length, LUCENE_MAX_TOKEN_LENGTH));
+            this.offsetAtt.setOffset((int) start, (int) end);
+            this.didSetAttribsValues = true;
+        }
+    }
+
     /**
      * Calls {@link #clearAttributes()}, and also resets some additional tracked
      * state.
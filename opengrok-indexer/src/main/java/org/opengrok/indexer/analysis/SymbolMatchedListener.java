@@ -42,4 +42,42 @@ public interface SymbolMatchedListener {
      * @param evt the event
      */
     void sourceCodeSeen(SourceCodeSeenEvent evt);
+
+    /**
+     * Receives a matched symbol without the intermediate event instance.
+     * The default implementation calls {@link #symbolMatched(SymbolMatchedEvent)}.
+     * @param source the event source
+     * @param str the symbol string
+     * @param start the symbol start position
+     * @param end the symbol end position
+     */
+    default void symbolMatched(Object source, String str, long start, long end) {
+        symbolMatched(new SymbolMatchedEvent(source, str, start, end));
+    }
+
+    /**
+     * Receives a matched symbol as a region of a character buffer (e.g. the
+     * buffer of a JFlex scanner) which is valid only for the duration of the
+     * call. The default implementation materializes the symbol and calls
+     * {@link #symbolMatched(SymbolMatchedEvent)}.
+     * @param source the event source
+     * @param buffer the buffer containing the symbol
+     * @param offset the offset of the symbol in {@code buffer}
+     * @param length the length of the symbol
+     * @param start the symbol start position
+     * @param end the symbol end position
+     */
+    default void symbolMatched(Object source, char[] buffer, int offset, int length, long start, long end) {
+        symbolMatched(new SymbolMatchedEvent(source, new String(buffer, offset, length), start, end));
+    }
+
+    /**
+     * Receives a notice of source code without the intermediate event instance.
+     * The default implementation calls {@link #sourceCodeSeen(SourceCodeSeenEvent)}.
+     * @param source the event source
+     * @param start the source code start position
+     */
+    default void sourceCodeSeen(Object source, long start) {
+        sourceCodeSeen(new SourceCodeSeenEvent(source, start));
+    }
 }
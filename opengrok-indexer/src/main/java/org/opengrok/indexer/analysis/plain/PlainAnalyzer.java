@@ -46,6 +46,7 @@ import org.opengrok.indexer.analysis.TextAnalyzer;
 import org.opengrok.indexer.analysis.WriteXrefArgs;
 import org.opengrok.indexer.analysis.XrefWork;
 import org.opengrok.indexer.analysis.Xrefer;
+import org.opengrok.indexer.index.IndexerProfiler;
 import org.opengrok.indexer.search.QueryBuilder;
 import org.opengrok.indexer.util.NullWriter;
 
@@ -117,13 +118,17 @@ public class PlainAnalyzer extends TextAnalyzer {
         doc.add(new OGKTextField(QueryBuilder.FULL, getReader(src.getStream())));
 
         String fullPath = doc.get(QueryBuilder.FULLPATH);
-        if (fullPath != null && ctags != null) {
+        if (definitions != null) {
+            defs = definitions;
+        } else if (fullPath != null && ctags != null) {
+            long ctagsBegin = IndexerProfiler.begin();
             defs = ctags.doCtags(fullPath);
-            if (defs != null && defs.numberOfSymbols() > 0) {
-                tryAddingDefs(doc, defs, src);
-                byte[] tags = defs.serialize();
-                doc.add(new StoredField(QueryBuilder.TAGS, tags));
-            }
+            IndexerProfiler.end(IndexerProfiler.CTAGS, ctagsBegin);
+        }
+        if (defs != null && defs.numberOfSymbols() > 0) {
+            tryAddingDefs(doc, defs, src);
+            byte[] tags = defs.serialize();
+            doc.add(new StoredField(QueryBuilder.TAGS, tags));
         }
         /*
          * This is to explicitly use appropriate analyzer's token stream to
@@ -145,6 +150,7 @@ public class PlainAnalyzer extends TextAnalyzer {
         }
 
         if (xrefOut != null) {
+            long xrefBegin = IndexerProfiler.begin();
             try (Reader in = getReader(src.getStream())) {
                 WriteXrefArgs args = new WriteXrefArgs(in, xrefOut);
                 args.setDefs(defs);
@@ -168,6 +174,7 @@ public class PlainAnalyzer extends TextAnalyzer {
                 if (nullWriter != null) {
                     nullWriter.close();
                 }
+                IndexerProfiler.end(IndexerProfiler.XREF, xrefBegin);
             }
         }
     }
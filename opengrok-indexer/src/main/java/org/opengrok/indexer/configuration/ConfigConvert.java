@@ -0,0 +1,114 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.configuration;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.text.ParseException;
+
+import org.opengrok.indexer.util.Getopt;
+
+/**
+ * Convert configuration file between the XML and binary representation.
+ * The format of the files is determined by their suffix, see {@link ConfigurationCodec#BINARY_SUFFIX}.
+ */
+@SuppressWarnings("java:S106")
+public class ConfigConvert {
+
+    private static final String NAME = "ConfigConvert";
+
+    private ConfigConvert() {
+    }
+
+    /**
+     * Convert the configuration file.
+     * @param input input configuration file
+     * @param output output configuration file
+     * @throws IOException on I/O error or if the input configuration is not valid
+     */
+    public static void convert(File input, File output) throws IOException {
+        Configuration.read(input).write(output);
+    }
+
+    public static void main(String[] argv) {
+
+        Getopt getopt = new Getopt(argv, "h?");
+
+        try {
+            getopt.parse();
+        } catch (ParseException ex) {
+            System.err.println(NAME + ": " + ex.getMessage());
+            bUsage(System.err);
+            System.exit(1);
+        }
+
+        int cmd;
+        getopt.reset();
+        while ((cmd = getopt.getOpt()) != -1) {
+            switch (cmd) {
+                case '?':
+                case 'h':
+                    aUsage(System.out);
+                    System.exit(0);
+                    break;
+                default:
+                    System.err.println("Internal Error - Not implemented option: " + (char) cmd);
+                    bUsage(System.err);
+                    System.exit(1);
+                    break;
+            }
+        }
+
+        int optind = getopt.getOptind();
+        if (optind < 0 || argv.length - optind != 2) {
+            aUsage(System.err);
+            System.exit(1);
+        }
+
+        try {
+            convert(new File(argv[optind]), new File(argv[optind + 1]));
+        } catch (IOException ex) {
+            System.err.println("cannot convert " + argv[optind] + ": " + ex);
+            System.exit(1);
+        }
+    }
+
+    private static void aUsage(PrintStream out) {
+        out.println("Usage:");
+        out.println(NAME + " [-h] <input_file> <output_file>");
+        out.println();
+        out.println("Files with the " + ConfigurationCodec.BINARY_SUFFIX
+                + " suffix are read/written in the binary format, other files in the XML format.");
+        out.println();
+        out.println("OPTIONS:");
+        out.println("Help");
+        out.println("-?                   print this help message");
+        out.println("-h                   print this help message");
+        out.println();
+    }
+
+    private static void bUsage(PrintStream out) {
+        out.println("Maybe try to run " + NAME + " -h");
+    }
+}
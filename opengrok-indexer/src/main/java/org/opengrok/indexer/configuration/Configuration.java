@@ -177,6 +177,7 @@ public final class Configuration {
 
     private LuceneLockName luceneLocking = LuceneLockName.OFF;
     private boolean compressXref;
+    private boolean xrefPack;
     private boolean indexVersionedFilesOnly;
     private int indexingParallelism;
     private int repositoryInvalidationParallelism;
@@ -185,6 +186,10 @@ public final class Configuration {
     private boolean tagsEnabled;
     private int hitsPerPage;
     private int cachePages;
+    private int searchResultCacheSize;
+    private int searchResultCacheMaxHits;
+    private boolean searchResultCacheContexts;
+    private boolean serverTimingEnabled;
     private short contextLimit; // initialized non-zero in ctor
     private short contextSurround;
     private boolean lastEditedDisplayMode;
@@ -276,6 +281,17 @@ public final class Configuration {
      */
     private int maxDirectoryListingThreadCount;
 
+    /**
+     * Upper bound for number of threads used for generating contexts of search results.
+     * This is total for the whole webapp.
+     */
+    private int maxContextThreadCount;
+
+    /**
+     * Time limit in seconds for generating contexts of single page of search results, 0 means no limit.
+     */
+    private int contextTimeout;
+
     /**
      * If false, do not display listing or projects/repositories on the index page.
      */
@@ -591,8 +607,14 @@ public final class Configuration {
         //luceneLocking default is OFF
         //mandoc is default(String)
         setMaxSearchThreadCount(2 * Runtime.getRuntime().availableProcessors());
+        setSearchResultCacheSize(100);
+        setSearchResultCacheMaxHits(1000);
+        setSearchResultCacheContexts(false);
+        setServerTimingEnabled(false);
         setMaxRevisionThreadCount(Runtime.getRuntime().availableProcessors());
         setMaxDirectoryListingThreadCount(Runtime.getRuntime().availableProcessors());
+        setMaxContextThreadCount(Runtime.getRuntime().availableProcessors());
+        setContextTimeout(10);
         setMergeCommitsEnabled(true);
         setMessageLimit(500);
         setNavigateWindowEnabled(false);
@@ -807,6 +829,65 @@ public final class Configuration {
         this.hitsPerPage = hitsPerPage;
     }
 
+    public int getSearchResultCacheSize() {
+        return searchResultCacheSize;
+    }
+
+    /**
+     * Set the maximum number of searches whose results are cached.
+     *
+     * @param searchResultCacheSize the new value, 0 disables the cache
+     * @throws IllegalArgumentException when the searchResultCacheSize is negative
+     */
+    public void setSearchResultCacheSize(int searchResultCacheSize) throws IllegalArgumentException {
+        if (searchResultCacheSize < 0) {
+            throw new IllegalArgumentException(
+                    String.format(NEGATIVE_NUMBER_ERROR, "searchResultCacheSize", searchResultCacheSize));
+        }
+        this.searchResultCacheSize = searchResultCacheSize;
+    }
+
+    public int getSearchResultCacheMaxHits() {
+        return searchResultCacheMaxHits;
+    }
+
+    /**
+     * Set the maximum number of documents in the cached result of single search.
+     * Results with more documents are not cached.
+     *
+     * @param searchResultCacheMaxHits the new value
+     * @throws IllegalArgumentException when the searchResultCacheMaxHits is negative
+     */
+    public void setSearchResultCacheMaxHits(int searchResultCacheMaxHits) throws IllegalArgumentException {
+        if (searchResultCacheMaxHits < 0) {
+            throw new IllegalArgumentException(
+                    String.format(NEGATIVE_NUMBER_ERROR, "searchResultCacheMaxHits", searchResultCacheMaxHits));
+        }
+        this.searchResultCacheMaxHits = searchResultCacheMaxHits;
+    }
+
+    /**
+     * @return whether the rendered contexts of the documents are cached together with the search results
+     */
+    public boolean isSearchResultCacheContexts() {
+        return searchResultCacheContexts;
+    }
+
+    public void setSearchResultCacheContexts(boolean searchResultCacheContexts) {
+        this.searchResultCacheContexts = searchResultCacheContexts;
+    }
+
+    /**
+     * @return whether the durations of the phases of the request are reported in the {@code Server-Timing} header
+     */
+    public boolean isServerTimingEnabled() {
+        return serverTimingEnabled;
+    }
+
+    public void setServerTimingEnabled(boolean serverTimingEnabled) {
+        this.serverTimingEnabled = serverTimingEnabled;
+    }
+
     /**
      * Should the history be enabled ?
      *
@@ -1163,6 +1244,14 @@ public final class Configuration {
         return compressXref;
     }
 
+    public boolean isXrefPack() {
+        return xrefPack;
+    }
+
+    public void setXrefPack(boolean xrefPack) {
+        this.xrefPack = xrefPack;
+    }
+
     public boolean isIndexVersionedFilesOnly() {
         return indexVersionedFilesOnly;
     }
@@ -1362,6 +1451,33 @@ public final class Configuration {
         this.maxDirectoryListingThreadCount = count;
     }
 
+    public int getMaxContextThreadCount() {
+        return maxContextThreadCount;
+    }
+
+    public void setMaxContextThreadCount(int count) {
+        this.maxContextThreadCount = count;
+    }
+
+    public int getContextTimeout() {
+        return contextTimeout;
+    }
+
+    /**
+     * Set the time limit for generating contexts of single page of search results.
+     * The contexts not generated in time are omitted.
+     *
+     * @param timeout the new value in seconds, 0 means no limit
+     * @throws IllegalArgumentException when the timeout is negative
+     */
+    public void setContextTimeout(int timeout) throws IllegalArgumentException {
+        if (timeout < 0) {
+            throw new IllegalArgumentException(
+                    String.format(NEGATIVE_NUMBER_ERROR, "contextTimeout", timeout));
+        }
+        this.contextTimeout = timeout;
+    }
+
     public boolean isProjectsEnabled() {
         return projectsEnabled;
     }
@@ -1487,14 +1603,19 @@ public final class Configuration {
     }
 
     /**
-     * Write the current configuration to a file.
+     * Write the current configuration to a file. The binary representation is used for files with
+     * the {@link ConfigurationCodec#BINARY_SUFFIX} suffix, XML representation otherwise.
      *
      * @param file the file to write the configuration into
      * @throws IOException if an error occurs
      */
     public void write(File file) throws IOException {
         try (FileOutputStream out = new FileOutputStream(file)) {
-            this.encodeObject(out);
+            if (ConfigurationCodec.isBinary(file)) {
+                ConfigurationCodec.encode(this, out);
+            } else {
+                this.encodeObject(out);
+            }
         }
     }
 
@@ -1506,13 +1627,24 @@ public final class Configuration {
 
     public void encodeObject(OutputStream out) {
         try (XMLEncoder e = new XMLEncoder(new BufferedOutputStream(out))) {
+            ConfigurationCodec.setPersistenceDelegates(e);
             e.writeObject(this);
         }
     }
 
+    /**
+     * Read the configuration from a file. The format is selected by the file suffix, see {@link #write(File)}.
+     *
+     * @param file the file to read the configuration from
+     * @return configuration
+     * @throws IOException if an error occurs
+     */
     public static Configuration read(File file) throws IOException {
         LOGGER.log(Level.INFO, "Reading configuration from ''{0}''", file.getCanonicalPath());
         try (FileInputStream in = new FileInputStream(file)) {
+            if (ConfigurationCodec.isBinary(file)) {
+                return postProcess(ConfigurationCodec.decode(in));
+            }
             return decodeObject(in);
         }
     }
@@ -1548,24 +1680,51 @@ public final class Configuration {
             throw new IOException(exceptions.getFirst());
         }
 
-        Configuration conf = ((Configuration) ret);
+        return postProcess((Configuration) ret);
+    }
+
+    private static Configuration postProcess(Configuration conf) throws IOException {
+        conf.setGroups(flattenGroups(conf.groups));
+
+        /*
+         * Validate any defined canonicalRoot entries, and only include where
+         * validation succeeds.
+         */
+        if (conf.canonicalRoots != null) {
+            conf.canonicalRoots = conf.canonicalRoots.stream().filter(s -> {
+                String problem = CanonicalRootValidator.validate(s, "canonicalRoot element");
+                if (problem == null) {
+                    return true;
+                } else {
+                    LOGGER.warning(problem);
+                    return false;
+                }
+            }).collect(Collectors.toCollection(HashSet::new));
+        }
+
+        return conf;
+    }
 
-        // Removes all non-root groups.
+    /**
+     * Transform the group tree to a map containing all the groups.
+     * @param groups groups as decoded from XML
+     * @return map of group names to groups
+     * @throws IOException if there are duplicate group names
+     */
+    static Map<String, Group> flattenGroups(Map<String, Group> groups) throws IOException {
+        // Start with the root groups only.
         // This ensures that when the configuration is reloaded then the set
         // contains only root groups. Subgroups are discovered again
         // as follows below
-
-        List<Group> nonRootGroups = conf.groups.values().stream()
-                .filter(g -> Objects.nonNull(g.getParent()))
+        List<Group> rootGroups = groups.values().stream()
+                .filter(g -> Objects.isNull(g.getParent()))
                 .collect(Collectors.toList());
-        nonRootGroups.forEach(g ->
-                    conf.groups.remove(g.getName())
-        );
+
         // Traversing subgroups and checking for duplicates,
         // effectively transforms the group tree to a structure (Set)
         // supporting an iterator.
         Map<String, Group> copy = new TreeMap<>();
-        LinkedList<Group> stack = new LinkedList<>(conf.groups.values());
+        LinkedList<Group> stack = new LinkedList<>(rootGroups);
         while (!stack.isEmpty()) {
             Group group = stack.pollFirst();
             stack.addAll(group.getSubgroups());
@@ -1583,25 +1742,7 @@ public final class Configuration {
                 tmp = tmp.getParent();
             }
         }
-        conf.setGroups(copy);
-
-        /*
-         * Validate any defined canonicalRoot entries, and only include where
-         * validation succeeds.
-         */
-        if (conf.canonicalRoots != null) {
-            conf.canonicalRoots = conf.canonicalRoots.stream().filter(s -> {
-                String problem = CanonicalRootValidator.validate(s, "canonicalRoot element");
-                if (problem == null) {
-                    return true;
-                } else {
-                    LOGGER.warning(problem);
-                    return false;
-                }
-            }).collect(Collectors.toCollection(HashSet::new));
-        }
-
-        return conf;
+        return copy;
     }
 
     public static class ConfigurationException extends Exception {
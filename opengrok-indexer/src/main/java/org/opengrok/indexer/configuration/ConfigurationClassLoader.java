@@ -55,6 +55,7 @@ public class ConfigurationClassLoader extends ClassLoader {
             AuthorizationStack.class,
             Collections.class,
             Configuration.class,
+            ConfigurationDelta.class,
             Enum.class,
             Filter.class,
             Group.class,
@@ -0,0 +1,608 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.configuration;
+
+import java.beans.Encoder;
+import java.beans.ExceptionListener;
+import java.beans.Expression;
+import java.beans.PersistenceDelegate;
+import java.beans.PropertyDescriptor;
+import java.beans.XMLDecoder;
+import java.beans.XMLEncoder;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.jetbrains.annotations.Nullable;
+import org.opengrok.indexer.history.RepositoryInfo;
+import org.opengrok.indexer.logger.LoggerFactory;
+
+/**
+ * Compact binary (Smile) representation of {@link Configuration}, used instead of the XML representation
+ * for configuration files with the {@link #BINARY_SUFFIX} suffix.
+ * <p>
+ * Properties with simple values (and collections of them) are stored natively, only properties that differ
+ * from the default values are stored. The other properties (e.g. the authorization stack) are stored
+ * in their XML representation. {@link Project} and {@link RepositoryInfo} objects are decoded on the first access
+ * to the respective entry of {@link Configuration#getProjects()} or {@link Configuration#getRepositories()}.
+ * </p>
+ * <p>
+ * This saves work only for the consumers which do not go through all the entries, e.g. looking up a single project.
+ * Applying the configuration via {@link RuntimeEnvironment#setConfiguration(Configuration)} sets up
+ * the repositories, the project - repositories map and the groups, which needs all the entries,
+ * so there the speedup comes from the faster decoding alone.
+ * </p>
+ */
+public final class ConfigurationCodec {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationCodec.class);
+
+    /**
+     * Suffix of configuration files stored in the binary format.
+     */
+    public static final String BINARY_SUFFIX = ".smile";
+
+    static final int FORMAT_VERSION = 1;
+
+    private static final String FORMAT = "format";
+    private static final String SETTINGS = "settings";
+    private static final String DEFAULT_PROJECTS = "defaultProjects";
+    private static final String PROJECTS = "projects";
+    private static final String REPOSITORIES = "repositories";
+    private static final String GROUPS = "groups";
+
+    /**
+     * Field with the XML representation of properties that cannot be stored natively.
+     * The {@code @} prefix avoids clashes with property names.
+     */
+    private static final String XML_PROPERTIES = "@xml";
+    private static final String GROUP_PARENT = "@parent";
+
+    /**
+     * Configuration properties that are not stored as generic settings.
+     */
+    private static final Set<String> ENTITY_PROPERTIES = Set.of(DEFAULT_PROJECTS, PROJECTS, REPOSITORIES, GROUPS);
+
+    /**
+     * Group properties that form the group tree.
+     */
+    private static final Set<String> GROUP_TREE_PROPERTIES = Set.of("parent", "subgroups");
+
+    private static final ObjectMapper MAPPER = createMapper();
+
+    private ConfigurationCodec() {
+    }
+
+    private static ObjectMapper createMapper() {
+        SmileFactory smileFactory = new SmileFactory();
+        // need header to enable shared string values
+        smileFactory.configure(SmileGenerator.Feature.WRITE_HEADER, true);
+        smileFactory.configure(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES, true);
+        return new SmileMapper(smileFactory);
+    }
+
+    /**
+     * @param file configuration file
+     * @return whether the file is expected to contain the binary representation
+     */
+    public static boolean isBinary(File file) {
+        return file.getName().endsWith(BINARY_SUFFIX);
+    }
+
+    /**
+     * Write the binary representation of the configuration.
+     * @param configuration configuration
+     * @param out output stream, will be closed
+     * @throws IOException on I/O error or if some property cannot be read
+     */
+    public static void encode(Configuration configuration, OutputStream out) throws IOException {
+        try (JsonGenerator gen = MAPPER.getFactory().createGenerator(new BufferedOutputStream(out))) {
+            gen.writeStartObject();
+            gen.writeNumberField(FORMAT, FORMAT_VERSION);
+
+            gen.writeObjectFieldStart(SETTINGS);
+            writeProperties(gen, configuration, new Configuration(), ENTITY_PROPERTIES);
+            gen.writeEndObject();
+
+            if (configuration.getDefaultProjects() != null) {
+                gen.writeArrayFieldStart(DEFAULT_PROJECTS);
+                for (Project project : configuration.getDefaultProjects()) {
+                    gen.writeString(project.getName());
+                }
+                gen.writeEndArray();
+            }
+
+            if (configuration.getProjects() != null) {
+                Project defaultProject = new Project();
+                gen.writeObjectFieldStart(PROJECTS);
+                for (Map.Entry<String, Project> entry : new TreeMap<>(configuration.getProjects()).entrySet()) {
+                    gen.writeObjectFieldStart(entry.getKey());
+                    writeProperties(gen, entry.getValue(), defaultProject, Set.of());
+                    gen.writeEndObject();
+                }
+                gen.writeEndObject();
+            }
+
+            if (configuration.getRepositories() != null) {
+                RepositoryInfo defaultRepository = new RepositoryInfo();
+                gen.writeArrayFieldStart(REPOSITORIES);
+                for (RepositoryInfo repositoryInfo : configuration.getRepositories()) {
+                    gen.writeStartObject();
+                    writeProperties(gen, repositoryInfo, defaultRepository, Set.of());
+                    gen.writeEndObject();
+                }
+                gen.writeEndArray();
+            }
+
+            if (configuration.getGroups() != null) {
+                Group defaultGroup = new Group();
+                gen.writeArrayFieldStart(GROUPS);
+                for (Group group : configuration.getGroups().values()) {
+                    gen.writeStartObject();
+                    writeProperties(gen, group, defaultGroup, GROUP_TREE_PROPERTIES);
+                    if (group.getParent() != null) {
+                        gen.writeStringField(GROUP_PARENT, group.getParent().getName());
+                    }
+                    gen.writeEndObject();
+                }
+                gen.writeEndArray();
+            }
+
+            gen.writeEndObject();
+        }
+    }
+
+    private static void writeProperties(JsonGenerator gen, Object bean, Object defaults, Set<String> excluded)
+            throws IOException {
+
+        Map<String, String> xmlProperties = new TreeMap<>();
+        for (PropertyDescriptor descriptor : ConfigurationDelta.getProperties(bean.getClass()).values()) {
+            if (excluded.contains(descriptor.getName())) {
+                continue;
+            }
+            Object value = ConfigurationDelta.read(descriptor, bean);
+            if (Objects.deepEquals(value, ConfigurationDelta.read(descriptor, defaults))) {
+                continue;
+            }
+            if (isNative(value)) {
+                gen.writeFieldName(descriptor.getName());
+                gen.writeObject(value);
+            } else {
+                xmlProperties.put(descriptor.getName(), encodeXML(value));
+            }
+        }
+
+        if (!xmlProperties.isEmpty()) {
+            gen.writeObjectFieldStart(XML_PROPERTIES);
+            for (Map.Entry<String, String> entry : xmlProperties.entrySet()) {
+                gen.writeStringField(entry.getKey(), entry.getValue());
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    /**
+     * @return whether the value can be stored natively, i.e. it is a simple value or an array,
+     * collection or map of simple values
+     */
+    private static boolean isNative(@Nullable Object value) {
+        if (ConfigurationDelta.isSimpleValue(value)) {
+            return true;
+        }
+        if (value instanceof Object[] array) {
+            return isNative(List.of(array));
+        }
+        if (value instanceof Collection<?> collection) {
+            return collection.stream().allMatch(ConfigurationDelta::isSimpleValue);
+        }
+        if (value instanceof Map<?, ?> map) {
+            return map.entrySet().stream().allMatch(e ->
+                    ConfigurationDelta.isSimpleValue(e.getKey()) && ConfigurationDelta.isSimpleValue(e.getValue()));
+        }
+        return false;
+    }
+
+    /**
+     * Read the binary representation of the configuration.
+     * The groups are not post-processed, see {@link Configuration#flattenGroups(Map)}.
+     * @param in input stream
+     * @return configuration
+     * @throws IOException on I/O error or if the data is not valid
+     */
+    public static Configuration decode(InputStream in) throws IOException {
+        JsonNode root = MAPPER.readTree(new BufferedInputStream(in));
+        if (root == null || !root.isObject() || root.path(FORMAT).asInt() != FORMAT_VERSION) {
+            throw new IOException("Not a valid binary config file");
+        }
+
+        Configuration configuration = new Configuration();
+        readProperties(configuration, root.path(SETTINGS), ENTITY_PROPERTIES, false);
+
+        LazyMap<String, Project> projects = new LazyMap<>();
+        root.path(PROJECTS).fields().forEachRemaining(entry ->
+                projects.putLazy(entry.getKey(), new Lazy<>(() -> readBean(Project.class, entry.getValue()))));
+        configuration.setProjects(projects);
+
+        if (root.has(DEFAULT_PROJECTS)) {
+            Set<Project> defaultProjects = new TreeSet<>();
+            for (JsonNode name : root.get(DEFAULT_PROJECTS)) {
+                Project project = projects.get(name.asText());
+                if (project == null) {
+                    LOGGER.log(Level.WARNING, "unknown default project ''{0}''", name.asText());
+                    continue;
+                }
+                defaultProjects.add(project);
+            }
+            configuration.setDefaultProjects(defaultProjects);
+        }
+
+        LazyList<RepositoryInfo> repositories = new LazyList<>();
+        for (JsonNode node : root.path(REPOSITORIES)) {
+            repositories.addLazy(new Lazy<>(() -> readBean(RepositoryInfo.class, node)));
+        }
+        configuration.setRepositories(repositories);
+
+        configuration.setGroups(readGroups(root.path(GROUPS)));
+
+        return configuration;
+    }
+
+    private static Map<String, Group> readGroups(JsonNode nodes) throws IOException {
+        Map<String, Group> groups = new TreeMap<>();
+        for (JsonNode node : nodes) {
+            Group group = new Group();
+            readProperties(group, node, GROUP_TREE_PROPERTIES, false);
+            if (groups.put(group.getName(), group) != null) {
+                throw new IOException(String.format("Duplicate group name '%s' in configuration.", group.getName()));
+            }
+        }
+        for (JsonNode node : nodes) {
+            if (node.has(GROUP_PARENT)) {
+                Group parent = groups.get(node.get(GROUP_PARENT).asText());
+                if (parent == null) {
+                    throw new IOException(String.format("Unknown parent group '%s'", node.get(GROUP_PARENT).asText()));
+                }
+                parent.addGroup(groups.get(node.path("name").asText()));
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Materialize lazily stored object. Properties that cannot be set are skipped so that the access
+     * to the containing collection does not fail.
+     */
+    private static <T> T readBean(Class<T> clazz, JsonNode node) {
+        T bean;
+        try {
+            bean = clazz.getDeclaredConstructor().newInstance();
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException
+                 | NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+        try {
+            readProperties(bean, node, Set.of(), true);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format("cannot read %s from configuration", clazz.getSimpleName()), e);
+        }
+        return bean;
+    }
+
+    private static void readProperties(Object bean, JsonNode node, Set<String> excluded, boolean lenient)
+            throws IOException {
+
+        Map<String, PropertyDescriptor> descriptors = ConfigurationDelta.getProperties(bean.getClass());
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            try {
+                if (field.getKey().equals(XML_PROPERTIES)) {
+                    Iterator<Map.Entry<String, JsonNode>> xmlFields = field.getValue().fields();
+                    while (xmlFields.hasNext()) {
+                        Map.Entry<String, JsonNode> xmlField = xmlFields.next();
+                        PropertyDescriptor descriptor = getDescriptor(descriptors, excluded, xmlField.getKey());
+                        if (descriptor != null) {
+                            ConfigurationDelta.write(descriptor, bean, decodeXML(xmlField.getValue().asText()));
+                        }
+                    }
+                    continue;
+                }
+                if (field.getKey().startsWith("@")) {
+                    continue;
+                }
+                PropertyDescriptor descriptor = getDescriptor(descriptors, excluded, field.getKey());
+                if (descriptor != null) {
+                    Object value = MAPPER.treeToValue(field.getValue(),
+                            MAPPER.constructType(descriptor.getWriteMethod().getGenericParameterTypes()[0]));
+                    ConfigurationDelta.write(descriptor, bean, value);
+                }
+            } catch (IOException e) {
+                if (!lenient) {
+                    throw new IOException(String.format("cannot read property '%s'", field.getKey()), e);
+                }
+                LOGGER.log(Level.WARNING, String.format("cannot read property '%s'", field.getKey()), e);
+            }
+        }
+    }
+
+    @Nullable
+    private static PropertyDescriptor getDescriptor(Map<String, PropertyDescriptor> descriptors, Set<String> excluded,
+                                                    String name) {
+        PropertyDescriptor descriptor = descriptors.get(name);
+        if (descriptor == null || excluded.contains(name)) {
+            LOGGER.log(Level.WARNING, "ignoring unknown configuration property ''{0}''", name);
+            return null;
+        }
+        return descriptor;
+    }
+
+    private static String encodeXML(Object value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XMLEncoder e = new XMLEncoder(new BufferedOutputStream(out))) {
+            e.writeObject(value);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("lgtm[java/unsafe-deserialization]")
+    private static Object decodeXML(String xml) throws IOException {
+        final Object ret;
+        final LinkedList<Exception> exceptions = new LinkedList<>();
+        ExceptionListener listener = exceptions::addLast;
+
+        try (XMLDecoder d = new XMLDecoder(new BufferedInputStream(
+                new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))), null, listener,
+                new ConfigurationClassLoader())) {
+            ret = d.readObject();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // XMLDecoder throws this if there is no object to read.
+            throw new IOException("no object in XML representation of the property", e);
+        }
+        if (!exceptions.isEmpty()) {
+            throw new IOException(exceptions.getFirst());
+        }
+        return ret;
+    }
+
+    /**
+     * Make the lazily materialized collections appear in the XML representation as the collections
+     * they stand for, so that the XML representation does not depend on the format the configuration was read from.
+     * @param encoder XML encoder
+     */
+    static void setPersistenceDelegates(XMLEncoder encoder) {
+        encoder.setPersistenceDelegate(LazyMap.class, new LazyCollectionPersistenceDelegate(ConcurrentHashMap.class));
+        encoder.setPersistenceDelegate(LazyList.class, new LazyCollectionPersistenceDelegate(ArrayList.class));
+    }
+
+    private static class LazyCollectionPersistenceDelegate extends PersistenceDelegate {
+        private final Class<?> collectionClass;
+
+        LazyCollectionPersistenceDelegate(Class<?> collectionClass) {
+            this.collectionClass = collectionClass;
+        }
+
+        @Override
+        protected boolean mutatesTo(Object oldInstance, Object newInstance) {
+            return collectionClass.isInstance(newInstance);
+        }
+
+        @Override
+        protected Expression instantiate(Object oldInstance, Encoder out) {
+            return new Expression(oldInstance, collectionClass, "new", new Object[0]);
+        }
+    }
+
+    /**
+     * Holder of lazily materialized value.
+     */
+    static final class Lazy<T> {
+        private Supplier<T> supplier;
+        private volatile boolean materialized;
+        private T value;
+
+        Lazy(Supplier<T> supplier) {
+            this.supplier = supplier;
+        }
+
+        static <T> Lazy<T> of(T value) {
+            Lazy<T> lazy = new Lazy<>(null);
+            lazy.value = value;
+            lazy.materialized = true;
+            return lazy;
+        }
+
+        T get() {
+            if (!materialized) {
+                synchronized (this) {
+                    if (!materialized) {
+                        value = supplier.get();
+                        supplier = null;
+                        materialized = true;
+                    }
+                }
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Concurrent map with lazily materialized values.
+     */
+    static final class LazyMap<K, V> extends AbstractMap<K, V> {
+        private final Map<K, Lazy<V>> map = new ConcurrentHashMap<>();
+
+        void putLazy(K key, Lazy<V> value) {
+            map.put(key, value);
+        }
+
+        @Nullable
+        private static <V> V get(@Nullable Lazy<V> lazy) {
+            return lazy != null ? lazy.get() : null;
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public V get(Object key) {
+            return get(map.get(key));
+        }
+
+        @Override
+        public V put(K key, V value) {
+            return get(map.put(key, Lazy.of(value)));
+        }
+
+        @Override
+        public V remove(Object key) {
+            return get(map.remove(key));
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+
+        @Override
+        public Set<K> keySet() {
+            return map.keySet();
+        }
+
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    Iterator<Entry<K, Lazy<V>>> iterator = map.entrySet().iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<K, V> next() {
+                            Entry<K, Lazy<V>> entry = iterator.next();
+                            return new SimpleEntry<>(entry.getKey(), entry.getValue().get()) {
+                                private static final long serialVersionUID = 1L;
+
+                                @Override
+                                public V setValue(V value) {
+                                    map.put(getKey(), Lazy.of(value));
+                                    return super.setValue(value);
+                                }
+                            };
+                        }
+
+                        @Override
+                        public void remove() {
+                            iterator.remove();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return map.size();
+                }
+            };
+        }
+    }
+
+    /**
+     * List with lazily materialized elements.
+     */
+    static final class LazyList<E> extends AbstractList<E> implements RandomAccess {
+        private final List<Lazy<E>> list = new ArrayList<>();
+
+        void addLazy(Lazy<E> element) {
+            list.add(element);
+            modCount++;
+        }
+
+        @Override
+        public E get(int index) {
+            return list.get(index).get();
+        }
+
+        @Override
+        public E set(int index, E element) {
+            return list.set(index, Lazy.of(element)).get();
+        }
+
+        @Override
+        public void add(int index, E element) {
+            list.add(index, Lazy.of(element));
+            modCount++;
+        }
+
+        @Override
+        public E remove(int index) {
+            modCount++;
+            return list.remove(index).get();
+        }
+
+        @Override
+        public int size() {
+            return list.size();
+        }
+    }
+}
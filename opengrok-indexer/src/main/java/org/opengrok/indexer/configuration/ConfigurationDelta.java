@@ -0,0 +1,452 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.configuration;
+
+import java.beans.ExceptionListener;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.beans.XMLDecoder;
+import java.beans.XMLEncoder;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jetbrains.annotations.Nullable;
+import org.opengrok.indexer.history.RepositoryInfo;
+import org.opengrok.indexer.logger.LoggerFactory;
+
+/**
+ * Difference between two {@link Configuration} instances. This is sent by the indexer to the web application
+ * instead of the complete configuration if the web application runs with the configuration the indexer pushed
+ * previously, i.e. with the configuration identified by {@link #getBaseVersion()}.
+ * <p>
+ * Projects and repositories are transferred individually, only those that were added or changed.
+ * The other properties of the configuration are transferred only if changed.
+ * </p>
+ */
+public class ConfigurationDelta {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationDelta.class);
+
+    /**
+     * Configuration properties that are not handled as generic settings.
+     */
+    private static final Set<String> ENTITY_PROPERTIES = Set.of("projects", "repositories", "groups");
+
+    private static final Map<Class<?>, Map<String, PropertyDescriptor>> PROPERTIES = new ConcurrentHashMap<>();
+
+    private String baseVersion;
+    private String version;
+    private Map<String, Object> settings = new HashMap<>();
+    private Map<String, Project> projects = new HashMap<>();
+    private Set<String> removedProjects = new TreeSet<>();
+    private List<RepositoryInfo> repositories = new ArrayList<>();
+    private Set<String> removedRepositories = new TreeSet<>();
+    private Map<String, Group> groups;
+
+    /**
+     * @return version of the configuration the delta applies to
+     */
+    public String getBaseVersion() {
+        return baseVersion;
+    }
+
+    public void setBaseVersion(String baseVersion) {
+        this.baseVersion = baseVersion;
+    }
+
+    /**
+     * @return version of the configuration after the delta is applied
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    /**
+     * @return map of changed configuration property names to their new values
+     */
+    public Map<String, Object> getSettings() {
+        return settings;
+    }
+
+    public void setSettings(Map<String, Object> settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * @return added or changed projects
+     */
+    public Map<String, Project> getProjects() {
+        return projects;
+    }
+
+    public void setProjects(Map<String, Project> projects) {
+        this.projects = projects;
+    }
+
+    /**
+     * @return names of removed projects
+     */
+    public Set<String> getRemovedProjects() {
+        return removedProjects;
+    }
+
+    public void setRemovedProjects(Set<String> removedProjects) {
+        this.removedProjects = removedProjects;
+    }
+
+    /**
+     * @return added or changed repositories
+     */
+    public List<RepositoryInfo> getRepositories() {
+        return repositories;
+    }
+
+    public void setRepositories(List<RepositoryInfo> repositories) {
+        this.repositories = repositories;
+    }
+
+    /**
+     * @return directory names (relative to source root) of removed repositories
+     */
+    public Set<String> getRemovedRepositories() {
+        return removedRepositories;
+    }
+
+    public void setRemovedRepositories(Set<String> removedRepositories) {
+        this.removedRepositories = removedRepositories;
+    }
+
+    /**
+     * @return complete new map of groups or {@code null} if the groups did not change
+     */
+    @Nullable
+    public Map<String, Group> getGroups() {
+        return groups;
+    }
+
+    public void setGroups(@Nullable Map<String, Group> groups) {
+        this.groups = groups;
+    }
+
+    /**
+     * @return whether the delta does not change anything
+     */
+    public boolean isEmpty() {
+        return settings.isEmpty() && projects.isEmpty() && removedProjects.isEmpty()
+                && repositories.isEmpty() && removedRepositories.isEmpty() && groups == null;
+    }
+
+    /**
+     * @return names of projects that were added, changed or removed
+     */
+    public Set<String> getChangedProjectNames() {
+        Set<String> names = new TreeSet<>(projects.keySet());
+        names.addAll(removedProjects);
+        return names;
+    }
+
+    /**
+     * @param configurationXML XML representation of the configuration
+     * @return version identifier of the configuration
+     */
+    public static String getVersion(String configurationXML) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(configurationXML.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Compute the difference between the configurations.
+     * @param base configuration the delta will be applied to
+     * @param current configuration to be produced by applying the delta
+     * @param baseVersion version of the base configuration
+     * @param version version of the current configuration
+     * @return delta
+     * @throws IOException if the configuration properties cannot be read
+     */
+    public static ConfigurationDelta compute(Configuration base, Configuration current,
+                                             String baseVersion, String version) throws IOException {
+        ConfigurationDelta delta = new ConfigurationDelta();
+        delta.setBaseVersion(baseVersion);
+        delta.setVersion(version);
+
+        for (PropertyDescriptor descriptor : getProperties(Configuration.class).values()) {
+            if (ENTITY_PROPERTIES.contains(descriptor.getName())) {
+                continue;
+            }
+            Object value = read(descriptor, current);
+            if (!sameValue(read(descriptor, base), value)) {
+                delta.settings.put(descriptor.getName(), value);
+            }
+        }
+
+        Map<String, Project> baseProjects = Objects.requireNonNullElse(base.getProjects(), Collections.emptyMap());
+        Map<String, Project> currentProjects = Objects.requireNonNullElse(current.getProjects(), Collections.emptyMap());
+        for (Map.Entry<String, Project> entry : currentProjects.entrySet()) {
+            Project baseProject = baseProjects.get(entry.getKey());
+            if (baseProject == null || !sameProperties(baseProject, entry.getValue())) {
+                delta.projects.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (String name : baseProjects.keySet()) {
+            if (!currentProjects.containsKey(name)) {
+                delta.removedProjects.add(name);
+            }
+        }
+
+        Map<String, RepositoryInfo> baseRepositories = getRepositoryMap(base.getRepositories());
+        Map<String, RepositoryInfo> currentRepositories = getRepositoryMap(current.getRepositories());
+        for (Map.Entry<String, RepositoryInfo> entry : currentRepositories.entrySet()) {
+            RepositoryInfo baseRepository = baseRepositories.get(entry.getKey());
+            if (baseRepository == null || !sameProperties(baseRepository, entry.getValue())) {
+                delta.repositories.add(entry.getValue());
+            }
+        }
+        for (String directoryName : baseRepositories.keySet()) {
+            if (!currentRepositories.containsKey(directoryName)) {
+                delta.removedRepositories.add(directoryName);
+            }
+        }
+
+        if (!sameValue(base.getGroups(), current.getGroups())) {
+            delta.groups = current.getGroups();
+        }
+
+        return delta;
+    }
+
+    private static Map<String, RepositoryInfo> getRepositoryMap(@Nullable Collection<RepositoryInfo> repositories) {
+        Map<String, RepositoryInfo> map = new LinkedHashMap<>();
+        if (repositories != null) {
+            for (RepositoryInfo repositoryInfo : repositories) {
+                map.put(repositoryInfo.getDirectoryNameRelative(), repositoryInfo);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Apply the delta to the configuration.
+     * @param configuration configuration to modify
+     * @throws IOException if some property cannot be set or the groups are not valid
+     */
+    public void apply(Configuration configuration) throws IOException {
+        Map<String, PropertyDescriptor> descriptors = getProperties(Configuration.class);
+        for (Map.Entry<String, Object> entry : settings.entrySet()) {
+            PropertyDescriptor descriptor = descriptors.get(entry.getKey());
+            if (descriptor == null || ENTITY_PROPERTIES.contains(entry.getKey())) {
+                LOGGER.log(Level.WARNING, "ignoring unknown configuration property ''{0}''", entry.getKey());
+                continue;
+            }
+            write(descriptor, configuration, entry.getValue());
+        }
+
+        Map<String, Project> configurationProjects = configuration.getProjects();
+        removedProjects.forEach(configurationProjects::remove);
+        configurationProjects.putAll(projects);
+
+        Set<String> replacedRepositories = new HashSet<>(removedRepositories);
+        repositories.forEach(repositoryInfo -> replacedRepositories.add(repositoryInfo.getDirectoryNameRelative()));
+        List<RepositoryInfo> configurationRepositories = new ArrayList<>();
+        if (configuration.getRepositories() != null) {
+            for (RepositoryInfo repositoryInfo : configuration.getRepositories()) {
+                if (!replacedRepositories.contains(repositoryInfo.getDirectoryNameRelative())) {
+                    configurationRepositories.add(repositoryInfo);
+                }
+            }
+        }
+        configurationRepositories.addAll(repositories);
+        configuration.setRepositories(configurationRepositories);
+
+        if (groups != null) {
+            configuration.setGroups(Configuration.flattenGroups(groups));
+        }
+    }
+
+    static Map<String, PropertyDescriptor> getProperties(Class<?> clazz) throws IOException {
+        Map<String, PropertyDescriptor> properties = PROPERTIES.get(clazz);
+        if (properties != null) {
+            return properties;
+        }
+
+        properties = new LinkedHashMap<>();
+        try {
+            for (PropertyDescriptor descriptor : Introspector.getBeanInfo(clazz).getPropertyDescriptors()) {
+                // Consider the same properties as XMLEncoder.
+                if (descriptor.getReadMethod() != null && descriptor.getWriteMethod() != null
+                        && !Boolean.TRUE.equals(descriptor.getValue("transient"))) {
+                    properties.put(descriptor.getName(), descriptor);
+                }
+            }
+        } catch (IntrospectionException e) {
+            throw new IOException(e);
+        }
+        properties = Collections.unmodifiableMap(properties);
+        PROPERTIES.put(clazz, properties);
+        return properties;
+    }
+
+    static Object read(PropertyDescriptor descriptor, Object object) throws IOException {
+        try {
+            return descriptor.getReadMethod().invoke(object);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IOException(String.format("cannot read property '%s'", descriptor.getName()), e);
+        }
+    }
+
+    static void write(PropertyDescriptor descriptor, Object object, Object value) throws IOException {
+        try {
+            descriptor.getWriteMethod().invoke(object, value);
+        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+            throw new IOException(String.format("cannot set property '%s'", descriptor.getName()), e);
+        }
+    }
+
+    private static boolean sameProperties(Object a, Object b) throws IOException {
+        if (a.getClass() != b.getClass()) {
+            return false;
+        }
+        for (PropertyDescriptor descriptor : getProperties(a.getClass()).values()) {
+            if (!sameValue(read(descriptor, a), read(descriptor, b))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isSimpleValue(@Nullable Object value) {
+        return value == null || value instanceof String || value instanceof Number || value instanceof Boolean
+                || value instanceof Character || value instanceof Enum;
+    }
+
+    /**
+     * Simple values and collections of simple values are compared with {@code equals()},
+     * other objects by their XML representation as the classes mostly do not implement
+     * {@code equals()} or implement it based on identity (e.g. {@link Project}).
+     */
+    private static boolean sameValue(@Nullable Object a, @Nullable Object b) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null) {
+            return false;
+        }
+        if (isSimpleValue(a)) {
+            return a.equals(b);
+        }
+        if (a instanceof Collection<?> c1 && b instanceof Collection<?> c2
+                && c1.stream().allMatch(ConfigurationDelta::isSimpleValue)
+                && c2.stream().allMatch(ConfigurationDelta::isSimpleValue)) {
+            return c1.equals(c2);
+        }
+        if (a instanceof Map<?, ?> m1 && b instanceof Map<?, ?> m2
+                && isSimpleMap(m1) && isSimpleMap(m2)) {
+            return m1.equals(m2);
+        }
+        return Arrays.equals(encode(a), encode(b));
+    }
+
+    private static boolean isSimpleMap(Map<?, ?> map) {
+        return map.entrySet().stream().allMatch(e -> isSimpleValue(e.getKey()) && isSimpleValue(e.getValue()));
+    }
+
+    private static byte[] encode(Object object) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XMLEncoder e = new XMLEncoder(new BufferedOutputStream(out))) {
+            e.writeObject(object);
+        }
+        return out.toByteArray();
+    }
+
+    public String getXMLRepresentationAsString() {
+        return new String(encode(this), StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("lgtm[java/unsafe-deserialization]")
+    public static ConfigurationDelta makeXMLStringAsDelta(String xml) throws IOException {
+        final Object ret;
+        final LinkedList<Exception> exceptions = new LinkedList<>();
+        ExceptionListener listener = exceptions::addLast;
+
+        try (XMLDecoder d = new XMLDecoder(new BufferedInputStream(
+                new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))), null, listener,
+                new ConfigurationClassLoader())) {
+            ret = d.readObject();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // XMLDecoder throws this if there is no object to read.
+            throw new IOException("Not a valid configuration delta", e);
+        }
+
+        if (!(ret instanceof ConfigurationDelta)) {
+            throw new IOException("Not a valid configuration delta");
+        }
+        if (!exceptions.isEmpty()) {
+            throw new IOException(exceptions.getFirst());
+        }
+
+        return (ConfigurationDelta) ret;
+    }
+
+    /**
+     * Thrown if the delta does not apply to the configuration of the web application.
+     */
+    public static class BaseVersionMismatchException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public BaseVersionMismatchException(String message) {
+            super(message);
+        }
+    }
+}
@@ -29,19 +29,44 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.apache.lucene.util.automaton.Automata;
+import org.apache.lucene.util.automaton.Automaton;
+import org.apache.lucene.util.automaton.CharacterRunAutomaton;
+import org.apache.lucene.util.automaton.Operations;
+import org.apache.lucene.util.automaton.TooComplexToDeterminizeException;
+import org.jetbrains.annotations.Nullable;
+import org.opengrok.indexer.logger.LoggerFactory;
+
 public class Filter implements Serializable {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(Filter.class);
+
     private static final long serialVersionUID = 3L;
 
+    /**
+     * Upper bound of the effort spent on determinization of the automata, see
+     * {@link Operations#determinize(Automaton, int)}.
+     */
+    private static final int DETERMINIZE_WORK_LIMIT = 100 * Operations.DEFAULT_DETERMINIZE_WORK_LIMIT;
+
     /** The list of exact filenames. */
     private final transient Set<String> filenames;
     /** The list of filenames with wildcards. */
     private final transient List<Pattern> patterns;
     /** The list of paths. */
     private final transient List<String> paths;
+    /** The list of filenames with wildcards in their original glob form. */
+    private final transient List<String> globs;
+    /**
+     * Automata compiled from all the above lists, built lazily on first match
+     * and reset whenever the lists change.
+     */
+    private transient volatile CompiledFilter compiled;
     /**
      * The full list of all patterns. This list will be saved in the
      * configuration file (if used).
@@ -52,6 +77,7 @@ public class Filter implements Serializable {
         filenames = new HashSet<>();
         patterns = new ArrayList<>();
         paths = new ArrayList<>();
+        globs = new ArrayList<>();
         items = new PatternList(this);
     }
 
@@ -96,7 +122,9 @@ public class Filter implements Serializable {
         patterns.clear();
         filenames.clear();
         paths.clear();
+        globs.clear();
         items.clear();
+        compiled = null;
     }
 
     /**
@@ -106,6 +134,26 @@ public class Filter implements Serializable {
      * @return true if this file matches, false otherwise
      */
     public boolean match(File file, boolean checkAbsolute) {
+        CompiledFilter filter = getCompiled();
+        if (filter.automata == null) {
+            return matchPatterns(file, checkAbsolute);
+        }
+
+        String fileName = file.getName(); // basename
+        if (checkAbsolute) {
+            // The automata cover the basename matching as well so the path is traversed just once.
+            String absolute = file.getAbsolutePath();
+            return filter.run(absolute) || filter.matchComplex(fileName, absolute);
+        }
+
+        // The automata match the basename the same way as the last component of the absolute path.
+        return filter.run(fileName) || filter.matchComplex(fileName, null);
+    }
+
+    /**
+     * Fallback for {@link #match(File, boolean)} used if the patterns could not be compiled into an automaton.
+     */
+    private boolean matchPatterns(File file, boolean checkAbsolute) {
         String fileName = file.getName(); // basename
         String absolute = file.getAbsolutePath();
 
@@ -160,8 +208,10 @@ public class Filter implements Serializable {
      * @param pattern the pattern to add
      */
     private void addPattern(String pattern) {
+        compiled = null;
         if (pattern.contains("*") || pattern.contains("?")) {
             patterns.add(compilePattern(pattern));
+            globs.add(pattern);
         } else if (pattern.contains(File.separator)) {
             if (pattern.charAt(0) == File.separatorChar) {
                 paths.add(pattern);
@@ -208,6 +258,131 @@ public class Filter implements Serializable {
         return Pattern.compile(regex.toString());
     }
 
+    private CompiledFilter getCompiled() {
+        CompiledFilter filter = compiled;
+        if (filter == null) {
+            synchronized (this) {
+                filter = compiled;
+                if (filter == null) {
+                    filter = compile();
+                    compiled = filter;
+                }
+            }
+        }
+        return filter;
+    }
+
+    /**
+     * Compile the filenames, patterns and paths into deterministic automata matching the absolute path.
+     * The basename matching is covered by prefixing the respective patterns with optional directory part
+     * and making the wildcards not match the file separator. Thus, the automata also match the basename alone.
+     * <p>
+     * The union of patterns with leading wildcard and of patterns with wildcard elsewhere would blow up
+     * the size of the deterministic automaton (the states of the two kinds multiply), so these are kept
+     * in separate automata. For the same reason, patterns with more than one {@code *} wildcard are
+     * left out and matched one by one.
+     * </p>
+     * @return compiled filter, with {@code null} automata if the patterns are too complex to compile
+     */
+    private CompiledFilter compile() {
+        List<Automaton> leadingWildcard = new ArrayList<>();
+        List<Automaton> otherWildcard = new ArrayList<>();
+        List<Pattern> complex = new ArrayList<>();
+        Automaton anyDirectory = Operations.optional(Operations.concatenate(
+                Automata.makeAnyString(), Automata.makeChar(File.separatorChar)));
+
+        for (String glob : globs) {
+            int wildcard = glob.indexOf('*');
+            if (wildcard != glob.lastIndexOf('*')) {
+                complex.add(compilePattern(glob));
+                continue;
+            }
+            List<Automaton> target = wildcard <= 0 ? leadingWildcard : otherWildcard;
+            if (!glob.contains(File.separator)) {
+                target.add(Operations.concatenate(anyDirectory, globToAutomaton(glob, true)));
+            }
+            if (glob.contains("/")) {
+                target.add(globToAutomaton(glob, false));
+            }
+        }
+        for (String filename : filenames) {
+            leadingWildcard.add(Operations.concatenate(anyDirectory, Automata.makeString(filename)));
+        }
+        for (String path : paths) {
+            leadingWildcard.add(Operations.concatenate(Automata.makeAnyString(), Automata.makeString(path)));
+        }
+
+        try {
+            List<CharacterRunAutomaton> automata = new ArrayList<>();
+            for (List<Automaton> group : List.of(leadingWildcard, otherWildcard)) {
+                if (!group.isEmpty()) {
+                    automata.add(new CharacterRunAutomaton(Operations.union(group), DETERMINIZE_WORK_LIMIT));
+                }
+            }
+            return new CompiledFilter(automata, complex);
+        } catch (TooComplexToDeterminizeException e) {
+            LOGGER.log(Level.WARNING, "patterns too complex to compile, falling back to regular expressions", e);
+            return new CompiledFilter(null, List.of());
+        }
+    }
+
+    /**
+     * Convert the glob pattern to an automaton in the same way as {@link #compilePattern(String)}.
+     * @param glob a pattern to match file names against
+     * @param basenameOnly whether the wildcards should not match the file separator
+     * @return automaton representing the pattern
+     */
+    private static Automaton globToAutomaton(String glob, boolean basenameOnly) {
+        List<Automaton> parts = new ArrayList<>();
+        glob.codePoints().forEach(cp -> {
+            if (cp == '*') {
+                parts.add(Operations.repeat(anyChar(basenameOnly)));
+            } else if (cp == '?') {
+                parts.add(anyChar(basenameOnly));
+            } else {
+                parts.add(Automata.makeChar(cp));
+            }
+        });
+        return Operations.concatenate(parts);
+    }
+
+    private static Automaton anyChar(boolean exceptSeparator) {
+        if (!exceptSeparator) {
+            return Automata.makeAnyChar();
+        }
+        return Operations.union(Automata.makeCharRange(Character.MIN_CODE_POINT, File.separatorChar - 1),
+                Automata.makeCharRange(File.separatorChar + 1, Character.MAX_CODE_POINT));
+    }
+
+    private static final class CompiledFilter {
+        private final List<CharacterRunAutomaton> automata;
+        private final List<Pattern> complexPatterns;
+
+        CompiledFilter(@Nullable List<CharacterRunAutomaton> automata, List<Pattern> complexPatterns) {
+            this.automata = automata;
+            this.complexPatterns = complexPatterns;
+        }
+
+        private boolean run(String str) {
+            for (CharacterRunAutomaton automaton : automata) {
+                if (automaton.run(str)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean matchComplex(String fileName, @Nullable String absolute) {
+            for (Pattern pattern : complexPatterns) {
+                if (pattern.matcher(fileName).matches()
+                        || (absolute != null && pattern.pattern().contains("/") && pattern.matcher(absolute).matches())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
     public static class PatternList extends ArrayList<String> {
 
         private static final long serialVersionUID = -6883390970972775838L;
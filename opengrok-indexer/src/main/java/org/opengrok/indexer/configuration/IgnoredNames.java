@@ -25,6 +25,7 @@ package org.opengrok.indexer.configuration;
 
 import java.io.File;
 import java.io.Serializable;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -91,6 +92,22 @@ public class IgnoredNames implements Serializable {
         }
     }
 
+    /**
+     * Should the file be ignored or not? Unlike {@link #ignore(File)} this does not query the file system.
+     *
+     * @param file the file to check
+     * @param attrs attributes of the file (with symbolic links followed), e.g. as obtained during traversal
+     * @return true if this file should be ignored, false otherwise
+     */
+    public boolean ignore(File file, BasicFileAttributes attrs) {
+        if (attrs.isRegularFile()) {
+            return ignoredFiles.match(file, true);
+        } else if (attrs.isDirectory()) {
+            return ignoredDirs.match(file, true);
+        }
+        return false;
+    }
+
     /**
      * Should the file name be ignored or not ?
      *
@@ -26,6 +26,7 @@ package org.opengrok.indexer.configuration;
 import org.opengrok.indexer.logger.LoggerFactory;
 
 import java.io.File;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.logging.Logger;
 
 import static org.opengrok.indexer.web.Laundromat.launderLog;
@@ -72,4 +73,27 @@ public class PathAccepter {
 
         return true;
     }
+
+    /**
+     * Evaluates the specified {@code file} the same way as {@link #accept(File)}, however with the type
+     * of the file determined from the {@code attrs} rather than by querying the file system.
+     * @param file a defined instance under the source root
+     * @param attrs attributes of the file (with symbolic links followed), e.g. as obtained during traversal
+     */
+    public boolean accept(File file, BasicFileAttributes attrs) {
+        if (!includedNames.isEmpty()
+                && // the filter should not affect directory names
+                (!(attrs.isDirectory() || includedNames.match(file)))) {
+
+            LOGGER.finer(() -> String.format("not including '%s'", launderLog(file.getAbsolutePath())));
+            return false;
+        }
+
+        if (ignoredNames.ignore(file, attrs)) {
+            LOGGER.finer(() -> String.format("ignoring '%s'", launderLog(file.getAbsolutePath())));
+            return false;
+        }
+
+        return true;
+    }
 }
@@ -30,6 +30,7 @@ import static org.opengrok.indexer.index.IndexerUtil.getWebAppHeaders;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -57,9 +58,11 @@ import java.util.stream.Collectors;
 
 import jakarta.ws.rs.client.ClientBuilder;
 import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.client.WebTarget;
 import jakarta.ws.rs.core.Response;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
@@ -74,11 +77,13 @@ import org.opengrok.indexer.history.RepositoryInfo;
 import org.opengrok.indexer.index.IndexDatabase;
 import org.opengrok.indexer.index.IndexerParallelizer;
 import org.opengrok.indexer.logger.LoggerFactory;
+import org.opengrok.indexer.search.QueryResultCache;
 import org.opengrok.indexer.util.CloseableReentrantReadWriteLock;
 import org.opengrok.indexer.util.CtagsUtil;
 import org.opengrok.indexer.util.ForbiddenSymlinkException;
 import org.opengrok.indexer.util.LazilyInstantiate;
 import org.opengrok.indexer.util.PathUtils;
+import org.opengrok.indexer.util.RequestSpans;
 import org.opengrok.indexer.util.ResourceLock;
 import org.opengrok.indexer.util.Statistics;
 import org.opengrok.indexer.web.ApiUtils;
@@ -103,6 +108,7 @@ public final class RuntimeEnvironment {
     private final LazilyInstantiate<IndexerParallelizer> lzIndexerParallelizer;
     private final LazilyInstantiate<ExecutorService> lzSearchExecutor;
     private final LazilyInstantiate<ExecutorService> lzRevisionExecutor;
+    private final LazilyInstantiate<ExecutorService> lzContextExecutor;
     private final LazilyInstantiate<ExecutorService> lzDirectoryListingExecutor;
     private static final RuntimeEnvironment instance = new RuntimeEnvironment();
 
@@ -114,6 +120,7 @@ public final class RuntimeEnvironment {
      * Map of project name (or empty string in case of project-less configuration) to SearcherManager object.
      */
     private final Map<String, SearcherManager> searcherManagerMap = new ConcurrentHashMap<>();
+    private final LazilyInstantiate<QueryResultCache> lzQueryResultCache;
 
     private String configURI;
     IncludeFiles includeFiles = new IncludeFiles();
@@ -143,6 +150,23 @@ public final class RuntimeEnvironment {
 
     private final Set<ConfigurationChangedListener> listeners = new CopyOnWriteArraySet<>();
 
+    /**
+     * Name of the file under data root where the indexer stores the configuration last sent to the web application.
+     * This is used as a base for computing the {@link ConfigurationDelta}.
+     */
+    public static final String PUSHED_CONFIGURATION_FILE = "pushed_configuration.xml";
+
+    /**
+     * Configuration properties whose change requires reload of the authorization framework.
+     */
+    private static final Set<String> AUTHORIZATION_PROPERTIES = Set.of("pluginDirectory", "pluginStack",
+            "authorizationWatchdogEnabled");
+
+    /**
+     * Version of the configuration as sent by the indexer. Reset whenever the configuration is changed otherwise.
+     */
+    private volatile String configurationVersion;
+
     /**
      * Maps project name to FileCollector object. This is used to pass the list of files acquired when
      * generating history cache in the first phase of indexing to the second phase of indexing.
@@ -159,9 +183,12 @@ public final class RuntimeEnvironment {
         lzIndexerParallelizer = LazilyInstantiate.using(() -> new IndexerParallelizer(this));
         lzSearchExecutor = LazilyInstantiate.using(this::newSearchExecutor);
         lzRevisionExecutor = LazilyInstantiate.using(this::newRevisionExecutor);
+        lzContextExecutor = LazilyInstantiate.using(this::newContextExecutor);
         lzDirectoryListingExecutor = LazilyInstantiate.using(this::newDirectoryListingExecutor);
         lzSuperIndexSearcherFactory = LazilyInstantiate.using(this::newSuperIndexSearcherFactory);
         lzIndexSearcherFactory = LazilyInstantiate.using(this::newIndexSearcherFactory);
+        lzQueryResultCache = LazilyInstantiate.using(() ->
+                new QueryResultCache(getSearchResultCacheSize(), getSearchResultCacheMaxHits()));
     }
 
     // Instance of authorization framework and its lock.
@@ -223,6 +250,25 @@ public final class RuntimeEnvironment {
         getRevisionExecutor().awaitTermination(getIndexerCommandTimeout(), TimeUnit.SECONDS);
     }
 
+    /**
+     * @return executor used for generating contexts of search results
+     */
+    public ExecutorService getContextExecutor() {
+        return lzContextExecutor.get();
+    }
+
+    private ExecutorService newContextExecutor() {
+        return Executors.newFixedThreadPool(this.getMaxContextThreadCount(),
+                new OpenGrokThreadFactory("search-context"));
+    }
+
+    public void shutdownContextExecutor() throws InterruptedException {
+        if (lzContextExecutor.isActive()) {
+            getContextExecutor().shutdownNow();
+            getContextExecutor().awaitTermination(getIndexerCommandTimeout(), TimeUnit.SECONDS);
+        }
+    }
+
     public ExecutorService getDirectoryListingExecutor() {
         return lzDirectoryListingExecutor.get();
     }
@@ -686,6 +732,56 @@ public final class RuntimeEnvironment {
         syncWriteConfiguration(hitsPerPage, Configuration::setHitsPerPage);
     }
 
+    public int getSearchResultCacheSize() {
+        return syncReadConfiguration(Configuration::getSearchResultCacheSize);
+    }
+
+    public void setSearchResultCacheSize(int searchResultCacheSize) {
+        syncWriteConfiguration(searchResultCacheSize, Configuration::setSearchResultCacheSize);
+        updateQueryResultCacheLimits();
+    }
+
+    public int getSearchResultCacheMaxHits() {
+        return syncReadConfiguration(Configuration::getSearchResultCacheMaxHits);
+    }
+
+    public void setSearchResultCacheMaxHits(int searchResultCacheMaxHits) {
+        syncWriteConfiguration(searchResultCacheMaxHits, Configuration::setSearchResultCacheMaxHits);
+        updateQueryResultCacheLimits();
+    }
+
+    public boolean isSearchResultCacheContexts() {
+        return syncReadConfiguration(Configuration::isSearchResultCacheContexts);
+    }
+
+    public void setSearchResultCacheContexts(boolean searchResultCacheContexts) {
+        syncWriteConfiguration(searchResultCacheContexts, Configuration::setSearchResultCacheContexts);
+        if (lzQueryResultCache.isActive()) {
+            getQueryResultCache().clear();
+        }
+    }
+
+    public boolean isServerTimingEnabled() {
+        return syncReadConfiguration(Configuration::isServerTimingEnabled);
+    }
+
+    public void setServerTimingEnabled(boolean serverTimingEnabled) {
+        syncWriteConfiguration(serverTimingEnabled, Configuration::setServerTimingEnabled);
+    }
+
+    /**
+     * @return cache of search results shared by all searches
+     */
+    public QueryResultCache getQueryResultCache() {
+        return lzQueryResultCache.get();
+    }
+
+    private void updateQueryResultCacheLimits() {
+        if (lzQueryResultCache.isActive()) {
+            getQueryResultCache().setLimits(getSearchResultCacheSize(), getSearchResultCacheMaxHits());
+        }
+    }
+
     /**
      * Validate that there is a Universal ctags program that can actually process input files
      * under source root.
@@ -795,6 +891,24 @@ public final class RuntimeEnvironment {
         return syncReadConfiguration(Configuration::isCompressXref);
     }
 
+    /**
+     * Set if the xref data should be stored in pack files rather than individual files.
+     *
+     * @param xrefPack set to true to use xref pack files
+     * @see org.opengrok.indexer.index.XrefPack
+     */
+    public void setXrefPack(boolean xrefPack) {
+        syncWriteConfiguration(xrefPack, Configuration::setXrefPack);
+    }
+
+    /**
+     * @return {@code true} if the xref data are stored in pack files
+     * @see org.opengrok.indexer.index.XrefPack
+     */
+    public boolean isXrefPack() {
+        return syncReadConfiguration(Configuration::isXrefPack);
+    }
+
     public boolean isQuickContextScan() {
         return syncReadConfiguration(Configuration::isQuickContextScan);
     }
@@ -1397,6 +1511,22 @@ public final class RuntimeEnvironment {
         syncWriteConfiguration(threadCount, Configuration::setMaxDirectoryListingThreadCount);
     }
 
+    public int getMaxContextThreadCount() {
+        return syncReadConfiguration(Configuration::getMaxContextThreadCount);
+    }
+
+    public void setMaxContextThreadCount(int threadCount) {
+        syncWriteConfiguration(threadCount, Configuration::setMaxContextThreadCount);
+    }
+
+    public int getContextTimeout() {
+        return syncReadConfiguration(Configuration::getContextTimeout);
+    }
+
+    public void setContextTimeout(int timeout) {
+        syncWriteConfiguration(timeout, Configuration::setContextTimeout);
+    }
+
     public int getCurrentIndexedCollapseThreshold() {
         return syncReadConfiguration(Configuration::getCurrentIndexedCollapseThreshold);
     }
@@ -1590,7 +1720,11 @@ public final class RuntimeEnvironment {
     }
 
     /**
-     * Write the current configuration to a socket and waits for the result.
+     * Send the current configuration to the web application and wait for the result.
+     * <p>
+     * If the web application runs with the configuration sent previously, only the {@link ConfigurationDelta}
+     * is sent, otherwise the complete configuration.
+     * </p>
      *
      * @param webAppURI                 webapp URI
      * @throws IOException              if an error occurs
@@ -1599,31 +1733,158 @@ public final class RuntimeEnvironment {
      */
     public void writeConfiguration(String webAppURI) throws IOException, InterruptedException, IllegalArgumentException {
         String configXML = syncReadConfiguration(Configuration::getXMLRepresentationAsString);
+        String version = ConfigurationDelta.getVersion(configXML);
+
+        if (!writeConfigurationDelta(webAppURI, version)) {
+            try (Response response = getConfigurationTarget(webAppURI)
+                    .queryParam("reindex", true)
+                    .queryParam("version", version)
+                    .request()
+                    .headers(getWebAppHeaders())
+                    .put(Entity.xml(configXML))) {
 
-        try (Response response = ClientBuilder.newBuilder().
+                checkConfigurationResponse(response);
+            }
+        }
+
+        storePushedConfiguration(configXML);
+    }
+
+    private WebTarget getConfigurationTarget(String webAppURI) {
+        return ClientBuilder.newBuilder().
                 connectTimeout(getConnectTimeout(), TimeUnit.SECONDS).build()
                 .target(webAppURI)
                 .path("api")
                 .path("v1")
-                .path("configuration")
-                .queryParam("reindex", true)
-                .request()
-                .headers(getWebAppHeaders())
-                .put(Entity.xml(configXML))) {
+                .path("configuration");
+    }
+
+    private static Response.StatusType checkConfigurationResponse(Response response)
+            throws IOException, InterruptedException {
+
+        Response.StatusType statusType = response.getStatusInfo();
+
+        if (response.getStatus() == Response.Status.ACCEPTED.getStatusCode()) {
+            Response apiResponse = ApiUtils.waitForAsyncApi(response);
+            statusType = apiResponse.getStatusInfo();
+        }
+
+        if (statusType.getStatusCode() == Response.Status.CONFLICT.getStatusCode()) {
+            return statusType;
+        }
+
+        if (statusType.getFamily() != Response.Status.Family.SUCCESSFUL) {
+            throw new IOException(response.toString());
+        }
+
+        return statusType;
+    }
+
+    @Nullable
+    private File getPushedConfigurationFile() {
+        File dataRoot = getDataRootFile();
+        return dataRoot != null ? new File(dataRoot, PUSHED_CONFIGURATION_FILE) : null;
+    }
+
+    private void storePushedConfiguration(String configXML) {
+        File file = getPushedConfigurationFile();
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.writeString(file.toPath(), configXML);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format("cannot store pushed configuration to '%s'", file), e);
+        }
+    }
 
-            Response.StatusType statusType = response.getStatusInfo();
+    /**
+     * Send the difference between the configuration sent previously and the current configuration.
+     * @param webAppURI web application URI
+     * @param version version of the current configuration
+     * @return whether the delta was applied by the web application
+     * @throws InterruptedException on timeout
+     */
+    private boolean writeConfigurationDelta(String webAppURI, String version) throws InterruptedException {
+        File file = getPushedConfigurationFile();
+        if (file == null || !file.isFile()) {
+            return false;
+        }
 
-            if (response.getStatus() == Response.Status.ACCEPTED.getStatusCode()) {
-                Response apiResponse = ApiUtils.waitForAsyncApi(response);
-                statusType = apiResponse.getStatusInfo();
+        try {
+            String baseXML = Files.readString(file.toPath());
+            String baseVersion = ConfigurationDelta.getVersion(baseXML);
+
+            String webAppVersion;
+            try (Response response = getConfigurationTarget(webAppURI)
+                    .path("version")
+                    .request()
+                    .headers(getWebAppHeaders())
+                    .get()) {
+                if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+                    LOGGER.log(Level.FINE, "cannot get configuration version from {0}: {1}",
+                            new Object[]{webAppURI, response.getStatusInfo()});
+                    return false;
+                }
+                webAppVersion = response.readEntity(String.class);
+            }
+            if (!baseVersion.equals(webAppVersion)) {
+                LOGGER.log(Level.FINE, "web application runs with different configuration than last sent");
+                return false;
             }
 
-            if (statusType.getFamily() != Response.Status.Family.SUCCESSFUL) {
-                throw new IOException(response.toString());
+            Configuration base = makeXMLStringAsConfiguration(baseXML);
+            ConfigurationDelta delta = syncReadConfiguration(configuration -> {
+                try {
+                    return ConfigurationDelta.compute(base, configuration, baseVersion, version);
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "cannot compute configuration delta", e);
+                    return null;
+                }
+            });
+            if (delta == null) {
+                return false;
             }
+            LOGGER.log(Level.INFO, "Sending configuration delta ({0} changed settings, {1} changed projects, "
+                    + "{2} changed repositories)", new Object[]{delta.getSettings().size(),
+                    delta.getChangedProjectNames().size(),
+                    delta.getRepositories().size() + delta.getRemovedRepositories().size()});
+
+            try (Response response = getConfigurationTarget(webAppURI)
+                    .path("delta")
+                    .queryParam("reindex", true)
+                    .request()
+                    .headers(getWebAppHeaders())
+                    .put(Entity.xml(delta.getXMLRepresentationAsString()))) {
+
+                if (checkConfigurationResponse(response).getStatusCode() == Response.Status.CONFLICT.getStatusCode()) {
+                    LOGGER.log(Level.INFO, "configuration delta not applicable, sending complete configuration");
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "failed to send configuration delta, sending complete configuration", e);
+            return false;
         }
     }
 
+    /**
+     * @return version of the configuration as sent by the indexer or {@code null} if the configuration
+     * was changed by other means since
+     */
+    @Nullable
+    public String getConfigurationVersion() {
+        return configurationVersion;
+    }
+
+    /**
+     * @param version version of the configuration as sent by the indexer
+     */
+    public void setConfigurationVersion(@Nullable String version) {
+        this.configurationVersion = version;
+    }
+
     /**
      * Generate a TreeMap of projects with corresponding repository information.
      * <p>
@@ -1696,7 +1957,8 @@ public final class RuntimeEnvironment {
      * Sets the configuration and performs necessary actions.
      * <p>
      * Mainly it classifies the projects in their groups and generates project -
-     * repositories map
+     * repositories map. This materializes all the projects and repositories
+     * of a configuration read from the binary representation, see {@link ConfigurationCodec}.
      *
      * @param configuration what configuration to use
      */
@@ -1727,6 +1989,7 @@ public final class RuntimeEnvironment {
             assert resourceLock != null;
             this.configuration = configuration;
         }
+        configurationVersion = null;
 
         // HistoryGuru constructor needs environment properties so no locking is done here.
         HistoryGuru histGuru = HistoryGuru.getInstance();
@@ -1753,6 +2016,7 @@ public final class RuntimeEnvironment {
         populateGroups(new TreeSet<>(getGroups().values()), new TreeSet<>(getProjects().values()));
 
         includeFiles.reloadIncludeFiles();
+        updateQueryResultCacheLimits();
     }
 
     public IncludeFiles getIncludeFiles() {
@@ -1840,29 +2104,119 @@ public final class RuntimeEnvironment {
         setConfiguration(config, cmdType);
         LOGGER.log(Level.INFO, "Configuration updated");
 
+        applyConfigChanges(reindex, true);
+    }
+
+    /**
+     * Apply the configuration delta sent by the Indexer. Unlike with
+     * {@link #applyConfig(Configuration, boolean, CommandTimeoutType)}, only the changed repositories
+     * are refreshed, the project - repository map and the groups are regenerated only if the projects,
+     * repositories or groups changed, only the searchers of the removed projects are closed and
+     * the authorization framework is reloaded only if its settings changed.
+     *
+     * @param delta   configuration delta
+     * @param reindex is the message result of reindex
+     * @param cmdType command timeout type
+     * @throws ConfigurationDelta.BaseVersionMismatchException if the delta does not apply to current configuration
+     * @throws IOException if the delta cannot be applied
+     */
+    public synchronized void applyConfigDelta(ConfigurationDelta delta, boolean reindex, CommandTimeoutType cmdType)
+            throws ConfigurationDelta.BaseVersionMismatchException, IOException {
+
+        String version = configurationVersion;
+        if (version == null || !version.equals(delta.getBaseVersion())) {
+            throw new ConfigurationDelta.BaseVersionMismatchException(
+                    String.format("configuration delta applies to version %s, current version is %s",
+                            delta.getBaseVersion(), version));
+        }
+
+        Statistics stat = new Statistics();
+        try (ResourceLock resourceLock = configLock.writeLockAsResource()) {
+            //noinspection ConstantConditions to avoid warning of no reference to auto-closeable
+            assert resourceLock != null;
+            delta.apply(configuration);
+        }
+
+        HistoryGuru histGuru = HistoryGuru.getInstance();
+        boolean sourceRootChanged = delta.getSettings().containsKey("sourceRoot");
+        boolean repositoriesChanged = sourceRootChanged
+                || !delta.getRepositories().isEmpty() || !delta.getRemovedRepositories().isEmpty();
+        boolean projectsChanged = sourceRootChanged || !delta.getChangedProjectNames().isEmpty();
+        if (sourceRootChanged) {
+            histGuru.invalidateRepositories(getRepositories(), cmdType);
+        } else if (repositoriesChanged) {
+            List<String> removed = delta.getRemovedRepositories().stream()
+                    .map(dir -> Paths.get(getSourceRootPath(), dir).toString())
+                    .collect(Collectors.toList());
+            histGuru.updateRepositories(delta.getRepositories(), removed, cmdType);
+        }
+        if (repositoriesChanged) {
+            // Some repositories might have been excluded in HistoryGuru so the configuration needs to reflect that.
+            setRepositories(new ArrayList<>(histGuru.getRepositories()));
+        }
+
+        if (repositoriesChanged || projectsChanged) {
+            try {
+                generateProjectRepositoriesMap();
+            } catch (IOException ex) {
+                LOGGER.log(Level.SEVERE, "Cannot generate project - repository map", ex);
+            }
+        }
+        if (projectsChanged || delta.getGroups() != null) {
+            populateGroups(new TreeSet<>(getGroups().values()), new TreeSet<>(getProjects().values()));
+        }
+        includeFiles.reloadIncludeFiles();
+        stat.report(LOGGER, String.format("Configuration delta applied (%d changed settings, %d changed projects)",
+                delta.getSettings().size(), delta.getChangedProjectNames().size()));
+
+        applyConfigChanges(reindex, !Collections.disjoint(delta.getSettings().keySet(), AUTHORIZATION_PROPERTIES),
+                sourceRootChanged ? null : delta.getRemovedProjects());
+        configurationVersion = delta.getVersion();
+    }
+
+    private void applyConfigChanges(boolean reindex, boolean reloadAuthorization) {
+        applyConfigChanges(reindex, reloadAuthorization, null);
+    }
+
+    /**
+     * @param reindex is the message result of reindex
+     * @param reloadAuthorization whether to reload the authorization framework
+     * @param removedProjects names of the removed projects whose searchers should be closed on reindex
+     *                        or {@code null} to check the searchers of all the projects
+     */
+    private void applyConfigChanges(boolean reindex, boolean reloadAuthorization,
+                                    @Nullable Collection<String> removedProjects) {
         if (reindex) {
             // We are assuming that each update of configuration means reindex. If dedicated thread is introduced
             // in the future solely for the purpose of getting the event of reindex, the 2 calls below should
             // be moved there.
-            refreshSearcherManagerMap();
+            if (removedProjects != null) {
+                closeSearcherManagers(removedProjects);
+            } else {
+                refreshSearcherManagerMap();
+            }
+            // This opens new readers only for the indexes that changed.
             maybeRefreshIndexSearchers();
             // Force timestamp to update itself upon new config arrival.
             refreshDateForLastIndexRun();
         }
 
-        // start/stop the watchdog if necessary
-        if (isAuthorizationWatchdog() && getPluginDirectory() != null) {
-            watchDog.start(new File(getPluginDirectory()));
-        } else {
-            watchDog.stop();
-        }
+        if (reloadAuthorization) {
+            // start/stop the watchdog if necessary
+            if (isAuthorizationWatchdog() && getPluginDirectory() != null) {
+                watchDog.start(new File(getPluginDirectory()));
+            } else {
+                watchDog.stop();
+            }
 
-        // set the new plugin directory and reload the authorization framework
-        getAuthorizationFramework().setPluginDirectory(getPluginDirectory());
-        getAuthorizationFramework().setStack(getPluginStack());
-        getAuthorizationFramework().reload();
+            // set the new plugin directory and reload the authorization framework
+            getAuthorizationFramework().setPluginDirectory(getPluginDirectory());
+            getAuthorizationFramework().setStack(getPluginStack());
+            getAuthorizationFramework().reload();
+        }
 
         messagesContainer.setMessageLimit(getMessageLimit());
+        updateQueryResultCacheLimits();
 
         for (ConfigurationChangedListener l : listeners) {
             l.onConfigurationChanged();
@@ -1952,14 +2306,36 @@ public final class RuntimeEnvironment {
      * @return SuperIndexSearcher instance
      * @throws IOException I/O exception
      */
-    @SuppressWarnings("java:S2095")
     public SuperIndexSearcher getSuperIndexSearcher(String searcherName) throws IOException {
+        RequestSpans.Span acquireSpan = RequestSpans.span("acquire", searcherName.isEmpty() ? null : searcherName);
+        try {
+            return acquireSuperIndexSearcher(searcherName);
+        } finally {
+            acquireSpan.close();
+        }
+    }
 
+    @SuppressWarnings("java:S2095")
+    private SuperIndexSearcher acquireSuperIndexSearcher(String searcherName) throws IOException {
         SearcherManager mgr = searcherManagerMap.get(searcherName);
         if (mgr == null) {
             File indexDir = new File(getDataRootPath(), IndexDatabase.INDEX_DIR);
             Directory dir = FSDirectory.open(new File(indexDir, searcherName).toPath());
             mgr = new SearcherManager(dir, getSuperIndexSearcherFactory());
+            mgr.addListener(new ReferenceManager.RefreshListener() {
+                @Override
+                public void beforeRefresh() {
+                    // nothing to do
+                }
+
+                @Override
+                public void afterRefresh(boolean didRefresh) {
+                    // Entries for the previous generation of the index can no longer be hit.
+                    if (didRefresh) {
+                        getQueryResultCache().invalidate(searcherName);
+                    }
+                }
+            });
             searcherManagerMap.put(searcherName, mgr);
         }
 
@@ -1981,19 +2357,29 @@ public final class RuntimeEnvironment {
             // If a project is gone, close the corresponding SearcherManager
             // so that it cannot produce new IndexSearcher objects.
             if (!getProjectNames().contains(entry.getKey())) {
-                try {
-                    LOGGER.log(Level.FINE, "closing SearcherManager for project {0}", entry.getKey());
-                    entry.getValue().close();
-                } catch (IOException ex) {
-                    LOGGER.log(Level.SEVERE,
-                            String.format("cannot close SearcherManager for project %s", entry.getKey()), ex);
-                }
                 toRemove.add(entry.getKey());
             }
         }
 
-        for (String proj : toRemove) {
-            searcherManagerMap.remove(proj);
+        closeSearcherManagers(toRemove);
+    }
+
+    /**
+     * Close the searcher managers of given projects so that they cannot produce new IndexSearcher objects.
+     * @param projects names of the projects
+     */
+    private void closeSearcherManagers(Collection<String> projects) {
+        for (String proj : projects) {
+            SearcherManager searcherManager = searcherManagerMap.remove(proj);
+            if (searcherManager == null) {
+                continue;
+            }
+            try {
+                LOGGER.log(Level.FINE, "closing SearcherManager for project {0}", proj);
+                searcherManager.close();
+            } catch (IOException ex) {
+                LOGGER.log(Level.SEVERE, String.format("cannot close SearcherManager for project %s", proj), ex);
+            }
         }
     }
 
@@ -2153,6 +2539,7 @@ public final class RuntimeEnvironment {
             assert resourceLock != null;
             consumer.accept(configuration, v);
         }
+        configurationVersion = null;
     }
 
     private int getMessageLimit() {
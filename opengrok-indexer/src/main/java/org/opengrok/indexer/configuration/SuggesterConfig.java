@@ -52,6 +52,8 @@ public class SuggesterConfig {
     public static final int TIME_THRESHOLD_DEFAULT = 2000; // 2 sec
     public static final int REBUILD_THREAD_POOL_PERCENT_NCPUS_DEFAULT = 80;
     public static final int SEARCH_THREAD_POOL_PERCENT_NCPUS_DEFAULT = 90;
+    public static final int RESULT_CACHE_SIZE_DEFAULT = 1000;
+    public static final int SEARCH_COUNT_MEMORY_BUDGET_DEFAULT = 0; // unlimited
 
     private static final Set<String> allowedProjectsDefault = null;
     private static final Set<String> allowedFieldsDefault = Set.of(
@@ -147,6 +149,17 @@ public class SuggesterConfig {
      */
     private int searchThreadPoolSizeInNcpuPercent;
 
+    /**
+     * Maximum number of suggestion results cached for repeated requests, 0 disables the cache.
+     */
+    private int resultCacheSize;
+
+    /**
+     * Budget in megabytes for the off-heap memory of the search count maps of all projects used
+     * for the most popular completion, 0 means unlimited.
+     */
+    private int searchCountMemoryBudget;
+
     public SuggesterConfig() {
         setEnabled(ENABLED_DEFAULT);
         setMaxResults(MAX_RESULTS_DEFAULT);
@@ -164,6 +177,8 @@ public class SuggesterConfig {
         setBuildTerminationTime(BUILD_TERMINATION_TIME_DEFAULT);
         setRebuildThreadPoolSizeInNcpuPercent(REBUILD_THREAD_POOL_PERCENT_NCPUS_DEFAULT);
         setSearchThreadPoolSizeInNcpuPercent(SEARCH_THREAD_POOL_PERCENT_NCPUS_DEFAULT);
+        setResultCacheSize(RESULT_CACHE_SIZE_DEFAULT);
+        setSearchCountMemoryBudget(SEARCH_COUNT_MEMORY_BUDGET_DEFAULT);
     }
 
     public boolean isEnabled() {
@@ -320,6 +335,28 @@ public class SuggesterConfig {
         return searchThreadPoolSizeInNcpuPercent;
     }
 
+    public int getResultCacheSize() {
+        return resultCacheSize;
+    }
+
+    public final void setResultCacheSize(final int resultCacheSize) {
+        if (resultCacheSize < 0) {
+            throw new IllegalArgumentException("Suggester result cache size cannot be negative");
+        }
+        this.resultCacheSize = resultCacheSize;
+    }
+
+    public int getSearchCountMemoryBudget() {
+        return searchCountMemoryBudget;
+    }
+
+    public final void setSearchCountMemoryBudget(final int searchCountMemoryBudget) {
+        if (searchCountMemoryBudget < 0) {
+            throw new IllegalArgumentException("Suggester search count memory budget cannot be negative");
+        }
+        this.searchCountMemoryBudget = searchCountMemoryBudget;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -342,14 +379,17 @@ public class SuggesterConfig {
                 Objects.equals(allowedProjects, that.allowedProjects) &&
                 Objects.equals(allowedFields, that.allowedFields) &&
                 Objects.equals(rebuildCronConfig, that.rebuildCronConfig) &&
-                rebuildThreadPoolSizeInNcpuPercent == that.rebuildThreadPoolSizeInNcpuPercent;
+                rebuildThreadPoolSizeInNcpuPercent == that.rebuildThreadPoolSizeInNcpuPercent &&
+                resultCacheSize == that.resultCacheSize &&
+                searchCountMemoryBudget == that.searchCountMemoryBudget;
     }
 
     @Override
     public int hashCode() {
         return Objects.hash(enabled, maxResults, minChars, allowedProjects, maxProjects, allowedFields,
                 allowComplexQueries, allowMostPopular, showScores, showProjects, showTime, rebuildCronConfig,
-                buildTerminationTime, rebuildThreadPoolSizeInNcpuPercent);
+                buildTerminationTime, rebuildThreadPoolSizeInNcpuPercent, resultCacheSize,
+                searchCountMemoryBudget);
     }
 
     /**
@@ -374,6 +414,8 @@ public class SuggesterConfig {
         res.setBuildTerminationTime(1 + res.getBuildTerminationTime());
         res.setRebuildThreadPoolSizeInNcpuPercent(1 + res.getRebuildThreadPoolSizeInNcpuPercent());
         res.setSearchThreadPoolSizeInNcpuPercent(1 + res.getSearchThreadPoolSizeInNcpuPercent());
+        res.setResultCacheSize(1 + res.getResultCacheSize());
+        res.setSearchCountMemoryBudget(1 + res.getSearchCountMemoryBudget());
 
         return res;
     }
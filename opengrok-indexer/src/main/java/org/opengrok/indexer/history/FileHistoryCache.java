@@ -35,6 +35,7 @@ import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -65,6 +66,7 @@ import org.opengrok.indexer.configuration.PathAccepter;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
 import org.opengrok.indexer.logger.LoggerFactory;
 import org.opengrok.indexer.search.DirectoryEntry;
+import org.opengrok.indexer.util.IOUtils;
 import org.opengrok.indexer.util.Progress;
 import org.opengrok.indexer.util.Statistics;
 
@@ -428,7 +430,8 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
                         continue;
                     }
                 } else {
-                    boolean testResult = test.exists() && pathAccepter.accept(test);
+                    BasicFileAttributes attrs = IOUtils.readAttributes(test);
+                    boolean testResult = attrs != null && pathAccepter.accept(test, attrs);
                     acceptanceCache.put(testKey, testResult);
                     if (!testResult) {
                         continue;
@@ -28,15 +28,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
@@ -59,10 +62,12 @@ import org.opengrok.indexer.configuration.Configuration.RemoteSCM;
 import org.opengrok.indexer.configuration.OpenGrokThreadFactory;
 import org.opengrok.indexer.configuration.PathAccepter;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.index.IndexerProfiler;
 import org.opengrok.indexer.logger.LoggerFactory;
 import org.opengrok.indexer.search.DirectoryEntry;
 import org.opengrok.indexer.search.QueryBuilder;
 import org.opengrok.indexer.util.ForbiddenSymlinkException;
+import org.opengrok.indexer.util.IOUtils;
 import org.opengrok.indexer.util.PathUtils;
 import org.opengrok.indexer.util.Progress;
 import org.opengrok.indexer.util.Statistics;
@@ -116,6 +121,13 @@ public final class HistoryGuru {
 
     private boolean historyIndexDone = false;
 
+    /**
+     * Set of repositories for which the history cache was already generated in this indexer run.
+     * This is used when the history cache generation runs concurrently with the indexing
+     * and {@link #historyIndexDone} is not set yet.
+     */
+    private final Set<Repository> historyIndexDoneRepositories = ConcurrentHashMap.newKeySet();
+
     public void setHistoryIndexDone() {
         historyIndexDone = true;
     }
@@ -124,6 +136,14 @@ public final class HistoryGuru {
         return historyIndexDone;
     }
 
+    /**
+     * @param repository repository object
+     * @return whether history cache generation is done for the repository
+     */
+    public boolean isHistoryIndexDone(Repository repository) {
+        return historyIndexDone || historyIndexDoneRepositories.contains(repository);
+    }
+
     /**
      * Creates a new instance of HistoryGuru. Initialize cache objects.
      */
@@ -571,7 +591,7 @@ public final class HistoryGuru {
          * since the history of all files in this repository should have been
          * fetched in the first phase of indexing.
          */
-        if (env.isIndexer() && isHistoryIndexDone() &&
+        if (env.isIndexer() && isHistoryIndexDone(repository) &&
                 repository.isHistoryEnabled() && repository.hasHistoryForDirectories() &&
                 !env.isFetchHistoryWhenNotInCache()) {
             LOGGER.fine(() -> String.format("not getting the history for '%s' in repository %s as the it supports "
@@ -892,7 +912,8 @@ public final class HistoryGuru {
         PathAccepter pathAccepter = env.getPathAccepter();
 
         for (File file : files) {
-            if (!file.isDirectory()) {
+            BasicFileAttributes attrs = IOUtils.readAttributes(file);
+            if (attrs == null || !attrs.isDirectory()) {
                 continue;
             }
 
@@ -922,7 +943,7 @@ public final class HistoryGuru {
                     }
 
                     // Not a repository, search its sub-dirs.
-                    if (pathAccepter.accept(file)) {
+                    if (pathAccepter.accept(file, attrs)) {
                         File[] subFiles = file.listFiles();
                         if (subFiles == null) {
                             LOGGER.log(Level.WARNING,
@@ -1073,10 +1094,13 @@ public final class HistoryGuru {
 
         if (repository.isWorking()) {
             Statistics elapsed = new Statistics();
+            long begin = IndexerProfiler.begin();
 
             LOGGER.log(Level.INFO, "Creating history cache for {0}", repository);
             repository.createCache(historyCache, sinceRevision);
             elapsed.report(LOGGER, String.format("Done history cache for %s", repository));
+            IndexerProfiler.end(IndexerProfiler.HISTORY_CACHE, begin, repository.getDirectoryNameRelative(),
+                    repository.getClass().getSimpleName());
         } else {
             LOGGER.log(Level.WARNING,
                     "Skipping creation of history cache for {0}: Missing SCM dependencies?", repository);
@@ -1090,6 +1114,62 @@ public final class HistoryGuru {
             return Collections.emptyMap();
         }
 
+        Map<Repository, CompletableFuture<Optional<Exception>>> futures = new HashMap<>();
+        CompletableFuture<Void> done = submitHistoryCache(repositories, futures);
+
+        /*
+         * Wait until the history of all repositories is done. This is necessary
+         * since the next phase of generating index will need the history to
+         * be ready as it is recorded in Lucene index.
+         */
+        Map<Repository, Optional<Exception>> results = new HashMap<>();
+        for (Map.Entry<Repository, CompletableFuture<Optional<Exception>>> entry : futures.entrySet()) {
+            try {
+                results.put(entry.getKey(), entry.getValue().get());
+            } catch (InterruptedException | ExecutionException ex) {
+                results.put(entry.getKey(), Optional.of(ex));
+            }
+        }
+
+        done.join();
+
+        return results;
+    }
+
+    /**
+     * Submit the history cache generation for the repositories to the history executor.
+     * This is the asynchronous counterpart of {@link #createHistoryCacheReal(Collection)}.
+     * Each future in the returned map completes once the history cache for given repository is done,
+     * so that the indexing of the data belonging to the repository can start without waiting
+     * for the history cache of all the other repositories.
+     *
+     * The returned future completes once the history cache is finalized. It has to be waited for
+     * before the history executor is shut down.
+     *
+     * @param repositories collection of repositories
+     * @param futures map to be filled with repository to future of optional exception
+     * @return future that completes once the history cache for all the repositories is done and finalized
+     */
+    private CompletableFuture<Void> createHistoryCacheRealAsync(Collection<Repository> repositories,
+            Map<Repository, CompletableFuture<Optional<Exception>>> futures) {
+
+        if (repositories.isEmpty()) {
+            LOGGER.log(Level.WARNING, "History cache is enabled however the list of repositories is empty. " +
+                    "Either specify the repositories in configuration or let the indexer scan them.");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return submitHistoryCache(repositories, futures);
+    }
+
+    /**
+     * @param repositories collection of repositories
+     * @param futures map to be filled with repository to future of optional exception
+     * @return future that completes once the history cache for all the repositories is done and finalized
+     */
+    private CompletableFuture<Void> submitHistoryCache(Collection<Repository> repositories,
+                                                       Map<Repository, CompletableFuture<Optional<Exception>>> futures) {
+
         Statistics elapsed = new Statistics();
         ExecutorService executor = env.getIndexerParallelizer().getHistoryExecutor();
         // Since we know each repository object from the repositories
@@ -1114,37 +1194,32 @@ public final class HistoryGuru {
         }
 
         LOGGER.log(Level.INFO, "Creating history cache for {0} repositories", repos2process.size());
-        Map<Repository, Future<Optional<Exception>>> futures = new HashMap<>();
-        try (Progress progress = new Progress(LOGGER, "history cache", repos2process.size())) {
-            for (final Map.Entry<Repository, String> entry : repos2process.entrySet()) {
-                futures.put(entry.getKey(), executor.submit(() -> {
-                    try {
-                        createHistoryCache(entry.getKey(), entry.getValue());
-                    } catch (Exception ex) {    // We want to catch any exception since we are in thread.
-                        LOGGER.log(Level.WARNING,
-                                String.format("failed to create history cache for %s", entry.getKey()), ex);
-                        return Optional.of(ex);
-                    } finally {
-                        progress.increment();
-                    }
-                    return Optional.empty();
-                }));
-            }
+        Progress progress = new Progress(LOGGER, "history cache", repos2process.size());
+        for (final Map.Entry<Repository, String> entry : repos2process.entrySet()) {
+            futures.put(entry.getKey(), CompletableFuture.supplyAsync(() -> {
+                try {
+                    createHistoryCache(entry.getKey(), entry.getValue());
+                } catch (Exception ex) {    // We want to catch any exception since we are in thread.
+                    LOGGER.log(Level.WARNING,
+                            String.format("failed to create history cache for %s", entry.getKey()), ex);
+                    return Optional.of(ex);
+                } finally {
+                    historyIndexDoneRepositories.add(entry.getKey());
+                    progress.increment();
+                }
+                return Optional.empty();
+            }, executor));
         }
 
-        /*
-         * Wait until the history of all repositories is done. This is necessary
-         * since the next phase of generating index will need the history to
-         * be ready as it is recorded in Lucene index.
-         */
-        Map<Repository, Optional<Exception>> results = new HashMap<>();
-        for (Map.Entry<Repository, Future<Optional<Exception>>> entry : futures.entrySet()) {
-            try {
-                results.put(entry.getKey(), entry.getValue().get());
-            } catch (InterruptedException | ExecutionException ex) {
-                results.put(entry.getKey(), Optional.of(ex));
-            }
-        }
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).
+                handle((v, e) -> {
+                    finishHistoryCache(elapsed, progress);
+                    return null;
+                });
+    }
+
+    private void finishHistoryCache(Statistics elapsed, Progress progress) {
+        progress.close();
 
         // The cache has been populated. Now, optimize how it is stored on
         // disk to enhance performance and save space.
@@ -1155,8 +1230,6 @@ public final class HistoryGuru {
         }
         elapsed.report(LOGGER, "Done history cache for all repositories", "indexer.history.cache");
         setHistoryIndexDone();
-
-        return results;
     }
 
     /**
@@ -1179,6 +1252,28 @@ public final class HistoryGuru {
         return createHistoryCacheReal(getReposFromString(repositories));
     }
 
+    /**
+     * Start creating history cache for selected repositories without waiting for it to finish.
+     * For this to work the repositories have to be already present in the
+     * internal map, e.g. via {@code setRepositories()} or {@code addRepositories()}.
+     *
+     * @param repositories list of repository paths
+     * @param futures map to be filled with repository to future of optional exception
+     * @return future that completes once the history cache for all the repositories is done and finalized
+     */
+    public CompletableFuture<Void> createHistoryCacheAsync(Collection<String> repositories,
+            Map<Repository, CompletableFuture<Optional<Exception>>> futures) {
+        if (repositories.stream().
+                map(e -> new File(env.getSourceRootPath(), e)).
+                map(this::getRepository).
+                filter(Objects::nonNull).
+                noneMatch(RepositoryInfo::isHistoryCacheEnabled)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return createHistoryCacheRealAsync(getReposFromString(repositories), futures);
+    }
+
     /**
      * Clear entry for single file from history cache.
      * @param path path to the file relative to the source root
@@ -1299,6 +1394,19 @@ public final class HistoryGuru {
         return createHistoryCacheReal(repositories.values());
     }
 
+    /**
+     * Start creating the history cache for all repositories without waiting for it to finish.
+     * @param futures map to be filled with repository to future of optional exception
+     * @return future that completes once the history cache for all the repositories is done and finalized
+     */
+    public CompletableFuture<Void> createHistoryCacheAsync(Map<Repository, CompletableFuture<Optional<Exception>>> futures) {
+        if (repositories.values().stream().noneMatch(RepositoryInfo::isHistoryCacheEnabled)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return createHistoryCacheRealAsync(repositories.values(), futures);
+    }
+
     /**
      * Lookup repositories from list of repository paths.
      * @param repositories paths to repositories relative to source root
@@ -1394,11 +1502,54 @@ public final class HistoryGuru {
             return;
         }
 
-        Map<String, Repository> repositoryMap = Collections.synchronizedMap(new HashMap<>(repos.size()));
         Statistics elapsed = new Statistics();
-
         LOGGER.log(Level.FINE, "invalidating {0} repositories", repos.size());
 
+        Map<String, Repository> repositoryMap = createRepositories(repos, cmdType);
+
+        clear();
+        repositoryMap.forEach((key, repo) -> putRepository(repo));
+
+        elapsed.report(LOGGER, String.format("Done invalidating repositories (%d valid, %d working)",
+                        repositoryMap.size(), repositoryMap.values().stream().
+                                filter(RepositoryInfo::isWorking).collect(Collectors.toSet()).size()),
+                "history.repositories.invalidate");
+    }
+
+    /**
+     * Replace the specified repositories in the internal map with fresh instances and remove repositories
+     * that are no longer present. Unlike {@link #invalidateRepositories(Collection, CommandTimeoutType)}
+     * the remaining repositories are kept intact, so this should be used when only small portion
+     * of the repositories changed.
+     *
+     * @param repos collection of added or changed repositories
+     * @param removed absolute paths of the repositories to remove
+     * @param cmdType command timeout type
+     */
+    public void updateRepositories(Collection<? extends RepositoryInfo> repos, Collection<String> removed,
+                                   CommandTimeoutType cmdType) {
+        Statistics elapsed = new Statistics();
+        LOGGER.log(Level.FINE, "updating {0} repositories, removing {1} repositories",
+                new Object[]{repos.size(), removed.size()});
+
+        Map<String, Repository> repositoryMap = createRepositories(repos, cmdType);
+
+        Set<String> toRemove = new HashSet<>(removed);
+        repos.forEach(repositoryInfo -> toRemove.add(repositoryInfo.getDirectoryName()));
+        removeRepositories(toRemove);
+        repositoryMap.forEach((key, repo) -> putRepository(repo));
+
+        elapsed.report(LOGGER, String.format("Done updating repositories (%d valid)", repositoryMap.size()),
+                "history.repositories.update");
+    }
+
+    private Map<String, Repository> createRepositories(Collection<? extends RepositoryInfo> repos,
+                                                       CommandTimeoutType cmdType) {
+        Map<String, Repository> repositoryMap = Collections.synchronizedMap(new HashMap<>(repos.size()));
+        if (repos.isEmpty()) {
+            return repositoryMap;
+        }
+
         /*
          * getRepository() below does various checks of the repository
          * which involves executing commands and I/O so make the checks
@@ -1447,13 +1598,7 @@ public final class HistoryGuru {
             executor.shutdown();
         }
 
-        clear();
-        repositoryMap.forEach((key, repo) -> putRepository(repo));
-
-        elapsed.report(LOGGER, String.format("Done invalidating repositories (%d valid, %d working)",
-                        repositoryMap.size(), repositoryMap.values().stream().
-                                filter(RepositoryInfo::isWorking).collect(Collectors.toSet()).size()),
-                "history.repositories.invalidate");
+        return repositoryMap;
     }
 
     @VisibleForTesting
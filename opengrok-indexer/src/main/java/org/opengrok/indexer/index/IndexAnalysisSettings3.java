@@ -27,6 +27,7 @@ import org.opengrok.indexer.util.WhitelistObjectInputFilter;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.ObjectInputFilter;
 import java.io.ObjectInputStream;
@@ -81,6 +82,13 @@ public final class IndexAnalysisSettings3 implements Serializable {
      */
     private transient Map<String, IndexedSymlink> indexedSymlinks = new HashMap<>();
 
+    /**
+     * Nullable to allow easing this object into existing OpenGrok indexes
+     * without forcing a re-indexing.
+     * @serial
+     */
+    private String xrefMode;
+
     /**
      * Gets the project name to be used to distinguish different instances of
      * {@link IndexAnalysisSettings3} that might be returned by a Lucene
@@ -161,6 +169,23 @@ public final class IndexAnalysisSettings3 implements Serializable {
         indexedSymlinks.putAll(values);
     }
 
+    /**
+     * Gets the description of how the xref data of the documents are stored.
+     * @return xref mode or {@code null} if unknown
+     */
+    public String getXrefMode() {
+        return xrefMode;
+    }
+
+    /**
+     * Sets the description of how the xref data of the documents are stored,
+     * e.g. whether they are generated at all.
+     * @param value xref mode
+     */
+    public void setXrefMode(String value) {
+        this.xrefMode = value;
+    }
+
     /**
      * Creates a binary representation of this object.
      * @return a byte array representing this object
@@ -237,6 +262,15 @@ public final class IndexAnalysisSettings3 implements Serializable {
             IndexedSymlink indexed = new IndexedSymlink(absolute, canonical, isLocal);
             indexedSymlinks.put(canonical, indexed);
         }
+
+        // The xref mode was added later so it might be missing in the serialization.
+        try {
+            hasValue = in.readBoolean();
+            vString = in.readUTF();
+            xrefMode = hasValue ? vString : null;
+        } catch (EOFException e) {
+            xrefMode = null;
+        }
     }
 
     @SuppressWarnings("Duplicates")
@@ -272,5 +306,8 @@ public final class IndexAnalysisSettings3 implements Serializable {
         if (collectionCount != 0) {
             throw new IllegalStateException("indexedSymlinks were modified");
         }
+
+        out.writeBoolean(xrefMode != null); // hasValue
+        out.writeUTF(xrefMode == null ? "" : xrefMode);
     }
 }
@@ -24,6 +24,7 @@
 package org.opengrok.indexer.index;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.FileVisitResult;
@@ -33,6 +34,7 @@ import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -53,17 +55,26 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexNotFoundException;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.MultiBits;
+import org.apache.lucene.index.PostingsEnum;
 import org.apache.lucene.index.SegmentInfos;
-import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.store.LockFactory;
 import org.apache.lucene.store.NativeFSLockFactory;
 import org.apache.lucene.store.NoLockFactory;
 import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
 import org.apache.lucene.util.Version;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.VisibleForTesting;
 import org.opengrok.indexer.analysis.Definitions;
 import org.opengrok.indexer.configuration.Configuration;
@@ -94,10 +105,20 @@ public class IndexCheck implements AutoCloseable {
 
     private final Configuration configuration;
     private final Set<String> projectNames = new HashSet<>();
+    private final int samplePercent;
+    private IndexCheckReport report;
 
     // Common executor for parallel processing.
     private final ExecutorService executor;
 
+    /**
+     * Maximum number of documents (or files) processed by single task in the document level checks.
+     */
+    private static final int CHUNK_SIZE_MAX = 1000;
+
+    private static final Set<String> UID_FIELDS = Set.of(QueryBuilder.U);
+    private static final Set<String> TAGS_FIELDS = Set.of(QueryBuilder.TAGS);
+
     /**
      * @param configuration configuration based on which to perform the check
      */
@@ -112,10 +133,26 @@ public class IndexCheck implements AutoCloseable {
      *                     on whether projects are enabled in the configuration.
      */
     public IndexCheck(@NotNull Configuration configuration, Collection<String> projectNames) {
+        this(configuration, projectNames, 100);
+    }
+
+    /**
+     * @param configuration configuration based on which to perform the check
+     * @param projectNames collection of project names. If non-empty, only projects matching these paths will be checked.
+     *                     Otherwise, either the sole index or all project indexes will be checked, depending
+     *                     on whether projects are enabled in the configuration.
+     * @param samplePercent percentage of randomly selected documents to verify in the document and definitions checks
+     * @throws IllegalArgumentException if the percentage is not in the range of 1 to 100
+     */
+    public IndexCheck(@NotNull Configuration configuration, Collection<String> projectNames, int samplePercent) {
         this.configuration = Objects.requireNonNull(configuration, "configuration");
         if (projectNames != null) {
             this.projectNames.addAll(projectNames);
         }
+        if (samplePercent < 1 || samplePercent > 100) {
+            throw new IllegalArgumentException(String.format("invalid sample percentage: %d", samplePercent));
+        }
+        this.samplePercent = samplePercent;
 
         executor = Executors.newFixedThreadPool(RuntimeEnvironment.getInstance().getRepositoryInvalidationParallelism(),
                 new OpenGrokThreadFactory("index-check"));
@@ -215,6 +252,7 @@ public class IndexCheck implements AutoCloseable {
         }
 
         Statistics statistics = new Statistics();
+        report = new IndexCheckReport(mode, samplePercent);
 
         if (!projectNames.isEmpty()) {
             // Assumes projects are enabled.
@@ -231,6 +269,15 @@ public class IndexCheck implements AutoCloseable {
         statistics.report(LOGGER, Level.FINE, "Index check done");
     }
 
+    /**
+     * @return report of the last {@link #check(IndexCheckMode)} or {@code null} if no check was performed yet.
+     * The report is complete even if the check failed with an exception.
+     */
+    @Nullable
+    public IndexCheckReport getReport() {
+        return report;
+    }
+
     /**
      * Perform specified check on given index directory. All exceptions except {@code IOException} are swallowed
      * and result in return value of 1.
@@ -269,16 +316,86 @@ public class IndexCheck implements AutoCloseable {
     void checkDir(Path sourcePath, Path indexPath, IndexCheckMode mode)
             throws IndexVersionException, IndexDocumentException, IOException {
 
-        switch (mode) {
-            case VERSION:
-                checkVersion(sourcePath, indexPath);
-                break;
-            case DOCUMENTS:
-                checkDocuments(sourcePath, indexPath);
-                break;
-            case DEFINITIONS:
-                checkDefinitions(sourcePath, indexPath);
+        IndexCheckReport.Result result = new IndexCheckReport.Result(indexPath);
+        if (report != null) {
+            report.add(result);
+        }
+
+        try {
+            switch (mode) {
+                case VERSION:
+                    checkVersion(sourcePath, indexPath);
+                    break;
+                case DOCUMENTS:
+                    checkDocuments(sourcePath, indexPath, result);
+                    break;
+                case DEFINITIONS:
+                    checkDefinitions(sourcePath, indexPath, result);
+            }
+        } catch (IndexCheckException e) {
+            result.setFailed(e.getMessage());
+            throw e;
+        } catch (IOException e) {
+            result.setFailed(String.format("could not perform index check: %s", e.getMessage()));
+            throw e;
+        }
+    }
+
+    /**
+     * @param items list of items
+     * @return random sample of the items according to the sampling percentage
+     */
+    @VisibleForTesting
+    <T> List<T> sample(List<T> items) {
+        if (samplePercent >= 100) {
+            return items;
+        }
+
+        List<T> shuffled = new ArrayList<>(items);
+        Collections.shuffle(shuffled);
+        return shuffled.subList(0, (int) Math.ceil(shuffled.size() * samplePercent / 100.0));
+    }
+
+    /**
+     * Split the list into chunks, process them in parallel and merge the results.
+     * @param items list of items to process
+     * @param function function to process a chunk of the items
+     * @return merged results of processing the chunks (in order of the chunks)
+     * @throws IOException if any of the chunks failed with I/O error
+     */
+    private static <T, R> List<R> processChunksParallel(List<T> items, ChunkFunction<T, R> function)
+            throws IOException {
+
+        ExecutorService executorService = RuntimeEnvironment.getInstance().getIndexerParallelizer().getFixedExecutor();
+        int chunkSize = Math.max(1, Math.min(CHUNK_SIZE_MAX,
+                items.size() / RuntimeEnvironment.getInstance().getIndexingParallelism() + 1));
+        List<Future<List<R>>> futures = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += chunkSize) {
+            List<T> chunk = items.subList(i, Math.min(items.size(), i + chunkSize));
+            futures.add(executorService.submit(() -> function.apply(chunk)));
         }
+
+        List<R> results = new ArrayList<>();
+        for (Future<List<R>> future : futures) {
+            try {
+                results.addAll(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while waiting for index check", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("failed to perform index check", e.getCause());
+            }
+        }
+
+        return results;
+    }
+
+    @FunctionalInterface
+    private interface ChunkFunction<T, R> {
+        List<R> apply(List<T> chunk) throws IOException;
     }
 
     private static List<String> getLines(Path path) throws IOException {
@@ -297,10 +414,12 @@ public class IndexCheck implements AutoCloseable {
      * Crosscheck definitions found in the index for given file w.r.t. actual file contents.
      * There is a number of cases this check can fail even for legitimate cases. This is why
      * certain patterns and file types are skipped.
+     * @param indexReader index reader shared by the checks
      * @param path path to the file being checked
      * @return okay indication
      */
-    private boolean checkDefinitionsForFile(Path path) throws ParseException, IOException, ClassNotFoundException {
+    private boolean checkDefinitionsForFile(IndexReader indexReader, Path path)
+            throws IOException, ClassNotFoundException {
 
         // Avoid paths with certain suffixes. These exhibit some behavior that cannot be handled
         // For example, '1;' in Perl code is interpreted by Universal Ctags as 'STDOUT'.
@@ -310,7 +429,9 @@ public class IndexCheck implements AutoCloseable {
         }
 
         boolean okay = true;
-        Definitions defs = IndexDatabase.getDefinitions(path.toFile());
+        String relativePath = Util.fixPathIfWindows(File.separator +
+                Path.of(configuration.getSourceRoot()).relativize(path));
+        Definitions defs = getDefinitions(indexReader, relativePath);
         if (defs != null) {
             LOGGER.log(Level.FINE, "checking definitions for ''{0}''", path);
             List<String> lines = getLines(path);
@@ -360,12 +481,64 @@ public class IndexCheck implements AutoCloseable {
         return okay;
     }
 
+    /**
+     * Look up the definitions of given file in the index. Compared to {@link IndexDatabase#getDefinitions(File)}
+     * this uses the uid terms of the supplied index reader rather than searching the index.
+     * @param indexReader index reader
+     * @param path path relative to source root (with leading slash)
+     * @return definitions or {@code null} if there are none or no live document was found for the path
+     * @throws IOException on I/O error
+     * @throws ClassNotFoundException if the class for the stored definitions cannot be found
+     */
+    @Nullable
+    @VisibleForTesting
+    static Definitions getDefinitions(IndexReader indexReader, String path)
+            throws IOException, ClassNotFoundException {
+
+        BytesRef prefix = new BytesRef(Util.path2uid(path, ""));
+        for (LeafReaderContext context : indexReader.leaves()) {
+            LeafReader leafReader = context.reader();
+            Terms terms = leafReader.terms(QueryBuilder.U);
+            if (terms == null) {
+                continue;
+            }
+
+            TermsEnum uidIter = terms.iterator();
+            if (uidIter.seekCeil(prefix) == TermsEnum.SeekStatus.END) {
+                continue;
+            }
+
+            Bits liveDocs = leafReader.getLiveDocs();
+            PostingsEnum postings = null;
+            for (BytesRef term = uidIter.term(); term != null && StringHelper.startsWith(term, prefix);
+                 term = uidIter.next()) {
+                if (!Util.uid2url(term.utf8ToString()).equals(path)) {
+                    continue;
+                }
+
+                postings = uidIter.postings(postings, PostingsEnum.NONE);
+                int docId;
+                while ((docId = postings.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+                    if (liveDocs != null && !liveDocs.get(docId)) {
+                        continue;
+                    }
+
+                    Document doc = leafReader.storedFields().document(docId, TAGS_FIELDS);
+                    IndexableField tags = doc.getField(QueryBuilder.TAGS);
+                    return tags != null ? Definitions.deserialize(tags.binaryValue().bytes) : null;
+                }
+            }
+        }
+
+        return null;
+    }
+
     private static class GetFiles extends SimpleFileVisitor<Path> {
         Set<Path> files = new HashSet<>();
 
         @Override
         public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-            if (RuntimeEnvironment.getInstance().getIgnoredNames().ignore(dir.toFile())) {
+            if (RuntimeEnvironment.getInstance().getIgnoredNames().ignore(dir.toFile(), attrs)) {
                 return FileVisitResult.SKIP_SUBTREE;
             }
 
@@ -384,54 +557,51 @@ public class IndexCheck implements AutoCloseable {
 
     /**
      * Check definitions stored in documents against definitions found by ctags in the respective input files.
-     * This is done only for a subset of files, see {@link #checkDefinitionsForFile(Path)}.
-     * This check parallelized.
+     * This is done only for a subset of files, see {@link #checkDefinitionsForFile(IndexReader, Path)}.
+     * This check is parallelized on the file level, all the files are checked using single index reader.
      * @param sourcePath path to source root subtree
      * @param indexPath path to index to check
+     * @param result result to fill in
      * @throws IOException on I/O error
      * @throws IndexDocumentException if there are any documents with definitions not matching definitions found by ctags
      */
-    private void checkDefinitions(Path sourcePath, Path indexPath) throws IOException, IndexDocumentException {
+    private void checkDefinitions(Path sourcePath, Path indexPath, IndexCheckReport.Result result)
+            throws IOException, IndexDocumentException {
 
         Statistics statistics = new Statistics();
         GetFiles getFiles = new GetFiles();
         Files.walkFileTree(sourcePath, getFiles);
-        Set<Path> paths = getFiles.files;
-        LOGGER.log(Level.FINE, "Checking definitions in ''{0}'' ({1} paths)",
-                new Object[]{indexPath, paths.size()});
+        List<Path> allPaths = new ArrayList<>(getFiles.files);
+        List<Path> paths = sample(allPaths);
+        LOGGER.log(Level.FINE, "Checking definitions in ''{0}'' ({1} paths out of {2})",
+                new Object[]{indexPath, paths.size(), allPaths.size()});
 
-        long errors = 0;
-        ExecutorService executorService = RuntimeEnvironment.getInstance().getIndexerParallelizer().getFixedExecutor();
-        List<Future<Boolean>> futures = new ArrayList<>();
-        for (Path path : paths) {
-            futures.add(executorService.submit(() -> checkDefinitionsForFile(path)));
-        }
-
-        IOException ioException = null;
-        for (Future<Boolean> future : futures) {
-            try {
-                if (!future.get()) {
-                    errors++;
-                }
-            } catch (Exception e) {
-                LOGGER.log(Level.WARNING, String.format("failure when checking definitions for '%s'", indexPath), e);
-                final Throwable cause = e.getCause();
-                if (cause instanceof IOException) {
-                    ioException = (IOException) cause;
+        List<Path> failedPaths;
+        IndexReader indexReader = IndexReaderCache.getInstance().acquire(indexPath);
+        try {
+            failedPaths = processChunksParallel(paths, chunk -> {
+                List<Path> failed = new ArrayList<>();
+                for (Path path : chunk) {
+                    try {
+                        if (!checkDefinitionsForFile(indexReader, path)) {
+                            failed.add(path);
+                        }
+                    } catch (ClassNotFoundException e) {
+                        LOGGER.log(Level.WARNING, String.format("failure when checking definitions for '%s'", path), e);
+                    }
                 }
-            }
+                return failed;
+            });
+        } finally {
+            IndexReaderCache.getInstance().release(indexReader);
         }
         statistics.report(LOGGER, Level.FINE, String.format("checked %d files for '%s'", paths.size(), indexPath));
 
-        // If there were multiple cases of IOException, they were logged above.
-        // Propagate the last one so that upper layers can properly decide on how to treat the index check.
-        if (ioException != null) {
-            throw ioException;
-        }
-
-        if (errors > 0) {
+        failedPaths.forEach(result::addFailedPath);
+        result.setCounts(allPaths.size(), paths.size(), failedPaths.size());
+        if (!failedPaths.isEmpty()) {
             throw new IndexDocumentException(String.format("definitions check failed for '%s' (%d documents out of %d)",
-                    indexPath, errors, paths.size()), sourcePath);
+                    indexPath, failedPaths.size(), paths.size()), sourcePath);
         }
     }
 
@@ -512,40 +682,56 @@ public class IndexCheck implements AutoCloseable {
      */
     @VisibleForTesting
     static List<Path> getLiveDocumentPaths(Path indexPath) throws IOException {
-        try (IndexReader indexReader = getIndexReader(indexPath)) {
-            List<Path> livePaths = new ArrayList<>();
-
-            Bits liveDocs = MultiBits.getLiveDocs(indexReader);
+        IndexReader indexReader = IndexReaderCache.getInstance().acquire(indexPath);
+        try {
+            return getLiveDocumentPaths(indexReader);
+        } finally {
+            IndexReaderCache.getInstance().release(indexReader);
+        }
+    }
 
-            LOGGER.log(Level.FINEST, "maxDoc = {0}", indexReader.maxDoc());
-            for (int i = 0; i < indexReader.maxDoc(); i++) {
-                Document doc = indexReader.storedFields().document(i);
+    /**
+     * The documents are read in parallel, in chunks of document IDs of the index segments.
+     * Only the uid field is loaded from the stored fields.
+     * @param indexReader index reader
+     * @return list of live document paths (some of them can be duplicate if the index is corrupted)
+     * @throws IOException on I/O error
+     */
+    private static List<Path> getLiveDocumentPaths(IndexReader indexReader) throws IOException {
+        LOGGER.log(Level.FINEST, "maxDoc = {0}", indexReader.maxDoc());
+
+        List<int[]> ranges = new ArrayList<>();
+        for (LeafReaderContext context : indexReader.leaves()) {
+            int maxDoc = context.reader().maxDoc();
+            for (int start = 0; start < maxDoc; start += CHUNK_SIZE_MAX) {
+                ranges.add(new int[]{context.ord, start, Math.min(maxDoc, start + CHUNK_SIZE_MAX)});
+            }
+        }
 
+        return processChunksParallel(ranges, chunk -> {
+            List<Path> livePaths = new ArrayList<>();
+            for (int[] range : chunk) {
+                LeafReader leafReader = indexReader.leaves().get(range[0]).reader();
                 // liveDocs is null if the index has no deletions.
-                if (liveDocs != null && !liveDocs.get(i)) {
-                    IndexableField field = doc.getField(QueryBuilder.U);
+                Bits liveDocs = leafReader.getLiveDocs();
+                StoredFields storedFields = leafReader.storedFields();
+                for (int i = range[1]; i < range[2]; i++) {
+                    if (liveDocs != null && !liveDocs.get(i)) {
+                        continue;
+                    }
+
+                    // This should avoid the special LOC documents.
+                    IndexableField field = storedFields.document(i, UID_FIELDS).getField(QueryBuilder.U);
                     if (field != null) {
                         String uidString = field.stringValue();
-                        LOGGER.log(Level.FINEST, "ignoring ''{0}'' at {1}",
+                        LOGGER.log(Level.FINEST, "live doc: ''{0}'' at {1}",
                                 new Object[]{Util.uid2url(uidString), Util.uid2date(uidString)});
-                    } else {
-                        LOGGER.log(Level.FINEST, "ignoring {0}", doc);
+                        livePaths.add(Path.of(Util.uid2url(uidString)));
                     }
-                    continue;
-                }
-
-                // This should avoid the special LOC documents.
-                IndexableField field = doc.getField(QueryBuilder.U);
-                if (field != null) {
-                    String uidString = field.stringValue();
-                    LOGGER.log(Level.FINEST, "live doc: ''{0}'' at {1}",
-                            new Object[]{Util.uid2url(uidString), Util.uid2date(uidString)});
-                    livePaths.add(Path.of(Util.uid2url(uidString)));
                 }
             }
-
             return livePaths;
-        }
+        });
     }
 
     /**
@@ -554,27 +740,41 @@ public class IndexCheck implements AutoCloseable {
      *     <li>they have corresponding file under source root</li>
      *     <li>there is exactly one document with the same path</li>
      * </ul>
+     * The presence of the files is verified in parallel, possibly only for a random sample of the documents.
      * @param sourcePath source root path
      * @param indexPath index path
+     * @param result result to fill in
      * @throws IOException on I/O error
      * @throws IndexDocumentException if the index failed the check
      */
-    private void checkDocuments(Path sourcePath, Path indexPath) throws IOException, IndexDocumentException {
+    private void checkDocuments(Path sourcePath, Path indexPath, IndexCheckReport.Result result)
+            throws IOException, IndexDocumentException {
 
         Statistics stat = new Statistics();
-        List<Path> livePaths = getLiveDocumentPaths(indexPath);
-
-        LOGGER.log(Level.FINE, "checking documents in ''{0}}'' have corresponding file under source root ''{1}''",
-                new Object[]{indexPath, sourcePath});
-        Set<Path> missingPaths = new TreeSet<>();
-        for (Path relativePath : livePaths) {
-            Path absolutePath = Path.of(configuration.getSourceRoot(), relativePath.toString());
-            if (!Files.exists(absolutePath)) {
-                LOGGER.log(Level.FINER, "path ''{0}'' does not exist", absolutePath);
-                missingPaths.add(absolutePath);
-            }
+        List<Path> livePaths;
+        IndexReader indexReader = IndexReaderCache.getInstance().acquire(indexPath);
+        try {
+            livePaths = getLiveDocumentPaths(indexReader);
+        } finally {
+            IndexReaderCache.getInstance().release(indexReader);
         }
 
+        List<Path> checkedPaths = sample(livePaths);
+        LOGGER.log(Level.FINE, "checking documents in ''{0}'' ({1} out of {2}) have corresponding file " +
+                        "under source root ''{3}''",
+                new Object[]{indexPath, checkedPaths.size(), livePaths.size(), sourcePath});
+        Set<Path> missingPaths = new TreeSet<>(processChunksParallel(checkedPaths, chunk -> {
+            List<Path> missing = new ArrayList<>();
+            for (Path relativePath : chunk) {
+                Path absolutePath = Path.of(configuration.getSourceRoot(), relativePath.toString());
+                if (!Files.exists(absolutePath)) {
+                    LOGGER.log(Level.FINER, "path ''{0}'' does not exist", absolutePath);
+                    missing.add(absolutePath);
+                }
+            }
+            return missing;
+        }));
+
         LOGGER.log(Level.FINE, "Checking duplicate documents in ''{0}''", indexPath);
         HashSet<Path> pathSet = new HashSet<>(livePaths);
         Map<Path, Integer> duplicatePathMap = new ConcurrentHashMap<>();
@@ -582,24 +782,29 @@ public class IndexCheck implements AutoCloseable {
             LOGGER.log(Level.FINE,
                     "index in ''{0}'' has document path set ({1}) vs document list ({2}) discrepancy",
                     new Object[]{indexPath, pathSet.size(), livePaths.size()});
+            // Only the sampled paths are considered so that the failures are counted within the sample.
+            Set<Path> checkedPathSet = checkedPaths == livePaths ? pathSet : new HashSet<>(checkedPaths);
             for (Path path : livePaths) {
-                if (pathSet.contains(path)) {
-                    duplicatePathMap.putIfAbsent(path, 0);
-                    duplicatePathMap.put(path, duplicatePathMap.get(path) + 1);
+                if (checkedPathSet.contains(path)) {
+                    duplicatePathMap.merge(path, 1, Integer::sum);
                 }
             }
         }
 
-        // Traverse the file map and leave only duplicate entries.
-        for (Path path: duplicatePathMap.keySet()) {
-            if (duplicatePathMap.get(path) > 1) {
-                LOGGER.log(Level.FINER, "duplicate path: ''{0}''", path);
-            } else {
-                duplicatePathMap.remove(path);
-            }
-        }
+        // Leave only duplicate entries in the map.
+        duplicatePathMap.values().removeIf(count -> count <= 1);
+        duplicatePathMap.keySet().forEach(path -> LOGGER.log(Level.FINER, "duplicate path: ''{0}''", path));
+
+        // Count the failed documents of the sample so that the failures do not exceed the checked documents.
+        long failures = checkedPaths.stream().
+                filter(path -> duplicatePathMap.containsKey(path) ||
+                        missingPaths.contains(Path.of(configuration.getSourceRoot(), path.toString()))).
+                count();
 
         stat.report(LOGGER, Level.FINE, String.format("document check in '%s' done", indexPath));
+        missingPaths.forEach(result::addFailedPath);
+        duplicatePathMap.keySet().forEach(result::addFailedPath);
+        result.setCounts(livePaths.size(), checkedPaths.size(), failures);
         if (!duplicatePathMap.isEmpty() || !missingPaths.isEmpty()) {
             throw new IndexDocumentException(String.format("index '%s' failed document check",
                     indexPath), sourcePath, duplicatePathMap, missingPaths);
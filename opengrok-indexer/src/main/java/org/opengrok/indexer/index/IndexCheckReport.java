@@ -0,0 +1,212 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.jetbrains.annotations.Nullable;
+import org.opengrok.indexer.web.messages.JSONable;
+
+/**
+ * Structured result of {@link IndexCheck#check(IndexCheck.IndexCheckMode)} that can be serialized to JSON,
+ * e.g. to be consumed by a CI gate.
+ */
+public class IndexCheckReport implements JSONable {
+
+    /**
+     * The z-score for the two-sided 95% confidence interval.
+     */
+    private static final double Z_95 = 1.959964;
+
+    private final IndexCheck.IndexCheckMode mode;
+    private final int samplePercent;
+    private final List<Result> results = Collections.synchronizedList(new ArrayList<>());
+
+    IndexCheckReport(IndexCheck.IndexCheckMode mode, int samplePercent) {
+        this.mode = mode;
+        this.samplePercent = samplePercent;
+    }
+
+    @JsonProperty
+    public IndexCheck.IndexCheckMode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return percentage of documents verified by the check
+     */
+    @JsonProperty
+    public int getSamplePercent() {
+        return samplePercent;
+    }
+
+    /**
+     * @return whether all the indexes passed the check
+     */
+    @JsonProperty
+    public boolean isPassed() {
+        synchronized (results) {
+            return results.stream().allMatch(Result::isPassed);
+        }
+    }
+
+    @JsonProperty
+    public List<Result> getResults() {
+        synchronized (results) {
+            return new ArrayList<>(results);
+        }
+    }
+
+    void add(Result result) {
+        results.add(result);
+    }
+
+    /**
+     * Compute upper bound of the 95% Wilson score interval for the failure rate observed in a sample.
+     * @param failures number of failed documents in the sample
+     * @param checked size of the sample
+     * @return upper bound of the failure rate (in the range of 0 to 1)
+     */
+    static double getFailureRateUpperBound(long failures, long checked) {
+        if (checked <= 0) {
+            return 1.0;
+        }
+
+        double p = (double) failures / checked;
+        double z2 = Z_95 * Z_95;
+        double denominator = 1 + z2 / checked;
+        double center = p + z2 / (2 * checked);
+        double margin = Z_95 * Math.sqrt(p * (1 - p) / checked + z2 / (4.0 * checked * checked));
+        return Math.min(1.0, (center + margin) / denominator);
+    }
+
+    /**
+     * Result of the check of single index.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Result {
+        private final Path indexPath;
+        private long documentsTotal;
+        private long documentsChecked;
+        private long failures;
+        private boolean passed = true;
+        private final Collection<String> failedPaths = new TreeSet<>();
+        private String error;
+
+        Result(Path indexPath) {
+            this.indexPath = indexPath;
+        }
+
+        @JsonProperty
+        public String getIndexPath() {
+            return indexPath.toString();
+        }
+
+        /**
+         * @return number of documents (or files) subject to the check
+         */
+        @JsonProperty
+        public synchronized long getDocumentsTotal() {
+            return documentsTotal;
+        }
+
+        /**
+         * @return number of documents (or files) actually verified
+         */
+        @JsonProperty
+        public synchronized long getDocumentsChecked() {
+            return documentsChecked;
+        }
+
+        @JsonProperty
+        public synchronized long getFailures() {
+            return failures;
+        }
+
+        @JsonProperty
+        public synchronized boolean isPassed() {
+            return passed;
+        }
+
+        @JsonProperty
+        public synchronized Collection<String> getFailedPaths() {
+            return new ArrayList<>(failedPaths);
+        }
+
+        @JsonProperty
+        public synchronized String getError() {
+            return error;
+        }
+
+        /**
+         * @return estimated failure rate (in the range of 0 to 1) if only a sample of the documents was checked,
+         * {@code null} otherwise
+         */
+        @JsonProperty
+        @Nullable
+        public synchronized Double getFailureRateEstimate() {
+            if (documentsChecked >= documentsTotal || documentsChecked == 0) {
+                return null;
+            }
+            return (double) failures / documentsChecked;
+        }
+
+        /**
+         * @return upper bound of the 95% confidence interval of the failure rate (in the range of 0 to 1)
+         * if only a sample of the documents was checked, {@code null} otherwise
+         */
+        @JsonProperty
+        @Nullable
+        public synchronized Double getFailureRateUpperBound() {
+            if (documentsChecked >= documentsTotal) {
+                return null;
+            }
+            return IndexCheckReport.getFailureRateUpperBound(failures, documentsChecked);
+        }
+
+        synchronized void setCounts(long documentsTotal, long documentsChecked, long failures) {
+            this.documentsTotal = documentsTotal;
+            this.documentsChecked = documentsChecked;
+            this.failures = failures;
+        }
+
+        /**
+         * @param path path of a file (or document) that failed the check
+         */
+        synchronized void addFailedPath(Path path) {
+            failedPaths.add(path.toString());
+        }
+
+        synchronized void setFailed(String error) {
+            this.passed = false;
+            this.error = error;
+        }
+    }
+}
@@ -25,20 +25,24 @@ package org.opengrok.indexer.index;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
@@ -81,8 +85,6 @@ import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.search.DocIdSetIterator;
-import org.apache.lucene.search.Query;
-import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.store.LockFactory;
@@ -115,6 +117,7 @@ import org.opengrok.indexer.logger.LoggerFactory;
 import org.opengrok.indexer.search.QueryBuilder;
 import org.opengrok.indexer.util.ForbiddenSymlinkException;
 import org.opengrok.indexer.util.IOUtils;
+import org.opengrok.indexer.util.NumberUtil;
 import org.opengrok.indexer.util.ObjectPool;
 import org.opengrok.indexer.util.Progress;
 import org.opengrok.indexer.util.Statistics;
@@ -155,10 +158,20 @@ public class IndexDatabase {
 
     private static final Set<String> REVERT_COUNTS_FIELDS;
 
+    /**
+     * Stored fields produced by ctags or xref generation that are copied over when refreshing a document.
+     */
+    private static final Set<String> REFRESH_CARRY_OVER_FIELDS;
+
     private static final Set<String> LIVE_CHECK_FIELDS;
 
     private static final Object INSTANCE_LOCK = new Object();
 
+    /**
+     * Path to document ID mapping of recently looked up files, see {@link #getDocument(File)}.
+     */
+    private static final PathDocIdCache PATH_DOC_ID_CACHE = new PathDocIdCache(1000);
+
     /**
      * Key is canonical path; Value is the first accepted, absolute path. Map
      * is ordered by canonical length (ASC) and then canonical value (ASC).
@@ -180,6 +193,8 @@ public class IndexDatabase {
     private PathAccepter pathAccepter;
     private AnalyzerGuru analyzerGuru;
     private File xrefDir;
+    private XrefPack xrefPack;
+    private Set<String> xrefPacksToCompact = Collections.emptySet();
     private CopyOnWriteArrayList<IndexChangedListener> listeners;
     private File dirtyFile;
     private final Object lock = new Object();
@@ -191,6 +206,11 @@ public class IndexDatabase {
     private LockFactory lockFactory;
     private final BytesRef emptyBR = new BytesRef("");
     private final Set<String> deletedUids = new HashSet<>();
+    /**
+     * Whether the history based reindex can skip over the uid terms of the files that were not changed.
+     */
+    private boolean isSeekingUids;
+    private long uidTermsVisited;
 
     // Directory where we store indexes
     public static final String INDEX_DIR = "index";
@@ -265,6 +285,9 @@ public class IndexDatabase {
     static {
         CHECK_FIELDS = new HashSet<>();
         CHECK_FIELDS.add(QueryBuilder.TYPE);
+        CHECK_FIELDS.add(QueryBuilder.XREFPACK);
+
+        REFRESH_CARRY_OVER_FIELDS = Set.of(QueryBuilder.SCOPES, QueryBuilder.NUML, QueryBuilder.LOC);
 
         REVERT_COUNTS_FIELDS = new HashSet<>();
         REVERT_COUNTS_FIELDS.add(QueryBuilder.D);
@@ -590,6 +613,8 @@ public class IndexDatabase {
         settings = null;
         uidIter = null;
         postsIter = null;
+        isSeekingUids = false;
+        uidTermsVisited = 0;
         indexedSymlinks.clear();
 
         IOException finishingException = null;
@@ -597,6 +622,7 @@ public class IndexDatabase {
             writer = new IndexWriter(indexDirectory, indexWriterConfigFactory.get());
             writer.commit(); // to make sure index exists on the disk
             completer = new PendingFileCompleter();
+            xrefPack = env.isXrefPack() && env.isGenerateHtml() ? XrefPack.create(env.getDataRootFile(), project) : null;
 
             String dir = this.directory;
             File sourceRoot;
@@ -610,6 +636,10 @@ public class IndexDatabase {
 
             String startUid = Util.path2uid(dir, "");
             reader = DirectoryReader.open(indexDirectory); // open existing index
+            if (xrefPack != null) {
+                XrefPack.removeUnreferenced(reader, env.getDataRootFile(), project);
+                xrefPacksToCompact = XrefPack.getPacksToCompact(reader, env.getDataRootFile(), project);
+            }
             setupDeletedUids();
             countsAggregator = new NumLinesLOCAggregator();
             settings = readAnalysisSettings();
@@ -659,6 +689,8 @@ public class IndexDatabase {
                 // Traverse the trailing terms. This needs to be done before indexParallel() because
                 // in some cases it can add items to the args parameter.
                 processTrailingTerms(startUid, usedHistory, args);
+                LOGGER.log(Level.INFO, "Visited {0} uid terms during file collection for directory ''{1}''",
+                        new Object[]{uidTermsVisited, dir});
 
                 args.curCount = 0;
                 Statistics elapsed = new Statistics();
@@ -707,7 +739,14 @@ public class IndexDatabase {
             completer = null;
             try {
                 if (writer != null) {
-                    writer.close();
+                    try {
+                        if (xrefPack != null && writer.isOpen()) {
+                            // The writer commits on close so make sure the pack is complete.
+                            xrefPack.commit();
+                        }
+                    } finally {
+                        writer.close();
+                    }
                 }
             } catch (IOException e) {
                 if (finishingException == null) {
@@ -716,6 +755,8 @@ public class IndexDatabase {
                 LOGGER.log(Level.WARNING, "An error occurred while closing writer", e);
             } finally {
                 writer = null;
+                xrefPack = null;
+                xrefPacksToCompact = Collections.emptySet();
                 synchronized (lock) {
                     running = false;
                 }
@@ -784,8 +825,15 @@ public class IndexDatabase {
     }
 
     private void processTrailingTerms(String startUid, boolean usedHistory, IndexDownArgs args) throws IOException {
+        if (usedHistory && isSeekingUids) {
+            // The trailing terms correspond to the files that have not changed and the analysis settings
+            // have not changed either so there is nothing to do.
+            return;
+        }
+
         while (uidIter != null && uidIter.term() != null
                 && uidIter.term().utf8ToString().startsWith(startUid)) {
+            uidTermsVisited++;
 
             if (deletedUids.contains(uidIter.term().utf8ToString())) {
                 logIgnoredUid(uidIter.term().utf8ToString());
@@ -841,6 +889,7 @@ public class IndexDatabase {
                     historyBased ? "history" : "file-system", dir));
         }
         Statistics elapsed = new Statistics();
+        long traversalBegin = IndexerProfiler.begin();
         if (historyBased) {
             indexDownUsingHistory(env.getSourceRootFile(), args);
         } else {
@@ -852,6 +901,7 @@ public class IndexDatabase {
 
         elapsed.report(LOGGER, String.format("Done file collection for directory '%s'", dir),
                 "indexer.db.collection");
+        IndexerProfiler.end(IndexerProfiler.TRAVERSAL, traversalBegin, dir, historyBased ? "history" : "file-system");
 
         showFileCount(dir, args);
 
@@ -860,18 +910,18 @@ public class IndexDatabase {
 
     /**
      * @param file file under source root
-     * @return false if the document date is newer or equal to the last modified time stamp of the file, otherwise true
+     * @return true if the document date is newer than the last modified time stamp of the file, otherwise false
      */
-    private static boolean isStrictlyNewerThanDocument(File file) {
+    private static boolean isOlderThanDocument(File file) {
         if (!file.exists()) {
             // Case of delete/renamed file.
-            return true;
+            return false;
         }
         try {
             Document doc = IndexDatabase.getDocument(file);
             if (Objects.isNull(doc)) {
                 LOGGER.log(Level.WARNING, "cannot get document for ''{0}''", file);
-                return true;
+                return false;
             }
             IndexableField field = doc.getField(QueryBuilder.DATE);
             try {
@@ -882,18 +932,18 @@ public class IndexDatabase {
                     LOGGER.log(Level.FINEST, String.format("checking date for '%s': %d %d",
                             file, lastModified, docDate.getTime()));
                 }
-                if (lastModified <= docDate.getTime()) {
-                    return false;
+                if (lastModified < docDate.getTime()) {
+                    return true;
                 }
             } catch (java.text.ParseException e) {
                 LOGGER.log(Level.WARNING, String.format("cannot convert date for '%s'", file), e);
-                return true;
+                return false;
             }
         } catch (ParseException | IOException e) {
             LOGGER.log(Level.WARNING, String.format("cannot get document for '%s'", file), e);
         }
 
-        return true;
+        return false;
     }
 
     /**
@@ -906,6 +956,9 @@ public class IndexDatabase {
     void indexDownUsingHistory(File sourceRoot, IndexDownArgs args) throws IOException {
 
         FileCollector fileCollector = RuntimeEnvironment.getInstance().getFileCollector(project.getName());
+        isSeekingUids = isAnalysisSettingsCurrent();
+        LOGGER.log(Level.FINE, "{0} uid terms of unchanged files for {1}",
+                new Object[]{isSeekingUids ? "skipping" : "traversing", project});
 
         try (Progress progress = new Progress(LOGGER, String.format("collecting files for %s", project),
                 fileCollector.getFiles().size())) {
@@ -920,10 +973,11 @@ public class IndexDatabase {
                 //
                 // If the changes to the file were nullified across a sequence of changesets, the repository
                 // might not have updated the file. The history collector is not that smart however,
-                // so handle such situation here.
+                // so handle such situation here. If the file time stamp matches the document,
+                // only the history related fields of the document are refreshed.
                 //
-                if (!isStrictlyNewerThanDocument(file)) {
-                    LOGGER.log(Level.FINEST, "file ''{0}'' is not newer than its document, skipping",
+                if (isOlderThanDocument(file)) {
+                    LOGGER.log(Level.FINEST, "file ''{0}'' is older than its document, skipping",
                             new Object[]{file});
                     continue;
                 }
@@ -1067,6 +1121,11 @@ public class IndexDatabase {
      * @param path path to file under source root
      */
     private void removeXrefFile(String path) {
+        if (xrefPack != null) {
+            // The xref data in the pack are dropped together with the document.
+            return;
+        }
+
         RuntimeEnvironment env = RuntimeEnvironment.getInstance();
         File xrefFile = whatXrefFile(path, env.isCompressXref());
         PendingFileDeletion pending = new PendingFileDeletion(xrefFile.getAbsolutePath());
@@ -1158,9 +1217,19 @@ public class IndexDatabase {
      * @throws InterruptedException if a timeout occurs
      */
     private void addFile(File file, String path, Ctags ctags) throws IOException, InterruptedException {
+        AbstractAnalyzer fa = getAnalyzerFor(file, path);
+        IndexerProfiler.beginFile(path, fa.getClass().getSimpleName());
+        try {
+            addFile(file, path, ctags, fa);
+        } finally {
+            IndexerProfiler.endFile();
+        }
+    }
+
+    private void addFile(File file, String path, Ctags ctags, AbstractAnalyzer fa)
+            throws IOException, InterruptedException {
 
         RuntimeEnvironment env = RuntimeEnvironment.getInstance();
-        AbstractAnalyzer fa = getAnalyzerFor(file, path);
 
         for (IndexChangedListener listener : listeners) {
             listener.fileAdd(path, fa.getClass().getSimpleName());
@@ -1181,16 +1250,27 @@ public class IndexDatabase {
         try {
             String xrefAbs = null;
             File transientXref = null;
-            if (env.isGenerateHtml()) {
+            ByteArrayOutputStream packedXref = null;
+            if (env.isGenerateHtml() && xrefPack != null) {
+                packedXref = new ByteArrayOutputStream();
+                xrefOut = newXrefWriter(packedXref, env.isCompressXref());
+            } else if (env.isGenerateHtml()) {
                 xrefAbs = getXrefPath(path);
                 transientXref = new File(TandemPath.join(xrefAbs, PendingFileCompleter.PENDING_EXTENSION));
                 xrefOut = newXrefWriter(path, transientXref, env.isCompressXref());
             }
 
+            long analysisBegin = IndexerProfiler.begin();
             analyzerGuru.populateDocument(doc, file, path, fa, xrefOut);
+            IndexerProfiler.end(IndexerProfiler.ANALYSIS, analysisBegin);
 
             // Avoid producing empty xref files.
-            if (xrefOut != null && xrefOut.getCount() > 0) {
+            if (packedXref != null) {
+                xrefOut.close();
+                if (xrefOut.getCount() > 0) {
+                    xrefPack.append(packedXref.toByteArray(), doc);
+                }
+            } else if (xrefOut != null && xrefOut.getCount() > 0) {
                 PendingFileRenaming ren = new PendingFileRenaming(xrefAbs,
                         transientXref.getAbsolutePath());
                 completer.add(ren);
@@ -1218,12 +1298,100 @@ public class IndexDatabase {
             }
         }
 
+        long addBegin = IndexerProfiler.begin();
         try {
             writer.addDocument(doc);
         } catch (Throwable t) {
             cleanupResources(doc);
             throw t;
         }
+        IndexerProfiler.end(IndexerProfiler.ADD_DOCUMENT, addBegin);
+
+        setDirty();
+
+        long annotationBegin = IndexerProfiler.begin();
+        createAnnotationCache(file, doc);
+        IndexerProfiler.end(IndexerProfiler.ANNOTATION, annotationBegin);
+
+        for (IndexChangedListener listener : listeners) {
+            listener.fileAdded(path, fa.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Refresh the document of a file whose contents did not change, i.e. the uid of the existing document
+     * matches the file. Compared to {@link #addFile(File, String, Ctags)} neither ctags nor xref generation
+     * is run: the definitions, scopes and line counts are carried over from the stored fields of the existing
+     * document, the xref file is kept intact and the document is replaced in the index via
+     * {@link IndexWriter#updateDocument(Term, Iterable)}. Since the full text fields are not stored,
+     * the contents of the file still need to be tokenized.
+     *
+     * @param file The file to refresh
+     * @param path The path to the file (from source root)
+     * @param storedDoc stored fields of the existing document
+     * @throws java.io.IOException if an error occurs
+     * @throws InterruptedException if a timeout occurs
+     */
+    private void refreshFile(File file, String path, Document storedDoc) throws IOException, InterruptedException {
+
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        AbstractAnalyzer fa = getAnalyzerFor(file, path);
+
+        for (IndexChangedListener listener : listeners) {
+            listener.fileAdd(path, fa.getClass().getSimpleName());
+        }
+
+        IndexableField tags = storedDoc.getField(QueryBuilder.TAGS);
+        if (tags != null) {
+            try {
+                fa.setDefinitions(Definitions.deserialize(tags.binaryValue().bytes));
+            } catch (ClassNotFoundException e) {
+                throw new IOException(String.format("cannot deserialize definitions of '%s'", path), e);
+            }
+        }
+        fa.setProject(Project.getProject(path));
+        // Scopes are carried over from the existing document.
+        fa.setScopesEnabled(false);
+        fa.setFoldingEnabled(env.isFoldingEnabled());
+
+        Document doc = new Document();
+        try {
+            analyzerGuru.populateDocument(doc, file, path, fa, null);
+        } catch (InterruptedException e) {
+            LOGGER.log(Level.WARNING, "File ''{0}'' interrupted--{1}",
+                    new Object[]{path, e.getMessage()});
+            cleanupResources(doc);
+            throw e;
+        } catch (Exception e) {
+            LOGGER.log(Level.INFO, "Skipped refreshing file ''{0}'' because the analyzer didn''t understand it.", path);
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, String.format("Exception from analyzer %s", fa.getClass().getName()), e);
+            }
+            cleanupResources(doc);
+            return;
+        } finally {
+            fa.setDefinitions(null);
+        }
+
+        for (String field : REFRESH_CARRY_OVER_FIELDS) {
+            IndexableField storedField = storedDoc.getField(field);
+            if (storedField != null && doc.getField(field) == null) {
+                doc.add(storedField);
+            }
+        }
+        Long numLines = NumberUtil.tryParseLong(doc.get(QueryBuilder.NUML));
+        Long loc = NumberUtil.tryParseLong(doc.get(QueryBuilder.LOC));
+        if (doc.getField(QueryBuilder.NUMLDV) == null && numLines != null && loc != null) {
+            NumLinesLOCUtil.addDocValues(doc, numLines, loc);
+        }
+        XrefPack.copyFields(storedDoc, doc);
+
+        try {
+            writer.updateDocument(new Term(QueryBuilder.U, doc.get(QueryBuilder.U)), doc);
+        } catch (Throwable t) {
+            cleanupResources(doc);
+            throw t;
+        }
 
         setDirty();
 
@@ -1301,10 +1469,29 @@ public class IndexDatabase {
      * @return a value indicating if {@code file} should be included in index
      */
     private boolean accept(File file, AcceptSymlinkRet ret) {
+        return accept(file, IOUtils.readAttributes(file), ret);
+    }
+
+    /**
+     * Same as {@link #accept(File, AcceptSymlinkRet)} however with the type of the file determined from
+     * {@code attrs} so that the file system is not queried repeatedly.
+     * @param file the file to check
+     * @param attrs attributes of the file (following symbolic links) or {@code null} if these cannot be read
+     * @param ret see {@link #accept(File, AcceptSymlinkRet)}
+     * @return a value indicating if {@code file} should be included in index
+     */
+    private boolean accept(File file, @Nullable BasicFileAttributes attrs, AcceptSymlinkRet ret) {
         ret.localRelPath = null;
         String absolutePath = file.getAbsolutePath();
 
-        if (!pathAccepter.accept(file)) {
+        if (attrs == null) {
+            if (pathAccepter.accept(file)) {
+                LOGGER.log(Level.WARNING, "Could not read ''{0}''", absolutePath);
+            }
+            return false;
+        }
+
+        if (!pathAccepter.accept(file, attrs)) {
             return false;
         }
 
@@ -1326,7 +1513,7 @@ public class IndexDatabase {
                 }
             }
             // Below will only let go files and directories, anything else is considered special and is not added.
-            if (!file.isFile() && !file.isDirectory()) {
+            if (!attrs.isRegularFile() && !attrs.isDirectory()) {
                 LOGGER.log(Level.WARNING, "Ignored special file ''{0}''", absolutePath);
                 return false;
             }
@@ -1335,7 +1522,7 @@ public class IndexDatabase {
             LOGGER.log(Level.FINE, "Stack Trace: ", exp);
         }
 
-        if (file.isDirectory()) {
+        if (attrs.isDirectory()) {
             // Always accept directories so that their files can be examined.
             return true;
         }
@@ -1359,6 +1546,7 @@ public class IndexDatabase {
      * Determines if {@code file} should be accepted into the index database.
      * @param parent parent of {@code file}
      * @param file directory object under consideration
+     * @param attrs attributes of the file (following symbolic links) or {@code null} if these cannot be read
      * @param ret defined instance whose {@code localRelPath} property will be
      * non-null afterward if and only if {@code file} is a symlink that targets
      * either a {@link Repository}-local filesystem object or the same object
@@ -1366,7 +1554,7 @@ public class IndexDatabase {
      * {@code false} if {@code ret.localRelPath} is set non-null.
      * @return a value indicating if {@code file} should be included in index
      */
-    private boolean accept(File parent, File file, AcceptSymlinkRet ret) {
+    private boolean accept(File parent, File file, @Nullable BasicFileAttributes attrs, AcceptSymlinkRet ret) {
         ret.localRelPath = null;
 
         try {
@@ -1388,7 +1576,7 @@ public class IndexDatabase {
                 }
             }
 
-            return accept(file, ret);
+            return accept(file, attrs, ret);
         } catch (IOException ex) {
             LOGGER.log(Level.WARNING, "Failed to resolve name: ''{0}'' ''{1}''",
                     new Object[]{parent.getAbsolutePath(), file.getAbsolutePath()});
@@ -1629,10 +1817,11 @@ public class IndexDatabase {
 
         for (File file : files) {
             String path = parent + File.separator + file.getName();
-            if (!accept(dir, file, ret)) {
+            BasicFileAttributes attrs = IOUtils.readAttributes(file);
+            if (!accept(dir, file, attrs, ret)) {
                 handleSymlink(path, ret);
             } else {
-                if (file.isDirectory()) {
+                if (attrs.isDirectory()) {
                     indexDown(file, path, args, progress);
                 } else {
                     processFile(args, file, path);
@@ -1666,13 +1855,19 @@ public class IndexDatabase {
     void processFileHistoryBased(IndexDownArgs args, File file, String path) throws IOException {
         final boolean fileExists = file.exists();
         final Set<String> deletedUidsHere = new HashSet<>();
+        Document storedDoc = null;
         path = Util.fixPathIfWindows(path);
 
+        if (isSeekingUids) {
+            seekUid(path);
+        }
+
         // Traverse terms until reaching document beyond path of given file.
         while (uidIter != null && uidIter.term() != null && uidIter.term().compareTo(emptyBR) != 0
                 && FILEPATH_COMPARATOR.compare(
                         Path.of(Util.uid2url(uidIter.term().utf8ToString())),
                         Path.of(path)) <= 0) {
+            uidTermsVisited++;
 
             if (deletedUids.contains(uidIter.term().utf8ToString())) {
                 logIgnoredUid(uidIter.term().utf8ToString());
@@ -1696,6 +1891,15 @@ public class IndexDatabase {
                     deletedUidsHere.add(removeFile(false));
                     addWorkHistoryBased(args, termFile, termPath);
                 }
+            } else if (fileExists && storedDoc == null && isAcceptedFile(file)) {
+                // The file might have become ignored since it was indexed in which case the document
+                // has to be removed rather than refreshed.
+                storedDoc = getDocumentForMetadataRefresh(file, path);
+                if (storedDoc != null) {
+                    LOGGER.log(Level.FINEST, "contents of ''{0}'' did not change, will refresh its metadata", path);
+                } else {
+                    deletedUidsHere.add(removeFile(false));
+                }
             } else {
                 deletedUidsHere.add(removeFile(!fileExists));
             }
@@ -1706,16 +1910,22 @@ public class IndexDatabase {
             }
         }
 
+        if (storedDoc != null) {
+            addWorkHistoryBased(args, file, path, storedDoc);
+            return;
+        }
+
         // This function would not be called if the file was not changed in some way (including deletion).
         // That said, it is necessary to check whether the file can be accepted. This is done in the function below.
         // Also, allow for broken symbolic links (File.exists() returns false for these).
         if (fileExists || Files.isSymbolicLink(file.toPath())) {
             // This assumes that the last modified time is indeed what the indexer uses when adding the document.
             String time = DateTools.timeToString(file.lastModified(), DateTools.Resolution.MILLISECOND);
-            if (deletedUidsHere.contains(Util.path2uid(path, time))) {
+            if (deletedUidsHere.contains(Util.path2uid(path, time)) && isAcceptedFile(file)) {
                 //
                 // Adding document with the same date of a pre-existing document which is being removed
                 // will lead to index corruption (duplicate documents). Hence, make the indexer to fail hard.
+                // This does not apply to files that became ignored as these will not be added.
                 //
                 throw new IndexerFault(
                         String.format("attempting to add file '%s' with date matching deleted document: %s",
@@ -1726,6 +1936,129 @@ public class IndexDatabase {
         }
     }
 
+    /**
+     * The history of a file can change without its contents being changed, e.g. for changesets that touched
+     * just the file metadata (such as permissions) or were reverted. In such case the uid term of the document
+     * matches the file on disk and it is sufficient to refresh the history related fields of the document
+     * rather than removing the document and running the full analysis again.
+     * @param file File object
+     * @param path path of the file argument relative to source root (with leading slash)
+     * @return the stored fields of the document at the current uid term position if its metadata can be refreshed,
+     * {@code null} otherwise
+     * @throws IOException on error
+     */
+    @VisibleForTesting
+    @Nullable
+    Document getDocumentForMetadataRefresh(File file, String path) throws IOException {
+        String time = DateTools.timeToString(file.lastModified(), DateTools.Resolution.MILLISECOND);
+        if (!uidIter.term().utf8ToString().equals(Util.path2uid(path, time))
+                || !(isWithDirectoryCounts || isCountingDeltas) || !checkSettings(file, path)) {
+            return null;
+        }
+
+        postsIter = uidIter.postings(postsIter);
+        if (postsIter.nextDoc() == DocIdSetIterator.NO_MORE_DOCS) {
+            return null;
+        }
+
+        return reader.storedFields().document(postsIter.docID());
+    }
+
+    /**
+     * @param file File object
+     * @return whether the file would be accepted into the index by {@link #addWorkHistoryBased(IndexDownArgs, File,
+     * String, Document)}
+     */
+    private boolean isAcceptedFile(File file) {
+        BasicFileAttributes attrs = IOUtils.readAttributes(file);
+        return accept(file, attrs, new AcceptSymlinkRet()) && !attrs.isDirectory();
+    }
+
+    /**
+     * @return number of uid terms visited during the file collection of the last update
+     */
+    @VisibleForTesting
+    long getUidTermsVisited() {
+        return uidTermsVisited;
+    }
+
+    /**
+     * Position the uid iterator on the first term with the uid prefix of given path
+     * (or beyond it if there is no such term), skipping the terms of the files in between.
+     * The iterator is never moved backwards.
+     * @param path path relative to source root (with leading slash)
+     * @throws IOException on error
+     */
+    private void seekUid(String path) throws IOException {
+        if (uidIter == null || uidIter.term() == null) {
+            return;
+        }
+
+        BytesRef prefix = new BytesRef(Util.path2uid(path, ""));
+        if (uidIter.term().compareTo(prefix) >= 0) {
+            return;
+        }
+
+        if (uidIter.seekCeil(prefix) == TermsEnum.SeekStatus.END) {
+            uidIter = null;
+        }
+    }
+
+    /**
+     * In history based reindex, the uid terms of the files that were not changed are traversed
+     * merely to check (via {@link #checkSettings(File, String)}) whether their documents need to be re-added.
+     * If the analysis settings stored in the index match the current ones, this is not necessary
+     * and the traversal can seek directly to the terms of the changed files.
+     * <p>
+     * Besides the analyzer versions, the settings cover the way the xref data are stored
+     * (see {@link #getXrefMode()}) so that e.g. turning on the xref generation creates the missing xref files.
+     * Also, the documents in xref packs to be compacted have to be re-added, which needs the full traversal.
+     * </p>
+     * @return whether the index analysis settings match the current settings
+     */
+    @VisibleForTesting
+    boolean isAnalysisSettingsCurrent() {
+        if (settings == null || !(isWithDirectoryCounts || isCountingDeltas)) {
+            return false;
+        }
+
+        if (!xrefPacksToCompact.isEmpty()) {
+            LOGGER.log(Level.FINE, "xref packs of {0} need compaction", project);
+            return false;
+        }
+
+        if (!getXrefMode().equals(settings.getXrefMode())) {
+            LOGGER.log(Level.FINE, "xref mode of {0} changed from {1} to {2}",
+                    new Object[]{project, settings.getXrefMode(), getXrefMode()});
+            return false;
+        }
+
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        if (env.isGenerateHtml() && xrefPack == null && !new File(xrefDir, directory).isDirectory()) {
+            LOGGER.log(Level.FINE, "xref directory of {0} is missing", project);
+            return false;
+        }
+
+        int reqTabSize = project != null && project.hasTabSizeSetting() ? project.getTabSize() : 0;
+        Integer actTabSize = settings.getTabSize();
+        if (actTabSize != null && !actTabSize.equals(reqTabSize)) {
+            return false;
+        }
+
+        Long actGuruVersion = settings.getAnalyzerGuruVersion();
+        if (actGuruVersion == null || actGuruVersion != AnalyzerGuru.getVersionNo()) {
+            return false;
+        }
+
+        for (Entry<String, Long> entry : AnalyzerGuru.getAnalyzersVersionNos().entrySet()) {
+            if (!entry.getValue().equals(settings.getAnalyzerVersion(entry.getKey()))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     /**
      * Check if file can be accepted into the index database. If yes, change the {@code args} argument appropriately.
      * @param args {@link IndexDownArgs} instance to which an entry will be added if deemed acceptable
@@ -1733,16 +2066,28 @@ public class IndexDatabase {
      * @param path path of the file relative to given source root (not necessarily global source root)
      */
     private void addWorkHistoryBased(IndexDownArgs args, File file, String path) {
+        addWorkHistoryBased(args, file, path, null);
+    }
+
+    /**
+     * Check if file can be accepted into the index database. If yes, change the {@code args} argument appropriately.
+     * @param args {@link IndexDownArgs} instance to which an entry will be added if deemed acceptable
+     * @param file file object
+     * @param path path of the file relative to given source root (not necessarily global source root)
+     * @param storedDoc stored fields of existing document if only its metadata should be refreshed or {@code null}
+     */
+    private void addWorkHistoryBased(IndexDownArgs args, File file, String path, @Nullable Document storedDoc) {
         AcceptSymlinkRet ret = new AcceptSymlinkRet();
-        if (accept(file, ret)) {
+        BasicFileAttributes attrs = IOUtils.readAttributes(file);
+        if (accept(file, attrs, ret)) {
             // accept() returns true for directories because it was made to work with indexDown().
-            if (file.isDirectory()) {
+            if (attrs.isDirectory()) {
                 LOGGER.log(Level.FINER, "not accepting directory ''{0}'' into the index", file);
                 return;
             }
 
             args.curCount++;
-            args.works.add(new IndexFileWork(file, path));
+            args.works.add(new IndexFileWork(file, path, storedDoc));
         } else {
             handleSymlink(file.getParent(), ret);
         }
@@ -1769,6 +2114,7 @@ public class IndexDatabase {
             while (uidIter != null && uidIter.term() != null
                     && uidIter.term().compareTo(emptyBR) != 0
                     && uidIter.term().compareTo(buid) < 0) {
+                uidTermsVisited++;
 
                 if (deletedUids.contains(uidIter.term().utf8ToString())) {
                     logIgnoredUid(uidIter.term().utf8ToString());
@@ -1859,8 +2205,12 @@ public class IndexDatabase {
                                 if (alreadyClosedCounter.get() > 0) {
                                     x.ret = false;
                                 } else {
-                                    pctags = ctagsPool.get();
-                                    addFile(x.file, x.path, pctags);
+                                    if (x.storedDoc != null) {
+                                        refreshFile(x.file, x.path, x.storedDoc);
+                                    } else {
+                                        pctags = ctagsPool.get();
+                                        addFile(x.file, x.path, pctags);
+                                    }
                                     successCounter.incrementAndGet();
                                     x.ret = true;
                                 }
@@ -1985,29 +2335,17 @@ public class IndexDatabase {
      */
     public Set<String> getFiles() throws IOException {
         IndexReader ireader = null;
-        TermsEnum iter = null;
-        Terms terms;
         Set<String> files = new HashSet<>();
 
         try {
-            ireader = DirectoryReader.open(indexDirectory); // open existing index
-            if (ireader.numDocs() > 0) {
-                terms = MultiTerms.getTerms(ireader, QueryBuilder.U);
-                iter = terms.iterator(); // init uid iterator
-            }
-            BytesRef term;
-            while (iter != null && (term = iter.next()) != null) {
-                String value = term.utf8ToString();
-                if (!value.isEmpty()) {
-                    files.add(Util.uid2url(value));
-                }
-            }
+            ireader = IndexReaderCache.getInstance().acquire(indexDirectory.getDirectory());
+            IndexFileWalker.walk(ireader, null, null, 0, files::add);
         } finally {
             if (ireader != null) {
                 try {
-                    ireader.close();
+                    IndexReaderCache.getInstance().release(ireader);
                 } catch (IOException e) {
-                    LOGGER.log(Level.WARNING, "An error occurred while closing index reader", e);
+                    LOGGER.log(Level.WARNING, "An error occurred while releasing index reader", e);
                 }
             }
         }
@@ -2023,14 +2361,14 @@ public class IndexDatabase {
     public int getNumFiles() throws IOException {
         IndexReader ireader = null;
         try {
-            ireader = DirectoryReader.open(indexDirectory); // open existing index
+            ireader = IndexReaderCache.getInstance().acquire(indexDirectory.getDirectory());
             return ireader.numDocs();
         } finally {
             if (ireader != null) {
                 try {
-                    ireader.close();
+                    IndexReaderCache.getInstance().release(ireader);
                 } catch (IOException e) {
-                    LOGGER.log(Level.WARNING, "An error occurred while closing index reader", e);
+                    LOGGER.log(Level.WARNING, "An error occurred while releasing index reader", e);
                 }
             }
         }
@@ -2062,10 +2400,11 @@ public class IndexDatabase {
     }
 
     /**
+     * Find the document of a file using exact match of its path.
      * @param file File object for a file under source root
      * @return Document object for the file or {@code null} if no document was found
      * @throws IOException on I/O error
-     * @throws ParseException on problem with building Query
+     * @throws ParseException kept for compatibility, no query is parsed
      */
     @Nullable
     public static Document getDocument(File file) throws ParseException, IOException {
@@ -2082,28 +2421,19 @@ public class IndexDatabase {
         path = path.replace("\\", "/");
 
         Document doc;
-        Query q = new QueryBuilder().setPath(path).build();
         SuperIndexSearcher searcher = env.getSuperIndexSearcher(file);
         try {
             Statistics stat = new Statistics();
-            TopDocs top = searcher.search(q, 1);
+            int docId = PATH_DOC_ID_CACHE.getDocId(searcher.getIndexReader(), path);
             stat.report(LOGGER, Level.FINEST,
-                    String.format("search via getDocument(%s) done (%d hits)", file, top.totalHits.value),
+                    String.format("search via getDocument(%s) done (%s)", file,
+                            docId == PathDocIdCache.NOT_FOUND ? "not found" : "found"),
                     "search.latency", new String[]{"category", "getdocument",
-                            "outcome", top.totalHits.value == 0 ? "empty" : "success"});
-            if (top.totalHits.value == 0) {
-                // No hits, no document...
-                return null;
-            }
-            doc = searcher.storedFields().document(top.scoreDocs[0].doc);
-            String foundPath = doc.get(QueryBuilder.PATH);
-
-            // Only use the document if we found an exact match.
-            if (!path.equals(foundPath)) {
-                LOGGER.log(Level.FINEST, "not matching path: ''{0}'' for ''{1}''",
-                        new Object[]{foundPath, path});
+                            "outcome", docId == PathDocIdCache.NOT_FOUND ? "empty" : "success"});
+            if (docId == PathDocIdCache.NOT_FOUND) {
                 return null;
             }
+            doc = searcher.storedFields().document(docId);
         } finally {
             searcher.release();
         }
@@ -2181,9 +2511,12 @@ public class IndexDatabase {
      * should be produced for files of this type.
      */
     private CountingWriter newXrefWriter(String path, File transientXref, boolean compressed) throws IOException {
+        return newXrefWriter(new FileOutputStream(transientXref), compressed);
+    }
+
+    private static CountingWriter newXrefWriter(OutputStream out, boolean compressed) throws IOException {
         return new CountingWriter(new BufferedWriter(new OutputStreamWriter(compressed ?
-                new GZIPOutputStream(new FileOutputStream(transientXref)) :
-                new FileOutputStream(transientXref))));
+                new GZIPOutputStream(out) : out)));
     }
 
     final LockFactory pickLockFactory(RuntimeEnvironment env) {
@@ -2204,14 +2537,21 @@ public class IndexDatabase {
         try {
             writeAnalysisSettings();
 
+            if (xrefPack != null) {
+                xrefPack.commit();
+            }
+
             LOGGER.log(Level.FINE, "preparing to commit changes to {0}", this);
             writer.prepareCommit();
             hasPendingCommit = true;
 
             Statistics completerStat = new Statistics();
             final String logSuffix = this.project != null ? " for project " + this.project : "";
+            long completerBegin = IndexerProfiler.begin();
             int n = completer.complete(logSuffix);
             completerStat.report(LOGGER, Level.FINE, String.format("completed %d object(s)%s", n, logSuffix));
+            IndexerProfiler.end(IndexerProfiler.COMPLETER, completerBegin,
+                    project != null ? project.getName() : "/", "PendingFileCompleter");
 
             // Just before commit(), reset the `hasPendingCommit' flag,
             // since after commit() is called, there is no need for
@@ -2221,6 +2561,9 @@ public class IndexDatabase {
         } catch (RuntimeException | IOException e) {
             if (hasPendingCommit) {
                 writer.rollback();
+                if (xrefPack != null) {
+                    xrefPack.discard();
+                }
             }
             LOGGER.log(Level.WARNING,
                 "An error occurred while finishing writer and completer", e);
@@ -2249,6 +2592,7 @@ public class IndexDatabase {
         }
 
         int n = 0;
+        boolean hasPackedXref = false;
         postsIter = uidIter.postings(postsIter);
         StoredFields storedFields = reader.storedFields();
         while (postsIter.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
@@ -2319,6 +2663,11 @@ public class IndexDatabase {
             if (fa != null) {
                 outIsXrefWriter = true;
             }
+            hasPackedXref = XrefPack.hasXref(doc);
+            if (hasPackedXref && xrefPack != null && xrefPacksToCompact.contains(doc.get(QueryBuilder.XREFPACK))) {
+                LOGGER.log(Level.FINEST, "xref pack of ''{0}'' is compacted", path);
+                return false;
+            }
 
             // The versions checks have passed.
             break;
@@ -2337,7 +2686,7 @@ public class IndexDatabase {
             return true;
         }
 
-        return (!outIsXrefWriter || xrefExistsFor(path));
+        return (!outIsXrefWriter || (xrefPack != null ? hasPackedXref : xrefExistsFor(path)));
     }
 
     private void writeAnalysisSettings() throws IOException {
@@ -2348,11 +2697,23 @@ public class IndexDatabase {
         settings.setAnalyzerGuruVersion(AnalyzerGuru.getVersionNo());
         settings.setAnalyzersVersions(AnalyzerGuru.getAnalyzersVersionNos());
         settings.setIndexedSymlinks(indexedSymlinks);
+        settings.setXrefMode(getXrefMode());
 
         IndexAnalysisSettingsAccessor dao = new IndexAnalysisSettingsAccessor();
         dao.write(writer, settings);
     }
 
+    /**
+     * @return description of how the xref data are stored with the current configuration
+     */
+    private static String getXrefMode() {
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        if (!env.isGenerateHtml()) {
+            return "none";
+        }
+        return (env.isXrefPack() ? "pack" : "file") + (env.isCompressXref() ? ".gz" : "");
+    }
+
     private IndexAnalysisSettings3 readAnalysisSettings() throws IOException {
         IndexAnalysisSettingsAccessor dao = new IndexAnalysisSettingsAccessor();
         return dao.read(reader);
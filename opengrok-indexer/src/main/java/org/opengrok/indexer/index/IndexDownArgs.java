@@ -26,6 +26,8 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.lucene.document.Document;
+
 class IndexDownArgs {
     int curCount;
     final List<IndexFileWork> works = new ArrayList<>();
@@ -34,11 +36,20 @@ class IndexDownArgs {
 class IndexFileWork {
     final File file;
     final String path;
+    /**
+     * Stored fields of the existing document if only the metadata of the file needs to be refreshed.
+     */
+    final Document storedDoc;
     Exception exception;
     boolean ret;
 
     IndexFileWork(File file, String path) {
+        this(file, path, null);
+    }
+
+    IndexFileWork(File file, String path, Document storedDoc) {
         this.file = file;
         this.path = path;
+        this.storedDoc = storedDoc;
     }
 }
\ No newline at end of file
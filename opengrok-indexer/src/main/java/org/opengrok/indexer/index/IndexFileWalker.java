@@ -0,0 +1,138 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiBits;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
+import org.jetbrains.annotations.Nullable;
+import org.opengrok.indexer.search.QueryBuilder;
+import org.opengrok.indexer.web.Util;
+
+/**
+ * Walks the files in an index using the {@link QueryBuilder#U} terms, i.e. without loading any documents
+ * or collecting the paths in memory. The files are visited in the order of the terms, so the walk
+ * can be restricted to a path prefix and resumed after the last visited file.
+ */
+public final class IndexFileWalker {
+
+    /**
+     * Consumer of the paths of the visited files.
+     */
+    @FunctionalInterface
+    public interface PathConsumer {
+        /**
+         * @param path path of the file relative to source root
+         * @throws IOException on I/O error
+         */
+        void accept(String path) throws IOException;
+    }
+
+    private IndexFileWalker() {
+        // private to enforce static
+    }
+
+    /**
+     * Visit the live files in the index.
+     * @param reader index reader
+     * @param prefix only files with path starting with this prefix are visited, may be {@code null}
+     * @param after only files following this path (as returned by previous walk) are visited, may be {@code null}
+     * @param limit maximum number of files to visit or 0 for no limit
+     * @param consumer consumer of the file paths
+     * @return path of the last visited file if the walk was cut short by the limit, i.e. there are more files
+     * to be visited, {@code null} otherwise
+     * @throws IOException on I/O error or if thrown by the consumer
+     */
+    @Nullable
+    public static String walk(IndexReader reader, @Nullable String prefix, @Nullable String after, int limit,
+                              PathConsumer consumer) throws IOException {
+        Terms terms = MultiTerms.getTerms(reader, QueryBuilder.U);
+        if (terms == null) {
+            return null;
+        }
+
+        BytesRef uidPrefix = new BytesRef(prefix == null ? "" : prefix.replace('/', '\u0000'));
+        BytesRef start = uidPrefix;
+        if (after != null) {
+            BytesRef afterUid = new BytesRef(Util.path2uid(after, ""));
+            if (afterUid.compareTo(start) > 0) {
+                start = afterUid;
+            }
+        }
+
+        TermsEnum iter = terms.iterator();
+        if (iter.seekCeil(start) == TermsEnum.SeekStatus.END) {
+            return null;
+        }
+
+        // The terms of deleted documents stay in the terms dictionary until the segments are merged.
+        Bits liveDocs = MultiBits.getLiveDocs(reader);
+        PostingsEnum postings = null;
+        String last = null;
+        int count = 0;
+        for (BytesRef term = iter.term(); term != null; term = iter.next()) {
+            if (!StringHelper.startsWith(term, uidPrefix)) {
+                break;
+            }
+            if (term.length == 0) {
+                continue;
+            }
+            postings = iter.postings(postings, PostingsEnum.NONE);
+            if (!hasLiveDoc(postings, liveDocs)) {
+                continue;
+            }
+
+            String path = Util.uid2url(term.utf8ToString());
+            if (path.equals(after) || path.equals(last)) {
+                continue;
+            }
+            if (limit > 0 && count == limit) {
+                return last;
+            }
+            consumer.accept(path);
+            last = path;
+            count++;
+        }
+
+        return null;
+    }
+
+    private static boolean hasLiveDoc(PostingsEnum postings, @Nullable Bits liveDocs) throws IOException {
+        int docId;
+        while ((docId = postings.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+            if (liveDocs == null || liveDocs.get(docId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.ReaderManager;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.NoLockFactory;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.opengrok.indexer.logger.LoggerFactory;
+
+/**
+ * Indexer side counterpart of the {@code SearcherManager} map in
+ * {@link org.opengrok.indexer.configuration.RuntimeEnvironment}. While enabled, there is one
+ * {@link ReaderManager} per index directory so that the helpers reading the index
+ * (e.g. {@link IndexDatabase#getFiles()} or {@link IndexCheck}) share reference counted readers
+ * instead of opening the index over and over. The reader is reopened only if there was a commit
+ * since it was opened.
+ * <p>
+ * If the cache is not enabled, each {@link #acquire(Path)} opens a new reader that is closed
+ * by the corresponding {@link #release(IndexReader)}.
+ * </p>
+ */
+final class IndexReaderCache implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexReaderCache.class);
+
+    private static final IndexReaderCache INSTANCE = new IndexReaderCache();
+
+    private final Map<Path, Entry> entries = new HashMap<>();
+
+    private volatile boolean enabled;
+
+    private static final class Entry {
+        private final FSDirectory directory;
+        private final ReaderManager manager;
+
+        private Entry(FSDirectory directory, ReaderManager manager) {
+            this.directory = directory;
+            this.manager = manager;
+        }
+    }
+
+    @VisibleForTesting
+    IndexReaderCache() {
+    }
+
+    static IndexReaderCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start caching the readers. To be paired with {@link #close()} at the end of the run.
+     */
+    void enable() {
+        enabled = true;
+    }
+
+    /**
+     * Get a reader of the index. The caller has to return the reader with {@link #release(IndexReader)}
+     * after it is done with it.
+     * @param indexPath path to the index directory
+     * @return index reader reflecting the latest commit
+     * @throws IOException on I/O error, e.g. if there is no index in the directory
+     */
+    DirectoryReader acquire(Path indexPath) throws IOException {
+        if (!enabled) {
+            try (FSDirectory directory = FSDirectory.open(indexPath, NoLockFactory.INSTANCE)) {
+                return DirectoryReader.open(directory);
+            }
+        }
+
+        ReaderManager manager = getManager(indexPath.toAbsolutePath().normalize());
+        manager.maybeRefreshBlocking();
+        return manager.acquire();
+    }
+
+    /**
+     * @param reader reader returned by {@link #acquire(Path)}
+     * @throws IOException on I/O error
+     */
+    void release(IndexReader reader) throws IOException {
+        reader.decRef();
+    }
+
+    private synchronized ReaderManager getManager(Path indexPath) throws IOException {
+        Entry entry = entries.get(indexPath);
+        if (entry == null) {
+            FSDirectory directory = FSDirectory.open(indexPath, NoLockFactory.INSTANCE);
+            try {
+                entry = new Entry(directory, new ReaderManager(directory));
+            } catch (IOException e) {
+                directory.close();
+                throw e;
+            }
+            entries.put(indexPath, entry);
+        }
+        return entry.manager;
+    }
+
+    @VisibleForTesting
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Close the cached readers (the readers still acquired are closed once released) and stop caching.
+     */
+    @Override
+    public synchronized void close() {
+        enabled = false;
+        for (Map.Entry<Path, Entry> mapEntry : entries.entrySet()) {
+            try {
+                mapEntry.getValue().manager.close();
+                mapEntry.getValue().directory.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, String.format("failed to close index reader for '%s'", mapEntry.getKey()), e);
+            }
+        }
+        entries.clear();
+    }
+}
@@ -53,7 +53,11 @@ import java.util.Optional;
 import java.util.Scanner;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -125,6 +129,10 @@ public final class Indexer {
     private static Configuration cfg = null;
     private static boolean gotReadonlyConfiguration = false;
     private static IndexCheck.IndexCheckMode indexCheckMode = IndexCheck.IndexCheckMode.NO_CHECK;
+    private static int indexCheckSamplePercent = 100;
+    private static String indexCheckReportPath = null;
+    private static String profileReportPath = null;
+    private static final int PROFILE_TOP_COUNT = 20;
     private static boolean runIndex = true;
     private static boolean reduceSegmentCount = false;
     private static boolean addProjects = false;
@@ -132,6 +140,7 @@ public final class Indexer {
     private static boolean bareConfig = false;
     private static boolean awaitProfiler;
     private static boolean ignoreHistoryCacheFailures = false;
+    private static boolean pipelineHistory = false;
 
     private static boolean help;
     private static String helpUsage;
@@ -215,8 +224,13 @@ public final class Indexer {
                 pauseToAwaitProfiler();
             }
 
+            if (profileReportPath != null) {
+                IndexerProfiler.start(PROFILE_TOP_COUNT);
+            }
+
             env = RuntimeEnvironment.getInstance();
             env.setIndexer(true);
+            IndexReaderCache.getInstance().enable();
 
             // Complete the configuration of repository types.
             List<Class<? extends Repository>> repositoryClasses = RepositoryFactory.getRepositoryClasses();
@@ -386,7 +400,7 @@ public final class Indexer {
                         collect(Collectors.toSet());
             }
             Map<Repository, Optional<Exception>> historyCacheResults = getInstance().prepareIndexer(env,
-                    searchPaths, addProjects, runIndex, new ArrayList<>(repositories));
+                    searchPaths, addProjects, runIndex && !pipelineHistory, new ArrayList<>(repositories));
 
             // Set updated configuration in RuntimeEnvironment. This is called so that repositories discovered
             // in prepareIndexer() are stored in the Configuration used by RuntimeEnvironment.
@@ -396,7 +410,14 @@ public final class Indexer {
             env.setDefaultProjectsFromNames(defaultProjects);
 
             // With the history cache results in hand, head over to the 2nd phase of the indexing.
-            if (runIndex) {
+            if (runIndex && pipelineHistory) {
+                // The history cache is generated concurrently with the indexing.
+                IndexChangedListener progress = new DefaultIndexChangedListener();
+                Map<Repository, CompletableFuture<Optional<Exception>>> historyCacheFutures = new HashMap<>();
+                CompletableFuture<Void> historyCacheDone = getInstance().createHistoryCacheAsync(
+                        new ArrayList<>(repositories), ignoreHistoryCacheFailures, historyCacheFutures);
+                getInstance().doPipelinedIndexerExecution(projects, progress, historyCacheFutures, historyCacheDone);
+            } else if (runIndex) {
                 IndexChangedListener progress = new DefaultIndexChangedListener();
                 if (ignoreHistoryCacheFailures) {
                     if (historyCacheResults.values().stream().anyMatch(Optional::isPresent)) {
@@ -441,6 +462,7 @@ public final class Indexer {
             System.err.println("Exception: " + e.getLocalizedMessage());
             exitCode = 1;
         } finally {
+            IndexReaderCache.getInstance().close();
             env.shutdownSearchExecutor();
             /*
              * Normally the IndexParallelizer is bounced (i.e. thread pools within are terminated)
@@ -473,8 +495,13 @@ public final class Indexer {
             System.exit(1);
         }
 
-        try (IndexCheck indexCheck = new IndexCheck(cfg, subFileArgs)) {
-            indexCheck.check(indexCheckMode);
+        try (IndexCheck indexCheck = new IndexCheck(cfg, subFileArgs, indexCheckSamplePercent)) {
+            try {
+                indexCheck.check(indexCheckMode);
+            } finally {
+                writeIndexCheckReport(indexCheck.getReport());
+                IndexReaderCache.getInstance().close();
+            }
         } catch (IOException e) {
             // Use separate return code for cases where the index could not be read.
             // This avoids problems with wiping out the index based on the check.
@@ -494,6 +521,34 @@ public final class Indexer {
         System.exit(0);
     }
 
+    private static void writeIndexCheckReport(@Nullable IndexCheckReport report) {
+        if (indexCheckReportPath == null || report == null) {
+            return;
+        }
+
+        try {
+            Files.writeString(Path.of(indexCheckReportPath), report.toJSON());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format("Could not write index check report to '%s'",
+                    indexCheckReportPath), e);
+        }
+    }
+
+    private static void writeProfileReport() {
+        IndexerProfiler profiler = IndexerProfiler.stop();
+        if (profileReportPath == null || profiler == null) {
+            return;
+        }
+
+        try {
+            Files.writeString(Path.of(profileReportPath), profiler.toJSON());
+            LOGGER.log(Level.INFO, "Wrote indexer profile report to ''{0}''", profileReportPath);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format("Could not write indexer profile report to '%s'",
+                    profileReportPath), e);
+        }
+    }
+
     /**
      * This is supposed to be run after {@link #parseOptions(String[])}.
      * It will exit the program if there is some serious configuration (meaning {@link #cfg}) discrepancy.
@@ -673,6 +728,21 @@ public final class Indexer {
                     }
             );
 
+            parser.on("--checkIndexSample", "=percent", Integer.class,
+                    "Verify only given percentage of randomly selected documents",
+                    "in the documents and definitions modes of --checkIndex.",
+                    "Default is 100.").execute(v -> {
+                        int percent = (Integer) v;
+                        if (percent < 1 || percent > 100) {
+                            die("--checkIndexSample requires value in the range of 1 to 100");
+                        }
+                        indexCheckSamplePercent = percent;
+                    });
+
+            parser.on("--checkIndexReport", "=/path/to/report.json",
+                    "Write the results of --checkIndex as JSON to given file.").
+                    execute(v -> indexCheckReportPath = (String) v);
+
             parser.on("-d", "--dataRoot", "=/path/to/data/root",
                 "The directory where OpenGrok stores the generated data.").
                 execute(drPath -> {
@@ -767,6 +837,14 @@ public final class Indexer {
                     "This option overrides the failure. Assumes -H.").execute(v ->
                     ignoreHistoryCacheFailures = true);
 
+            parser.on("--pipelineHistory",
+                    "Generate history cache concurrently with the indexing. By default ",
+                    "the indexing starts only after history cache for all repositories",
+                    "is done. With this option, index of given project is updated as soon",
+                    "as the history cache for all repositories of the project is done.",
+                    "Assumes -H.").execute(v ->
+                    pipelineHistory = true);
+
             parser.on("-l", "--lock", "=on|off|simple|native", LUCENE_LOCKS,
                     "Set OpenGrok/Lucene locking mode of the Lucene database during index",
                     "generation. \"on\" is an alias for \"simple\". Default is off.").execute(v -> {
@@ -846,6 +924,13 @@ public final class Indexer {
             parser.on("--profiler", "Pause to await profiler or debugger.").
                 execute(v -> awaitProfiler = true);
 
+            parser.on("--profileReport", "=/path/to/report.json",
+                    "Measure the phases of indexing (history cache, file collection, ctags,",
+                    "analysis, xref, adding documents, annotation cache, pending files)",
+                    "per analyzer and write totals, percentiles and the slowest files",
+                    "of each phase as JSON to given file at the end of indexing.").
+                    execute(v -> profileReportPath = (String) v);
+
             parser.on("--progress",
                     "Print per-project percentage progress information.").execute(v ->
                     cfg.setPrintProgress(true));
@@ -1015,6 +1100,12 @@ public final class Indexer {
             parser.on("--webappCtags", "=on|off", ON_OFF, Boolean.class,
                     "Web application should run ctags when necessary. Default is off.").
                     execute(v -> cfg.setWebappCtags((Boolean) v));
+
+            parser.on("--xrefPack", "=on|off", ON_OFF, Boolean.class,
+                    "Append the xref data of each index run to pack files instead of",
+                    "writing them as individual files. Switching requires full reindex.",
+                    "Default is off.").
+                    execute(v -> cfg.setXrefPack((Boolean) v));
         });
 
         // Need to read the configuration file first, so that options may be overwritten later.
@@ -1171,6 +1262,49 @@ public final class Indexer {
         return Collections.emptyMap();
     }
 
+    /**
+     * Start generating history cache for the repositories without waiting for it to finish.
+     * This is the asynchronous alternative to the history cache creation done
+     * in {@link #prepareIndexer(RuntimeEnvironment, Set, boolean, boolean, List)}.
+     *
+     * @param repositories list of repository paths relative to source root
+     * @param ignoreFailures whether to ignore history cache creation failures
+     * @param futures map to be filled with repository to future of optional exception
+     * @return future that completes once the history cache is done and finalized, to be passed to
+     * {@link #doPipelinedIndexerExecution(Set, IndexChangedListener, Map, CompletableFuture)}
+     */
+    public CompletableFuture<Void> createHistoryCacheAsync(@Nullable List<String> repositories, boolean ignoreFailures,
+            Map<Repository, CompletableFuture<Optional<Exception>>> futures) {
+
+        // Even if history is disabled globally, it can be enabled for some repositories.
+        Map<Repository, CompletableFuture<Optional<Exception>>> historyCacheFutures = new HashMap<>();
+        CompletableFuture<Void> done;
+        if (repositories != null && !repositories.isEmpty()) {
+            LOGGER.log(Level.INFO, "Generating history cache for repositories concurrently with indexing: {0}",
+                    String.join(",", repositories));
+            done = HistoryGuru.getInstance().createHistoryCacheAsync(repositories, historyCacheFutures);
+        } else {
+            LOGGER.log(Level.INFO, "Generating history cache for all repositories concurrently with indexing ...");
+            done = HistoryGuru.getInstance().createHistoryCacheAsync(historyCacheFutures);
+        }
+
+        if (!ignoreFailures) {
+            futures.putAll(historyCacheFutures);
+            return done;
+        }
+
+        for (Entry<Repository, CompletableFuture<Optional<Exception>>> entry : historyCacheFutures.entrySet()) {
+            futures.put(entry.getKey(), entry.getValue().thenApply(exception -> {
+                exception.ifPresent(e -> LOGGER.log(Level.INFO,
+                        "There has been history cache creation failure for {0}, " +
+                                "however --ignoreHistoryCacheFailures was used, hence ignoring it: {1}",
+                        new Object[]{entry.getKey(), e}));
+                return Optional.empty();
+            }));
+        }
+        return done;
+    }
+
     private void addProjects(File[] files, Map<String, Project> projects) {
         // Keep a copy of the old project list so that we can preserve
         // the customization of existing projects.
@@ -1270,7 +1404,140 @@ public final class Indexer {
             elapsed.report(LOGGER, "Done indexing data of all repositories", "indexer.repository.indexing");
         } finally {
             CtagsUtil.deleteTempFiles();
+            writeProfileReport();
+        }
+    }
+
+    /**
+     * This is the alternative to {@link #doIndexerExecution(Set, IndexChangedListener, Map)}
+     * which runs concurrently with the history cache generation. The index of each project
+     * is updated as soon as the history cache for all repositories of the project is done.
+     * The parallelism of both phases is still bounded by the respective executors
+     * of the {@link IndexerParallelizer}.
+     *
+     * @param projects if not {@code null}, index just the projects specified
+     * @param progress if not {@code null}, an object to receive notifications as indexer progress is made
+     * @param historyCacheFutures per repository futures of history cache update
+     * @param historyCacheDone future of the history cache finalization, waited for before the executors are shut down
+     * @throws IndexerException if the indexing has failed for any reason
+     */
+    public void doPipelinedIndexerExecution(@Nullable Set<Project> projects, @Nullable IndexChangedListener progress,
+                                            Map<Repository, CompletableFuture<Optional<Exception>>> historyCacheFutures,
+                                            CompletableFuture<Void> historyCacheDone)
+            throws IndexerException {
+
+        Statistics elapsed = new Statistics();
+        LOGGER.info("Starting indexing");
+
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        try (IndexerParallelizer parallelizer = env.getIndexerParallelizer()) {
+            List<Project> projectList = new ArrayList<>();
+            if (projects != null && !projects.isEmpty()) {
+                projectList.addAll(projects);
+            } else if (env.isProjectsEnabled()) {
+                projectList.addAll(env.getProjectList());
+            } else {
+                // Without projects, the sole index database depends on all the repositories.
+                projectList.add(null);
+            }
+
+            final IndexerException indexerException = new IndexerException();
+            final CountDownLatch latch = new CountDownLatch(projectList.size());
+            for (final Project project : projectList) {
+                Map<Repository, CompletableFuture<Optional<Exception>>> dependencies =
+                        getHistoryCacheDependencies(project, historyCacheFutures);
+                CompletableFuture.allOf(dependencies.values().toArray(new CompletableFuture<?>[0])).
+                        whenComplete((v, ex) -> {
+                            try {
+                                parallelizer.getFixedExecutor().submit(() -> {
+                                    try {
+                                        List<IndexDatabase> dbs = new ArrayList<>();
+                                        if (project == null) {
+                                            IndexDatabase.addIndexDatabase(null, dbs, getHistoryCacheResults(dependencies));
+                                        } else {
+                                            IndexDatabase.addIndexDatabaseForProject(null, project, dbs,
+                                                    getHistoryCacheResults(dependencies));
+                                        }
+                                        for (IndexDatabase db : dbs) {
+                                            db.addIndexChangedListener(progress);
+                                            db.update();
+                                        }
+                                    } catch (Throwable e) {
+                                        indexerException.addSuppressed(e);
+                                        LOGGER.log(Level.SEVERE, "An error occurred while updating index", e);
+                                    } finally {
+                                        latch.countDown();
+                                    }
+                                });
+                            } catch (RuntimeException e) {
+                                // The task will not run (e.g. the executor was shut down) so count down here.
+                                indexerException.addSuppressed(e);
+                                LOGGER.log(Level.SEVERE, "Could not submit index update", e);
+                                latch.countDown();
+                            }
+                        });
+            }
+
+            // Wait forever for the executors to finish.
+            try {
+                LOGGER.info("Waiting for the executors to finish");
+                latch.await();
+            } catch (InterruptedException exp) {
+                LOGGER.log(Level.WARNING, "Received interrupt while waiting for executor to finish", exp);
+                indexerException.addSuppressed(exp);
+            }
+
+            // Repositories outside the indexed projects might still be processed.
+            getHistoryCacheResults(historyCacheFutures);
+
+            // The history cache is finalized in the history executor which is shut down with the parallelizer.
+            try {
+                historyCacheDone.join();
+            } catch (CompletionException | CancellationException e) {
+                indexerException.addSuppressed(e);
+                LOGGER.log(Level.SEVERE, "An error occurred while finishing history cache", e);
+            }
+
+            if (indexerException.getSuppressed().length > 0) {
+                throw indexerException;
+            }
+
+            elapsed.report(LOGGER, "Done indexing data of all repositories", "indexer.repository.indexing");
+        } finally {
+            CtagsUtil.deleteTempFiles();
+            writeProfileReport();
+        }
+    }
+
+    private static Map<Repository, CompletableFuture<Optional<Exception>>> getHistoryCacheDependencies(
+            @Nullable Project project, Map<Repository, CompletableFuture<Optional<Exception>>> historyCacheFutures) {
+
+        if (project == null) {
+            return historyCacheFutures;
+        }
+
+        return historyCacheFutures.entrySet().stream().
+                filter(e -> project.equals(Project.getProject(e.getKey().getDirectoryNameRelative()))).
+                collect(Collectors.toMap(Entry::getKey, Entry::getValue));
+    }
+
+    /**
+     * Wait for the futures to complete.
+     * @param historyCacheFutures map of repository to future of optional exception
+     * @return map of repository to optional exception
+     */
+    private static Map<Repository, Optional<Exception>> getHistoryCacheResults(
+            Map<Repository, CompletableFuture<Optional<Exception>>> historyCacheFutures) {
+
+        Map<Repository, Optional<Exception>> results = new HashMap<>();
+        for (Entry<Repository, CompletableFuture<Optional<Exception>>> entry : historyCacheFutures.entrySet()) {
+            try {
+                results.put(entry.getKey(), entry.getValue().get());
+            } catch (InterruptedException | ExecutionException e) {
+                results.put(entry.getKey(), Optional.of(e));
+            }
         }
+        return results;
     }
 
     private static void addIndexDatabase(Project project, List<IndexDatabase> dbs,
@@ -0,0 +1,422 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.jetbrains.annotations.Nullable;
+import org.opengrok.indexer.Metrics;
+import org.opengrok.indexer.web.messages.JSONable;
+
+/**
+ * Collects durations of the phases of an indexer run: history cache creation, file collection,
+ * ctags, analysis, xref generation, adding the documents to the index, annotation cache and completion
+ * of pending files. The per-file phases are aggregated by analyzer so that the {@link #toJSON()} report
+ * contains totals, percentiles and the slowest files of each phase as well as folded stacks
+ * ({@code phase;analyzer value}) suitable for flame graph tools.
+ * <p>
+ * The profiling is off unless {@link #start(int)} is called. While it is off, {@link #begin()} returns 0
+ * and the rest of the static methods do nothing.
+ * </p>
+ */
+public final class IndexerProfiler implements JSONable {
+
+    public static final String METER_NAME = "indexer.phase.latency";
+
+    public static final String HISTORY_CACHE = "historyCache";
+    public static final String TRAVERSAL = "traversal";
+    public static final String CTAGS = "ctags";
+    /**
+     * Analysis of the file except ctags and xref generation. The timer encloses the {@link #CTAGS} and
+     * {@link #XREF} phases of the same file, their durations are subtracted in {@link #endFile()} so that
+     * the phases of the report do not overlap.
+     */
+    public static final String ANALYSIS = "analysis";
+    public static final String XREF = "xref";
+    /**
+     * Adding the document to the index. Lucene tokenizes the text fields lazily, so this includes the lexing.
+     */
+    public static final String ADD_DOCUMENT = "addDocument";
+    public static final String ANNOTATION = "annotation";
+    public static final String COMPLETER = "completer";
+
+    private static volatile IndexerProfiler instance;
+
+    private static final ThreadLocal<FileProfile> CURRENT_FILE = new ThreadLocal<>();
+
+    private final int topCount;
+    /**
+     * Phase name to analyzer name to statistics.
+     */
+    private final Map<String, Map<String, Samples>> phases = new LinkedHashMap<>();
+    private final Map<String, PriorityQueue<Sample>> slowest = new LinkedHashMap<>();
+
+    private IndexerProfiler(int topCount) {
+        this.topCount = topCount;
+    }
+
+    /**
+     * Start profiling.
+     * @param topCount number of the slowest files to report per phase
+     * @return new instance
+     */
+    public static IndexerProfiler start(int topCount) {
+        IndexerProfiler profiler = new IndexerProfiler(topCount);
+        instance = profiler;
+        return profiler;
+    }
+
+    /**
+     * Stop profiling.
+     * @return the instance that has been collecting the data or {@code null} if the profiling was off
+     */
+    @Nullable
+    public static IndexerProfiler stop() {
+        IndexerProfiler profiler = instance;
+        instance = null;
+        return profiler;
+    }
+
+    /**
+     * @return current time in nanoseconds to be passed to {@link #end(String, long)}
+     * or 0 if the profiling is off
+     */
+    public static long begin() {
+        return instance != null ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record the duration of a phase of the file being processed by the current thread.
+     * @param phase name of the phase
+     * @param begin value returned from {@link #begin()}
+     */
+    public static void end(String phase, long begin) {
+        FileProfile file = CURRENT_FILE.get();
+        if (begin != 0 && file != null) {
+            file.add(phase, System.nanoTime() - begin);
+        }
+    }
+
+    /**
+     * Record the duration of a phase that is not specific to single file.
+     * @param phase name of the phase
+     * @param begin value returned from {@link #begin()}
+     * @param name what was processed, e.g. repository or project
+     * @param group group for the aggregation, e.g. repository type
+     */
+    public static void end(String phase, long begin, String name, String group) {
+        IndexerProfiler profiler = instance;
+        if (begin != 0 && profiler != null) {
+            profiler.record(phase, group, name, System.nanoTime() - begin);
+        }
+    }
+
+    /**
+     * Start collecting the phases of a file in the current thread.
+     * @param path path of the file relative to source root
+     * @param analyzer name of the analyzer used for the file
+     */
+    static void beginFile(String path, String analyzer) {
+        IndexerProfiler profiler = instance;
+        if (profiler != null) {
+            CURRENT_FILE.set(new FileProfile(profiler, path, analyzer));
+        }
+    }
+
+    /**
+     * Record the phases of the file started by {@link #beginFile(String, String)}.
+     */
+    static void endFile() {
+        FileProfile file = CURRENT_FILE.get();
+        if (file == null) {
+            return;
+        }
+        CURRENT_FILE.remove();
+
+        // The analysis encloses ctags and xref generation, record only its own time.
+        Long analysis = file.phases.get(ANALYSIS);
+        if (analysis != null) {
+            long nested = file.phases.getOrDefault(CTAGS, 0L) + file.phases.getOrDefault(XREF, 0L);
+            file.phases.put(ANALYSIS, Math.max(0, analysis - nested));
+        }
+        for (Map.Entry<String, Long> entry : file.phases.entrySet()) {
+            file.profiler.record(entry.getKey(), file.analyzer, file.path, entry.getValue());
+        }
+    }
+
+    private void record(String phase, String group, String name, long nanos) {
+        synchronized (this) {
+            phases.computeIfAbsent(phase, k -> new TreeMap<>()).
+                    computeIfAbsent(group, k -> new Samples()).add(nanos);
+            PriorityQueue<Sample> queue = slowest.computeIfAbsent(phase,
+                    k -> new PriorityQueue<>(Comparator.comparingLong(s -> s.nanos)));
+            if (topCount > 0 && (queue.size() < topCount || queue.peek().nanos < nanos)) {
+                queue.add(new Sample(name, group, nanos));
+                if (queue.size() > topCount) {
+                    queue.poll();
+                }
+            }
+        }
+
+        MeterRegistry registry = Metrics.getRegistry();
+        if (registry != null) {
+            Timer.builder(METER_NAME).
+                    description("duration of indexer phases").
+                    tags("phase", phase, "analyzer", group).
+                    register(registry).
+                    record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * @return statistics of the phases in the order the phases were first recorded
+     */
+    @JsonProperty
+    public synchronized List<PhaseReport> getPhases() {
+        List<PhaseReport> reports = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Samples>> entry : phases.entrySet()) {
+            Samples all = new Samples();
+            Map<String, Stats> byGroup = new TreeMap<>();
+            for (Map.Entry<String, Samples> groupEntry : entry.getValue().entrySet()) {
+                all.addAll(groupEntry.getValue());
+                byGroup.put(groupEntry.getKey(), groupEntry.getValue().getStats());
+            }
+
+            List<Sample> slowestSamples = new ArrayList<>(slowest.getOrDefault(entry.getKey(), new PriorityQueue<>()));
+            slowestSamples.sort(Comparator.comparingLong((Sample s) -> s.nanos).reversed());
+            reports.add(new PhaseReport(entry.getKey(), all.getStats(), byGroup, slowestSamples));
+        }
+        return reports;
+    }
+
+    /**
+     * @return total durations in microseconds in the folded stack format, i.e. {@code indexer;phase;analyzer value}
+     */
+    @JsonProperty
+    public synchronized List<String> getFolded() {
+        List<String> folded = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Samples>> entry : phases.entrySet()) {
+            for (Map.Entry<String, Samples> groupEntry : entry.getValue().entrySet()) {
+                folded.add(String.format(Locale.ROOT, "indexer;%s;%s %d", entry.getKey(), groupEntry.getKey(),
+                        TimeUnit.NANOSECONDS.toMicros(groupEntry.getValue().total)));
+            }
+        }
+        return folded;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Phases of single file.
+     */
+    private static class FileProfile {
+        private final IndexerProfiler profiler;
+        private final String path;
+        private final String analyzer;
+        private final Map<String, Long> phases = new LinkedHashMap<>();
+
+        FileProfile(IndexerProfiler profiler, String path, String analyzer) {
+            this.profiler = profiler;
+            this.path = path;
+            this.analyzer = analyzer;
+        }
+
+        void add(String phase, long nanos) {
+            phases.merge(phase, nanos, Long::sum);
+        }
+    }
+
+    /**
+     * Growable array of durations so that exact percentiles can be computed for the report.
+     */
+    private static class Samples {
+        private long[] nanos = new long[16];
+        private int size;
+        private long total;
+
+        void add(long value) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = value;
+            total += value;
+        }
+
+        void addAll(Samples other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.nanos[i]);
+            }
+        }
+
+        Stats getStats() {
+            long[] sorted = Arrays.copyOf(nanos, size);
+            Arrays.sort(sorted);
+            return new Stats(size, total, percentile(sorted, 50), percentile(sorted, 90),
+                    percentile(sorted, 99), size > 0 ? sorted[size - 1] : 0);
+        }
+
+        private static long percentile(long[] sorted, int percent) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, index)];
+        }
+    }
+
+    /**
+     * Aggregated durations.
+     */
+    @JsonPropertyOrder({"count", "totalMillis", "p50Millis", "p90Millis", "p99Millis", "maxMillis"})
+    public static class Stats {
+        private final long count;
+        private final long total;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long max;
+
+        Stats(long count, long total, long p50, long p90, long p99, long max) {
+            this.count = count;
+            this.total = total;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        @JsonProperty
+        public long getCount() {
+            return count;
+        }
+
+        @JsonProperty
+        public double getTotalMillis() {
+            return toMillis(total);
+        }
+
+        @JsonProperty
+        public double getP50Millis() {
+            return toMillis(p50);
+        }
+
+        @JsonProperty
+        public double getP90Millis() {
+            return toMillis(p90);
+        }
+
+        @JsonProperty
+        public double getP99Millis() {
+            return toMillis(p99);
+        }
+
+        @JsonProperty
+        public double getMaxMillis() {
+            return toMillis(max);
+        }
+    }
+
+    /**
+     * Duration of a phase of single file (or repository, project).
+     */
+    @JsonPropertyOrder({"name", "analyzer", "millis"})
+    public static class Sample {
+        private final String name;
+        private final String group;
+        private final long nanos;
+
+        Sample(String name, String group, long nanos) {
+            this.name = name;
+            this.group = group;
+            this.nanos = nanos;
+        }
+
+        @JsonProperty
+        public String getName() {
+            return name;
+        }
+
+        @JsonProperty
+        public String getAnalyzer() {
+            return group;
+        }
+
+        @JsonProperty
+        public double getMillis() {
+            return toMillis(nanos);
+        }
+    }
+
+    /**
+     * Statistics of single phase.
+     */
+    @JsonPropertyOrder({"phase", "total", "byAnalyzer", "slowest"})
+    public static class PhaseReport {
+        private final String phase;
+        private final Stats total;
+        private final Map<String, Stats> byAnalyzer;
+        private final List<Sample> slowest;
+
+        PhaseReport(String phase, Stats total, Map<String, Stats> byAnalyzer, List<Sample> slowest) {
+            this.phase = phase;
+            this.total = total;
+            this.byAnalyzer = byAnalyzer;
+            this.slowest = slowest;
+        }
+
+        @JsonProperty
+        public String getPhase() {
+            return phase;
+        }
+
+        @JsonProperty
+        public Stats getTotal() {
+            return total;
+        }
+
+        @JsonProperty
+        public Map<String, Stats> getByAnalyzer() {
+            return byAnalyzer;
+        }
+
+        @JsonProperty
+        public List<Sample> getSlowest() {
+            return slowest;
+        }
+    }
+}
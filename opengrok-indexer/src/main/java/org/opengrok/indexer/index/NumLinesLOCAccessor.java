@@ -26,6 +26,7 @@ package org.opengrok.indexer.index;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.IndexReader;
@@ -39,6 +40,7 @@ import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.util.BytesRef;
 import org.opengrok.indexer.analysis.CompatibleAnalyser;
 import org.opengrok.indexer.analysis.AccumulatedNumLinesLOC;
 import org.opengrok.indexer.analysis.NullableNumLinesLOC;
@@ -186,6 +188,8 @@ class NumLinesLOCAccessor {
         doc.add(new StringField(QueryBuilder.DIRPATH, normalizedPath, Field.Store.NO));
         doc.add(new StoredField(QueryBuilder.NUML, newNumLines));
         doc.add(new StoredField(QueryBuilder.LOC, newLOC));
+        doc.add(new SortedDocValuesField(QueryBuilder.PATHDV, new BytesRef(aggregate.getPath())));
+        NumLinesLOCUtil.addDocValues(doc, newNumLines, newLOC);
         writer.addDocument(doc);
     }
 
@@ -19,6 +19,7 @@
 
 /*
  * Copyright (c) 2020, Chris Fraire <cfraire@me.com>.
+ * Portions Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.indexer.index;
 
@@ -26,22 +27,30 @@ import org.opengrok.indexer.analysis.AccumulatedNumLinesLOC;
 import org.opengrok.indexer.analysis.NumLinesLOC;
 import org.opengrok.indexer.web.Util;
 
-import java.io.File;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 /**
  * Represents an accumulator of net-deltas of #Lines and LOC for directories.
+ * <p>
+ * The registration is lock-free so that it can be called from all the indexer worker threads
+ * without contention; the directories close to the root are updated by every registration,
+ * hence the counts are kept in {@link LongAdder}s.
+ * </p>
  */
 public class NumLinesLOCAggregator {
-    private final Object syncRoot = new Object();
 
-    private final HashMap<String, DeltaData> registeredDeltas = new HashMap<>();
+    private static final Pattern MULTIPLE_SEPARATORS = Pattern.compile("/{2,}");
+
+    private final ConcurrentHashMap<String, DeltaData> registeredDeltas = new ConcurrentHashMap<>();
 
     /**
      * Gets an iterator over all registered data, explicit and derived, and not
-     * ordered.
+     * ordered. The iteration is expected to happen after all the registrations are done.
      * @return a defined instance
      */
     public Iterator<AccumulatedNumLinesLOC> iterator() {
@@ -55,25 +64,49 @@ public class NumLinesLOCAggregator {
      * @param counts {@link NumLinesLOC} instance
      */
     public void register(NumLinesLOC counts) {
-        File file = new File(counts.getPath());
-        File directory = file.getParentFile();
-        if (directory != null) {
-            synchronized (syncRoot) {
-                do {
-                    String dirPath = Util.fixPathIfWindows(directory.getPath());
-                    var extantDelta = registeredDeltas.computeIfAbsent(dirPath,
-                            key -> new DeltaData());
-                    extantDelta.numLines += counts.getNumLines();
-                    extantDelta.loc += counts.getLOC();
-                } while ((directory = directory.getParentFile()) != null &&
-                        !directory.getPath().isEmpty());
+        final long numLines = counts.getNumLines();
+        final long loc = counts.getLOC();
+        forEachParent(Util.fixPathIfWindows(counts.getPath()), dirPath -> {
+            DeltaData delta = registeredDeltas.get(dirPath);
+            if (delta == null) {
+                delta = registeredDeltas.computeIfAbsent(dirPath, key -> new DeltaData());
             }
+            delta.numLines.add(numLines);
+            delta.loc.add(loc);
+        });
+    }
+
+    /**
+     * Calls the consumer for every ancestor directory of the path, starting with the parent.
+     * This is equivalent to walking {@link java.io.File#getParentFile()} (that is, redundant separators
+     * are ignored) however without the allocation of the {@code File} objects.
+     * @param path path with {@code /} separators
+     * @param consumer consumer of the directory paths
+     */
+    static void forEachParent(String path, Consumer<String> consumer) {
+        if (path.contains("//")) {
+            path = MULTIPLE_SEPARATORS.matcher(path).replaceAll("/");
+        }
+
+        int end = path.length();
+        while (end > 1 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+
+        while (end > 1) {
+            int slash = path.lastIndexOf('/', end - 1);
+            if (slash < 0) {
+                return;
+            }
+
+            consumer.accept(slash == 0 ? "/" : path.substring(0, slash));
+            end = slash;
         }
     }
 
     private static class DeltaData {
-        long numLines;
-        long loc;
+        final LongAdder numLines = new LongAdder();
+        final LongAdder loc = new LongAdder();
     }
 
     private static class AccumulationsIterator implements Iterator<AccumulatedNumLinesLOC> {
@@ -93,7 +126,7 @@ public class NumLinesLOCAggregator {
             Map.Entry<String, DeltaData> underlyingNext = underlying.next();
             String path = underlyingNext.getKey();
             DeltaData values = underlyingNext.getValue();
-            return new AccumulatedNumLinesLOCImpl(path, values.numLines, values.loc);
+            return new AccumulatedNumLinesLOCImpl(path, values.numLines.sum(), values.loc.sum());
         }
     }
 
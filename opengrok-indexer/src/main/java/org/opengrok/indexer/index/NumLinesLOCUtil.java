@@ -23,6 +23,7 @@
 package org.opengrok.indexer.index;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumericDocValuesField;
 import org.opengrok.indexer.analysis.NullableNumLinesLOC;
 import org.opengrok.indexer.analysis.NumLinesLOC;
 import org.opengrok.indexer.search.QueryBuilder;
@@ -48,6 +49,19 @@ public class NumLinesLOCUtil {
         return new NullableNumLinesLOC(path, numLines, loc);
     }
 
+    /**
+     * Add the counts as doc values so that they can be read without loading the stored fields,
+     * see {@link org.opengrok.indexer.search.DirectoryExtraReader}. The documents are expected
+     * to have the {@link QueryBuilder#PATHDV} doc values as well.
+     * @param doc {@link Document} instance
+     * @param numLines number of lines
+     * @param loc lines of code
+     */
+    public static void addDocValues(Document doc, long numLines, long loc) {
+        doc.add(new NumericDocValuesField(QueryBuilder.NUMLDV, numLines));
+        doc.add(new NumericDocValuesField(QueryBuilder.LOCDV, loc));
+    }
+
     /* private to enforce static */
     private NumLinesLOCUtil() {
     }
@@ -0,0 +1,171 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
+import org.opengrok.indexer.search.QueryBuilder;
+import org.opengrok.indexer.web.Util;
+
+/**
+ * Exact lookup of the document of a file by its path using the untokenized {@link QueryBuilder#U} field
+ * with small per-reader cache of the most recently used paths. Since the uid terms are composed
+ * of the path and the date (see {@link Util#path2uid(String, String)}), the lookup seeks to the path prefix
+ * and takes the first live document of the terms that contain just the date after the prefix.
+ * <p>
+ * The cache entries are tied to the reader instance (i.e. the generation of the index seen by the searcher)
+ * and are dropped when the reader is closed.
+ * </p>
+ */
+final class PathDocIdCache {
+
+    static final int NOT_FOUND = -1;
+
+    private final int maxEntriesPerReader;
+    private final Map<IndexReader.CacheKey, Map<String, Integer>> caches = new HashMap<>();
+
+    PathDocIdCache(int maxEntriesPerReader) {
+        this.maxEntriesPerReader = maxEntriesPerReader;
+    }
+
+    /**
+     * @param reader index reader
+     * @param path path relative to source root (with leading slash)
+     * @return document ID or {@link #NOT_FOUND}
+     * @throws IOException on I/O error
+     */
+    int getDocId(IndexReader reader, String path) throws IOException {
+        IndexReader.CacheHelper cacheHelper = reader.getReaderCacheHelper();
+        if (cacheHelper == null) {
+            return lookup(reader, path);
+        }
+
+        IndexReader.CacheKey key = cacheHelper.getKey();
+        synchronized (this) {
+            Map<String, Integer> cache = caches.get(key);
+            if (cache != null) {
+                Integer docId = cache.get(path);
+                if (docId != null) {
+                    return docId;
+                }
+            }
+        }
+
+        int docId = lookup(reader, path);
+        boolean isNewReader;
+        synchronized (this) {
+            isNewReader = !caches.containsKey(key);
+            caches.computeIfAbsent(key, k -> newCache()).put(path, docId);
+        }
+        if (isNewReader) {
+            cacheHelper.addClosedListener(this::remove);
+        }
+        return docId;
+    }
+
+    private Map<String, Integer> newCache() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > maxEntriesPerReader;
+            }
+        };
+    }
+
+    private synchronized void remove(IndexReader.CacheKey key) {
+        caches.remove(key);
+    }
+
+    /**
+     * @return number of readers with cached entries
+     */
+    synchronized int size() {
+        return caches.size();
+    }
+
+    /**
+     * Find the document of given path without using the cache.
+     * @param reader index reader
+     * @param path path relative to source root (with leading slash)
+     * @return document ID or {@link #NOT_FOUND}
+     * @throws IOException on I/O error
+     */
+    static int lookup(IndexReader reader, String path) throws IOException {
+        BytesRef prefix = new BytesRef(Util.path2uid(path, ""));
+        for (LeafReaderContext context : reader.leaves()) {
+            LeafReader leafReader = context.reader();
+            Terms terms = leafReader.terms(QueryBuilder.U);
+            if (terms == null) {
+                continue;
+            }
+
+            TermsEnum termsEnum = terms.iterator();
+            if (termsEnum.seekCeil(prefix) == TermsEnum.SeekStatus.END) {
+                continue;
+            }
+
+            Bits liveDocs = leafReader.getLiveDocs();
+            PostingsEnum postings = null;
+            for (BytesRef term = termsEnum.term(); term != null && StringHelper.startsWith(term, prefix);
+                 term = termsEnum.next()) {
+                // Skip the uids of the files underneath the path (if it used to be a directory).
+                if (hasSeparator(term, prefix.length)) {
+                    continue;
+                }
+                postings = termsEnum.postings(postings, PostingsEnum.NONE);
+                int docId;
+                while ((docId = postings.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+                    if (liveDocs == null || liveDocs.get(docId)) {
+                        return context.docBase + docId;
+                    }
+                }
+            }
+        }
+
+        return NOT_FOUND;
+    }
+
+    private static boolean hasSeparator(BytesRef term, int offset) {
+        for (int i = term.offset + offset; i < term.offset + term.length; i++) {
+            if (term.bytes[i] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
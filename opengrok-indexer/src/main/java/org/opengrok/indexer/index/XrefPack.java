@@ -0,0 +1,378 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.opengrok.indexer.configuration.Project;
+import org.opengrok.indexer.logger.LoggerFactory;
+import org.opengrok.indexer.search.QueryBuilder;
+
+/**
+ * Alternative xref store where the xref data produced by single run of {@link IndexDatabase#update()}
+ * are appended to a pack file rather than written to individual files under the {@code xref} directory.
+ * <p>
+ * The offset table of the pack is kept in the stored fields of the respective documents,
+ * so it is committed together with the Lucene commit. If the commit fails, the pack is discarded.
+ * Packs no longer referenced by any document are removed in subsequent index runs.
+ * </p>
+ * <p>
+ * As documents are replaced, the xref data of the previous versions remain in the older packs. Packs with
+ * the ratio of live data below {@link #MIN_LIVE_RATIO} are compacted by re-indexing their remaining documents
+ * into the pack of the current run (see {@link #getPacksToCompact(IndexReader, File, Project)}), after which
+ * they become unreferenced and are removed.
+ * </p>
+ * <p>
+ * The appends from the indexer worker threads do not serialize on the pack: each append reserves its region
+ * of the pack by advancing the atomic end position and then writes it with positional writes.
+ * </p>
+ */
+public final class XrefPack {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(XrefPack.class);
+
+    /**
+     * Name of the directory under data root where the pack files are stored.
+     */
+    public static final String PACK_DIR = "xrefpack";
+
+    static final String PACK_SUFFIX = ".pack";
+
+    /**
+     * Packs with smaller ratio of the xref data referenced by live documents to the pack size are compacted.
+     */
+    static final double MIN_LIVE_RATIO = 0.5;
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private static final Set<String> LENGTH_FIELDS = Set.of(QueryBuilder.XREFPACKLEN);
+
+    private static final int GZIP_MAGIC_FIRST = 0x1f;
+    private static final int GZIP_MAGIC_SECOND = 0x8b;
+
+    private final File dataRoot;
+    private final File packDir;
+    private final String packName;
+    private volatile FileChannel channel;
+    private final AtomicLong position = new AtomicLong();
+
+    private XrefPack(File dataRoot, File packDir, String packName) {
+        this.dataRoot = dataRoot;
+        this.packDir = packDir;
+        this.packName = packName;
+    }
+
+    /**
+     * The pack file itself is created with the first {@link #append(byte[], Document)}.
+     * @param dataRoot data root directory
+     * @param project project or {@code null} for the global index
+     * @return new pack instance
+     */
+    static XrefPack create(File dataRoot, @Nullable Project project) {
+        File packDir = getPackDir(dataRoot, project);
+        String packName = System.currentTimeMillis() + "-" + SEQUENCE.incrementAndGet() + PACK_SUFFIX;
+        return new XrefPack(dataRoot, packDir, packName);
+    }
+
+    static File getPackDir(File dataRoot, @Nullable Project project) {
+        File packDir = new File(dataRoot, PACK_DIR);
+        return project != null ? new File(packDir, project.getName()) : packDir;
+    }
+
+    /**
+     * @return path of the pack file relative to data root
+     */
+    String getRelativePath() {
+        return dataRoot.toPath().relativize(new File(packDir, packName).toPath()).toString();
+    }
+
+    /**
+     * Append the xref data to the pack and record its location in the document.
+     * @param data xref data (possibly compressed)
+     * @param doc document of the file
+     * @throws IOException on I/O error
+     */
+    void append(byte[] data, Document doc) throws IOException {
+        FileChannel packChannel = getChannel();
+        long offset = position.getAndAdd(data.length);
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while (buffer.hasRemaining()) {
+            packChannel.write(buffer, offset + buffer.position());
+        }
+
+        addFields(doc, getRelativePath(), offset, data.length);
+    }
+
+    private FileChannel getChannel() throws IOException {
+        FileChannel packChannel = channel;
+        if (packChannel != null) {
+            return packChannel;
+        }
+        synchronized (this) {
+            if (channel == null) {
+                Files.createDirectories(packDir.toPath());
+                channel = FileChannel.open(new File(packDir, packName).toPath(),
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            }
+            return channel;
+        }
+    }
+
+    private static void addFields(Document doc, String packPath, long offset, long length) {
+        doc.add(new StringField(QueryBuilder.XREFPACK, packPath, Field.Store.YES));
+        doc.add(new StoredField(QueryBuilder.XREFPACKOFF, offset));
+        doc.add(new StoredField(QueryBuilder.XREFPACKLEN, length));
+    }
+
+    /**
+     * Copy the pack location of the xref data from stored fields of existing document.
+     * @param storedDoc document retrieved from the index
+     * @param doc document to add the fields to
+     */
+    static void copyFields(Document storedDoc, Document doc) {
+        String packPath = storedDoc.get(QueryBuilder.XREFPACK);
+        IndexableField offset = storedDoc.getField(QueryBuilder.XREFPACKOFF);
+        IndexableField length = storedDoc.getField(QueryBuilder.XREFPACKLEN);
+        if (packPath != null && offset != null && length != null) {
+            addFields(doc, packPath, offset.numericValue().longValue(), length.numericValue().longValue());
+        }
+    }
+
+    /**
+     * Make the pack durable. To be called before the Lucene commit.
+     * @throws IOException on I/O error
+     */
+    synchronized void commit() throws IOException {
+        FileChannel packChannel = channel;
+        if (packChannel != null) {
+            packChannel.force(true);
+            packChannel.close();
+            channel = null;
+            LOGGER.log(Level.FINE, "committed xref pack ''{0}'' ({1} bytes)",
+                    new Object[]{getRelativePath(), position.get()});
+        }
+    }
+
+    /**
+     * Remove the pack. To be called if the Lucene commit failed.
+     */
+    synchronized void discard() {
+        try {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+            Files.deleteIfExists(new File(packDir, packName).toPath());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format("failed to discard xref pack '%s'", getRelativePath()), e);
+        }
+    }
+
+    /**
+     * Remove pack files that are not referenced by any document in the index.
+     * @param reader index reader
+     * @param dataRoot data root directory
+     * @param project project or {@code null} for the global index
+     * @throws IOException on I/O error
+     */
+    static void removeUnreferenced(IndexReader reader, File dataRoot, @Nullable Project project) throws IOException {
+        File packDir = getPackDir(dataRoot, project);
+        File[] packFiles = packDir.listFiles((dir, name) -> name.endsWith(PACK_SUFFIX));
+        if (packFiles == null || packFiles.length == 0) {
+            return;
+        }
+
+        Set<String> referenced = getReferencedPacks(reader);
+        for (File packFile : packFiles) {
+            String relativePath = dataRoot.toPath().relativize(packFile.toPath()).toString();
+            if (!referenced.contains(relativePath)) {
+                LOGGER.log(Level.FINE, "removing unreferenced xref pack ''{0}''", packFile);
+                Files.deleteIfExists(packFile.toPath());
+            }
+        }
+    }
+
+    /**
+     * Find the packs where the xref data referenced by the live documents make up less than
+     * {@link #MIN_LIVE_RATIO} of the pack size. The documents referring to these packs should be re-indexed
+     * so that the packs become unreferenced.
+     * @param reader index reader
+     * @param dataRoot data root directory
+     * @param project project or {@code null} for the global index
+     * @return paths of the packs relative to data root
+     * @throws IOException on I/O error
+     */
+    static Set<String> getPacksToCompact(IndexReader reader, File dataRoot, @Nullable Project project)
+            throws IOException {
+        File packDir = getPackDir(dataRoot, project);
+        File[] packFiles = packDir.listFiles((dir, name) -> name.endsWith(PACK_SUFFIX));
+        if (packFiles == null || packFiles.length == 0) {
+            return Collections.emptySet();
+        }
+
+        Map<String, Long> liveBytes = getLiveBytes(reader);
+        Set<String> packsToCompact = new HashSet<>();
+        for (File packFile : packFiles) {
+            String relativePath = dataRoot.toPath().relativize(packFile.toPath()).toString();
+            Long live = liveBytes.get(relativePath);
+            long size = packFile.length();
+            if (live != null && size > 0 && live < size * MIN_LIVE_RATIO) {
+                LOGGER.log(Level.FINE, "xref pack ''{0}'' has {1} of {2} bytes live, will compact",
+                        new Object[]{relativePath, live, size});
+                packsToCompact.add(relativePath);
+            }
+        }
+        return packsToCompact;
+    }
+
+    /**
+     * @param reader index reader
+     * @return map of pack paths relative to data root to the length of xref data referenced by live documents
+     * @throws IOException on I/O error
+     */
+    @VisibleForTesting
+    static Map<String, Long> getLiveBytes(IndexReader reader) throws IOException {
+        Map<String, Long> liveBytes = new HashMap<>();
+        for (LeafReaderContext context : reader.leaves()) {
+            LeafReader leafReader = context.reader();
+            Terms terms = leafReader.terms(QueryBuilder.XREFPACK);
+            if (terms == null) {
+                continue;
+            }
+            Bits liveDocs = leafReader.getLiveDocs();
+            StoredFields storedFields = leafReader.storedFields();
+            TermsEnum termsEnum = terms.iterator();
+            PostingsEnum postings = null;
+            BytesRef term;
+            while ((term = termsEnum.next()) != null) {
+                long live = 0;
+                postings = termsEnum.postings(postings, PostingsEnum.NONE);
+                int docId;
+                while ((docId = postings.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+                    if (liveDocs != null && !liveDocs.get(docId)) {
+                        continue;
+                    }
+                    IndexableField length = storedFields.document(docId, LENGTH_FIELDS).
+                            getField(QueryBuilder.XREFPACKLEN);
+                    if (length != null) {
+                        live += length.numericValue().longValue();
+                    }
+                }
+                liveBytes.merge(term.utf8ToString(), live, Long::sum);
+            }
+        }
+        return liveBytes;
+    }
+
+    @VisibleForTesting
+    static Set<String> getReferencedPacks(IndexReader reader) throws IOException {
+        Set<String> referenced = new HashSet<>();
+        Terms terms = MultiTerms.getTerms(reader, QueryBuilder.XREFPACK);
+        if (terms != null) {
+            TermsEnum termsEnum = terms.iterator();
+            BytesRef term;
+            while ((term = termsEnum.next()) != null) {
+                referenced.add(term.utf8ToString());
+            }
+        }
+        return referenced;
+    }
+
+    /**
+     * @param doc document
+     * @return whether the document refers to xref data stored in a pack
+     */
+    public static boolean hasXref(Document doc) {
+        return doc.get(QueryBuilder.XREFPACK) != null;
+    }
+
+    /**
+     * Read the xref data referenced by the document.
+     * @param dataRoot data root directory
+     * @param doc document retrieved from the index
+     * @return stream with uncompressed xref data or {@code null} if the document does not refer to a pack
+     * @throws IOException on I/O error
+     */
+    @Nullable
+    public static InputStream getInputStream(File dataRoot, Document doc) throws IOException {
+        String packPath = doc.get(QueryBuilder.XREFPACK);
+        IndexableField offset = doc.getField(QueryBuilder.XREFPACKOFF);
+        IndexableField length = doc.getField(QueryBuilder.XREFPACKLEN);
+        if (packPath == null || offset == null || length == null) {
+            return null;
+        }
+
+        byte[] data = new byte[Math.toIntExact(length.numericValue().longValue())];
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        long position = offset.numericValue().longValue();
+        try (FileChannel channel = FileChannel.open(Path.of(dataRoot.getPath(), packPath), StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                int n = channel.read(buffer, position + buffer.position());
+                if (n < 0) {
+                    throw new IOException(String.format("premature end of xref pack '%s'", packPath));
+                }
+            }
+        }
+
+        InputStream in = new ByteArrayInputStream(data);
+        if (data.length > 1 && (data[0] & 0xff) == GZIP_MAGIC_FIRST && (data[1] & 0xff) == GZIP_MAGIC_SECOND) {
+            in = new GZIPInputStream(in);
+        }
+        return in;
+    }
+}
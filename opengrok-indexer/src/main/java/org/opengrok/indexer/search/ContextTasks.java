@@ -0,0 +1,120 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.logger.LoggerFactory;
+
+/**
+ * Generates contexts of page of search results in parallel using {@link RuntimeEnvironment#getContextExecutor()},
+ * bounded by {@link RuntimeEnvironment#getContextTimeout()} for the whole page.
+ */
+final class ContextTasks {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContextTasks.class);
+
+    private ContextTasks() {
+        // private to enforce static
+    }
+
+    /**
+     * @param count number of contexts to generate
+     * @return whether it is worth to generate the contexts in parallel
+     */
+    static boolean isParallel(int count) {
+        return count > 1 && RuntimeEnvironment.getInstance().getMaxContextThreadCount() > 1;
+    }
+
+    /**
+     * Run the tasks and wait for them to complete or for the time limit to expire.
+     * @param tasks tasks generating the contexts
+     * @param fallback value used for the tasks that failed or did not complete in time
+     * @param <T> type of the context
+     * @return results of the tasks in the order of the tasks
+     */
+    static <T> List<T> invokeAll(List<Callable<T>> tasks, T fallback) {
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        ExecutorService executor = env.getContextExecutor();
+        int timeout = env.getContextTimeout();
+
+        List<Future<T>> futures;
+        try {
+            futures = timeout > 0 ? executor.invokeAll(tasks, timeout, TimeUnit.SECONDS) : executor.invokeAll(tasks);
+        } catch (RejectedExecutionException e) {
+            LOGGER.log(Level.FINE, "context executor rejected the tasks, running them serially", e);
+            return callAll(tasks, fallback);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ArrayList<>(Collections.nCopies(tasks.size(), fallback));
+        }
+
+        List<T> results = new ArrayList<>(tasks.size());
+        int timedOut = 0;
+        for (Future<T> future : futures) {
+            T result = fallback;
+            try {
+                result = future.get();
+            } catch (CancellationException e) {
+                timedOut++;
+            } catch (ExecutionException e) {
+                LOGGER.log(Level.WARNING, "failed to generate context", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            results.add(result);
+        }
+
+        if (timedOut > 0) {
+            LOGGER.log(Level.WARNING, "context of {0} out of {1} search results not generated within {2} seconds",
+                    new Object[]{timedOut, tasks.size(), timeout});
+        }
+        return results;
+    }
+
+    private static <T> List<T> callAll(List<Callable<T>> tasks, T fallback) {
+        List<T> results = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            T result = fallback;
+            try {
+                result = task.call();
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "failed to generate context", e);
+            }
+            results.add(result);
+        }
+        return results;
+    }
+}
@@ -25,16 +25,22 @@ package org.opengrok.indexer.search;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.apache.lucene.document.Document;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.StoredFields;
-import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
-import org.apache.lucene.search.Query;
-import org.apache.lucene.search.ScoreDoc;
-import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.util.Bits;
+import org.jetbrains.annotations.Nullable;
 import org.opengrok.indexer.analysis.NullableNumLinesLOC;
 import org.opengrok.indexer.index.NumLinesLOCUtil;
 import org.opengrok.indexer.logger.LoggerFactory;
@@ -43,12 +49,15 @@ import org.opengrok.indexer.util.Statistics;
 /**
  * Represents a searcher to supplement metadata from the file-system with
  * per-file, OpenGrok-analyzed data.
+ * <p>
+ * The documents of the directory entries are enumerated directly from the postings
+ * of the {@link QueryBuilder#DIRPATH} term and the counts are read from the doc values
+ * ({@link QueryBuilder#PATHDV}, {@link QueryBuilder#NUMLDV} and {@link QueryBuilder#LOCDV}).
+ * The stored fields are loaded only for documents indexed before the doc values were introduced.
+ * </p>
  */
 public class DirectoryExtraReader {
 
-    // N.b.: update #search() comment when changing
-    private static final int DIR_LIMIT_NUM = 2000;
-
     private static final Logger LOGGER = LoggerFactory.getLogger(
         DirectoryExtraReader.class);
 
@@ -56,7 +65,7 @@ public class DirectoryExtraReader {
      * Search for supplemental file information in the specified {@code path}.
      * @param searcher a defined instance
      * @param path a defined path to qualify the search
-     * @return a list of results, limited to 2000 values
+     * @return a list of results sorted by path
      * @throws IOException if an error occurs searching the index
      */
     public List<NullableNumLinesLOC> search(IndexSearcher searcher, String path) throws IOException {
@@ -67,40 +76,58 @@ public class DirectoryExtraReader {
             throw new IllegalArgumentException("`path' is null");
         }
 
-        QueryBuilder qbuild = new QueryBuilder();
-        qbuild.setDirPath(path);
-        Query query;
-        try {
-            query = qbuild.build();
-        } catch (ParseException e) {
-            final String PARSE_ERROR =
-                "An error occurred while parsing dirpath query";
-            LOGGER.log(Level.WARNING, PARSE_ERROR, e);
-            throw new IOException(PARSE_ERROR);
-        }
+        Term term = new Term(QueryBuilder.DIRPATH, QueryBuilder.normalizeDirPath(path));
 
         Statistics stat = new Statistics();
-        TopDocs hits = searcher.search(query, DIR_LIMIT_NUM);
+        List<NullableNumLinesLOC> results = new ArrayList<>();
+        for (LeafReaderContext context : searcher.getIndexReader().leaves()) {
+            processLeaf(context.reader(), term, results);
+        }
+        results.sort(Comparator.comparing(NullableNumLinesLOC::getPath,
+                Comparator.nullsLast(Comparator.naturalOrder())));
 
         stat.report(LOGGER, Level.FINEST, "search via DirectoryExtraReader done",
                 "search.latency", new String[]{"category", "extra",
-                        "outcome", hits.scoreDocs.length > 0 ? "success" : "empty"});
+                        "outcome", !results.isEmpty() ? "success" : "empty"});
 
-        return processHits(searcher, hits);
+        return results;
     }
 
-    private List<NullableNumLinesLOC> processHits(IndexSearcher searcher, TopDocs hits)
+    private void processLeaf(LeafReader reader, Term term, List<NullableNumLinesLOC> results)
             throws IOException {
 
-        List<NullableNumLinesLOC> results = new ArrayList<>();
+        PostingsEnum postings = reader.postings(term, PostingsEnum.NONE);
+        if (postings == null) {
+            return;
+        }
+
+        Bits liveDocs = reader.getLiveDocs();
+        SortedDocValues paths = reader.getSortedDocValues(QueryBuilder.PATHDV);
+        NumericDocValues numLines = reader.getNumericDocValues(QueryBuilder.NUMLDV);
+        NumericDocValues locs = reader.getNumericDocValues(QueryBuilder.LOCDV);
+        StoredFields storedFields = null;
 
-        StoredFields storedFields = searcher.storedFields();
-        for (ScoreDoc sd : hits.scoreDocs) {
-            Document d = storedFields.document(sd.doc);
-            NullableNumLinesLOC extra = NumLinesLOCUtil.read(d);
-            results.add(extra);
+        int docId;
+        while ((docId = postings.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+            if (liveDocs != null && !liveDocs.get(docId)) {
+                continue;
+            }
+
+            if (paths != null && paths.advanceExact(docId)) {
+                results.add(new NullableNumLinesLOC(paths.lookupOrd(paths.ordValue()).utf8ToString(),
+                        getValue(numLines, docId), getValue(locs, docId)));
+            } else {
+                // Document without the doc values, i.e. indexed by older version.
+                if (storedFields == null) {
+                    storedFields = reader.storedFields();
+                }
+                results.add(NumLinesLOCUtil.read(storedFields.document(docId)));
+            }
         }
+    }
 
-        return results;
+    @Nullable
+    private static Long getValue(@Nullable NumericDocValues values, int docId) throws IOException {
+        return values != null && values.advanceExact(docId) ? values.longValue() : null;
     }
 }
@@ -75,6 +75,12 @@ public class QueryBuilder {
     public static final String OBJUID = "objuid"; // object UID
     public static final String OBJSER = "objser"; // object serialized
     public static final String OBJVER = "objver"; // object version
+    public static final String XREFPACK = "xrefpack"; // xref pack path
+    public static final String XREFPACKOFF = "xrefpackoff"; // xref offset in the pack
+    public static final String XREFPACKLEN = "xrefpacklen"; // xref length in the pack
+    public static final String NUMLDV = "numldv"; // doc values of numl
+    public static final String LOCDV = "locdv"; // doc values of loc
+    public static final String PATHDV = "pathdv"; // doc values of path (or d)
 
     protected static final List<String> searchFields = Arrays.asList(FULL, DEFS, REFS, PATH, HIST);
     private static final HashSet<String> searchFieldsSet = new HashSet<>(searchFields);
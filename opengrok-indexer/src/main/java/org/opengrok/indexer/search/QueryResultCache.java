@@ -0,0 +1,342 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.jetbrains.annotations.Nullable;
+import org.opengrok.indexer.Metrics;
+import org.opengrok.indexer.logger.LoggerFactory;
+
+/**
+ * Bounded cache of search results. The entries are keyed by the normalized query, the set of searched projects,
+ * the sort order and the commit generations of the indexes of the projects, so once an index is refreshed
+ * to a new generation, the entries computed against the previous generation can no longer be hit.
+ * Such entries are removed eagerly via {@link #invalidate(String)}.
+ * <p>
+ * Each entry holds the top documents and optionally the rendered contexts of the documents.
+ * The document IDs are valid only for the reader they were computed with, which is guaranteed by the key.
+ * The contexts are further keyed by the parameters of the rendering, i.e. whether the hits are displayed
+ * as alternate and whether the context is shortened because of many matching documents.
+ * </p>
+ */
+public class QueryResultCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryResultCache.class);
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private int maxEntries;
+    private int maxEntryHits;
+
+    private Counter hitCounter;
+    private Counter missCounter;
+    private Counter evictionCounter;
+
+    /**
+     * @param maxEntries maximum number of entries, 0 disables the cache
+     * @param maxEntryHits maximum number of documents stored in single entry
+     */
+    public QueryResultCache(int maxEntries, int maxEntryHits) {
+        setLimits(maxEntries, maxEntryHits);
+
+        MeterRegistry meterRegistry = Metrics.getRegistry();
+        if (meterRegistry != null) {
+            hitCounter = Counter.builder("cache.search.result.get").
+                    description("search result cache hits").
+                    tag("what", "hits").
+                    register(meterRegistry);
+            missCounter = Counter.builder("cache.search.result.get").
+                    description("search result cache misses").
+                    tag("what", "miss").
+                    register(meterRegistry);
+            evictionCounter = Counter.builder("cache.search.result.evictions").
+                    description("search result cache evictions").
+                    register(meterRegistry);
+            Gauge.builder("cache.search.result.size", this, QueryResultCache::size).
+                    description("number of entries in search result cache").
+                    register(meterRegistry);
+        }
+    }
+
+    /**
+     * Change the limits of the cache. Superfluous entries are evicted.
+     * @param maxEntries maximum number of entries, 0 disables the cache
+     * @param maxEntryHits maximum number of documents stored in single entry
+     */
+    public synchronized void setLimits(int maxEntries, int maxEntryHits) {
+        this.maxEntries = maxEntries;
+        this.maxEntryHits = maxEntryHits;
+        evict();
+    }
+
+    public synchronized boolean isEnabled() {
+        return maxEntries > 0 && maxEntryHits > 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @param key cache key
+     * @return cached entry or {@code null}
+     */
+    @Nullable
+    public synchronized Entry get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (hitCounter != null) {
+                hitCounter.increment();
+            }
+        } else if (missCounter != null) {
+            missCounter.increment();
+        }
+        return entry;
+    }
+
+    /**
+     * Store the result of a search.
+     * @param key cache key
+     * @param hits top documents
+     * @param totalHits total number of matching documents
+     * @return the new entry or {@code null} if the result was not stored, e.g. because it is too big
+     */
+    @Nullable
+    public synchronized Entry put(Key key, ScoreDoc[] hits, int totalHits) {
+        if (maxEntries <= 0 || hits.length > maxEntryHits) {
+            return null;
+        }
+
+        Entry entry = new Entry(hits, totalHits);
+        entries.put(key, entry);
+        evict();
+        return entry;
+    }
+
+    private void evict() {
+        int evicted = 0;
+        var iterator = entries.entrySet().iterator();
+        while (entries.size() > Math.max(maxEntries, 0) && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evicted++;
+        }
+        if (evicted > 0 && evictionCounter != null) {
+            evictionCounter.increment(evicted);
+        }
+    }
+
+    /**
+     * Remove all entries computed against the index of given project.
+     * @param project project name or empty string for project-less configuration
+     */
+    public synchronized void invalidate(String project) {
+        int before = entries.size();
+        entries.keySet().removeIf(key -> key.generations.containsKey(project));
+        if (before != entries.size()) {
+            LOGGER.log(Level.FINEST, "invalidated {0} search result cache entries for ''{1}''",
+                    new Object[]{before - entries.size(), project});
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Create the key for the search.
+     * @param query query to be executed
+     * @param sort sort order of the results
+     * @param searchers map of project names (or empty string for project-less configuration)
+     *                  to the searchers used for the search
+     * @return cache key or {@code null} if the index generation cannot be determined
+     */
+    @Nullable
+    public static Key getKey(Query query, String sort, Map<String, ? extends IndexSearcher> searchers) {
+        Map<String, Long> generations = getGenerations(searchers);
+        if (generations == null) {
+            return null;
+        }
+        return new Key(query.toString(), sort, generations);
+    }
+
+    /**
+     * @param searchers map of project names (or empty string for project-less configuration)
+     *                  to the searchers used for the search
+     * @return map of project names to the generations of the index commits the searchers are opened on
+     * or {@code null} if the index generation cannot be determined
+     */
+    @Nullable
+    public static Map<String, Long> getGenerations(Map<String, ? extends IndexSearcher> searchers) {
+        Map<String, Long> generations = new TreeMap<>();
+        for (Map.Entry<String, ? extends IndexSearcher> entry : searchers.entrySet()) {
+            IndexReader reader = entry.getValue().getIndexReader();
+            if (!(reader instanceof DirectoryReader)) {
+                return null;
+            }
+            try {
+                generations.put(entry.getKey(), ((DirectoryReader) reader).getIndexCommit().getGeneration());
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "cannot determine index generation", e);
+                return null;
+            }
+        }
+        return generations;
+    }
+
+    /**
+     * Key of the cache entry.
+     */
+    public static final class Key {
+        private final String query;
+        private final String sort;
+        private final Map<String, Long> generations;
+
+        Key(String query, String sort, Map<String, Long> generations) {
+            this.query = query;
+            this.sort = sort;
+            this.generations = Collections.unmodifiableMap(new TreeMap<>(generations));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return query.equals(key.query) && sort.equals(key.sort) && generations.equals(key.generations);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(query, sort, generations);
+        }
+    }
+
+    /**
+     * Cached search result.
+     */
+    public static final class Entry {
+        private final ScoreDoc[] hits;
+        private final int totalHits;
+        private final Map<ContextKey, List<Hit>> contexts = new ConcurrentHashMap<>();
+
+        Entry(ScoreDoc[] hits, int totalHits) {
+            this.hits = hits;
+            this.totalHits = totalHits;
+        }
+
+        /**
+         * @return top documents, the caller must not modify the array
+         */
+        public ScoreDoc[] getHits() {
+            return hits;
+        }
+
+        public int getTotalHits() {
+            return totalHits;
+        }
+
+        /**
+         * @return whether the entry holds all the matching documents
+         */
+        public boolean isComplete() {
+            return hits.length >= totalHits;
+        }
+
+        /**
+         * @param docId document ID
+         * @param alt whether the hits are to be displayed as alternate
+         * @param shortened whether the context is shortened because of many matching documents
+         * @return rendered context of the document or {@code null} if not cached
+         */
+        @Nullable
+        public List<Hit> getContext(int docId, boolean alt, boolean shortened) {
+            return contexts.get(new ContextKey(docId, alt, shortened));
+        }
+
+        /**
+         * @param docId document ID
+         * @param alt whether the hits are to be displayed as alternate
+         * @param shortened whether the context is shortened because of many matching documents
+         * @param hits rendered context of the document
+         */
+        public void putContext(int docId, boolean alt, boolean shortened, List<Hit> hits) {
+            contexts.put(new ContextKey(docId, alt, shortened), new ArrayList<>(hits));
+        }
+    }
+
+    /**
+     * Key of the rendered context of a document.
+     */
+    private static final class ContextKey {
+        private final int docId;
+        private final boolean alt;
+        private final boolean shortened;
+
+        ContextKey(int docId, boolean alt, boolean shortened) {
+            this.docId = docId;
+            this.alt = alt;
+            this.shortened = shortened;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ContextKey key = (ContextKey) o;
+            return docId == key.docId && alt == key.alt && shortened == key.shortened;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(docId, alt, shortened);
+        }
+    }
+}
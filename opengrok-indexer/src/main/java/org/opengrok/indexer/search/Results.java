@@ -30,14 +30,18 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.GZIPInputStream;
@@ -54,9 +58,11 @@ import org.opengrok.indexer.analysis.Scopes;
 import org.opengrok.indexer.configuration.Project;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
 import org.opengrok.indexer.history.HistoryException;
+import org.opengrok.indexer.index.XrefPack;
 import org.opengrok.indexer.logger.LoggerFactory;
 import org.opengrok.indexer.search.context.HistoryContext;
 import org.opengrok.indexer.util.IOUtils;
+import org.opengrok.indexer.util.RequestSpans;
 import org.opengrok.indexer.util.TandemPath;
 import org.opengrok.indexer.web.Prefix;
 import org.opengrok.indexer.web.SearchHelper;
@@ -115,10 +121,8 @@ public final class Results {
     }
 
     private static String getTags(File basedir, String path, boolean compressed) {
-        char[] content = new char[1024 * 8];
-        try (HTMLStripCharFilter r = new HTMLStripCharFilter(getXrefReader(basedir, path, compressed))) {
-            int len = r.read(content);
-            return new String(content, 0, len);
+        try {
+            return readTags(getXrefReader(basedir, path, compressed));
         } catch (Exception e) {
             String fnm = compressed ? TandemPath.join(basedir + path, ".gz") :
                     basedir + path;
@@ -127,6 +131,31 @@ public final class Results {
         return "";
     }
 
+    /**
+     * Read the tags from the xref data stored in a pack.
+     * @see XrefPack
+     */
+    private static String getPackedTags(File dataRoot, Document doc, String path) {
+        try {
+            InputStream in = XrefPack.getInputStream(dataRoot, doc);
+            if (in != null) {
+                // For backward compatibility, read the OpenGrok-produced document using the system default charset.
+                return readTags(new BufferedReader(IOUtils.createBOMStrippedReader(in)));
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, String.format("An error reading tags of '%s' from xref pack", path), e);
+        }
+        return "";
+    }
+
+    private static String readTags(Reader reader) throws IOException {
+        char[] content = new char[1024 * 8];
+        try (HTMLStripCharFilter r = new HTMLStripCharFilter(reader)) {
+            int len = r.read(content);
+            return len > 0 ? new String(content, 0, len) : "";
+        }
+    }
+
     /** Return a reader for the specified xref file. */
     private static Reader getXrefReader(File basedir, String path, boolean compressed) throws IOException {
         /*
@@ -143,6 +172,54 @@ public final class Results {
         }
     }
 
+    /**
+     * Generate the contexts of the documents of {@link AbstractAnalyzer.Genre#PLAIN} genre in parallel.
+     *
+     * @param sh search helper
+     * @param dirHash map produced by {@link #createMap(IndexSearcher, ScoreDoc[], int, long)}
+     * @param docs documents of the map
+     * @param xrefPrefix prefix for links
+     * @param morePrefix link to more... page
+     * @return map of document IDs to the contexts. {@code null} value means there is no context
+     * based on the index data. Empty if the contexts should be generated serially.
+     * @throws IOException if the tab size cannot be determined
+     */
+    private static Map<Integer, String> getPlainContexts(SearchHelper sh, Map<String, ArrayList<Integer>> dirHash,
+            Map<Integer, Document> docs, String xrefPrefix, String morePrefix) throws IOException {
+
+        Map<Integer, String> contexts = new HashMap<>();
+        if (sh.getSourceContext() == null || !ContextTasks.isParallel(docs.size())) {
+            return contexts;
+        }
+
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        List<Integer> docIds = new ArrayList<>();
+        List<Callable<String>> tasks = new ArrayList<>();
+        for (Map.Entry<String, ArrayList<Integer>> entry : dirHash.entrySet()) {
+            int tabSize = sh.getTabSize(Project.getProject(entry.getKey()));
+            for (int docId : entry.getValue()) {
+                if (AbstractAnalyzer.Genre.get(docs.get(docId).get(QueryBuilder.T)) != AbstractAnalyzer.Genre.PLAIN) {
+                    continue;
+                }
+                docIds.add(docId);
+                tasks.add(() -> {
+                    StringBuilder context = new StringBuilder();
+                    return sh.getSourceContext().getContext2(env, sh.getSearcher(), docId, context,
+                            xrefPrefix, morePrefix, true, tabSize) ? context.toString() : null;
+                });
+            }
+        }
+
+        if (ContextTasks.isParallel(tasks.size())) {
+            // The contexts not generated in time are left out.
+            List<String> results = ContextTasks.invokeAll(tasks, "");
+            for (int i = 0; i < docIds.size(); i++) {
+                contexts.put(docIds.get(i), results.get(i));
+            }
+        }
+        return contexts;
+    }
+
     /**
      * Prints out results in html form. The following search helper fields are
      * required to be properly initialized: <ul>
@@ -165,6 +242,16 @@ public final class Results {
      */
     public static void prettyPrint(Writer out, SearchHelper sh, int start, long end)
             throws HistoryException, IOException, ClassNotFoundException {
+        RequestSpans.Span renderSpan = RequestSpans.span("render");
+        try {
+            printResults(out, sh, start, end);
+        } finally {
+            renderSpan.close();
+        }
+    }
+
+    private static void printResults(Writer out, SearchHelper sh, int start, long end)
+            throws HistoryException, IOException, ClassNotFoundException {
 
         Project p;
         String contextPath = sh.getContextPath();
@@ -176,10 +263,31 @@ public final class Results {
 
         RuntimeEnvironment env = RuntimeEnvironment.getInstance();
 
+        Map<String, ArrayList<Integer>> dirHash;
+        Map<Integer, Document> docs = new HashMap<>();
+        RequestSpans.Span storedSpan = RequestSpans.span("stored");
+        try {
+            dirHash = createMap(sh.getSearcher(), sh.getHits(), start, end);
+            StoredFields storedFields = sh.getSearcher().storedFields();
+            for (ArrayList<Integer> docIds : dirHash.values()) {
+                for (int docId : docIds) {
+                    docs.put(docId, storedFields.document(docId));
+                }
+            }
+        } finally {
+            storedSpan.close();
+        }
+        Map<Integer, String> plainContexts;
+        RequestSpans.Span contextSpan = RequestSpans.span("context");
+        try {
+            plainContexts = getPlainContexts(sh, dirHash, docs, xrefPrefix, morePrefix);
+        } finally {
+            contextSpan.close();
+        }
+
         boolean evenRow = true;
         out.write("<tbody class=\"search-result\">");
-        for (Map.Entry<String, ArrayList<Integer>> entry :
-                createMap(sh.getSearcher(), sh.getHits(), start, end).entrySet()) {
+        for (Map.Entry<String, ArrayList<Integer>> entry : dirHash.entrySet()) {
             String parent = entry.getKey();
             out.write("<tr class=\"dir\"><td colspan=\"3\"><a href=\"");
             out.write(xrefPrefixE);
@@ -207,9 +315,8 @@ public final class Results {
                 xrefPrefix, tabSize, morePrefix);
 
             out.write("</td></tr>");
-            StoredFields storedFields = sh.getSearcher().storedFields();
             for (int docId : entry.getValue()) {
-                Document doc = storedFields.document(docId);
+                Document doc = docs.get(docId);
                 String rpath = doc.get(QueryBuilder.PATH);
                 String rpathE = Util.uriEncodePath(rpath);
                 if (evenRow) {
@@ -231,27 +338,18 @@ public final class Results {
                 out.write("</a>");
                 out.write("</td><td><code class=\"con\">");
                 if (sh.getSourceContext() != null) {
-                    AbstractAnalyzer.Genre genre = AbstractAnalyzer.Genre.get(
-                            doc.get(QueryBuilder.T));
-                    Summarizer summarizer = sh.getSummarizer();
-                    if (AbstractAnalyzer.Genre.XREFABLE == genre && summarizer != null) {
-                        String xtags = getTags(xrefDataDir, rpath, env.isCompressXref());
-                        // FIXME use Highlighter from lucene contrib here,
-                        // instead of summarizer, we'd also get rid of
-                        // apache lucene in whole source ...
-                        out.write(summarizer.getSummary(xtags).toString());
-                    } else if (AbstractAnalyzer.Genre.HTML == genre && summarizer != null) {
-                        String htags = getTags(sh.getSourceRoot(), rpath, false);
-                        out.write(summarizer.getSummary(htags).toString());
-                    } else if (genre == AbstractAnalyzer.Genre.PLAIN) {
-                        printPlain(fargs, doc, docId, rpath);
-                    }
+                    printContext(fargs, doc, docId, rpath, xrefDataDir, plainContexts);
                 }
 
                 HistoryContext historyContext = sh.getHistoryContext();
                 if (historyContext != null) {
-                    historyContext.getContext(new File(sh.getSourceRoot(), rpath),
-                            rpath, out, sh.getContextPath());
+                    RequestSpans.Span historySpan = RequestSpans.span("history");
+                    try {
+                        historyContext.getContext(new File(sh.getSourceRoot(), rpath),
+                                rpath, out, sh.getContextPath());
+                    } finally {
+                        historySpan.close();
+                    }
                 }
                 out.write("</code></td></tr>\n");
             }
@@ -259,6 +357,34 @@ public final class Results {
         out.write("</tbody>");
     }
 
+    private static void printContext(PrintPlainFinalArgs fargs, Document doc, int docId, String rpath,
+            File xrefDataDir, Map<Integer, String> plainContexts) throws IOException, ClassNotFoundException {
+
+        SearchHelper sh = fargs.shelp;
+        Writer out = fargs.out;
+        RuntimeEnvironment env = fargs.env;
+        RequestSpans.Span contextSpan = RequestSpans.span("context");
+        try {
+            AbstractAnalyzer.Genre genre = AbstractAnalyzer.Genre.get(doc.get(QueryBuilder.T));
+            Summarizer summarizer = sh.getSummarizer();
+            if (AbstractAnalyzer.Genre.XREFABLE == genre && summarizer != null) {
+                String xtags = XrefPack.hasXref(doc) ? getPackedTags(sh.getDataRoot(), doc, rpath) :
+                        getTags(xrefDataDir, rpath, env.isCompressXref());
+                // FIXME use Highlighter from lucene contrib here,
+                // instead of summarizer, we'd also get rid of
+                // apache lucene in whole source ...
+                out.write(summarizer.getSummary(xtags).toString());
+            } else if (AbstractAnalyzer.Genre.HTML == genre && summarizer != null) {
+                String htags = getTags(sh.getSourceRoot(), rpath, false);
+                out.write(summarizer.getSummary(htags).toString());
+            } else if (genre == AbstractAnalyzer.Genre.PLAIN) {
+                printPlain(fargs, doc, docId, rpath, plainContexts);
+            }
+        } finally {
+            contextSpan.close();
+        }
+    }
+
     private static void printLastEditedDate(final Writer out, final Document doc) throws IOException {
         try {
             DateFormat df = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT);
@@ -273,13 +399,22 @@ public final class Results {
     }
 
     private static void printPlain(PrintPlainFinalArgs fargs, Document doc,
-        int docId, String rpath) throws ClassNotFoundException, IOException {
+        int docId, String rpath, Map<Integer, String> plainContexts) throws ClassNotFoundException, IOException {
 
         fargs.shelp.getSourceContext().toggleAlt();
 
-        boolean didPresentNew = fargs.shelp.getSourceContext().getContext2(fargs.env,
-            fargs.shelp.getSearcher(), docId, fargs.out, fargs.xrefPrefix,
-            fargs.morePrefix, true, fargs.tabSize);
+        boolean didPresentNew;
+        if (plainContexts.containsKey(docId)) {
+            String context = plainContexts.get(docId);
+            didPresentNew = context != null;
+            if (didPresentNew) {
+                fargs.out.write(context);
+            }
+        } else {
+            didPresentNew = fargs.shelp.getSourceContext().getContext2(fargs.env,
+                    fargs.shelp.getSearcher(), docId, fargs.out, fargs.xrefPrefix,
+                    fargs.morePrefix, true, fargs.tabSize);
+        }
 
         if (!didPresentNew) {
             /*
@@ -29,13 +29,18 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.GZIPInputStream;
@@ -48,8 +53,10 @@ import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.util.Version;
+import org.jetbrains.annotations.Nullable;
 import org.opengrok.indexer.analysis.AbstractAnalyzer;
 import org.opengrok.indexer.analysis.CompatibleAnalyser;
 import org.opengrok.indexer.analysis.Definitions;
@@ -59,13 +66,16 @@ import org.opengrok.indexer.configuration.RuntimeEnvironment;
 import org.opengrok.indexer.configuration.SuperIndexSearcher;
 import org.opengrok.indexer.history.HistoryException;
 import org.opengrok.indexer.index.IndexDatabase;
+import org.opengrok.indexer.index.XrefPack;
 import org.opengrok.indexer.logger.LoggerFactory;
 import org.opengrok.indexer.search.Summary.Fragment;
 import org.opengrok.indexer.search.context.Context;
 import org.opengrok.indexer.search.context.HistoryContext;
+import org.opengrok.indexer.util.RequestSpans;
 import org.opengrok.indexer.util.Statistics;
 import org.opengrok.indexer.util.TandemPath;
 import org.opengrok.indexer.web.Prefix;
+import org.opengrok.indexer.web.SortOrder;
 
 /**
  * This is an encapsulation of the details on how to search in the index database.
@@ -82,6 +92,10 @@ public class SearchEngine {
      * Message text used when logging exceptions thrown when searching.
      */
     private static final String SEARCH_EXCEPTION_MSG = "Exception searching {0}";
+    /**
+     * Number of documents found above which the source context is shortened.
+     */
+    private static final int SHORT_CONTEXT_HITS = 100;
     //NOTE below will need to be changed after new lucene upgrade, if they
     //increase the version - every change of below makes us incompatible with the
     //old index and we need to ask for reindex
@@ -136,6 +150,13 @@ public class SearchEngine {
     private IndexSearcher searcher;
     boolean allCollected;
     private final ArrayList<SuperIndexSearcher> searcherList = new ArrayList<>();
+    /**
+     * Map of project names (or empty string for project-less configuration) to the searchers
+     * used for the search. Empty if some of the searchers could not be acquired.
+     */
+    private final Map<String, SuperIndexSearcher> searcherMap = new TreeMap<>();
+    private QueryResultCache.Key cacheKey;
+    private QueryResultCache.Entry cacheEntry;
 
     /**
      * Creates a new instance of SearchEngine.
@@ -178,10 +199,15 @@ public class SearchEngine {
      * @throws IOException when index could not be read
      */
     private void searchSingleDatabase(boolean paging) throws IOException {
+        openSingleDatabase();
+        searchIndex(searcher, paging);
+    }
+
+    private void openSingleDatabase() throws IOException {
         SuperIndexSearcher superIndexSearcher = RuntimeEnvironment.getInstance().getSuperIndexSearcher("");
         searcherList.add(superIndexSearcher);
+        searcherMap.put("", superIndexSearcher);
         searcher = superIndexSearcher;
-        searchIndex(superIndexSearcher, paging);
     }
 
     /**
@@ -191,6 +217,11 @@ public class SearchEngine {
      * @throws IOException when some index could not be read
      */
     private void searchMultiDatabase(List<Project> projectList, boolean paging) throws IOException {
+        openMultiDatabase(projectList);
+        searchIndex(searcher, paging);
+    }
+
+    private void openMultiDatabase(List<Project> projectList) throws IOException {
         SortedSet<String> projectNames = new TreeSet<>();
         for (Project project : projectList) {
             projectNames.add(project.getName());
@@ -201,27 +232,63 @@ public class SearchEngine {
         // around set of IndexReader objects.
         MultiReader searchables = RuntimeEnvironment.getInstance().getMultiReader(projectNames, searcherList);
         searcher = RuntimeEnvironment.getInstance().getIndexSearcherFactory().newSearcher(searchables);
-        searchIndex(searcher, paging);
+        if (searchables != null) {
+            // The searchers are acquired in the order of the project names.
+            int i = 0;
+            for (String projectName : projectNames) {
+                searcherMap.put(projectName, searcherList.get(i++));
+            }
+        }
     }
 
     private void searchIndex(IndexSearcher searcher, boolean paging) throws IOException {
-        collector = TopScoreDocCollector.create(hitsPerPage * cachePages, Short.MAX_VALUE);
-        Statistics stat = new Statistics();
-        searcher.search(query, collector);
-        totalHits = collector.getTotalHits();
-        stat.report(LOGGER, Level.FINEST, "search via SearchEngine done",
-                "search.latency", new String[]{"category", "engine",
-                        "outcome", totalHits > 0 ? "success" : "empty"});
-        if (!paging && totalHits > 0) {
-            collector = TopScoreDocCollector.create(totalHits, Short.MAX_VALUE);
-            searcher.search(query, collector);
+        QueryResultCache cache = RuntimeEnvironment.getInstance().getQueryResultCache();
+        cacheKey = null;
+        cacheEntry = null;
+        if (cache.isEnabled() && !searcherMap.isEmpty()) {
+            cacheKey = QueryResultCache.getKey(query, SortOrder.RELEVANCY.name(), searcherMap);
+            if (cacheKey != null) {
+                cacheEntry = cache.get(cacheKey);
+            }
+        }
+
+        if (cacheEntry != null && (paging || cacheEntry.isComplete())) {
+            totalHits = cacheEntry.getTotalHits();
+            hits = cacheEntry.getHits();
+            allCollected = cacheEntry.isComplete();
+        } else {
+            RequestSpans.Span collectSpan = RequestSpans.span("collect");
+            try {
+                collector = TopScoreDocCollector.create(hitsPerPage * cachePages, Short.MAX_VALUE);
+                Statistics stat = new Statistics();
+                searcher.search(query, collector);
+                totalHits = collector.getTotalHits();
+                stat.report(LOGGER, Level.FINEST, "search via SearchEngine done",
+                        "search.latency", new String[]{"category", "engine",
+                                "outcome", totalHits > 0 ? "success" : "empty"});
+                if (!paging && totalHits > 0) {
+                    collector = TopScoreDocCollector.create(totalHits, Short.MAX_VALUE);
+                    searcher.search(query, collector);
+                }
+                hits = collector.topDocs().scoreDocs;
+            } finally {
+                collectSpan.close();
+            }
+            if (cacheKey != null) {
+                cacheEntry = cache.put(cacheKey, hits, totalHits);
+            }
         }
-        hits = collector.topDocs().scoreDocs;
-        StoredFields storedFields = searcher.storedFields();
-        for (ScoreDoc hit : hits) {
-            int docId = hit.doc;
-            Document d = storedFields.document(docId);
-            docs.add(d);
+
+        RequestSpans.Span storedSpan = RequestSpans.span("stored");
+        try {
+            StoredFields storedFields = searcher.storedFields();
+            for (ScoreDoc hit : hits) {
+                int docId = hit.doc;
+                Document d = storedFields.document(docId);
+                docs.add(d);
+            }
+        } finally {
+            storedSpan.close();
         }
     }
 
@@ -318,7 +385,12 @@ public class SearchEngine {
 
         QueryBuilder newBuilder = createQueryBuilder();
         try {
-            query = newBuilder.build();
+            RequestSpans.Span parseSpan = RequestSpans.span("parse");
+            try {
+                query = newBuilder.build();
+            } finally {
+                parseSpan.close();
+            }
             if (query != null) {
                 if (projects.isEmpty()) {
                     // search the index database
@@ -337,31 +409,107 @@ public class SearchEngine {
         }
 
         if (!docs.isEmpty()) {
-            sourceContext = null;
-            summarizer = null;
-            try {
-                sourceContext = new Context(query, newBuilder);
-                if (sourceContext.isEmpty()) {
-                    sourceContext = null;
-                }
-                summarizer = new Summarizer(query, analyzer);
-            } catch (Exception e) {
-                LOGGER.log(Level.WARNING, "An error occurred while creating summary", e);
+            createContexts(newBuilder);
+        }
+        int count = hits == null ? 0 : hits.length;
+        queryBuilder = newBuilder;
+        return count;
+    }
+
+    private void createContexts(QueryBuilder builder) {
+        sourceContext = null;
+        summarizer = null;
+        try {
+            sourceContext = new Context(query, builder);
+            if (sourceContext.isEmpty()) {
+                sourceContext = null;
             }
+            summarizer = new Summarizer(query, analyzer);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "An error occurred while creating summary", e);
+        }
 
-            historyContext = null;
-            try {
-                historyContext = new HistoryContext(query);
-                if (historyContext.isEmpty()) {
-                    historyContext = null;
-                }
-            } catch (Exception e) {
-                LOGGER.log(Level.WARNING, "An error occurred while getting history context", e);
+        historyContext = null;
+        try {
+            historyContext = new HistoryContext(query);
+            if (historyContext.isEmpty()) {
+                historyContext = null;
             }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "An error occurred while getting history context", e);
+        }
+    }
+
+    /**
+     * Execute a search and collect at most {@code count} documents that follow {@code after}
+     * in the order of relevance.
+     * <p>
+     * Unlike {@link #search(List)}, this does not retrieve the stored documents and never re-runs the query
+     * to collect all the hits, so it is suitable for paging through large result sets. The total hit count
+     * of the returned instance is accurate only if it is small.
+     * </p>
+     * Call to this method must be eventually followed by call to destroy()
+     * so that IndexSearcher objects are properly freed.
+     *
+     * @param projects projects to search, if empty the index of the source root is searched
+     * @param after the last hit of the previous page or {@code null} to get the first page
+     * @param count maximum number of documents to collect
+     * @return top documents
+     * @throws IOException if the index cannot be searched
+     * @throws ParseException if the query is not valid
+     * @throws IllegalArgumentException if {@code after} does not correspond to the index
+     */
+    public TopDocs searchAfter(List<Project> projects, @Nullable ScoreDoc after, int count)
+            throws IOException, ParseException {
+
+        source = RuntimeEnvironment.getInstance().getSourceRootPath();
+        data = RuntimeEnvironment.getInstance().getDataRootPath();
+        docs.clear();
+
+        QueryBuilder newBuilder = createQueryBuilder();
+        RequestSpans.Span parseSpan = RequestSpans.span("parse");
+        try {
+            query = newBuilder.build();
+        } finally {
+            parseSpan.close();
         }
-        int count = hits == null ? 0 : hits.length;
         queryBuilder = newBuilder;
-        return count;
+        if (query == null) {
+            throw new ParseException("empty query");
+        }
+
+        if (projects.isEmpty()) {
+            openSingleDatabase();
+        } else {
+            openMultiDatabase(projects);
+        }
+
+        Statistics stat = new Statistics();
+        TopDocs topDocs;
+        RequestSpans.Span collectSpan = RequestSpans.span("collect");
+        try {
+            topDocs = searcher.searchAfter(after, query, count);
+        } finally {
+            collectSpan.close();
+        }
+        stat.report(LOGGER, Level.FINEST, "search after via SearchEngine done",
+                "search.latency", new String[]{"category", "engine",
+                        "outcome", topDocs.scoreDocs.length > 0 ? "success" : "empty"});
+        if (topDocs.scoreDocs.length > 0) {
+            createContexts(newBuilder);
+        }
+        return topDocs;
+    }
+
+    /**
+     * Gets the generations of the index commits used by the last search, e.g. to detect that the index
+     * was changed between {@link #searchAfter(List, ScoreDoc, int)} calls for subsequent pages.
+     * @return map of project names (or empty string for project-less configuration) to the index generations
+     * or {@code null} if these cannot be determined
+     */
+    @Nullable
+    public Map<String, Long> getIndexGenerations() {
+        return QueryResultCache.getGenerations(searcherMap);
     }
 
     /**
@@ -440,88 +588,204 @@ public class SearchEngine {
                 }
             }
             allCollected = true;
+            if (cacheKey != null) {
+                cacheEntry = RuntimeEnvironment.getInstance().getQueryResultCache().put(cacheKey, hits, totalHits);
+            }
         }
 
         //TODO generation of ret(results) could be cashed and consumers of engine would just print them in whatever
         // form they need, this way we could get rid of docs
         // the only problem is that count of docs is usually smaller than number of results
+        RequestSpans.Span contextSpan = RequestSpans.span("context");
+        try {
+            getContexts(start, end, ret);
+        } finally {
+            contextSpan.close();
+        }
+    }
+
+    private void getContexts(int start, int end, List<Hit> ret) {
+        boolean cacheContexts = cacheEntry != null && RuntimeEnvironment.getInstance().isSearchResultCacheContexts();
+        boolean shortened = docs.size() > SHORT_CONTEXT_HITS;
+        List<List<Hit>> contexts = new ArrayList<>(Collections.nCopies(end - start, null));
+        List<Integer> pending = new ArrayList<>();
         for (int ii = start; ii < end; ++ii) {
-            boolean alt = (ii % 2 == 0);
-            boolean hasContext = false;
-            try {
-                Document doc = docs.get(ii);
-                String filename = doc.get(QueryBuilder.PATH);
-
-                AbstractAnalyzer.Genre genre = AbstractAnalyzer.Genre.get(doc.get(QueryBuilder.T));
-                Definitions tags = null;
-                IndexableField tagsField = doc.getField(QueryBuilder.TAGS);
-                if (tagsField != null) {
-                    tags = Definitions.deserialize(tagsField.binaryValue().bytes);
+            List<Hit> context = null;
+            if (cacheContexts && ii < hits.length) {
+                context = cacheEntry.getContext(hits[ii].doc, ii % 2 == 0, shortened);
+            }
+            if (context != null) {
+                contexts.set(ii - start, context);
+            } else {
+                pending.add(ii);
+            }
+        }
+
+        if (ContextTasks.isParallel(pending.size())) {
+            List<Callable<List<Hit>>> tasks = new ArrayList<>(pending.size());
+            for (int ii : pending) {
+                tasks.add(() -> getContext(ii));
+            }
+            List<List<Hit>> results = ContextTasks.invokeAll(tasks, null);
+            for (int i = 0; i < pending.size(); i++) {
+                int ii = pending.get(i);
+                List<Hit> context = results.get(i);
+                if (context == null) {
+                    // Not generated in time.
+                    context = List.of(new Hit(docs.get(ii).get(QueryBuilder.PATH), "...", "", false, ii % 2 == 0));
+                } else if (cacheContexts && ii < hits.length) {
+                    cacheEntry.putContext(hits[ii].doc, ii % 2 == 0, shortened, context);
                 }
-                Scopes scopes = null;
-                IndexableField scopesField = doc.getField(QueryBuilder.SCOPES);
-                if (scopesField != null) {
-                    scopes = Scopes.deserialize(scopesField.binaryValue().bytes);
+                contexts.set(ii - start, context);
+            }
+        } else {
+            for (int ii : pending) {
+                List<Hit> context = new ArrayList<>();
+                results(docs.get(ii), ii % 2 == 0, docs.size(), context);
+                if (cacheContexts && ii < hits.length) {
+                    cacheEntry.putContext(hits[ii].doc, ii % 2 == 0, shortened, context);
                 }
-                int nhits = docs.size();
+                contexts.set(ii - start, context);
+            }
+        }
 
-                if (sourceContext != null) {
-                    sourceContext.toggleAlt();
-                    try {
-                        if (AbstractAnalyzer.Genre.PLAIN == genre && (source != null)) {
-                            // SRCROOT is read with UTF-8 as a default.
-                            hasContext = sourceContext.getContext(
-                                new InputStreamReader(new FileInputStream(
-                                source + filename), StandardCharsets.UTF_8),
-                                null, null, null, filename, tags, nhits > 100,
-                                getDefinition() != null, ret, scopes);
-                        } else if (AbstractAnalyzer.Genre.XREFABLE == genre && data != null && summarizer != null) {
-                            int l;
-                            /*
-                              For backward compatibility, read the
-                              OpenGrok-produced document using the system
-                              default charset.
-                             */
-                            try (Reader r = RuntimeEnvironment.getInstance().isCompressXref()
-                                    ? new HTMLStripCharFilter(new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(
-                                            TandemPath.join(data + Prefix.XREF_P + filename, ".gz"))))))
-                                    : new HTMLStripCharFilter(new BufferedReader(new FileReader(data + Prefix.XREF_P + filename)))) {
-                                l = r.read(content);
-                            }
-                            //TODO FIX below fragmenter according to either summarizer or context
-                            // (to get line numbers, might be hard, since xref writers will need to be fixed too,
-                            // they generate just one line of html code now :( )
-                            Summary sum = summarizer.getSummary(new String(content, 0, l));
-                            Fragment[] fragments = sum.getFragments();
-                            for (Fragment fragment : fragments) {
-                                String match = fragment.toString();
-                                if (match.length() > 0) {
-                                    if (!fragment.isEllipsis()) {
-                                        Hit hit = new Hit(filename, fragment.toString(), "", true, alt);
-                                        ret.add(hit);
-                                    }
-                                    hasContext = true;
+        for (List<Hit> context : contexts) {
+            ret.addAll(context);
+        }
+    }
+
+    /**
+     * Generate context of single document in the current thread. Unlike {@link #results(Document, boolean, int, List)}
+     * this does not share any state with other invocations.
+     * @param ii index of the document
+     * @return context of the document
+     */
+    private List<Hit> getContext(int ii) {
+        Context context = null;
+        if (sourceContext != null) {
+            context = new Context(query, queryBuilder);
+            // Align the alternating value with serial generation that toggles it for each document.
+            if (ii % 2 != 0) {
+                context.toggleAlt();
+            }
+        }
+        HistoryContext history = historyContext != null ? new HistoryContext(query) : null;
+
+        List<Hit> ret = new ArrayList<>();
+        results(docs.get(ii), ii % 2 == 0, docs.size(), ret, context, history, new char[content.length]);
+        return ret;
+    }
+
+    /**
+     * @param doc document of the file
+     * @param filename path of the file relative to source root
+     * @return reader of the xref data of the file, either from the xref pack or from the xref file
+     * @throws IOException on I/O error
+     * @see XrefPack
+     */
+    private Reader getXrefReader(Document doc, String filename) throws IOException {
+        if (XrefPack.hasXref(doc)) {
+            InputStream in = XrefPack.getInputStream(new File(data), doc);
+            if (in == null) {
+                throw new FileNotFoundException(String.format("xref pack data of '%s'", filename));
+            }
+            return new InputStreamReader(in);
+        }
+        if (RuntimeEnvironment.getInstance().isCompressXref()) {
+            return new InputStreamReader(new GZIPInputStream(new FileInputStream(
+                    TandemPath.join(data + Prefix.XREF_P + filename, ".gz"))));
+        }
+        return new FileReader(data + Prefix.XREF_P + filename);
+    }
+
+    /**
+     * Get results for single document, e.g. one of those found by {@link #searchAfter(List, ScoreDoc, int)}.
+     *
+     * @param doc document retrieved via {@link #doc(int)}
+     * @param alt whether the hits are to be displayed as alternate
+     * @param nhits number of documents found, the context is shortened if there are many
+     * @param ret list to add the results to
+     */
+    public void results(Document doc, boolean alt, int nhits, List<Hit> ret) {
+        results(doc, alt, nhits, ret, sourceContext, historyContext, content);
+    }
+
+    private void results(Document doc, boolean alt, int nhits, List<Hit> ret,
+                         Context sourceContext, HistoryContext historyContext, char[] content) {
+        boolean hasContext = false;
+        try {
+            String filename = doc.get(QueryBuilder.PATH);
+
+            AbstractAnalyzer.Genre genre = AbstractAnalyzer.Genre.get(doc.get(QueryBuilder.T));
+            Definitions tags = null;
+            IndexableField tagsField = doc.getField(QueryBuilder.TAGS);
+            if (tagsField != null) {
+                tags = Definitions.deserialize(tagsField.binaryValue().bytes);
+            }
+            Scopes scopes = null;
+            IndexableField scopesField = doc.getField(QueryBuilder.SCOPES);
+            if (scopesField != null) {
+                scopes = Scopes.deserialize(scopesField.binaryValue().bytes);
+            }
+
+            if (sourceContext != null) {
+                sourceContext.toggleAlt();
+                try {
+                    if (AbstractAnalyzer.Genre.PLAIN == genre && (source != null)) {
+                        // SRCROOT is read with UTF-8 as a default.
+                        hasContext = sourceContext.getContext(
+                            new InputStreamReader(new FileInputStream(
+                            source + filename), StandardCharsets.UTF_8),
+                            null, null, null, filename, tags, nhits > SHORT_CONTEXT_HITS,
+                            getDefinition() != null, ret, scopes);
+                    } else if (AbstractAnalyzer.Genre.XREFABLE == genre && data != null && summarizer != null) {
+                        int l;
+                        /*
+                          For backward compatibility, read the
+                          OpenGrok-produced document using the system
+                          default charset.
+                         */
+                        try (Reader r = new HTMLStripCharFilter(new BufferedReader(getXrefReader(doc, filename)))) {
+                            l = r.read(content);
+                        }
+                        //TODO FIX below fragmenter according to either summarizer or context
+                        // (to get line numbers, might be hard, since xref writers will need to be fixed too,
+                        // they generate just one line of html code now :( )
+                        Summary sum = summarizer.getSummary(new String(content, 0, l));
+                        Fragment[] fragments = sum.getFragments();
+                        for (Fragment fragment : fragments) {
+                            String match = fragment.toString();
+                            if (match.length() > 0) {
+                                if (!fragment.isEllipsis()) {
+                                    Hit hit = new Hit(filename, fragment.toString(), "", true, alt);
+                                    ret.add(hit);
                                 }
+                                hasContext = true;
                             }
-                        } else {
-                            LOGGER.log(Level.WARNING, "Unknown genre: {0} for {1}", new Object[]{genre, filename});
-                            hasContext |= sourceContext.getContext(null, null, null, null, filename, tags, false, false, ret, scopes);
                         }
-                    } catch (FileNotFoundException exp) {
-                        LOGGER.log(Level.WARNING, "Couldn''t read summary from {0} ({1})", new Object[]{filename, exp.getMessage()});
+                    } else {
+                        LOGGER.log(Level.WARNING, "Unknown genre: {0} for {1}", new Object[]{genre, filename});
                         hasContext |= sourceContext.getContext(null, null, null, null, filename, tags, false, false, ret, scopes);
                     }
+                } catch (FileNotFoundException exp) {
+                    LOGGER.log(Level.WARNING, "Couldn''t read summary from {0} ({1})", new Object[]{filename, exp.getMessage()});
+                    hasContext |= sourceContext.getContext(null, null, null, null, filename, tags, false, false, ret, scopes);
                 }
-                if (historyContext != null) {
+            }
+            if (historyContext != null) {
+                RequestSpans.Span historySpan = RequestSpans.span("history");
+                try {
                     hasContext |= historyContext.getContext(source + filename, filename, ret);
+                } finally {
+                    historySpan.close();
                 }
-                if (!hasContext) {
-                    ret.add(new Hit(filename, "...", "", false, alt));
-                }
-            } catch (IOException | ClassNotFoundException | HistoryException e) {
-                LOGGER.log(
-                        Level.WARNING, SEARCH_EXCEPTION_MSG, e);
             }
+            if (!hasContext) {
+                ret.add(new Hit(filename, "...", "", false, alt));
+            }
+        } catch (IOException | ClassNotFoundException | HistoryException e) {
+            LOGGER.log(
+                    Level.WARNING, SEARCH_EXCEPTION_MSG, e);
         }
     }
 
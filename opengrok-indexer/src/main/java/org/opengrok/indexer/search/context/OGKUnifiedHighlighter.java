@@ -310,13 +310,14 @@ public class OGKUnifiedHighlighter extends UnifiedHighlighter {
             return null;
         }
 
-        StringBuilder bld = new StringBuilder();
+        StringBuilder bld = new StringBuilder((int) Math.min(repoAbsFile.length(), Integer.MAX_VALUE - 8));
         StreamSource src = StreamSource.fromFile(repoAbsFile);
         try (InputStream in = src.getStream();
             Reader rdr = getReader(in)) {
-            int c;
-            while ((c = rdr.read()) != -1) {
-                bld.append((char) c);
+            char[] buf = new char[8192];
+            int n;
+            while ((n = rdr.read(buf)) != -1) {
+                bld.append(buf, 0, n);
             }
         }
 
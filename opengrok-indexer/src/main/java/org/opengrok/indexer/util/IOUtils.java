@@ -44,6 +44,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+
+import org.jetbrains.annotations.Nullable;
 import org.opengrok.indexer.logger.LoggerFactory;
 
 /**
@@ -164,6 +166,21 @@ public final class IOUtils {
         return Arrays.asList(files);
     }
 
+    /**
+     * Read the basic attributes of the file (following symbolic links) with single file system query
+     * rather than multiple calls like {@link File#isFile()} and {@link File#isDirectory()}.
+     * @param file file object
+     * @return attributes or {@code null} if the file does not exist or the attributes cannot be read
+     */
+    @Nullable
+    public static BasicFileAttributes readAttributes(File file) {
+        try {
+            return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+    }
+
     /**
      * Create BOM stripped reader from the stream.
      * Charset of the reader is set to UTF-8, UTF-16 or system's default.
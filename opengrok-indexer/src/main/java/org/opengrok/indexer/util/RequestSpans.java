@@ -0,0 +1,216 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.util;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.jetbrains.annotations.Nullable;
+import org.opengrok.indexer.Metrics;
+
+/**
+ * Lightweight tracing of the phases of single request, e.g. query parsing, acquiring searchers,
+ * collecting hits or generating contexts. The duration of each phase is recorded into the
+ * {@value #METER_NAME} timer tagged by phase and project and also summed up per request so that
+ * the breakdown can be reported in the {@code Server-Timing} HTTP header.
+ * <p>
+ * The request is associated with the current thread by {@link #begin()}. If there is no such request,
+ * {@link #span(String)} returns a no-op span, so the instrumentation is cheap outside of requests.
+ * The spans can be nested, a nested span without project inherits the project of the enclosing span.
+ * </p>
+ */
+public final class RequestSpans {
+
+    public static final String METER_NAME = "request.phase.latency";
+
+    private static final ThreadLocal<RequestSpans> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<Span> CURRENT_SPAN = new ThreadLocal<>();
+
+    /**
+     * Phase name to total duration in nanoseconds and number of the spans.
+     */
+    private final Map<String, long[]> totals = new LinkedHashMap<>();
+
+    private RequestSpans() {
+    }
+
+    /**
+     * Start tracing request handled by the current thread.
+     * @return new instance, to be ended with {@link #end()}
+     */
+    public static RequestSpans begin() {
+        RequestSpans spans = new RequestSpans();
+        CURRENT.set(spans);
+        CURRENT_SPAN.remove();
+        return spans;
+    }
+
+    /**
+     * Stop associating this instance with the current thread.
+     */
+    public void end() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+            CURRENT_SPAN.remove();
+        }
+    }
+
+    /**
+     * @return instance associated with the current thread or {@code null}
+     */
+    @Nullable
+    public static RequestSpans current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Start a span of the request associated with the current thread.
+     * @param phase name of the phase
+     * @return span to be closed at the end of the phase
+     */
+    public static Span span(String phase) {
+        return span(phase, null);
+    }
+
+    /**
+     * Start a span of the request associated with the current thread.
+     * @param phase name of the phase
+     * @param project project name or {@code null}
+     * @return span to be closed at the end of the phase
+     */
+    public static Span span(String phase, @Nullable String project) {
+        RequestSpans spans = CURRENT.get();
+        return spans != null ? spans.newSpan(phase, project) : Span.NOOP;
+    }
+
+    /**
+     * Start a span of this request in the current thread, e.g. in a thread working on behalf of the request.
+     * @param phase name of the phase
+     * @param project project name or {@code null}
+     * @return span to be closed at the end of the phase
+     */
+    public Span newSpan(String phase, @Nullable String project) {
+        Span parent = CURRENT_SPAN.get();
+        if (project == null && parent != null && parent.spans == this) {
+            project = parent.project;
+        }
+        Span span = new Span(this, phase, project, parent);
+        CURRENT_SPAN.set(span);
+        return span;
+    }
+
+    private void record(Span span, long nanos) {
+        synchronized (totals) {
+            long[] total = totals.computeIfAbsent(span.phase, k -> new long[2]);
+            total[0] += nanos;
+            total[1]++;
+        }
+
+        MeterRegistry registry = Metrics.getRegistry();
+        if (registry != null) {
+            Timer.builder(METER_NAME).
+                    description("duration of request phases").
+                    tags("phase", span.phase, "project", span.project != null ? span.project : "").
+                    register(registry).
+                    record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * @return map of phase names to their total durations in the order the phases were first completed
+     */
+    public Map<String, Duration> getDurations() {
+        Map<String, Duration> durations = new LinkedHashMap<>();
+        synchronized (totals) {
+            for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+                durations.put(entry.getKey(), Duration.ofNanos(entry.getValue()[0]));
+            }
+        }
+        return durations;
+    }
+
+    /**
+     * @return value of the {@code Server-Timing} HTTP header with the phases completed so far
+     */
+    public String getServerTiming() {
+        StringBuilder sb = new StringBuilder();
+        synchronized (totals) {
+            for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                sb.append(entry.getKey());
+                long count = entry.getValue()[1];
+                if (count > 1) {
+                    sb.append(";desc=\"").append(count).append("x\"");
+                }
+                sb.append(String.format(Locale.ROOT, ";dur=%.3f", entry.getValue()[0] / 1_000_000.0));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Timing of single phase. The phase ends with {@link #close()}.
+     */
+    public static final class Span implements AutoCloseable {
+
+        static final Span NOOP = new Span(null, null, null, null);
+
+        private final RequestSpans spans;
+        private final String phase;
+        private final String project;
+        private final Span parent;
+        private final long start;
+        private boolean closed;
+
+        private Span(RequestSpans spans, String phase, String project, Span parent) {
+            this.spans = spans;
+            this.phase = phase;
+            this.project = project;
+            this.parent = parent;
+            this.start = spans != null ? System.nanoTime() : 0;
+        }
+
+        @Override
+        public void close() {
+            if (spans == null || closed) {
+                return;
+            }
+            closed = true;
+            spans.record(this, System.nanoTime() - start);
+            if (CURRENT_SPAN.get() == this) {
+                if (parent != null) {
+                    CURRENT_SPAN.set(parent);
+                } else {
+                    CURRENT_SPAN.remove();
+                }
+            }
+        }
+    }
+}
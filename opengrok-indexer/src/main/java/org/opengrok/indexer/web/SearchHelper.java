@@ -81,6 +81,7 @@ import org.opengrok.indexer.search.context.Context;
 import org.opengrok.indexer.search.context.HistoryContext;
 import org.opengrok.indexer.util.ErrorMessageCollector;
 import org.opengrok.indexer.util.ForbiddenSymlinkException;
+import org.opengrok.indexer.util.RequestSpans;
 import org.opengrok.indexer.util.WrapperIOException;
 
 /**
@@ -362,7 +363,12 @@ public class SearchHelper {
         settingsHelper = null;
         // the Query created by the QueryBuilder
         try {
-            query = builder.build();
+            RequestSpans.Span parseSpan = RequestSpans.span("parse");
+            try {
+                query = builder.build();
+            } finally {
+                parseSpan.close();
+            }
             if (Objects.isNull(projects)) {
                 errorMsg = "No project selected!";
                 return this;
@@ -475,7 +481,13 @@ public class SearchHelper {
             return this;
         }
         try {
-            TopFieldDocs fdocs = searcher.search(query, start + maxItems, sort);
+            TopFieldDocs fdocs;
+            RequestSpans.Span collectSpan = RequestSpans.span("collect");
+            try {
+                fdocs = searcher.search(query, start + maxItems, sort);
+            } finally {
+                collectSpan.close();
+            }
             totalHits = fdocs.totalHits.value;
             hits = fdocs.scoreDocs;
 
@@ -75,6 +75,7 @@ import org.opengrok.indexer.configuration.RuntimeEnvironment;
 import org.opengrok.indexer.history.Annotation;
 import org.opengrok.indexer.history.HistoryGuru;
 import org.opengrok.indexer.logger.LoggerFactory;
+import org.opengrok.indexer.util.RequestSpans;
 import org.opengrok.indexer.util.Statistics;
 
 /**
@@ -1235,11 +1236,16 @@ public final class Util {
         }
 
         Statistics stat = new Statistics();
-        XrefSourceTransformer xform = new XrefSourceTransformer(in);
-        xform.setWriter(out);
-        xform.setContextPath(contextPath);
-        while (xform.yylex()) {
-            // Nothing else to do.
+        RequestSpans.Span xrefSpan = RequestSpans.span("xref");
+        try {
+            XrefSourceTransformer xform = new XrefSourceTransformer(in);
+            xform.setWriter(out);
+            xform.setContextPath(contextPath);
+            while (xform.yylex()) {
+                // Nothing else to do.
+            }
+        } finally {
+            xrefSpan.close();
         }
         stat.report(LOGGER, Level.FINEST, String.format("dumped xref '%s'", file), "xref.dump.latency");
     }
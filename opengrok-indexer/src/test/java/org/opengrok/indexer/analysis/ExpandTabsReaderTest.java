@@ -92,6 +92,42 @@ class ExpandTabsReaderTest {
         assertEquals("    xyz", sb.toString());
     }
 
+    /**
+     * Test that bulk reads with arbitrary buffer sizes produce the same output as reading single characters.
+     */
+    @Test
+    void testBulkRead() throws IOException {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            input.append("x".repeat(i % 11)).append(i % 3 == 0 ? '\t' : ' ').append(i % 7 == 0 ? "\n" : "");
+        }
+
+        StringBuilder expected = new StringBuilder();
+        try (Reader r = new ExpandTabsReader(new StringReader(input.toString()), 4)) {
+            int c;
+            while ((c = r.read()) != -1) {
+                expected.append((char) c);
+            }
+        }
+
+        for (int bufSize : new int[]{1, 3, 17, 8192, 100_000}) {
+            StringBuilder actual = new StringBuilder();
+            try (Reader r = new ExpandTabsReader(new StringReader(input.toString()), 4)) {
+                char[] buf = new char[bufSize];
+                int n;
+                while ((n = r.read(buf, 0, buf.length)) != -1) {
+                    actual.append(buf, 0, n);
+                    // Mix in single character reads.
+                    int c = r.read();
+                    if (c != -1) {
+                        actual.append((char) c);
+                    }
+                }
+            }
+            assertEquals(expected.toString(), actual.toString(), "buffer size " + bufSize);
+        }
+    }
+
     /**
      * Tests that line offsets are translated as expected.
      */
@@ -37,6 +37,7 @@ import org.opengrok.indexer.analysis.haskell.HaskellSymbolTokenizer;
 import org.opengrok.indexer.analysis.java.JavaSymbolTokenizer;
 import org.opengrok.indexer.analysis.lisp.LispSymbolTokenizer;
 import org.opengrok.indexer.analysis.perl.PerlSymbolTokenizer;
+import org.opengrok.indexer.analysis.php.PhpSymbolTokenizer;
 import org.opengrok.indexer.analysis.plain.PlainFullTokenizer;
 import org.opengrok.indexer.analysis.plain.PlainSymbolTokenizer;
 import org.opengrok.indexer.analysis.scala.ScalaSymbolTokenizer;
@@ -141,6 +142,43 @@ class JFlexTokenizerTest {
         testOffsetAttribute(ShSymbolTokenizer.class, inputText, expectedTokens);
     }
 
+    /**
+     * Test that symbols published directly from the scanner buffer (without
+     * {@link JFlexLexer#yytext()}) produce the same tokens and offsets.
+     */
+    @Test
+    void testSymbolFromScannerBuffer() throws Exception {
+        String inputText = "<?php $abc = \"$VARIABLE xyz\"; ?>";
+        String[] expectedTokens = {"abc", "VARIABLE"};
+        testOffsetAttribute(PhpSymbolTokenizer.class, inputText, expectedTokens);
+    }
+
+    /**
+     * Test that the lower-case symbols published from the scanner buffer are
+     * the same as with {@link String#toLowerCase(java.util.Locale)}, also for
+     * non-ASCII characters.
+     */
+    @Test
+    void testLowerCaseSymbolFromScannerBuffer() throws Exception {
+        String inputText = "Hello WORLD Ünïcode mIxEd";
+        String[] expectedTokens = {"hello", "world", "ünïcode", "mixed"};
+        int[] expectedStarts = {0, 6, 12, 20};
+
+        JFlexTokenizer tokenizer = new JFlexTokenizer(new PlainFullTokenizer(new StringReader(inputText)));
+        CharTermAttribute term = tokenizer.addAttribute(CharTermAttribute.class);
+        OffsetAttribute offset = tokenizer.addAttribute(OffsetAttribute.class);
+
+        int count = 0;
+        while (tokenizer.incrementToken()) {
+            assertTrue(count < expectedTokens.length, "too many tokens");
+            assertEquals(expectedTokens[count], term.toString(), "term");
+            assertEquals(expectedStarts[count], offset.startOffset(), "start");
+            assertEquals(expectedStarts[count] + expectedTokens[count].length(), offset.endOffset(), "end");
+            count++;
+        }
+        assertEquals(expectedTokens.length, count, "wrong number of tokens");
+    }
+
     /**
      * Truncated uuencoded files used to cause infinite loops. Verify that they
      * work now.
@@ -0,0 +1,182 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.configuration;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opengrok.indexer.authorization.AuthControlFlag;
+import org.opengrok.indexer.authorization.AuthorizationPlugin;
+import org.opengrok.indexer.history.RepositoryInfo;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Represents a container for tests of {@link ConfigurationCodec}.
+ */
+class ConfigurationCodecTest {
+
+    private static Configuration createConfiguration() {
+        Configuration configuration = new Configuration();
+        configuration.setSourceRoot("/src");
+        configuration.setDataRoot("/data");
+        configuration.setHitsPerPage(42);
+        configuration.setRemoteScmSupported(Configuration.RemoteSCM.DIRBASED);
+        configuration.setAllowedSymlinks(new HashSet<>(Set.of("/foo", "/bar")));
+        configuration.setCmds(new HashMap<>(Map.of("git", "/usr/bin/git")));
+        configuration.getIgnoredNames().add("*.tmp");
+        configuration.getPluginStack().add(new AuthorizationPlugin(AuthControlFlag.REQUIRED, "FooPlugin"));
+
+        Map<String, Project> projects = new TreeMap<>();
+        for (String name : List.of("foo", "bar", "baz")) {
+            Project project = new Project(name, "/" + name);
+            project.setIndexed(true);
+            projects.put(name, project);
+        }
+        projects.get("bar").setTabSize(4);
+        configuration.setProjects(projects);
+        configuration.setDefaultProjects(new TreeSet<>(Set.of(projects.get("foo"))));
+
+        List<RepositoryInfo> repositories = new ArrayList<>();
+        for (String name : List.of("foo", "bar")) {
+            RepositoryInfo repositoryInfo = new RepositoryInfo();
+            repositoryInfo.setDirectoryNameRelative("/" + name);
+            repositoryInfo.setType("git");
+            repositoryInfo.setDatePatterns(new String[]{"yyyy-MM-dd"});
+            repositories.add(repositoryInfo);
+        }
+        configuration.setRepositories(repositories);
+
+        Group parent = new Group("parent", "ba.*");
+        Group child = new Group("child", "baz");
+        parent.addGroup(child);
+        Map<String, Group> groups = new TreeMap<>();
+        groups.put(parent.getName(), parent);
+        groups.put(child.getName(), child);
+        configuration.setGroups(groups);
+
+        return configuration;
+    }
+
+    @Test
+    void testRoundTrip(@TempDir Path dir) throws IOException {
+        Configuration configuration = createConfiguration();
+        File file = dir.resolve("configuration" + ConfigurationCodec.BINARY_SUFFIX).toFile();
+        configuration.write(file);
+
+        Configuration decoded = Configuration.read(file);
+        assertTrue(ConfigurationDelta.compute(configuration, decoded, "1", "1").isEmpty(),
+                "decoded configuration should match the original");
+        assertEquals(Set.of("foo", "bar", "baz"), decoded.getProjects().keySet());
+        assertEquals(4, decoded.getProjects().get("bar").getTabSize());
+        assertTrue(decoded.getProjects().get("foo").isIndexed());
+        assertEquals(Set.of(decoded.getProjects().get("foo")), decoded.getDefaultProjects());
+        assertEquals(2, decoded.getRepositories().size());
+        assertArrayEquals(new String[]{"yyyy-MM-dd"}, decoded.getRepositories().get(1).getDatePatterns());
+        assertEquals(1, decoded.getPluginStack().getStack().size());
+        assertTrue(decoded.getIgnoredNames().getItems().contains("*.tmp"));
+        assertEquals(Set.of("parent", "child"), decoded.getGroups().keySet());
+        assertEquals(decoded.getGroups().get("parent"), decoded.getGroups().get("child").getParent());
+        assertTrue(decoded.getGroups().get("parent").getDescendants().contains(decoded.getGroups().get("child")));
+    }
+
+    @Test
+    void testLazyCollectionsModification(@TempDir Path dir) throws IOException {
+        File file = dir.resolve("configuration" + ConfigurationCodec.BINARY_SUFFIX).toFile();
+        createConfiguration().write(file);
+        Configuration decoded = Configuration.read(file);
+
+        decoded.getProjects().remove("baz");
+        decoded.getProjects().put("qux", new Project("qux", "/qux"));
+        decoded.getProjects().entrySet().removeIf(entry -> entry.getKey().equals("bar"));
+        assertEquals(Set.of("foo", "qux"), decoded.getProjects().keySet());
+        assertEquals("/qux", decoded.getProjects().get("qux").getPath());
+
+        decoded.getRepositories().remove(0);
+        assertEquals(1, decoded.getRepositories().size());
+        assertEquals("/bar", decoded.getRepositories().get(0).getDirectoryNameRelative());
+    }
+
+    @Test
+    void testXMLRepresentation(@TempDir Path dir) throws IOException {
+        Configuration configuration = createConfiguration();
+        File file = dir.resolve("configuration" + ConfigurationCodec.BINARY_SUFFIX).toFile();
+        configuration.write(file);
+
+        // The lazily materialized collections should be encoded as the collections they stand for.
+        String xml = Configuration.read(file).getXMLRepresentationAsString();
+        assertFalse(xml.contains("Lazy"));
+        Configuration decoded = Configuration.makeXMLStringAsConfiguration(xml);
+        assertTrue(ConfigurationDelta.compute(configuration, decoded, "1", "1").isEmpty(),
+                "configuration decoded from XML should match the original");
+    }
+
+    @Test
+    void testConvert(@TempDir Path dir) throws IOException {
+        Configuration configuration = createConfiguration();
+        File xmlFile = dir.resolve("configuration.xml").toFile();
+        configuration.write(xmlFile);
+
+        File binaryFile = dir.resolve("configuration" + ConfigurationCodec.BINARY_SUFFIX).toFile();
+        ConfigConvert.convert(xmlFile, binaryFile);
+        assertTrue(binaryFile.length() < xmlFile.length());
+
+        File convertedXmlFile = dir.resolve("converted.xml").toFile();
+        ConfigConvert.convert(binaryFile, convertedXmlFile);
+        Configuration decoded = Configuration.read(convertedXmlFile);
+        assertTrue(ConfigurationDelta.compute(configuration, decoded, "1", "1").isEmpty(),
+                "converted configuration should match the original");
+    }
+
+    @Test
+    void testInvalidInput(@TempDir Path dir) throws IOException {
+        assertThrows(IOException.class, () -> ConfigurationCodec.decode(
+                new ByteArrayInputStream("<config/>".getBytes(StandardCharsets.UTF_8))));
+
+        File file = dir.resolve("configuration" + ConfigurationCodec.BINARY_SUFFIX).toFile();
+        createConfiguration().write(file);
+        Configuration decoded = Configuration.read(file);
+        assertNotNull(decoded);
+        Files.writeString(file.toPath(), "garbage");
+        assertThrows(IOException.class, () -> Configuration.read(file));
+    }
+}
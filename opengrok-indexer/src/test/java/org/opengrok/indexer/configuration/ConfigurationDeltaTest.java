@@ -0,0 +1,160 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.configuration;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+import org.opengrok.indexer.history.RepositoryInfo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Represents a container for tests of {@link ConfigurationDelta}.
+ */
+class ConfigurationDeltaTest {
+
+    private static RepositoryInfo createRepository(String dir, String type) {
+        RepositoryInfo repositoryInfo = new RepositoryInfo();
+        repositoryInfo.setDirectoryNameRelative(dir);
+        repositoryInfo.setType(type);
+        return repositoryInfo;
+    }
+
+    private static Configuration createConfiguration() {
+        Configuration configuration = new Configuration();
+        configuration.setSourceRoot("/src");
+        configuration.setDataRoot("/data");
+        Map<String, Project> projects = new TreeMap<>();
+        projects.put("foo", new Project("foo", "/foo"));
+        projects.put("bar", new Project("bar", "/bar"));
+        configuration.setProjects(projects);
+        configuration.setRepositories(new ArrayList<>(List.of(createRepository("/foo", "git"),
+                createRepository("/bar", "Mercurial"))));
+        return configuration;
+    }
+
+    private static Configuration copy(Configuration configuration) throws IOException {
+        return Configuration.makeXMLStringAsConfiguration(configuration.getXMLRepresentationAsString());
+    }
+
+    @Test
+    void testIdenticalConfigurations() throws IOException {
+        Configuration base = createConfiguration();
+        ConfigurationDelta delta = ConfigurationDelta.compute(base, copy(base), "1", "2");
+        assertTrue(delta.isEmpty(), "delta of identical configurations should be empty");
+        assertEquals("1", delta.getBaseVersion());
+        assertEquals("2", delta.getVersion());
+    }
+
+    @Test
+    void testComputeAndApply() throws IOException {
+        Configuration base = createConfiguration();
+        Configuration current = copy(base);
+        current.setHitsPerPage(42);
+        current.setIgnoredNames(new IgnoredNames());
+        current.getIgnoredNames().add("*.tmp");
+        current.getProjects().get("foo").setIndexed(true);
+        current.getProjects().remove("bar");
+        current.getProjects().put("baz", new Project("baz", "/baz"));
+        current.setRepositories(new ArrayList<>(List.of(createRepository("/foo", "git"),
+                createRepository("/baz", "git"))));
+
+        ConfigurationDelta delta = ConfigurationDelta.compute(base, current, "1", "2");
+        assertFalse(delta.isEmpty());
+        assertEquals(Set.of("hitsPerPage", "ignoredNames"), delta.getSettings().keySet());
+        assertEquals(Set.of("foo", "baz"), delta.getProjects().keySet());
+        assertEquals(Set.of("bar"), delta.getRemovedProjects());
+        assertEquals(Set.of("foo", "bar", "baz"), delta.getChangedProjectNames());
+        assertEquals(1, delta.getRepositories().size());
+        assertEquals("/baz", delta.getRepositories().get(0).getDirectoryNameRelative());
+        assertEquals(Set.of("/bar"), delta.getRemovedRepositories());
+        assertNull(delta.getGroups());
+
+        Configuration target = copy(base);
+        delta.apply(target);
+        assertTrue(ConfigurationDelta.compute(current, target, "2", "2").isEmpty(),
+                "configuration with delta applied should match the current configuration");
+    }
+
+    @Test
+    void testGroups() throws IOException {
+        Configuration base = createConfiguration();
+        Configuration current = copy(base);
+        Group parent = new Group("parent", "f.*");
+        Group child = new Group("child", "b.*");
+        parent.addGroup(child);
+        Map<String, Group> groups = new TreeMap<>();
+        groups.put(parent.getName(), parent);
+        groups.put(child.getName(), child);
+        current.setGroups(groups);
+
+        ConfigurationDelta delta = ConfigurationDelta.compute(base, current, "1", "2");
+        assertNotNull(delta.getGroups());
+
+        Configuration target = copy(base);
+        delta.apply(target);
+        assertEquals(Set.of("parent", "child"), target.getGroups().keySet());
+        assertEquals(target.getGroups().get("parent"), target.getGroups().get("child").getParent());
+    }
+
+    @Test
+    void testXMLRoundTrip() throws IOException {
+        Configuration base = createConfiguration();
+        Configuration current = copy(base);
+        current.setHitsPerPage(42);
+        current.getProjects().put("baz", new Project("baz", "/baz"));
+        current.getRepositories().remove(1);
+
+        ConfigurationDelta delta = ConfigurationDelta.compute(base, current, "1", "2");
+        ConfigurationDelta decoded = ConfigurationDelta.makeXMLStringAsDelta(delta.getXMLRepresentationAsString());
+        assertEquals(delta.getBaseVersion(), decoded.getBaseVersion());
+        assertEquals(delta.getVersion(), decoded.getVersion());
+        assertEquals(delta.getSettings(), decoded.getSettings());
+        assertEquals(delta.getProjects().keySet(), decoded.getProjects().keySet());
+        assertEquals(delta.getRemovedRepositories(), decoded.getRemovedRepositories());
+
+        Configuration target = copy(base);
+        decoded.apply(target);
+        assertTrue(ConfigurationDelta.compute(current, target, "2", "2").isEmpty(),
+                "configuration with delta applied should match the current configuration");
+    }
+
+    @Test
+    void testVersion() {
+        String version = ConfigurationDelta.getVersion("<config/>");
+        assertEquals(64, version.length());
+        assertEquals(version, ConfigurationDelta.getVersion("<config/>"));
+        assertNotEquals(version, ConfigurationDelta.getVersion("<config></config>"));
+    }
+}
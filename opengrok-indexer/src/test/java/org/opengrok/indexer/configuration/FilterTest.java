@@ -0,0 +1,129 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.configuration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Represents a container for tests of {@link Filter} matching.
+ */
+@EnabledOnOs({OS.LINUX, OS.MAC, OS.SOLARIS, OS.AIX, OS.OTHER})
+class FilterTest {
+
+    @Test
+    void testMatchBasename() {
+        Filter filter = new Filter();
+        filter.setItems(List.of("*.o", "lib*", "foo*.?x", "Makefile", "a*b*c"));
+
+        assertTrue(filter.match("foo.o"));
+        assertTrue(filter.match("/src/dir/foo.o"));
+        assertTrue(filter.match("libbar.so"));
+        assertTrue(filter.match("/src/dir/libbar.so"));
+        assertTrue(filter.match("foobar.cx"));
+        assertTrue(filter.match("/src/Makefile"));
+        assertTrue(filter.match("Makefile"));
+        assertTrue(filter.match("aXbYc"));
+        assertTrue(filter.match("/src/aXbYc"));
+
+        assertFalse(filter.match("foo.oo"));
+        assertFalse(filter.match("/src/lib/foo.c"));
+        assertFalse(filter.match("/src/foo.o/bar"));
+        assertFalse(filter.match("/src/foobar.c/x"));
+        assertFalse(filter.match("/src/Makefile.am"));
+        assertFalse(filter.match("/a/b/c/d"));
+    }
+
+    @Test
+    void testMatchPaths() {
+        Filter filter = new Filter();
+        filter.setItems(List.of("usr/src/uts", "/opt/foo", "*/build/*.class", "*/tmp"));
+
+        assertTrue(filter.match("/home/usr/src/uts"));
+        assertTrue(filter.match("/opt/foo"));
+        assertTrue(filter.match("/home/build/Foo.class"));
+        assertTrue(filter.match("/home/x/tmp"));
+
+        assertFalse(filter.match("/home/usr/src/uts/bar"));
+        assertFalse(filter.match("/home/xusr/src/utsx"));
+        assertFalse(filter.match("/home/build/Foo.java"));
+        // Paths are not checked for relative names.
+        assertFalse(filter.match("usr/src/uts"));
+    }
+
+    @Test
+    void testMatchAfterChange() {
+        Filter filter = new Filter();
+        filter.add("*.c");
+        assertTrue(filter.match("/src/main.c"));
+        assertFalse(filter.match("/src/main.h"));
+
+        filter.add("*.h");
+        assertTrue(filter.match("/src/main.h"));
+
+        filter.clear();
+        assertFalse(filter.match("/src/main.c"));
+    }
+
+    @Test
+    void testIgnoreWithAttributes(@TempDir Path root) throws IOException {
+        IgnoredNames ignoredNames = new IgnoredNames();
+        ignoredNames.add("f:*.bin");
+        ignoredNames.add("d:out");
+
+        Path file = Files.createFile(root.resolve("data.bin"));
+        Path dir = Files.createDirectory(root.resolve("out"));
+        Path fileNamedLikeDir = Files.createFile(root.resolve("out.bin"));
+        BasicFileAttributes fileAttrs = Files.readAttributes(file, BasicFileAttributes.class);
+        BasicFileAttributes dirAttrs = Files.readAttributes(dir, BasicFileAttributes.class);
+
+        assertTrue(ignoredNames.ignore(file.toFile(), fileAttrs));
+        assertTrue(ignoredNames.ignore(dir.toFile(), dirAttrs));
+        assertFalse(ignoredNames.ignore(new File(root.toFile(), "out"), fileAttrs));
+        assertFalse(ignoredNames.ignore(new File(root.toFile(), "data.bin"), dirAttrs));
+        assertTrue(ignoredNames.ignore(fileNamedLikeDir.toFile(),
+                Files.readAttributes(fileNamedLikeDir, BasicFileAttributes.class)));
+
+        Filter includedNames = new Filter();
+        includedNames.add("*.c");
+        PathAccepter accepter = new PathAccepter(ignoredNames, includedNames);
+        Path source = Files.createFile(root.resolve("main.c"));
+        Path subDir = Files.createDirectory(root.resolve("sub"));
+        assertTrue(accepter.accept(source.toFile(), Files.readAttributes(source, BasicFileAttributes.class)));
+        assertTrue(accepter.accept(subDir.toFile(), Files.readAttributes(subDir, BasicFileAttributes.class)));
+        assertFalse(accepter.accept(file.toFile(), fileAttrs));
+        assertFalse(accepter.accept(dir.toFile(), dirAttrs));
+    }
+}
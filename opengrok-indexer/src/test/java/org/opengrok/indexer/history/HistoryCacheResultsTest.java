@@ -36,9 +36,12 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.Writer;
 import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
@@ -153,4 +156,55 @@ class HistoryCacheResultsTest {
             assertFalse(indexPath.toFile().isDirectory());
         }
     }
+
+    /**
+     * Test that {@link Indexer#doPipelinedIndexerExecution(Set, org.opengrok.indexer.index.IndexChangedListener, Map,
+     * CompletableFuture)}
+     * indexes the projects with successfully generated history cache and skips the project
+     * with repository for which history cache cannot be generated.
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void testCorruptRepositoryPipelined(boolean isProjectsEnabled) throws Exception {
+        Indexer indexer = Indexer.getInstance();
+        env.setProjectsEnabled(isProjectsEnabled);
+
+        final String projectName = "git";
+        Path repoRoot = Path.of(repository.getSourceRoot(), projectName);
+        assertTrue(repoRoot.toFile().isDirectory());
+
+        indexer.prepareIndexer(env,
+                Set.of(repository.getSourceRoot()), // search for repositories
+                isProjectsEnabled, // scan and add projects
+                false, // do not create history cache
+                null); // repositories
+
+        corruptGitRepo(repoRoot);
+
+        Map<Repository, CompletableFuture<Optional<Exception>>> futures = new HashMap<>();
+        CompletableFuture<Void> done = indexer.createHistoryCacheAsync(null, false, futures);
+        assertFalse(futures.isEmpty());
+
+        indexer.doPipelinedIndexerExecution(null, null, futures, done);
+        assertTrue(futures.values().stream().allMatch(CompletableFuture::isDone));
+        assertTrue(done.isDone());
+        List<Repository> repos = futures.entrySet().stream().filter(e -> e.getValue().join().isPresent()).
+                map(Map.Entry::getKey).collect(Collectors.toList());
+        assertEquals(1, repos.size());
+        assertEquals(File.separator + projectName, repos.get(0).getDirectoryNameRelative());
+
+        if (isProjectsEnabled) {
+            for (String project : env.getProjectNames()) {
+                Path indexPath = Path.of(env.getDataRootPath(), IndexDatabase.INDEX_DIR, project);
+                if (project.equals(projectName)) {
+                    assertFalse(indexPath.toFile().isDirectory());
+                } else {
+                    assertTrue(indexPath.toFile().isDirectory());
+                }
+            }
+        } else {
+            Path indexPath = Path.of(env.getDataRootPath(), IndexDatabase.INDEX_DIR);
+            assertFalse(indexPath.toFile().isDirectory());
+        }
+    }
 }
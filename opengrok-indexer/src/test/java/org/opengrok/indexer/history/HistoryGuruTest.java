@@ -45,7 +45,11 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -522,6 +526,26 @@ class HistoryGuruTest {
         repository.setHistoryCacheEnabled(true);
     }
 
+    /**
+     * Test that the asynchronous history cache creation produces future for each repository
+     * and that the repositories are marked as done once the futures complete.
+     */
+    @Test
+    void testCreateHistoryCacheAsync() throws Exception {
+        HistoryGuru instance = HistoryGuru.getInstance();
+        Map<Repository, CompletableFuture<Optional<Exception>>> futures = new HashMap<>();
+        CompletableFuture<Void> done = instance.createHistoryCacheAsync(futures);
+        assertEquals(instance.getRepositories().size(), futures.size());
+        for (Map.Entry<Repository, CompletableFuture<Optional<Exception>>> entry : futures.entrySet()) {
+            assertNotNull(entry.getValue().get());
+            assertTrue(instance.isHistoryIndexDone(entry.getKey()));
+        }
+        done.get();
+
+        File file = Path.of(repository.getSourceRoot(), "git", "main.c").toFile();
+        assertNotNull(instance.getHistory(file, false, false, false));
+    }
+
     /**
      * Test that it is not possible to get last history entries for repository
      * that does not have the merge changesets enabled.
@@ -33,6 +33,7 @@ import org.opengrok.indexer.analysis.AnalyzerGuru;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -44,6 +45,7 @@ class IndexAnalysisSettingsUpgraderTest {
     private static final String PROJECT_NAME = "foo-1-2-3";
     private static final long ANALYZER_GURU_VERSION = 3;
     private static final int TABSIZE = 17;
+    private static final String XREF_MODE = "file.gz";
     private static final Map<String, IndexedSymlink> TEST_MAPPED_SYMLINKS;
 
     static {
@@ -64,6 +66,7 @@ class IndexAnalysisSettingsUpgraderTest {
         obj.setProjectName(PROJECT_NAME);
         obj.setTabSize(TABSIZE);
         obj.setIndexedSymlinks(TEST_MAPPED_SYMLINKS);
+        obj.setXrefMode(XREF_MODE);
         byte[] bin = obj.serialize();
 
         IndexAnalysisSettingsUpgrader upgrader = new IndexAnalysisSettingsUpgrader();
@@ -91,6 +94,7 @@ class IndexAnalysisSettingsUpgraderTest {
         assertArrayEquals(getMapValues(TEST_MAPPED_SYMLINKS, expectedSymlinkKeys),
                 getMapValues(vLatest.getIndexedSymlinks(), expectedSymlinkKeys),
                 "index symlinks values should be equal");
+        assertEquals(XREF_MODE, vLatest.getXrefMode(), "should have same xrefMode");
     }
 
     @Test
@@ -113,6 +117,7 @@ class IndexAnalysisSettingsUpgraderTest {
         assertEquals(v3.getAnalyzersVersions().size(), actAnalyzersVersionNos.size(),
                 "should have expected analyzer versions");
         assertTrue(v3.getIndexedSymlinks().isEmpty(), "should have no indexedSymlinks");
+        assertNull(v3.getXrefMode(), "should have no xrefMode");
     }
 
     @Test
@@ -42,13 +42,24 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
 
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.FSDirectory;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -57,12 +68,15 @@ import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.Mockito;
+import org.opengrok.indexer.analysis.Definitions;
 import org.opengrok.indexer.configuration.Configuration;
 import org.opengrok.indexer.configuration.Project;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
 import org.opengrok.indexer.history.RepositoryFactory;
+import org.opengrok.indexer.search.QueryBuilder;
 import org.opengrok.indexer.util.FileUtilities;
 import org.opengrok.indexer.util.TestRepository;
+import org.opengrok.indexer.web.Util;
 
 /**
  * Verify index check.
@@ -311,4 +325,139 @@ class IndexCheckTest {
         // cleanup
         Files.move(tempPath, originPath);
     }
+
+    /**
+     * Create index with documents for given paths (relative to source root, with leading slash).
+     */
+    private static void createIndex(Path indexPath, List<String> paths, Definitions defs) throws IOException {
+        try (FSDirectory directory = FSDirectory.open(indexPath);
+             IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+            for (String path : paths) {
+                Document doc = new Document();
+                doc.add(new StringField(QueryBuilder.U, Util.path2uid(path, "20240101000000000"), Field.Store.YES));
+                doc.add(new StoredField(QueryBuilder.TAGS, defs.serialize()));
+                writer.addDocument(doc);
+            }
+        }
+    }
+
+    /**
+     * Check that document check can be performed on a random sample of the documents
+     * and the results are reflected in the report.
+     */
+    @Test
+    void testDocumentsCheckSample(@TempDir Path tempDir) throws Exception {
+        Path sourceRoot = Files.createDirectory(tempDir.resolve("src"));
+        Path dataRoot = Files.createDirectory(tempDir.resolve("data"));
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Files.createFile(sourceRoot.resolve("file" + i + ".txt"));
+            paths.add("/file" + i + ".txt");
+        }
+        createIndex(Path.of(dataRoot.toString(), IndexDatabase.INDEX_DIR), paths, new Definitions());
+
+        configuration.setSourceRoot(sourceRoot.toString());
+        configuration.setDataRoot(dataRoot.toString());
+        configuration.setProjectsEnabled(false);
+        try (IndexCheck indexCheck = new IndexCheck(configuration, null, 50)) {
+            assertDoesNotThrow(() -> indexCheck.check(IndexCheck.IndexCheckMode.DOCUMENTS));
+            IndexCheckReport report = indexCheck.getReport();
+            assertNotNull(report);
+            assertTrue(report.isPassed());
+            assertEquals(1, report.getResults().size());
+            IndexCheckReport.Result result = report.getResults().get(0);
+            assertEquals(10, result.getDocumentsTotal());
+            assertEquals(5, result.getDocumentsChecked());
+            assertEquals(0, result.getFailures());
+            assertNotNull(result.getFailureRateUpperBound());
+            assertTrue(result.getFailureRateUpperBound() > 0 && result.getFailureRateUpperBound() < 1);
+        }
+
+        // With all documents checked, the missing file has to be detected.
+        Files.delete(sourceRoot.resolve("file3.txt"));
+        try (IndexCheck indexCheck = new IndexCheck(configuration, null, 100)) {
+            assertThrows(IndexCheckException.class, () -> indexCheck.check(IndexCheck.IndexCheckMode.DOCUMENTS));
+            IndexCheckReport report = indexCheck.getReport();
+            assertNotNull(report);
+            assertFalse(report.isPassed());
+            IndexCheckReport.Result result = report.getResults().get(0);
+            assertEquals(10, result.getDocumentsChecked());
+            assertEquals(1, result.getFailures());
+            assertEquals(List.of(sourceRoot.resolve("file3.txt").toString()), result.getFailedPaths());
+            assertNull(result.getFailureRateUpperBound());
+            assertTrue(report.toJSON().contains("\"failedPaths\""));
+        }
+    }
+
+    /**
+     * Check that duplicate documents are counted only if their path was sampled.
+     */
+    @Test
+    void testDocumentsCheckSampleDuplicates(@TempDir Path tempDir) throws Exception {
+        Path sourceRoot = Files.createDirectory(tempDir.resolve("src"));
+        Path dataRoot = Files.createDirectory(tempDir.resolve("data"));
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Files.createFile(sourceRoot.resolve("file" + i + ".txt"));
+            paths.add("/file" + i + ".txt");
+        }
+        paths.add("/file0.txt");
+        createIndex(Path.of(dataRoot.toString(), IndexDatabase.INDEX_DIR), paths, new Definitions());
+
+        configuration.setSourceRoot(sourceRoot.toString());
+        configuration.setDataRoot(dataRoot.toString());
+        configuration.setProjectsEnabled(false);
+        Path duplicatePath = Path.of("/file0.txt");
+
+        // The duplicate path is not in the sample.
+        try (IndexCheck indexCheck = Mockito.spy(new IndexCheck(configuration, null, 50))) {
+            doAnswer(invocation -> ((List<?>) invocation.getArgument(0)).stream().
+                    filter(path -> !path.equals(duplicatePath)).
+                    collect(Collectors.toList())).
+                    when(indexCheck).sample(anyList());
+            assertDoesNotThrow(() -> indexCheck.check(IndexCheck.IndexCheckMode.DOCUMENTS));
+            IndexCheckReport.Result result = indexCheck.getReport().getResults().get(0);
+            assertEquals(11, result.getDocumentsTotal());
+            assertEquals(9, result.getDocumentsChecked());
+            assertEquals(0, result.getFailures());
+        }
+
+        // One of the duplicate documents is in the sample.
+        try (IndexCheck indexCheck = Mockito.spy(new IndexCheck(configuration, null, 50))) {
+            doAnswer(invocation -> ((List<?>) invocation.getArgument(0)).subList(0, 5)).
+                    when(indexCheck).sample(anyList());
+            assertThrows(IndexCheckException.class, () -> indexCheck.check(IndexCheck.IndexCheckMode.DOCUMENTS));
+            IndexCheckReport.Result result = indexCheck.getReport().getResults().get(0);
+            assertEquals(5, result.getDocumentsChecked());
+            assertEquals(1, result.getFailures());
+            assertEquals(List.of(duplicatePath.toString()), result.getFailedPaths());
+        }
+    }
+
+    @Test
+    void testGetDefinitions(@TempDir Path tempDir) throws Exception {
+        Definitions defs = new Definitions();
+        defs.addTag(1, "main", "function", "int main(void)", 0, 0);
+        createIndex(tempDir, List.of("/foo/bar.c", "/foo/bar.c.orig"), defs);
+        try (IndexReader indexReader = IndexCheck.getIndexReader(tempDir)) {
+            Definitions found = IndexCheck.getDefinitions(indexReader, "/foo/bar.c");
+            assertNotNull(found);
+            assertTrue(found.hasSymbol("main"));
+            assertNull(IndexCheck.getDefinitions(indexReader, "/foo/bar"));
+        }
+    }
+
+    @Test
+    void testFailureRateUpperBound() {
+        assertEquals(1.0, IndexCheckReport.getFailureRateUpperBound(0, 0));
+        // Should be close to the "rule of three" (3/n) for no failures.
+        assertEquals(0.037, IndexCheckReport.getFailureRateUpperBound(0, 100), 0.001);
+        assertEquals(1.0, IndexCheckReport.getFailureRateUpperBound(10, 10), 0.001);
+    }
+
+    @Test
+    void testInvalidSamplePercent() {
+        assertThrows(IllegalArgumentException.class, () -> new IndexCheck(configuration, null, 0));
+        assertThrows(IllegalArgumentException.class, () -> new IndexCheck(configuration, null, 101));
+    }
 }
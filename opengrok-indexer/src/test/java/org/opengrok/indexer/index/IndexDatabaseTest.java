@@ -46,9 +46,13 @@ import java.util.stream.Stream;
 import org.apache.commons.lang3.SystemUtils;
 import org.apache.lucene.document.DateTools;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.MergeCommand;
@@ -62,6 +66,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.jetbrains.annotations.Nullable;
 import org.opengrok.indexer.analysis.Definitions;
 import org.opengrok.indexer.condition.EnabledForRepository;
 import org.opengrok.indexer.configuration.CommandTimeoutType;
@@ -86,6 +91,7 @@ import org.opengrok.indexer.util.IOUtils;
 import org.opengrok.indexer.util.TandemPath;
 import org.opengrok.indexer.util.TestRepository;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
@@ -94,6 +100,7 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -813,6 +820,7 @@ class IndexDatabaseTest {
 
         // Emulate forcing reindex from scratch.
         doReturn(false).when(idb).checkSettings(any(), any());
+        doReturn(false).when(idb).isAnalysisSettingsCurrent();
 
         // Setup and use listener for the "removed" files.
         AddRemoveFilesListener listener = new AddRemoveFilesListener();
@@ -1198,4 +1206,172 @@ class IndexDatabaseTest {
         String fileDate = DateTools.timeToString(barFile.lastModified(), DateTools.Resolution.MILLISECOND);
         assertEquals(fileDate, docDate);
     }
+
+    /**
+     * If the history of a file changed while its contents and modification time did not, the history based
+     * reindex should refresh just the history related fields of the document and keep the fields produced
+     * by the analysis.
+     */
+    @Test
+    void testMetadataRefresh() throws Exception {
+        env.setHistoryBasedReindex(true);
+        Project gitProject = env.getProjects().get("git");
+        gitProject.completeWithDefaults();
+
+        File repositoryRoot = new File(repository.getSourceRoot(), "git");
+        File file = new File(repositoryRoot, "main.c");
+        env.maybeRefreshIndexSearchers();
+        Document docBefore = IndexDatabase.getDocument(file);
+        assertNotNull(docBefore);
+        assertNotNull(docBefore.getField(QueryBuilder.TAGS));
+        assertNotNull(docBefore.get(QueryBuilder.NUML));
+        assertNotNull(docBefore.get(QueryBuilder.LOC));
+
+        // Change the file and revert the change so that only the history of the file is different.
+        byte[] contents = Files.readAllBytes(file.toPath());
+        long lastModified = file.lastModified();
+        RevCommit revertCommit;
+        try (Git git = Git.open(repositoryRoot)) {
+            RevCommit commit = changeFileAndCommit(git, file, "change main.c");
+            revertCommit = git.revert().include(commit).call();
+        }
+        assertArrayEquals(contents, Files.readAllBytes(file.toPath()));
+        assertTrue(file.setLastModified(lastModified));
+
+        HistoryGuru.getInstance().clear();
+        indexer.prepareIndexer(
+                env, true, true,
+                List.of("/git"), null);
+        env.generateProjectRepositoriesMap();
+
+        IndexDatabase idb = spy(new IndexDatabase(gitProject));
+        List<Document> refreshedDocs = new ArrayList<>();
+        doAnswer(invocation -> {
+            Document storedDoc = (Document) invocation.callRealMethod();
+            if (storedDoc != null) {
+                refreshedDocs.add(storedDoc);
+            }
+            return storedDoc;
+        }).when(idb).getDocumentForMetadataRefresh(any(), any());
+        idb.update();
+        checkIndexDown(true, idb);
+        assertEquals(1, refreshedDocs.size());
+        assertEquals(docBefore.get(QueryBuilder.U), refreshedDocs.get(0).get(QueryBuilder.U));
+
+        env.maybeRefreshIndexSearchers();
+        Document docAfter = IndexDatabase.getDocument(file);
+        assertNotNull(docAfter);
+        assertEquals(docBefore.get(QueryBuilder.U), docAfter.get(QueryBuilder.U));
+
+        // The fields produced by the analysis are kept.
+        Definitions defsBefore = Definitions.deserialize(docBefore.getField(QueryBuilder.TAGS).binaryValue().bytes);
+        Definitions defsAfter = Definitions.deserialize(docAfter.getField(QueryBuilder.TAGS).binaryValue().bytes);
+        assertEquals(defsBefore.getSymbols(), defsAfter.getSymbols());
+        assertEquals(defsBefore.getTags().size(), defsAfter.getTags().size());
+        assertEquals(getBinaryValue(docBefore, QueryBuilder.SCOPES), getBinaryValue(docAfter, QueryBuilder.SCOPES));
+        assertEquals(docBefore.get(QueryBuilder.NUML), docAfter.get(QueryBuilder.NUML));
+        assertEquals(docBefore.get(QueryBuilder.LOC), docAfter.get(QueryBuilder.LOC));
+
+        // The history related fields are refreshed.
+        assertNotEquals(docBefore.get(QueryBuilder.LASTREV), docAfter.get(QueryBuilder.LASTREV));
+        assertEquals(revertCommit.getId().getName(), docAfter.get(QueryBuilder.LASTREV));
+        SearchEngine instance = new SearchEngine();
+        instance.setHistory("Revert");
+        instance.setFile("main.c");
+        instance.search();
+        List<String> paths = new ArrayList<>();
+        for (ScoreDoc sd : instance.scoreDocs()) {
+            paths.add(instance.doc(sd.doc).get(QueryBuilder.PATH));
+        }
+        instance.destroy();
+        assertTrue(paths.contains("/git/main.c"), "the document should be found by the new history entry");
+    }
+
+    /**
+     * Run history based reindex of the project.
+     * @param project project
+     * @return the index database used for the reindex
+     */
+    private IndexDatabase updateHistoryBased(Project project) throws Exception {
+        HistoryGuru.getInstance().clear();
+        indexer.prepareIndexer(
+                env, true, true,
+                List.of("/" + project.getName()), null);
+        env.generateProjectRepositoriesMap();
+
+        IndexDatabase idb = spy(new IndexDatabase(project));
+        idb.update();
+        checkIndexDown(true, idb);
+        return idb;
+    }
+
+    /**
+     * Turning the xref generation off and on between history based reindex runs should remove
+     * and re-create the xref files of the files that did not change.
+     */
+    @Test
+    void testHistoryBasedReindexVsGenerateHtml() throws Exception {
+        env.setHistoryBasedReindex(true);
+        Project gitProject = env.getProjects().get("git");
+        gitProject.completeWithDefaults();
+
+        File xrefFile = new File(env.getDataRootFile(), Path.of(IndexDatabase.XREF_DIR, "git",
+                env.isCompressXref() ? "main.c.gz" : "main.c").toString());
+        assertTrue(xrefFile.exists());
+        try {
+            env.setGenerateHtml(false);
+            updateHistoryBased(gitProject);
+            assertFalse(xrefFile.exists());
+
+            env.setGenerateHtml(true);
+            updateHistoryBased(gitProject);
+            assertTrue(xrefFile.exists());
+        } finally {
+            env.setGenerateHtml(true);
+        }
+    }
+
+    /**
+     * History based reindex should compact sparse xref packs even if no file changed.
+     */
+    @Test
+    void testHistoryBasedReindexCompactsXrefPacks() throws Exception {
+        env.setHistoryBasedReindex(true);
+        Project gitProject = env.getProjects().get("git");
+        gitProject.completeWithDefaults();
+        Path indexPath = Path.of(env.getDataRootPath(), IndexDatabase.INDEX_DIR, "git");
+        try {
+            env.setXrefPack(true);
+            // Move the xref data of all the files to a pack.
+            updateHistoryBased(gitProject);
+
+            // Re-add all the documents except one so that the pack becomes sparse.
+            HistoryGuru.getInstance().clear();
+            indexer.prepareIndexer(
+                    env, true, true,
+                    List.of("/git"), null);
+            env.generateProjectRepositoriesMap();
+            IndexDatabase idb = spy(new IndexDatabase(gitProject));
+            doReturn(false).when(idb).isAnalysisSettingsCurrent();
+            doAnswer(invocation -> "/git/header.h".equals(invocation.getArgument(1)) &&
+                    (boolean) invocation.callRealMethod()).when(idb).checkSettings(any(), any());
+            idb.update();
+            try (IndexReader reader = DirectoryReader.open(FSDirectory.open(indexPath))) {
+                assertFalse(XrefPack.getPacksToCompact(reader, env.getDataRootFile(), gitProject).isEmpty());
+            }
+
+            updateHistoryBased(gitProject);
+            try (IndexReader reader = DirectoryReader.open(FSDirectory.open(indexPath))) {
+                assertTrue(XrefPack.getPacksToCompact(reader, env.getDataRootFile(), gitProject).isEmpty());
+            }
+        } finally {
+            env.setXrefPack(false);
+        }
+    }
+
+    @Nullable
+    private static BytesRef getBinaryValue(Document doc, String fieldName) {
+        IndexableField field = doc.getField(fieldName);
+        return field == null ? null : field.binaryValue();
+    }
 }
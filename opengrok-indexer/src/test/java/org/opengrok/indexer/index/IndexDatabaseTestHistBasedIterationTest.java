@@ -24,9 +24,11 @@ package org.opengrok.indexer.index;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.lucene.document.DateTools;
+import org.apache.lucene.document.Document;
 import org.apache.lucene.index.ImpactsEnum;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermState;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.util.AttributeSource;
@@ -36,6 +38,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InOrder;
 import org.mockito.Mockito;
+import org.opengrok.indexer.configuration.IgnoredNames;
 import org.opengrok.indexer.configuration.Project;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
 import org.opengrok.indexer.history.FileCollector;
@@ -57,10 +60,12 @@ import java.util.stream.Stream;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.when;
 
 public class IndexDatabaseTestHistBasedIterationTest {
@@ -82,7 +87,7 @@ public class IndexDatabaseTestHistBasedIterationTest {
      * Fake TermsEnum class that supplies certain order of next() and term() values in order to
      * test history based indexing, specifically the uid traversal in
      * {@link IndexDatabase#processFileHistoryBased(IndexDownArgs, File, String)}.
-     * Implements just {@link TermsEnum#term()} and {@link TermsEnum#next()}.
+     * Implements just {@link TermsEnum#term()}, {@link TermsEnum#next()} and {@link TermsEnum#seekCeil(BytesRef)}.
      */
     private static class CustomTermsEnum extends TermsEnum {
 
@@ -111,7 +116,13 @@ public class IndexDatabaseTestHistBasedIterationTest {
 
         @Override
         public SeekStatus seekCeil(BytesRef bytesRef) throws IOException {
-            return null;
+            while (!dequeue.isEmpty() && dequeue.peekFirst().compareTo(bytesRef) < 0) {
+                dequeue.pollFirst();
+            }
+            if (dequeue.isEmpty()) {
+                return SeekStatus.END;
+            }
+            return dequeue.peekFirst().bytesEquals(bytesRef) ? SeekStatus.FOUND : SeekStatus.NOT_FOUND;
         }
 
         @Override
@@ -228,6 +239,76 @@ public class IndexDatabaseTestHistBasedIterationTest {
                 () -> indexDatabase.processFileHistoryBased(args, file, relativePathWithLeadingSlash));
     }
 
+    /**
+     * If the uid of a changed file matches the pre-existing document (i.e. the contents did not change),
+     * the document should be refreshed rather than removed and added again.
+     */
+    @Test
+    void testMetadataRefresh() throws Exception {
+        final Path relativePath = Path.of("foo", "bar.txt");
+        final String relativePathWithLeadingSlash = File.separator + relativePath;
+        final Path path = Path.of(sourceRoot.toString(), relativePath.toString());
+        File file = path.toFile();
+        file.getParentFile().mkdirs();
+        Files.createFile(path);
+
+        TermsEnum uidIter = new CustomTermsEnum(Stream.of(
+                Pair.of(relativePathWithLeadingSlash,
+                        DateTools.timeToString(file.lastModified(), DateTools.Resolution.MILLISECOND))
+        ));
+        IndexWriter indexWriter = Mockito.mock(IndexWriter.class);
+        IndexDatabase indexDatabase = Mockito.spy(new IndexDatabase(null, uidIter, indexWriter));
+        Document storedDoc = new Document();
+        doReturn(storedDoc).when(indexDatabase).getDocumentForMetadataRefresh(file, relativePathWithLeadingSlash);
+        IndexDownArgs args = new IndexDownArgs();
+
+        indexDatabase.processFileHistoryBased(args, file, relativePathWithLeadingSlash);
+        assertEquals(1, args.works.size());
+        assertEquals(file, args.works.get(0).file);
+        assertSame(storedDoc, args.works.get(0).storedDoc);
+        Mockito.verifyNoInteractions(indexWriter);
+        assertNull(uidIter.term());
+    }
+
+    /**
+     * If the file whose contents did not change became ignored, its document should be removed
+     * rather than refreshed.
+     */
+    @Test
+    void testMetadataRefreshOfIgnoredFile() throws Exception {
+        final Path relativePath = Path.of("foo", "bar.txt");
+        final String relativePathWithLeadingSlash = File.separator + relativePath;
+        final Path path = Path.of(sourceRoot.toString(), relativePath.toString());
+        File file = path.toFile();
+        file.getParentFile().mkdirs();
+        Files.createFile(path);
+
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        IgnoredNames ignoredNamesOrig = env.getIgnoredNames();
+        IgnoredNames ignoredNames = new IgnoredNames();
+        ignoredNames.add("f:bar.txt");
+        env.setIgnoredNames(ignoredNames);
+        try {
+            TermsEnum uidIter = new CustomTermsEnum(Stream.of(
+                    Pair.of(relativePathWithLeadingSlash,
+                            DateTools.timeToString(file.lastModified(), DateTools.Resolution.MILLISECOND))
+            ));
+            IndexWriter indexWriter = Mockito.mock(IndexWriter.class);
+            IndexDatabase indexDatabase = Mockito.spy(new IndexDatabase(null, uidIter, indexWriter));
+            doReturn(new Document()).when(indexDatabase).
+                    getDocumentForMetadataRefresh(file, relativePathWithLeadingSlash);
+            IndexDownArgs args = new IndexDownArgs();
+
+            indexDatabase.processFileHistoryBased(args, file, relativePathWithLeadingSlash);
+            assertTrue(args.works.isEmpty());
+            Mockito.verify(indexDatabase, Mockito.never()).
+                    getDocumentForMetadataRefresh(file, relativePathWithLeadingSlash);
+            Mockito.verify(indexWriter).deleteDocuments(any(Term.class));
+        } finally {
+            env.setIgnoredNames(ignoredNamesOrig);
+        }
+    }
+
     /**
      * Verify that the files acquired from a FileCollector are passed to the
      * {@link IndexDatabase#processFileHistoryBased(IndexDownArgs, File, String)} in the correct order.
@@ -281,4 +362,45 @@ public class IndexDatabaseTestHistBasedIterationTest {
         }
         assertEquals(expectedPaths.size(), args.works.size());
     }
+
+    /**
+     * Verify that with current analysis settings the history based reindex skips over the uid terms
+     * of the files that were not changed.
+     */
+    @Test
+    void testSeekingUids() throws Exception {
+        final String projectName = "foo";
+        Project project = Mockito.mock(Project.class);
+        when(project.getName()).thenReturn(projectName);
+        when(project.getPath()).thenReturn(projectName); // Project path is not relevant.
+
+        final Path changedPathRelative = Path.of("b", "changed.c");
+        Path changedPath = Path.of(sourceRoot.toString(), changedPathRelative.toString());
+        changedPath.toFile().getParentFile().mkdirs();
+        Files.createFile(changedPath);
+
+        FileCollector fileCollector = Mockito.mock(FileCollector.class);
+        when(fileCollector.getFiles()).thenReturn(Set.of(File.separator + changedPathRelative));
+        RuntimeEnvironment.getInstance().setFileCollector(projectName, fileCollector);
+
+        String date = DateTools.timeToString(123L, DateTools.Resolution.MILLISECOND);
+        final String lastPath = File.separator + Path.of("c", "3.c");
+        TermsEnum uidIter = new CustomTermsEnum(Stream.of(
+                Pair.of(File.separator + Path.of("a", "1.c"), date),
+                Pair.of(File.separator + Path.of("a", "2.c"), date),
+                Pair.of(File.separator + changedPathRelative, date),
+                Pair.of(lastPath, date)
+        ));
+        IndexWriter indexWriter = Mockito.mock(IndexWriter.class);
+        IndexDatabase indexDatabase = Mockito.spy(new IndexDatabase(project, uidIter, indexWriter));
+        doReturn(true).when(indexDatabase).isAnalysisSettingsCurrent();
+        IndexDownArgs args = new IndexDownArgs();
+
+        indexDatabase.indexDownUsingHistory(sourceRoot.toFile(), args);
+        assertEquals(1, args.works.size());
+        assertEquals(changedPath.toFile(), args.works.get(0).file);
+        // Only the term of the changed file should have been visited, the iterator stops at the next term.
+        assertEquals(1, indexDatabase.getUidTermsVisited());
+        assertEquals(Util.path2uid(Util.fixPathIfWindows(lastPath), date), uidIter.term().utf8ToString());
+    }
 }
@@ -0,0 +1,129 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opengrok.indexer.search.QueryBuilder;
+import org.opengrok.indexer.web.Util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Represents a container for tests of {@link IndexFileWalker}.
+ */
+class IndexFileWalkerTest {
+
+    private static final String DATE = "20240101000000000";
+
+    private Directory directory;
+    private IndexReader reader;
+
+    private static Document createDocument(String path) {
+        Document doc = new Document();
+        doc.add(new StringField(QueryBuilder.U, Util.path2uid(path, DATE), Field.Store.YES));
+        return doc;
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = new ByteBuffersDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+            for (String path : List.of("/foo/a.c", "/foo/b.c", "/foo/bar/c.c", "/foo/bar/d.c",
+                    "/foo/barbaz/e.c", "/foo/deleted.c", "/zoo/f.c")) {
+                writer.addDocument(createDocument(path));
+            }
+            writer.deleteDocuments(new Term(QueryBuilder.U, Util.path2uid("/foo/deleted.c", DATE)));
+        }
+        reader = DirectoryReader.open(directory);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        reader.close();
+        directory.close();
+    }
+
+    private List<String> walk(String prefix, String after, int limit, List<String> lastHolder) throws IOException {
+        List<String> paths = new ArrayList<>();
+        lastHolder.add(IndexFileWalker.walk(reader, prefix, after, limit, paths::add));
+        return paths;
+    }
+
+    @Test
+    void testWalkAll() throws IOException {
+        List<String> last = new ArrayList<>();
+        assertEquals(List.of("/foo/a.c", "/foo/b.c", "/foo/bar/c.c", "/foo/bar/d.c", "/foo/barbaz/e.c", "/zoo/f.c"),
+                walk(null, null, 0, last));
+        assertNull(last.get(0));
+    }
+
+    @Test
+    void testWalkPrefix() throws IOException {
+        List<String> last = new ArrayList<>();
+        assertEquals(List.of("/foo/bar/c.c", "/foo/bar/d.c"), walk("/foo/bar/", null, 0, last));
+        assertEquals(List.of("/foo/bar/c.c", "/foo/bar/d.c", "/foo/barbaz/e.c"), walk("/foo/bar", null, 0, last));
+        assertEquals(List.of(), walk("/nonexistent/", null, 0, last));
+        assertNull(last.get(0));
+    }
+
+    @Test
+    void testWalkPages() throws IOException {
+        List<String> paths = new ArrayList<>();
+        String after = null;
+        int pages = 0;
+        do {
+            List<String> last = new ArrayList<>();
+            List<String> page = walk("/foo/", after, 2, last);
+            paths.addAll(page);
+            after = last.get(0);
+            pages++;
+        } while (after != null);
+
+        assertEquals(3, pages);
+        assertEquals(List.of("/foo/a.c", "/foo/b.c", "/foo/bar/c.c", "/foo/bar/d.c", "/foo/barbaz/e.c"), paths);
+    }
+
+    @Test
+    void testWalkExactLimit() throws IOException {
+        List<String> last = new ArrayList<>();
+        assertEquals(List.of("/foo/bar/c.c", "/foo/bar/d.c"), walk("/foo/bar/", null, 2, last));
+        assertNull(last.get(0));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opengrok.indexer.search.QueryBuilder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Represents a container for tests of {@link IndexReaderCache}.
+ */
+class IndexReaderCacheTest {
+
+    private static void addDocument(IndexWriter writer, String path) throws IOException {
+        Document doc = new Document();
+        doc.add(new StringField(QueryBuilder.PATH, path, Field.Store.YES));
+        writer.addDocument(doc);
+        writer.commit();
+    }
+
+    @Test
+    void testReuseAndRefresh(@TempDir Path indexPath) throws IOException {
+        try (FSDirectory directory = FSDirectory.open(indexPath);
+             IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+            addDocument(writer, "/foo/a.c");
+
+            IndexReaderCache cache = new IndexReaderCache();
+            cache.enable();
+            DirectoryReader reader1 = cache.acquire(indexPath);
+            DirectoryReader reader2 = cache.acquire(indexPath);
+            assertSame(reader1, reader2);
+            assertEquals(1, reader1.numDocs());
+            cache.release(reader2);
+            assertEquals(1, cache.size());
+
+            addDocument(writer, "/foo/b.c");
+            DirectoryReader reader3 = cache.acquire(indexPath);
+            assertNotSame(reader1, reader3);
+            assertEquals(2, reader3.numDocs());
+            // The previous reader stays open until released.
+            assertEquals(1, reader1.numDocs());
+            cache.release(reader1);
+            assertEquals(0, reader1.getRefCount());
+
+            cache.close();
+            assertEquals(0, cache.size());
+            assertEquals(1, reader3.getRefCount());
+            cache.release(reader3);
+            assertEquals(0, reader3.getRefCount());
+        }
+    }
+
+    @Test
+    void testDisabled(@TempDir Path indexPath) throws IOException {
+        try (FSDirectory directory = FSDirectory.open(indexPath);
+             IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+            addDocument(writer, "/foo/a.c");
+        }
+
+        IndexReaderCache cache = new IndexReaderCache();
+        DirectoryReader reader1 = cache.acquire(indexPath);
+        DirectoryReader reader2 = cache.acquire(indexPath);
+        assertNotSame(reader1, reader2);
+        cache.release(reader1);
+        cache.release(reader2);
+        assertEquals(0, reader1.getRefCount());
+        assertEquals(0, reader2.getRefCount());
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Represents a container for tests of {@link IndexerProfiler}.
+ */
+class IndexerProfilerTest {
+
+    @AfterEach
+    void tearDown() {
+        IndexerProfiler.stop();
+    }
+
+    private static void profileFile(String path, String analyzer, long sleepMillis) throws InterruptedException {
+        IndexerProfiler.beginFile(path, analyzer);
+        try {
+            long analysisBegin = IndexerProfiler.begin();
+            long ctagsBegin = IndexerProfiler.begin();
+            Thread.sleep(sleepMillis);
+            IndexerProfiler.end(IndexerProfiler.CTAGS, ctagsBegin);
+            IndexerProfiler.end(IndexerProfiler.ANALYSIS, analysisBegin);
+            IndexerProfiler.end(IndexerProfiler.ADD_DOCUMENT, IndexerProfiler.begin());
+        } finally {
+            IndexerProfiler.endFile();
+        }
+    }
+
+    @Test
+    void testDisabled() throws InterruptedException {
+        assertNull(IndexerProfiler.stop());
+        assertEquals(0, IndexerProfiler.begin());
+        profileFile("/foo.c", "CAnalyzer", 0);
+        IndexerProfiler.end(IndexerProfiler.TRAVERSAL, IndexerProfiler.begin(), "/", "file-system");
+        assertNull(IndexerProfiler.stop());
+    }
+
+    @Test
+    void testReport() throws Exception {
+        IndexerProfiler profiler = IndexerProfiler.start(2);
+        profileFile("/a.c", "CAnalyzer", 1);
+        profileFile("/b.c", "CAnalyzer", 30);
+        profileFile("/c.java", "JavaAnalyzer", 10);
+        IndexerProfiler.end(IndexerProfiler.TRAVERSAL, IndexerProfiler.begin(), "/", "file-system");
+        assertSame(profiler, IndexerProfiler.stop());
+
+        List<IndexerProfiler.PhaseReport> phases = profiler.getPhases();
+        assertEquals(List.of(IndexerProfiler.CTAGS, IndexerProfiler.ANALYSIS, IndexerProfiler.ADD_DOCUMENT,
+                IndexerProfiler.TRAVERSAL),
+                phases.stream().map(IndexerProfiler.PhaseReport::getPhase).collect(Collectors.toList()));
+
+        IndexerProfiler.PhaseReport ctags = phases.get(0);
+        assertEquals(3, ctags.getTotal().getCount());
+        assertEquals(2, ctags.getByAnalyzer().get("CAnalyzer").getCount());
+        assertEquals(1, ctags.getByAnalyzer().get("JavaAnalyzer").getCount());
+        assertTrue(ctags.getTotal().getMaxMillis() >= 30);
+        assertTrue(ctags.getTotal().getP50Millis() >= 10);
+        assertTrue(ctags.getTotal().getP50Millis() < ctags.getTotal().getMaxMillis());
+        assertEquals(List.of("/b.c", "/c.java"),
+                ctags.getSlowest().stream().map(IndexerProfiler.Sample::getName).collect(Collectors.toList()));
+
+        // Analysis does not include the nested ctags phase.
+        IndexerProfiler.PhaseReport analysis = phases.get(1);
+        assertTrue(analysis.getTotal().getTotalMillis() < ctags.getTotal().getTotalMillis());
+
+        List<String> folded = profiler.getFolded();
+        assertEquals(7, folded.size());
+        assertTrue(folded.stream().anyMatch(s -> s.matches("indexer;ctags;CAnalyzer \\d+")), folded.toString());
+        assertTrue(folded.stream().anyMatch(s -> s.startsWith("indexer;traversal;file-system ")));
+
+        JsonNode json = new ObjectMapper().readTree(profiler.toJSON());
+        assertEquals(IndexerProfiler.CTAGS, json.get("phases").get(0).get("phase").asText());
+        assertEquals(3, json.get("phases").get(0).get("total").get("count").asInt());
+        assertEquals(2, json.get("phases").get(0).get("slowest").size());
+        assertEquals(7, json.get("folded").size());
+    }
+
+    @Test
+    void testNestedPhasesNotCountedTwice() throws InterruptedException {
+        IndexerProfiler profiler = IndexerProfiler.start(1);
+        long fileBegin = System.nanoTime();
+        IndexerProfiler.beginFile("/d.c", "CAnalyzer");
+        try {
+            long analysisBegin = IndexerProfiler.begin();
+            long ctagsBegin = IndexerProfiler.begin();
+            Thread.sleep(20);
+            IndexerProfiler.end(IndexerProfiler.CTAGS, ctagsBegin);
+            long xrefBegin = IndexerProfiler.begin();
+            Thread.sleep(20);
+            IndexerProfiler.end(IndexerProfiler.XREF, xrefBegin);
+            IndexerProfiler.end(IndexerProfiler.ANALYSIS, analysisBegin);
+        } finally {
+            IndexerProfiler.endFile();
+        }
+        double elapsedMillis = (System.nanoTime() - fileBegin) / 1_000_000.0;
+        assertSame(profiler, IndexerProfiler.stop());
+
+        // The phases of the report are disjoint so their sum cannot exceed the elapsed time.
+        double sum = profiler.getPhases().stream().mapToDouble(p -> p.getTotal().getTotalMillis()).sum();
+        assertTrue(sum <= elapsedMillis, sum + " > " + elapsedMillis);
+        IndexerProfiler.PhaseReport analysis = profiler.getPhases().stream().
+                filter(p -> p.getPhase().equals(IndexerProfiler.ANALYSIS)).findFirst().orElseThrow();
+        assertTrue(analysis.getTotal().getTotalMillis() < 20, analysis.getTotal().getTotalMillis() + " ms");
+    }
+}
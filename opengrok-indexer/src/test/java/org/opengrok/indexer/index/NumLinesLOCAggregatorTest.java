@@ -23,15 +23,22 @@
 package org.opengrok.indexer.index;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
 
 import org.opengrok.indexer.analysis.AccumulatedNumLinesLOC;
 import org.opengrok.indexer.analysis.NumLinesLOC;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class NumLinesLOCAggregatorTest {
 
@@ -100,4 +107,43 @@ class NumLinesLOCAggregatorTest {
         assertEquals(5, entry.getNumLines(), "counts[2] numLines");
         assertEquals(3, entry.getLOC(), "counts[2] LOC");
     }
+
+    @Test
+    @EnabledOnOs({OS.LINUX, OS.MAC, OS.SOLARIS, OS.AIX, OS.OTHER})
+    void shouldWalkParentsLikeFile() {
+        for (String path : List.of("/a/b/c/f0", "/f0", "a/b", "a", "/", "/a//b/f0", "/a/b/", "//a/f0")) {
+            List<String> expected = new ArrayList<>();
+            File directory = new File(path).getParentFile();
+            while (directory != null && !directory.getPath().isEmpty()) {
+                expected.add(directory.getPath());
+                directory = directory.getParentFile();
+            }
+
+            List<String> parents = new ArrayList<>();
+            NumLinesLOCAggregator.forEachParent(path, parents::add);
+            assertEquals(expected, parents, path);
+        }
+    }
+
+    @Test
+    void shouldAggregateConcurrently() throws InterruptedException {
+        NumLinesLOCAggregator aggtor = new NumLinesLOCAggregator();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        final int files = 10000;
+        for (int i = 0; i < files; i++) {
+            final String path = String.format("/a/d%d/f%d", i % 10, i);
+            executor.submit(() -> aggtor.register(new NumLinesLOC(path, 3, 2)));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        List<AccumulatedNumLinesLOC> counts = new ArrayList<>();
+        aggtor.iterator().forEachRemaining(counts::add);
+        assertEquals(12, counts.size(), "agg count");
+        for (AccumulatedNumLinesLOC entry : counts) {
+            long expectedFiles = entry.getPath().startsWith("/a/d") ? files / 10 : files;
+            assertEquals(3 * expectedFiles, entry.getNumLines(), entry.getPath());
+            assertEquals(2 * expectedFiles, entry.getLOC(), entry.getPath());
+        }
+    }
 }
@@ -0,0 +1,102 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import java.io.IOException;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.Test;
+import org.opengrok.indexer.search.QueryBuilder;
+import org.opengrok.indexer.web.Util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Represents a container for tests of {@link PathDocIdCache}.
+ */
+class PathDocIdCacheTest {
+
+    private static Document newDocument(String path, String date) {
+        Document doc = new Document();
+        doc.add(new StringField(QueryBuilder.U, Util.path2uid(path, date), Field.Store.YES));
+        doc.add(new StringField(QueryBuilder.PATH, path, Field.Store.YES));
+        return doc;
+    }
+
+    private static String getPath(DirectoryReader reader, int docId) throws IOException {
+        return reader.storedFields().document(docId).get(QueryBuilder.PATH);
+    }
+
+    @Test
+    void testLookup() throws IOException {
+        try (Directory directory = new ByteBuffersDirectory()) {
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+                writer.addDocument(newDocument("/foo/main.c", "20240101000000000"));
+                writer.addDocument(newDocument("/foo/main.c/x", "20240101000000000"));
+                writer.addDocument(newDocument("/foo/main", "20240101000000000"));
+                writer.commit();
+                // Replaced document of newer version of the file in another segment.
+                writer.deleteDocuments(new Term(QueryBuilder.U, Util.path2uid("/foo/main", "20240101000000000")));
+                writer.addDocument(newDocument("/foo/main", "20240202000000000"));
+            }
+
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                assertEquals("/foo/main.c", getPath(reader, PathDocIdCache.lookup(reader, "/foo/main.c")));
+                assertEquals("/foo/main", getPath(reader, PathDocIdCache.lookup(reader, "/foo/main")));
+                assertEquals("/foo/main.c/x", getPath(reader, PathDocIdCache.lookup(reader, "/foo/main.c/x")));
+                assertEquals(PathDocIdCache.NOT_FOUND, PathDocIdCache.lookup(reader, "/foo"));
+                assertEquals(PathDocIdCache.NOT_FOUND, PathDocIdCache.lookup(reader, "/foo/mai"));
+                assertEquals(PathDocIdCache.NOT_FOUND, PathDocIdCache.lookup(reader, "/bar"));
+            }
+        }
+    }
+
+    @Test
+    void testCache() throws IOException {
+        PathDocIdCache cache = new PathDocIdCache(1);
+        try (Directory directory = new ByteBuffersDirectory()) {
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+                writer.addDocument(newDocument("/a", "20240101000000000"));
+                writer.addDocument(newDocument("/b", "20240101000000000"));
+            }
+
+            DirectoryReader reader = DirectoryReader.open(directory);
+            assertEquals("/a", getPath(reader, cache.getDocId(reader, "/a")));
+            assertEquals("/b", getPath(reader, cache.getDocId(reader, "/b")));
+            assertEquals("/a", getPath(reader, cache.getDocId(reader, "/a")));
+            assertEquals(PathDocIdCache.NOT_FOUND, cache.getDocId(reader, "/c"));
+            assertEquals(1, cache.size());
+
+            reader.close();
+            assertEquals(0, cache.size());
+        }
+    }
+}
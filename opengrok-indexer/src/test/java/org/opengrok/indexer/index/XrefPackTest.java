@@ -0,0 +1,201 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opengrok.indexer.configuration.Project;
+import org.opengrok.indexer.search.QueryBuilder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Represents a container for tests of {@link XrefPack}.
+ */
+class XrefPackTest {
+
+    private static String read(InputStream in) throws IOException {
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] gzip(String str) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(str.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void testAppendAndRead(@TempDir Path dataRoot) throws IOException {
+        XrefPack pack = XrefPack.create(dataRoot.toFile(), new Project("foo", "/foo"));
+        Document doc1 = new Document();
+        pack.append("<a>first</a>".getBytes(StandardCharsets.UTF_8), doc1);
+        Document doc2 = new Document();
+        pack.append(gzip("<b>second</b>"), doc2);
+        pack.commit();
+
+        assertTrue(XrefPack.hasXref(doc1));
+        assertTrue(new File(dataRoot.toFile(), pack.getRelativePath()).isFile());
+        assertEquals("<a>first</a>", read(XrefPack.getInputStream(dataRoot.toFile(), doc1)));
+        assertEquals("<b>second</b>", read(XrefPack.getInputStream(dataRoot.toFile(), doc2)));
+
+        Document doc3 = new Document();
+        XrefPack.copyFields(doc2, doc3);
+        assertEquals("<b>second</b>", read(XrefPack.getInputStream(dataRoot.toFile(), doc3)));
+
+        assertFalse(XrefPack.hasXref(new Document()));
+        assertNull(XrefPack.getInputStream(dataRoot.toFile(), new Document()));
+    }
+
+    @Test
+    void testRemoveUnreferenced(@TempDir Path dataRoot) throws IOException {
+        XrefPack referencedPack = XrefPack.create(dataRoot.toFile(), null);
+        Document doc = new Document();
+        referencedPack.append("referenced".getBytes(StandardCharsets.UTF_8), doc);
+        referencedPack.commit();
+
+        XrefPack unreferencedPack = XrefPack.create(dataRoot.toFile(), null);
+        unreferencedPack.append("unreferenced".getBytes(StandardCharsets.UTF_8), new Document());
+        unreferencedPack.commit();
+
+        try (Directory directory = new ByteBuffersDirectory()) {
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+                writer.addDocument(doc);
+            }
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                assertEquals(Set.of(referencedPack.getRelativePath()), XrefPack.getReferencedPacks(reader));
+                XrefPack.removeUnreferenced(reader, dataRoot.toFile(), null);
+            }
+        }
+
+        assertTrue(new File(dataRoot.toFile(), referencedPack.getRelativePath()).exists());
+        assertFalse(new File(dataRoot.toFile(), unreferencedPack.getRelativePath()).exists());
+        assertNotNull(XrefPack.getInputStream(dataRoot.toFile(), doc));
+    }
+
+    @Test
+    void testDiscard(@TempDir Path dataRoot) throws IOException {
+        XrefPack pack = XrefPack.create(dataRoot.toFile(), null);
+        pack.append("data".getBytes(StandardCharsets.UTF_8), new Document());
+        File packFile = new File(dataRoot.toFile(), pack.getRelativePath());
+        assertTrue(packFile.exists());
+        pack.discard();
+        assertFalse(packFile.exists());
+    }
+
+    @Test
+    void testGetPacksToCompact(@TempDir Path dataRoot) throws IOException {
+        XrefPack densePack = XrefPack.create(dataRoot.toFile(), null);
+        Document denseDoc = new Document();
+        densePack.append("dense".getBytes(StandardCharsets.UTF_8), denseDoc);
+        densePack.commit();
+
+        XrefPack sparsePack = XrefPack.create(dataRoot.toFile(), null);
+        Document liveDoc = new Document();
+        liveDoc.add(new StringField(QueryBuilder.PATH, "/live", Field.Store.YES));
+        sparsePack.append("live".getBytes(StandardCharsets.UTF_8), liveDoc);
+        Document deletedDoc = new Document();
+        deletedDoc.add(new StringField(QueryBuilder.PATH, "/deleted", Field.Store.YES));
+        sparsePack.append("deleted and replaced".getBytes(StandardCharsets.UTF_8), deletedDoc);
+        sparsePack.commit();
+
+        try (Directory directory = new ByteBuffersDirectory()) {
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+                writer.addDocument(denseDoc);
+                writer.addDocument(liveDoc);
+                writer.addDocument(deletedDoc);
+                writer.commit();
+                writer.deleteDocuments(new Term(QueryBuilder.PATH, "/deleted"));
+            }
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                assertEquals(Map.of(densePack.getRelativePath(), 5L, sparsePack.getRelativePath(), 4L),
+                        XrefPack.getLiveBytes(reader));
+                assertEquals(Set.of(sparsePack.getRelativePath()),
+                        XrefPack.getPacksToCompact(reader, dataRoot.toFile(), null));
+            }
+        }
+    }
+
+    @Test
+    void testConcurrentAppend(@TempDir Path dataRoot) throws Exception {
+        XrefPack pack = XrefPack.create(dataRoot.toFile(), null);
+        int count = 100;
+        List<Document> docs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            docs.add(new Document());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                final int n = i;
+                futures.add(executor.submit(() -> {
+                    pack.append(("xref" + n).getBytes(StandardCharsets.UTF_8), docs.get(n));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        pack.commit();
+
+        for (int i = 0; i < count; i++) {
+            assertEquals("xref" + i, read(XrefPack.getInputStream(dataRoot.toFile(), docs.get(i))));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Represents a container for tests of {@link ContextTasks}.
+ */
+class ContextTasksTest {
+
+    private int savedTimeout;
+
+    @BeforeEach
+    void setUp() {
+        savedTimeout = RuntimeEnvironment.getInstance().getContextTimeout();
+    }
+
+    @AfterEach
+    void tearDown() {
+        RuntimeEnvironment.getInstance().setContextTimeout(savedTimeout);
+    }
+
+    @Test
+    void testOrderAndFailures() {
+        List<Callable<String>> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            int n = i;
+            tasks.add(() -> {
+                if (n == 7) {
+                    throw new IllegalStateException("fail");
+                }
+                Thread.sleep((20 - n) * 2L);
+                return Integer.toString(n);
+            });
+        }
+
+        List<String> results = ContextTasks.invokeAll(tasks, "fallback");
+        assertEquals(20, results.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i == 7 ? "fallback" : Integer.toString(i), results.get(i));
+        }
+    }
+
+    @Test
+    void testTimeout() {
+        RuntimeEnvironment.getInstance().setContextTimeout(1);
+        List<Callable<String>> tasks = List.of(() -> "fast", () -> {
+            Thread.sleep(60_000);
+            return "slow";
+        });
+
+        long start = System.currentTimeMillis();
+        assertEquals(List.of("fast", "timeout"), ContextTasks.invokeAll(tasks, "timeout"));
+        assertTrue(System.currentTimeMillis() - start < 30_000);
+    }
+}
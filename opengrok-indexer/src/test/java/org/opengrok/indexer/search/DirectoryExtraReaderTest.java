@@ -0,0 +1,106 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.search;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.jupiter.api.Test;
+import org.opengrok.indexer.analysis.NullableNumLinesLOC;
+import org.opengrok.indexer.index.NumLinesLOCUtil;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Represents a container for tests of {@link DirectoryExtraReader}.
+ */
+class DirectoryExtraReaderTest {
+
+    private static Document newDocument(String pathField, String path, String dir, boolean withDocValues,
+                                        Long numLines, Long loc) {
+        Document doc = new Document();
+        doc.add(new StringField(pathField, path, Field.Store.YES));
+        doc.add(new StringField(QueryBuilder.DIRPATH, QueryBuilder.normalizeDirPath(dir), Field.Store.NO));
+        if (withDocValues) {
+            doc.add(new SortedDocValuesField(QueryBuilder.PATHDV, new BytesRef(path)));
+        }
+        if (numLines != null) {
+            doc.add(new StoredField(QueryBuilder.NUML, numLines));
+            doc.add(new StoredField(QueryBuilder.LOC, loc));
+            if (withDocValues) {
+                NumLinesLOCUtil.addDocValues(doc, numLines, loc);
+            }
+        }
+        return doc;
+    }
+
+    private static void assertExtra(String path, Long numLines, Long loc, NullableNumLinesLOC extra) {
+        assertEquals(path, extra.getPath());
+        assertEquals(numLines, extra.getNumLines());
+        assertEquals(loc, extra.getLOC());
+    }
+
+    @Test
+    void testSearch() throws IOException {
+        try (Directory directory = new ByteBuffersDirectory()) {
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+                // Document indexed before the doc values were introduced.
+                writer.addDocument(newDocument(QueryBuilder.PATH, "/foo/old.c", "/foo", false, 10L, 8L));
+                writer.commit();
+                writer.addDocument(newDocument(QueryBuilder.PATH, "/foo/main.c", "/foo", true, 20L, 15L));
+                writer.addDocument(newDocument(QueryBuilder.PATH, "/foo/data.bin", "/foo", true, null, null));
+                writer.addDocument(newDocument(QueryBuilder.D, "/foo/bar", "/foo", true, 300L, 200L));
+                writer.addDocument(newDocument(QueryBuilder.PATH, "/foo/bar/x.c", "/foo/bar", true, 300L, 200L));
+                writer.addDocument(newDocument(QueryBuilder.PATH, "/foo/deleted.c", "/foo", true, 1L, 1L));
+                writer.deleteDocuments(new Term(QueryBuilder.PATH, "/foo/deleted.c"));
+            }
+
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                List<NullableNumLinesLOC> extras = new DirectoryExtraReader().search(new IndexSearcher(reader), "/foo");
+                assertEquals(4, extras.size());
+                assertExtra("/foo/bar", 300L, 200L, extras.get(0));
+                assertExtra("/foo/data.bin", null, null, extras.get(1));
+                assertExtra("/foo/main.c", 20L, 15L, extras.get(2));
+                assertExtra("/foo/old.c", 10L, 8L, extras.get(3));
+
+                assertEquals(0, new DirectoryExtraReader().search(new IndexSearcher(reader), "/baz").size());
+                extras = new DirectoryExtraReader().search(new IndexSearcher(reader), "/foo/bar");
+                assertEquals(1, extras.size());
+                assertExtra("/foo/bar/x.c", 300L, 200L, extras.get(0));
+            }
+        }
+    }
+}
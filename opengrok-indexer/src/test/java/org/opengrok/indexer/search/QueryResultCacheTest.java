@@ -0,0 +1,160 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.search;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Represents a container for tests of {@link QueryResultCache}.
+ */
+class QueryResultCacheTest {
+
+    private static final Query QUERY = new TermQuery(new Term(QueryBuilder.FULL, "foo"));
+
+    private static QueryResultCache.Key getKey(String query, String... projects) {
+        Map<String, Long> generations = new TreeMap<>();
+        for (String project : projects) {
+            generations.put(project, 1L);
+        }
+        return new QueryResultCache.Key(query, "relevancy", generations);
+    }
+
+    private static ScoreDoc[] getHits(int count) {
+        ScoreDoc[] hits = new ScoreDoc[count];
+        for (int i = 0; i < count; i++) {
+            hits[i] = new ScoreDoc(i, 1.0f);
+        }
+        return hits;
+    }
+
+    @Test
+    void testPutAndGet() {
+        QueryResultCache cache = new QueryResultCache(2, 10);
+        assertTrue(cache.isEnabled());
+        assertNull(cache.get(getKey("foo", "p1")));
+
+        ScoreDoc[] hits = getHits(3);
+        cache.put(getKey("foo", "p1"), hits, 5);
+        QueryResultCache.Entry entry = cache.get(getKey("foo", "p1"));
+        assertNotNull(entry);
+        assertSame(hits, entry.getHits());
+        assertEquals(5, entry.getTotalHits());
+        assertFalse(entry.isComplete());
+
+        assertNull(cache.get(getKey("foo", "p1", "p2")));
+        assertNull(cache.get(getKey("bar", "p1")));
+
+        entry.putContext(1, true, false, List.of(new Hit("/p1/foo.c", "foo", "1", false, true)));
+        assertEquals(1, entry.getContext(1, true, false).size());
+        assertNull(entry.getContext(2, true, false));
+        // The context rendered with different parameters is not shared.
+        assertNull(entry.getContext(1, false, false));
+        assertNull(entry.getContext(1, true, true));
+    }
+
+    @Test
+    void testLimits() {
+        QueryResultCache cache = new QueryResultCache(2, 10);
+        assertNull(cache.put(getKey("foo", "p1"), getHits(11), 11));
+        assertNull(cache.get(getKey("foo", "p1")));
+
+        cache.put(getKey("a", "p1"), getHits(1), 1);
+        cache.put(getKey("b", "p1"), getHits(1), 1);
+        // Make the first entry the most recently used one.
+        assertNotNull(cache.get(getKey("a", "p1")));
+        cache.put(getKey("c", "p1"), getHits(1), 1);
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(getKey("a", "p1")));
+        assertNull(cache.get(getKey("b", "p1")));
+        assertNotNull(cache.get(getKey("c", "p1")));
+
+        cache.setLimits(0, 10);
+        assertFalse(cache.isEnabled());
+        assertEquals(0, cache.size());
+        assertNull(cache.put(getKey("a", "p1"), getHits(1), 1));
+    }
+
+    @Test
+    void testInvalidate() {
+        QueryResultCache cache = new QueryResultCache(10, 10);
+        cache.put(getKey("a", "p1"), getHits(1), 1);
+        cache.put(getKey("b", "p1", "p2"), getHits(1), 1);
+        cache.put(getKey("c", "p2"), getHits(1), 1);
+
+        cache.invalidate("p1");
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get(getKey("c", "p2")));
+    }
+
+    @Test
+    void testKeyGeneration() throws IOException {
+        try (Directory directory = new ByteBuffersDirectory();
+             IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+            Document doc = new Document();
+            doc.add(new StringField(QueryBuilder.FULL, "foo", Field.Store.NO));
+            writer.addDocument(doc);
+            writer.commit();
+
+            QueryResultCache.Key key1;
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                key1 = QueryResultCache.getKey(QUERY, "relevancy", Map.of("p1", new IndexSearcher(reader)));
+                assertEquals(key1, QueryResultCache.getKey(QUERY, "relevancy", Map.of("p1", new IndexSearcher(reader))));
+            }
+
+            writer.addDocument(doc);
+            writer.commit();
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                QueryResultCache.Key key2 = QueryResultCache.getKey(QUERY, "relevancy",
+                        Map.of("p1", new IndexSearcher(reader)));
+                assertNotNull(key2);
+                assertNotEquals(key1, key2);
+            }
+        }
+    }
+}
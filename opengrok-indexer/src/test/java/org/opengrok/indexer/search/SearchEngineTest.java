@@ -24,12 +24,19 @@
 package org.opengrok.indexer.search;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.TreeSet;
+import java.util.stream.Collectors;
 
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.opengrok.indexer.configuration.Project;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
 import org.opengrok.indexer.history.HistoryGuru;
 import org.opengrok.indexer.index.Indexer;
@@ -148,6 +155,39 @@ class SearchEngineTest {
                 instance.getQuery());
     }
 
+    @Test
+    void testSearchAfter() throws Exception {
+        SearchEngine instance = new SearchEngine();
+        instance.setFile("main.c OR Main.java");
+        int noHits = instance.search();
+        List<Integer> expected = Arrays.stream(instance.scoreDocs()).map(scoreDoc -> scoreDoc.doc)
+                .collect(Collectors.toList());
+        instance.destroy();
+        assertTrue(noHits > 1);
+
+        // Page through the results one document at a time.
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        List<Project> projects = env.hasProjects() ? env.getProjectList() : new ArrayList<>();
+        List<Integer> paged = new ArrayList<>();
+        ScoreDoc after = null;
+        do {
+            instance = new SearchEngine();
+            instance.setFile("main.c OR Main.java");
+            TopDocs topDocs = instance.searchAfter(projects, after, 1);
+            after = null;
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                paged.add(scoreDoc.doc);
+                List<Hit> hits = new ArrayList<>();
+                instance.results(instance.doc(scoreDoc.doc), false, noHits, hits);
+                assertFalse(hits.isEmpty());
+                after = scoreDoc;
+            }
+            instance.destroy();
+        } while (after != null);
+
+        assertEquals(expected, paged);
+    }
+
     /* see https://github.com/oracle/opengrok/issues/2030
     @Test
     void testSearch() {
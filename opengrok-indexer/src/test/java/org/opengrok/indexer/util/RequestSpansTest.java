@@ -0,0 +1,105 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.util;
+
+import java.util.List;
+import java.util.Map;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.opengrok.indexer.Metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Represents a container for tests of {@link RequestSpans}.
+ */
+class RequestSpansTest {
+
+    @AfterEach
+    void tearDown() {
+        RequestSpans spans = RequestSpans.current();
+        if (spans != null) {
+            spans.end();
+        }
+    }
+
+    @Test
+    void testNoRequest() {
+        assertNull(RequestSpans.current());
+        RequestSpans.Span span = RequestSpans.span("parse");
+        span.close();
+        assertSame(RequestSpans.Span.NOOP, span);
+    }
+
+    @Test
+    void testNestedSpans() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        try (MockedStatic<Metrics> metrics = Mockito.mockStatic(Metrics.class)) {
+            metrics.when(Metrics::getRegistry).thenReturn(registry);
+
+            RequestSpans spans = RequestSpans.begin();
+            assertSame(spans, RequestSpans.current());
+            RequestSpans.Span acquireSpan = RequestSpans.span("acquire", "foo");
+            RequestSpans.Span collectSpan = RequestSpans.span("collect");
+            collectSpan.close();
+            acquireSpan.close();
+            RequestSpans.span("collect").close();
+            spans.end();
+            assertNull(RequestSpans.current());
+
+            assertEquals(List.of("collect", "acquire"), List.copyOf(spans.getDurations().keySet()));
+            assertNotNull(registry.find(RequestSpans.METER_NAME).tags("phase", "collect", "project", "foo").timer());
+            assertEquals(1, registry.get(RequestSpans.METER_NAME).tags("phase", "collect", "project", "foo").
+                    timer().count());
+            assertEquals(1, registry.get(RequestSpans.METER_NAME).tags("phase", "collect", "project", "").
+                    timer().count());
+            assertEquals(1, registry.get(RequestSpans.METER_NAME).tags("phase", "acquire", "project", "foo").
+                    timer().count());
+        }
+    }
+
+    @Test
+    void testServerTiming() {
+        RequestSpans spans = RequestSpans.begin();
+        assertEquals("", spans.getServerTiming());
+        RequestSpans.span("parse").close();
+        RequestSpans.span("context").close();
+        RequestSpans.span("context").close();
+        spans.end();
+
+        String serverTiming = spans.getServerTiming();
+        assertTrue(serverTiming.matches("parse;dur=\\d+\\.\\d{3}, context;desc=\"2x\";dur=\\d+\\.\\d{3}"),
+                serverTiming);
+        Map<String, ?> durations = spans.getDurations();
+        assertEquals(2, durations.size());
+    }
+}
@@ -66,6 +66,8 @@ import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.ws.rs.core.HttpHeaders;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.queryparser.classic.ParseException;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.VisibleForTesting;
 import org.opengrok.indexer.Info;
@@ -82,6 +84,8 @@ import org.opengrok.indexer.configuration.Project;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
 import org.opengrok.indexer.history.Annotation;
 import org.opengrok.indexer.history.HistoryGuru;
+import org.opengrok.indexer.index.IndexDatabase;
+import org.opengrok.indexer.index.XrefPack;
 import org.opengrok.indexer.logger.LoggerFactory;
 import org.opengrok.indexer.search.QueryBuilder;
 import org.opengrok.indexer.search.DirectoryExtraReader;
@@ -1319,6 +1323,64 @@ public class PageConfig {
                 getPath(), env.isCompressXref());
     }
 
+    /**
+     * Lookup the xref data of {@link #getResourceFile()} in the xref pack files,
+     * i.e. if the indexer was run with xref packs enabled.
+     *
+     * @return {@code null} if not found, stream with the uncompressed xref data otherwise
+     * @see XrefPack
+     */
+    @Nullable
+    public InputStream findXrefPackData() {
+        return findXrefPackData(getResourceFile());
+    }
+
+    /**
+     * Check whether the xref data of {@link #getResourceFile()} are stored in the xref pack files.
+     * Unlike {@link #findXrefPackData()}, this does not read the data.
+     *
+     * @return whether {@link #findXrefPackData()} can be expected to return the data
+     * @see XrefPack
+     */
+    public boolean hasXrefPackData() {
+        if (!getEnv().isXrefPack()) {
+            return false;
+        }
+
+        try {
+            Document doc = IndexDatabase.getDocument(getResourceFile());
+            return doc != null && XrefPack.hasXref(doc);
+        } catch (ParseException | IOException e) {
+            LOGGER.log(Level.WARNING, String.format("failed to check xref pack data for '%s'", getPath()), e);
+            return false;
+        }
+    }
+
+    /**
+     * Lookup the xref data of given file in the xref pack files, i.e. if the indexer was run with xref packs enabled.
+     *
+     * @param file file under source root, e.g. a file in the {@link #getResourceFile()} directory
+     * @return {@code null} if not found, stream with the uncompressed xref data otherwise
+     * @see XrefPack
+     */
+    @Nullable
+    public InputStream findXrefPackData(File file) {
+        if (!getEnv().isXrefPack()) {
+            return null;
+        }
+
+        try {
+            Document doc = IndexDatabase.getDocument(file);
+            if (doc == null) {
+                return null;
+            }
+            return XrefPack.getInputStream(getEnv().getDataRootFile(), doc);
+        } catch (ParseException | IOException e) {
+            LOGGER.log(Level.WARNING, String.format("failed to read xref pack data for '%s'", file), e);
+            return null;
+        }
+    }
+
     /**
      * Is revision the latest revision ?
      * @param rev revision string
@@ -18,11 +18,12 @@
  */
 
 /*
- * Copyright (c) 2016, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2016, 2024, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.web;
 
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.time.Duration;
 import java.time.Instant;
 
@@ -33,18 +34,23 @@ import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.FilterConfig;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
 import org.jetbrains.annotations.NotNull;
 import org.opengrok.indexer.Metrics;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.util.RequestSpans;
 import org.opengrok.indexer.web.QueryParameters;
 import org.opengrok.indexer.web.SearchHelper;
 
 public class StatisticsFilter implements Filter {
 
     static final String REQUESTS_METRIC = "requests";
+    static final String SERVER_TIMING_HEADER = "Server-Timing";
     private static final String CATEGORY_TAG = "category";
 
     private final DistributionSummary requests = Metrics.getPrometheusRegistry().summary(REQUESTS_METRIC);
@@ -66,9 +72,21 @@ public class StatisticsFilter implements Filter {
 
         PageConfig config = PageConfig.get(httpReq);
 
-        fc.doFilter(servletRequest, servletResponse);
+        HttpServletResponse httpResponse = (HttpServletResponse) servletResponse;
+        RequestSpans spans = RequestSpans.begin();
+        try {
+            if (RuntimeEnvironment.getInstance().isServerTimingEnabled()) {
+                ServerTimingResponse timingResponse = new ServerTimingResponse(httpResponse, spans);
+                fc.doFilter(servletRequest, timingResponse);
+                timingResponse.setServerTiming();
+            } else {
+                fc.doFilter(servletRequest, servletResponse);
+            }
+        } finally {
+            spans.end();
+        }
 
-        measure((HttpServletResponse) servletResponse, httpReq, Duration.between(start, Instant.now()), config);
+        measure(httpResponse, httpReq, Duration.between(start, Instant.now()), config);
     }
 
     private void measure(HttpServletResponse httpResponse, HttpServletRequest httpReq,
@@ -122,6 +140,47 @@ public class StatisticsFilter implements Filter {
                 || httpReq.getRequestURI().replace(httpReq.getContextPath(), "").equals("");
     }
 
+    /**
+     * Sets the {@code Server-Timing} header with the phases completed so far right before the response
+     * gets committed, because the header cannot be added afterwards.
+     */
+    private static class ServerTimingResponse extends HttpServletResponseWrapper {
+
+        private final RequestSpans spans;
+
+        ServerTimingResponse(HttpServletResponse response, RequestSpans spans) {
+            super(response);
+            this.spans = spans;
+        }
+
+        void setServerTiming() {
+            if (!isCommitted()) {
+                String serverTiming = spans.getServerTiming();
+                if (!serverTiming.isEmpty()) {
+                    setHeader(SERVER_TIMING_HEADER, serverTiming);
+                }
+            }
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            setServerTiming();
+            return super.getWriter();
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            setServerTiming();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            setServerTiming();
+            super.flushBuffer();
+        }
+    }
+
     @Override
     public void destroy() {
         //No destroy Operation
@@ -178,6 +178,7 @@ public final class WebappListener implements ServletContextListener, ServletRequ
             env.shutdownRevisionExecutor();
             env.shutdownSearchExecutor();
             env.shutdownDirectoryListingExecutor();
+            env.shutdownContextExecutor();
         } catch (InterruptedException e) {
             LOGGER.log(Level.WARNING, "Could not shutdown revision executor", e);
         }
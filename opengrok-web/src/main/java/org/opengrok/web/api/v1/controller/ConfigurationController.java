@@ -38,6 +38,7 @@ import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import org.opengrok.indexer.configuration.CommandTimeoutType;
+import org.opengrok.indexer.configuration.ConfigurationDelta;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
 import org.opengrok.indexer.util.ClassUtil;
 import org.opengrok.web.api.ApiTask;
@@ -47,6 +48,10 @@ import org.opengrok.web.api.v1.suggester.provider.service.SuggesterService;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import static org.opengrok.web.api.v1.controller.ConfigurationController.PATH;
 
@@ -57,6 +62,12 @@ public class ConfigurationController {
 
     public static final String PATH = "configuration";
 
+    /**
+     * Configuration properties which require the suggester to be initialized from scratch if changed.
+     */
+    private static final Set<String> SUGGESTER_PROPERTIES =
+            Set.of("suggesterConfig", "sourceRoot", "dataRoot", "projectsEnabled");
+
     private final SuggesterService suggesterService;
 
     @Inject
@@ -73,21 +84,85 @@ public class ConfigurationController {
     @PUT
     @Consumes(MediaType.APPLICATION_XML)
     public Response set(@Context HttpServletRequest request,
-                        @QueryParam("reindex") final boolean reindex) throws IOException {
+                        @QueryParam("reindex") final boolean reindex,
+                        @QueryParam("version") final String version) throws IOException {
 
-        String body;
-        try (InputStream inputStream = request.getInputStream()) {
-            body = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
-        }
+        String body = readBody(request);
 
         return ApiTaskManager.getInstance().submitApiTask(PATH,
                 new ApiTask(request.getRequestURI(), () -> {
                     env.applyConfig(body, reindex, CommandTimeoutType.RESTFUL);
+                    env.setConfigurationVersion(version);
                     suggesterService.refresh();
                     return null;
                 }, Response.Status.CREATED));
     }
 
+    /**
+     * @return version of the configuration last sent by the indexer, used to decide whether
+     * the indexer can send just the configuration delta
+     */
+    @GET
+    @Path("/version")
+    @Produces(MediaType.TEXT_PLAIN)
+    public String getVersion() {
+        String version = env.getConfigurationVersion();
+        if (version == null) {
+            throw new WebApplicationException(Response.Status.NOT_FOUND);
+        }
+        return version;
+    }
+
+    @PUT
+    @Path("/delta")
+    @Consumes(MediaType.APPLICATION_XML)
+    public Response setDelta(@Context HttpServletRequest request,
+                             @QueryParam("reindex") final boolean reindex) throws IOException {
+
+        ConfigurationDelta delta;
+        try {
+            delta = ConfigurationDelta.makeXMLStringAsDelta(readBody(request));
+        } catch (IOException e) {
+            throw new WebApplicationException(e, Response.Status.BAD_REQUEST);
+        }
+
+        if (delta.getBaseVersion() == null || !delta.getBaseVersion().equals(env.getConfigurationVersion())) {
+            return Response.status(Response.Status.CONFLICT).build();
+        }
+
+        return ApiTaskManager.getInstance().submitApiTask(PATH,
+                new ApiTask(request.getRequestURI(), () -> {
+                    env.applyConfigDelta(delta, reindex, CommandTimeoutType.RESTFUL);
+                    applySuggesterDelta(delta, reindex);
+                    return null;
+                }, Response.Status.CREATED,
+                Map.of(ConfigurationDelta.BaseVersionMismatchException.class, Response.Status.CONFLICT)));
+    }
+
+    /**
+     * Unlike {@link SuggesterService#refresh()}, which initializes the data of all the projects from scratch,
+     * only the data of the removed projects are deleted and the data of the projects whose index changed
+     * are rebuilt, unless the settings the suggester depends on as a whole changed.
+     */
+    private void applySuggesterDelta(ConfigurationDelta delta, boolean reindex) {
+        if (!Collections.disjoint(delta.getSettings().keySet(), SUGGESTER_PROPERTIES)) {
+            suggesterService.refresh();
+            return;
+        }
+
+        delta.getRemovedProjects().forEach(suggesterService::delete);
+        if (reindex || !delta.getProjects().isEmpty()) {
+            // Same as in ProjectsController, the rebuild can take a long time so it is not waited for.
+            CompletableFuture.runAsync(suggesterService::rebuildChanged);
+        }
+    }
+
+    private static String readBody(HttpServletRequest request) throws IOException {
+        try (InputStream inputStream = request.getInputStream()) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
     @GET
     @Path("/{field}")
     @Produces(MediaType.APPLICATION_JSON)
@@ -27,8 +27,10 @@ import static org.opengrok.indexer.history.RepositoryFactory.getRepository;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -41,10 +43,14 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import jakarta.inject.Inject;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.POST;
@@ -52,17 +58,22 @@ import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import org.opengrok.indexer.configuration.CommandTimeoutType;
 import org.opengrok.indexer.configuration.Group;
 import org.opengrok.indexer.configuration.Project;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.configuration.SuperIndexSearcher;
 import org.opengrok.indexer.history.HistoryGuru;
 import org.opengrok.indexer.history.Repository;
 import org.opengrok.indexer.history.RepositoryInfo;
 import org.opengrok.indexer.index.IndexDatabase;
+import org.opengrok.indexer.index.IndexFileWalker;
 import org.opengrok.indexer.logger.LoggerFactory;
 import org.opengrok.indexer.util.ClassUtil;
 import org.opengrok.indexer.util.IOUtils;
@@ -79,6 +90,10 @@ public class ProjectsController {
 
     public static final String PROJECTS_PATH = "projects";
 
+    public static final String FILES_STREAM_PATH = "stream";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
     private final RuntimeEnvironment env = RuntimeEnvironment.getInstance();
 
     private final SuggesterService suggester;
@@ -106,6 +121,9 @@ public class ProjectsController {
     }
 
     private void addProjectWorkHorse(String projectName) {
+        // The configuration no longer corresponds to the one sent by the indexer.
+        env.setConfigurationVersion(null);
+
         File srcRoot = env.getSourceRootFile();
         File projDir = new File(srcRoot, projectName);
 
@@ -167,6 +185,7 @@ public class ProjectsController {
 
         // Remove the project from searches so no one can trip over incomplete index data.
         project.setIndexed(false);
+        env.setConfigurationVersion(null);
 
         return project;
     }
@@ -384,6 +403,7 @@ public class ProjectsController {
         if (project != null) {
             // Set the property.
             ClassUtil.setFieldValue(project, field, value);
+            env.setConfigurationVersion(null);
 
             // Refresh field values for project's repositories for this project as well.
             List<RepositoryInfo> riList = env.getProjectRepositoriesMap().get(project);
@@ -478,4 +498,63 @@ public class ProjectsController {
 
         return IndexDatabase.getAllFiles(Collections.singletonList("/" + projectName));
     }
+
+    /**
+     * Streaming variant of {@link #getProjectIndexFiles(String)} that walks the index of the project
+     * with the already open searcher and writes the paths incrementally rather than collecting them first.
+     * <p>
+     * The listing can be restricted to paths starting with {@code prefix}. If {@code limit} is positive,
+     * at most that many paths are returned and the next page is requested with the opaque {@code after}
+     * token returned with the previous page.
+     * </p>
+     */
+    @GET
+    @Path("/{project}/files/" + FILES_STREAM_PATH)
+    @Produces(MediaType.APPLICATION_JSON)
+    public StreamingOutput getProjectIndexFilesStream(@PathParam("project") String projectNameParam,
+                                                      @QueryParam("prefix") final String prefix,
+                                                      @QueryParam("limit") @DefaultValue("0") final int limit,
+                                                      @QueryParam("after") final String after) {
+        // Avoid classification as a taint bug.
+        final String projectName = Laundromat.launderInput(projectNameParam);
+
+        Project project = Optional.ofNullable(env.getProjects().get(projectName)).
+                orElseThrow(() -> new NotFoundException("cannot get project \"" + projectName + "\""));
+        if (limit < 0) {
+            throw new WebApplicationException("Invalid limit", Response.Status.BAD_REQUEST);
+        }
+        final String afterPath = after != null ? decodeFilesCursor(after) : null;
+        final String pathPrefix = prefix != null ? prefix : project.getPath() + "/";
+
+        return out -> {
+            SuperIndexSearcher searcher = env.getSuperIndexSearcher(projectName);
+            try (JsonGenerator gen = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+                gen.writeStartObject();
+                gen.writeArrayFieldStart("files");
+                String last = IndexFileWalker.walk(searcher.getIndexReader(), pathPrefix, afterPath, limit,
+                        gen::writeString);
+                gen.writeEndArray();
+                if (last != null) {
+                    gen.writeStringField("after", encodeFilesCursor(last));
+                } else {
+                    gen.writeNullField("after");
+                }
+                gen.writeEndObject();
+            } finally {
+                searcher.release();
+            }
+        };
+    }
+
+    static String encodeFilesCursor(String path) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(path.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String decodeFilesCursor(String str) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(str), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new WebApplicationException("Invalid after token", Response.Status.BAD_REQUEST);
+        }
+    }
 }
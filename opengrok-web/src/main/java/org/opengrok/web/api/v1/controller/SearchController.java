@@ -34,22 +34,40 @@ import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.jetbrains.annotations.Nullable;
 import org.opengrok.indexer.configuration.Project;
 import org.opengrok.indexer.search.Hit;
+import org.opengrok.indexer.search.QueryBuilder;
 import org.opengrok.indexer.search.SearchEngine;
 import org.opengrok.indexer.web.QueryParameters;
 import org.opengrok.web.PageConfig;
 import org.opengrok.web.api.v1.filter.CorsEnable;
 import org.opengrok.web.api.v1.suggester.provider.service.SuggesterService;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 @Path(SearchController.PATH)
@@ -57,8 +75,21 @@ public class SearchController {
 
     public static final String PATH = "search";
 
+    public static final String STREAM_PATH = "stream";
+
     private static final int MAX_RESULTS = 1000;
 
+    static final String FIELD_PATH = "path";
+    static final String FIELD_SCORE = "score";
+    static final String FIELD_LINE = "line";
+    static final String FIELD_LINE_NUMBER = "lineNumber";
+    static final String FIELD_TAG = "tag";
+
+    private static final Set<String> FIELDS = Set.of(FIELD_PATH, FIELD_SCORE, FIELD_LINE, FIELD_LINE_NUMBER, FIELD_TAG);
+    private static final Set<String> HIT_FIELDS = Set.of(FIELD_LINE, FIELD_LINE_NUMBER, FIELD_TAG);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
     private final SuggesterService suggester;
 
     @Inject
@@ -107,6 +138,151 @@ public class SearchController {
         }
     }
 
+    /**
+     * Streaming variant of {@link #search(HttpServletRequest, String, String, String, String, String, String, List,
+     * int, int)} that writes the results incrementally. Instead of the start index, the next page is requested
+     * with the opaque {@code searchAfter} cursor returned with the previous page, so the query is never re-run
+     * to collect all the preceding hits. The cursor is valid only as long as the searched indexes do not change,
+     * afterwards it is rejected with the {@code 410 Gone} status and the search needs to be started over.
+     * <p>
+     * The {@code fields} parameter restricts the returned fields of the results. If none of the line fields
+     * ({@code line}, {@code lineNumber}, {@code tag}) is requested, the context of the hits is not generated.
+     * </p>
+     */
+    @GET
+    @Path(STREAM_PATH)
+    @CorsEnable
+    @Produces(MediaType.APPLICATION_JSON)
+    @SuppressWarnings("java:S107")
+    public StreamingOutput searchStream(
+            @Context final HttpServletRequest req,
+            @QueryParam(QueryParameters.FULL_SEARCH_PARAM) final String full,
+            @QueryParam("def") final String def, // Nearly QueryParameters.DEFS_SEARCH_PARAM
+            @QueryParam("symbol") final String symbol, // Akin to QueryBuilder.REFS_SEARCH_PARAM
+            @QueryParam(QueryParameters.PATH_SEARCH_PARAM) final String path,
+            @QueryParam(QueryParameters.HIST_SEARCH_PARAM) final String hist,
+            @QueryParam(QueryParameters.TYPE_SEARCH_PARAM) final String type,
+            @QueryParam("projects") final List<String> projects,
+            @QueryParam("maxresults") // Akin to QueryParameters.COUNT_PARAM
+            @DefaultValue(MAX_RESULTS + "") final int maxResults,
+            @QueryParam("searchAfter") final String searchAfter,
+            @QueryParam("fields") final List<String> fields
+    ) {
+        Set<String> projection = getProjection(fields);
+        if (maxResults <= 0) {
+            throw new WebApplicationException("Invalid maxresults", Response.Status.BAD_REQUEST);
+        }
+
+        SearchEngineWrapper engine = new SearchEngineWrapper(full, def, symbol, path, hist, type);
+        try {
+            if (!engine.isValid()) {
+                throw new WebApplicationException("Invalid request", Response.Status.BAD_REQUEST);
+            }
+
+            Instant startTime = Instant.now();
+
+            List<Project> searchedProjects = SearchEngineWrapper.getProjects(req, projects);
+            int queryHash = SearchCursor.getQueryHash(engine.getQuery(), searchedProjects);
+            SearchCursor cursor = searchAfter != null ? SearchCursor.decode(searchAfter, queryHash) : null;
+            TopDocs topDocs = engine.searchAfter(searchedProjects, cursor, maxResults);
+
+            // Count the search for the suggester only once the cursor was accepted.
+            suggester.onSearch(projects, engine.getQuery());
+
+            return out -> {
+                try (engine) {
+                    writeResults(out, engine, topDocs, projection, maxResults, queryHash, startTime);
+                }
+            };
+        } catch (RuntimeException e) {
+            engine.close();
+            throw e;
+        }
+    }
+
+    private static Set<String> getProjection(@Nullable final List<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return FIELDS;
+        }
+        Set<String> projection = new TreeSet<>();
+        for (String field : fields) {
+            // Allow both repeated parameters and comma separated list.
+            for (String name : field.split(",")) {
+                if (!FIELDS.contains(name)) {
+                    throw new WebApplicationException("Unknown field " + name, Response.Status.BAD_REQUEST);
+                }
+                projection.add(name);
+            }
+        }
+        return projection;
+    }
+
+    private static void writeResults(OutputStream out, SearchEngineWrapper engine, TopDocs topDocs,
+                                     Set<String> projection, int maxResults, int queryHash, Instant startTime)
+            throws IOException {
+
+        boolean withHits = projection.stream().anyMatch(HIT_FIELDS::contains);
+        int totalHits = (int) Math.min(topDocs.totalHits.value, Integer.MAX_VALUE);
+        List<Hit> hits = new ArrayList<>();
+
+        try (JsonGenerator gen = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            gen.writeStartObject();
+            gen.writeArrayFieldStart("results");
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                gen.writeStartObject();
+                Document doc = null;
+                if (projection.contains(FIELD_PATH) || withHits) {
+                    doc = engine.engine.doc(scoreDoc.doc);
+                }
+                if (projection.contains(FIELD_PATH)) {
+                    gen.writeStringField(FIELD_PATH, doc.get(QueryBuilder.PATH));
+                }
+                if (projection.contains(FIELD_SCORE)) {
+                    gen.writeNumberField(FIELD_SCORE, scoreDoc.score);
+                }
+                if (withHits) {
+                    hits.clear();
+                    engine.engine.results(doc, false, totalHits, hits);
+                    gen.writeArrayFieldStart("hits");
+                    for (Hit hit : hits) {
+                        writeHit(gen, hit, projection);
+                    }
+                    gen.writeEndArray();
+                }
+                gen.writeEndObject();
+                // Let the client process the results while the context of the next document is generated.
+                gen.flush();
+            }
+            gen.writeEndArray();
+
+            gen.writeNumberField("resultCount", totalHits);
+            gen.writeBooleanField("resultCountExact", topDocs.totalHits.relation == TotalHits.Relation.EQUAL_TO);
+            if (topDocs.scoreDocs.length == maxResults) {
+                ScoreDoc last = topDocs.scoreDocs[topDocs.scoreDocs.length - 1];
+                gen.writeStringField("searchAfter",
+                        new SearchCursor(last, queryHash, engine.getIndexVersion()).encode());
+            } else {
+                gen.writeNullField("searchAfter");
+            }
+            gen.writeNumberField("time", Duration.between(startTime, Instant.now()).toMillis());
+            gen.writeEndObject();
+        }
+    }
+
+    private static void writeHit(JsonGenerator gen, Hit hit, Set<String> projection) throws IOException {
+        gen.writeStartObject();
+        if (projection.contains(FIELD_LINE)) {
+            gen.writeStringField(FIELD_LINE, hit.getLine());
+        }
+        if (projection.contains(FIELD_LINE_NUMBER)) {
+            gen.writeStringField(FIELD_LINE_NUMBER, hit.getLineno());
+        }
+        if (projection.contains(FIELD_TAG)) {
+            gen.writeStringField(FIELD_TAG, hit.getTag());
+        }
+        gen.writeEndObject();
+    }
+
     private static class SearchEngineWrapper implements AutoCloseable {
 
         private final SearchEngine engine = new SearchEngine();
@@ -129,20 +305,24 @@ public class SearchController {
             engine.setType(type);
         }
 
+        private static List<Project> getProjects(final HttpServletRequest req, final List<String> projects) {
+            Set<Project> allProjects = PageConfig.get(req).getProjectHelper().getAllProjects();
+            if (projects == null || projects.isEmpty()) {
+                return new ArrayList<>(allProjects);
+            } else {
+                return allProjects.stream()
+                        .filter(p -> projects.contains(p.getName()))
+                        .collect(Collectors.toList());
+            }
+        }
+
         public List<Hit> search(
                 final HttpServletRequest req,
                 final List<String> projects,
                 final int startDocIndex,
                 final int maxResults
         ) {
-            Set<Project> allProjects = PageConfig.get(req).getProjectHelper().getAllProjects();
-            if (projects == null || projects.isEmpty()) {
-                numResults = engine.search(new ArrayList<>(allProjects));
-            } else {
-                numResults = engine.search(allProjects.stream()
-                        .filter(p -> projects.contains(p.getName()))
-                        .collect(Collectors.toList()));
-            }
+            numResults = engine.search(getProjects(req, projects));
 
             if (startDocIndex > numResults) {
                 return Collections.emptyList();
@@ -159,6 +339,44 @@ public class SearchController {
             return results;
         }
 
+        private TopDocs searchAfter(
+                final List<Project> projects,
+                @Nullable final SearchCursor cursor,
+                final int maxResults
+        ) {
+            try {
+                TopDocs topDocs = engine.searchAfter(projects, cursor != null ? cursor.getScoreDoc() : null,
+                        maxResults);
+                // The searchers are acquired by the search, so the index can be checked only afterwards.
+                checkIndexVersion(cursor);
+                return topDocs;
+            } catch (ParseException e) {
+                throw new WebApplicationException(e, Response.Status.BAD_REQUEST);
+            } catch (IllegalArgumentException e) {
+                checkIndexVersion(cursor);
+                // The cursor does not correspond to the index even though the index did not change.
+                throw new WebApplicationException("Invalid searchAfter cursor", Response.Status.BAD_REQUEST);
+            } catch (IOException e) {
+                throw new WebApplicationException(e, Response.Status.INTERNAL_SERVER_ERROR);
+            }
+        }
+
+        /**
+         * The document IDs in the cursor are valid only for the index commits the previous page was read from.
+         * If any of the searched indexes was changed since, the results would be shifted or the document IDs
+         * would be out of range.
+         */
+        private void checkIndexVersion(@Nullable final SearchCursor cursor) {
+            if (cursor != null && cursor.getIndexVersion() != getIndexVersion()) {
+                throw new WebApplicationException("searchAfter cursor is stale as the index was changed",
+                        Response.Status.GONE);
+            }
+        }
+
+        private long getIndexVersion() {
+            return SearchCursor.getIndexVersion(engine.getIndexGenerations());
+        }
+
         private boolean isValid() {
             return engine.isValidQuery();
         }
@@ -173,6 +391,90 @@ public class SearchController {
         }
     }
 
+    /**
+     * Position in the search results, i.e. the last document of the previous page. The cursor is bound
+     * to the query and the set of searched projects as the document IDs depend on the latter.
+     * It also records the version of the searched indexes (derived from the generations of their commits)
+     * so that the cursor is rejected with {@link Response.Status#GONE} once any of the indexes changes.
+     */
+    static class SearchCursor {
+
+        private static final int SIZE = Float.BYTES + 3 * Integer.BYTES + Long.BYTES;
+
+        private final ScoreDoc scoreDoc;
+
+        private final int queryHash;
+
+        private final long indexVersion;
+
+        SearchCursor(final ScoreDoc scoreDoc, final int queryHash, final long indexVersion) {
+            this.scoreDoc = scoreDoc;
+            this.queryHash = queryHash;
+            this.indexVersion = indexVersion;
+        }
+
+        ScoreDoc getScoreDoc() {
+            return scoreDoc;
+        }
+
+        long getIndexVersion() {
+            return indexVersion;
+        }
+
+        /**
+         * @param generations map of project names to index commit generations as returned from
+         * {@link SearchEngine#getIndexGenerations()}
+         * @return version of the indexes, {@code 0} if the generations are not known
+         */
+        static long getIndexVersion(@Nullable final Map<String, Long> generations) {
+            if (generations == null) {
+                return 0;
+            }
+            long version = 1;
+            for (Map.Entry<String, Long> entry : new TreeMap<>(generations).entrySet()) {
+                version = 31 * version + entry.getKey().hashCode();
+                version = 31 * version + entry.getValue();
+            }
+            return version;
+        }
+
+        static int getQueryHash(final Query query, final List<Project> projects) {
+            return Objects.hash(query.toString(),
+                    projects.stream().map(Project::getName).collect(Collectors.toCollection(TreeSet::new)));
+        }
+
+        String encode() {
+            ByteBuffer buffer = ByteBuffer.allocate(SIZE)
+                    .putFloat(scoreDoc.score)
+                    .putInt(scoreDoc.doc)
+                    .putInt(scoreDoc.shardIndex)
+                    .putInt(queryHash)
+                    .putLong(indexVersion);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+        }
+
+        static SearchCursor decode(final String str, final int queryHash) {
+            ByteBuffer buffer;
+            try {
+                buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(str));
+            } catch (IllegalArgumentException e) {
+                throw new WebApplicationException("Invalid searchAfter cursor", Response.Status.BAD_REQUEST);
+            }
+            if (buffer.remaining() != SIZE) {
+                throw new WebApplicationException("Invalid searchAfter cursor", Response.Status.BAD_REQUEST);
+            }
+            ScoreDoc scoreDoc = new ScoreDoc(0, 0);
+            scoreDoc.score = buffer.getFloat();
+            scoreDoc.doc = buffer.getInt();
+            scoreDoc.shardIndex = buffer.getInt();
+            if (buffer.getInt() != queryHash) {
+                throw new WebApplicationException("searchAfter cursor does not match the query",
+                        Response.Status.BAD_REQUEST);
+            }
+            return new SearchCursor(scoreDoc, queryHash, buffer.getLong());
+        }
+    }
+
     private static class SearchResult {
 
         private final long time;
@@ -59,6 +59,12 @@ public interface SuggesterService {
      */
     void rebuild();
 
+    /**
+     * Rebuilds suggester data structures of the projects whose index changed since the data structures were built.
+     * This is a subset of what {@code rebuild} does.
+     */
+    void rebuildChanged();
+
     /**
      * Rebuilds suggester data structures for given project. This is a subset of what {@code refresh} does.
      * @param project project name
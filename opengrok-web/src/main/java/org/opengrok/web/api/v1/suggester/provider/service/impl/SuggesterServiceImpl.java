@@ -192,6 +192,21 @@ public class SuggesterServiceImpl implements SuggesterService {
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void rebuildChanged() {
+        lock.readLock().lock();
+        try {
+            if (suggester == null) {
+                logger.log(Level.FINE, "Cannot perform rebuild because suggester is not initialized");
+                return;
+            }
+            suggester.rebuildChanged(getAllProjectIndexDirs());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public void rebuild(final String projectName) {
@@ -328,6 +343,8 @@ public class SuggesterServiceImpl implements SuggesterService {
                 getParallelismLevel(suggesterConfig.getSearchThreadPoolSizeInNcpuPercent(), "search"),
                 Metrics.getRegistry(),
                 env.isPrintProgress());
+        suggester.setResultCacheSize(suggesterConfig.getResultCacheSize());
+        suggester.setSearchCountMemoryBudget(suggesterConfig.getSearchCountMemoryBudget() * 1024L * 1024L);
 
         new Thread(() -> {
             suggester.init(getAllProjectIndexDirs());
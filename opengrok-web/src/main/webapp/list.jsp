@@ -25,6 +25,7 @@ Portions Copyright (c) 2017-2020, Chris Fraire <cfraire@me.com>.
 java.io.BufferedInputStream,
 java.io.File,
 java.io.FileInputStream,
+java.io.InputStream,
 java.io.InputStreamReader,
 java.io.Reader,
 java.net.URLEncoder,
@@ -178,7 +179,9 @@ document.pageReady.push(function() { pageReadyList();});
 
             File[] catfiles = cfg.findDataFiles(readMes);
             for (int i = 0; i < catfiles.length; i++) {
-                if (catfiles[i] == null) {
+                InputStream catPackData = catfiles[i] == null ?
+                        cfg.findXrefPackData(new File(resourceFile, readMes.get(i))) : null;
+                if (catfiles[i] == null && catPackData == null) {
                     continue;
                 }
 %>
@@ -193,14 +196,28 @@ document.pageReady.push(function() { pageReadyList();});
              data-markdown-download="<%= request.getContextPath() + Prefix.DOWNLOAD_P + Util.uriEncodePath(cfg.getPath() + readMes.get(i)) %>">
         </div>
         <pre data-markdown-original><%
-            Util.dump(out, catfiles[i], catfiles[i].getName().endsWith(".gz"));
+            if (catPackData != null) {
+                // For backward compatibility, read the OpenGrok-produced document using the system default charset.
+                try (Reader cr = new InputStreamReader(catPackData)) {
+                    Util.dump(out, cr);
+                }
+            } else {
+                Util.dump(out, catfiles[i], catfiles[i].getName().endsWith(".gz"));
+            }
         %></pre>
     </div>
 <% } else { %>
     <h3><%= readMes.get(i) %></h3>
     <div id="src<%=i%>">
         <pre><%
-            Util.dump(out, catfiles[i], catfiles[i].getName().endsWith(".gz"));
+            if (catPackData != null) {
+                // For backward compatibility, read the OpenGrok-produced document using the system default charset.
+                try (Reader cr = new InputStreamReader(catPackData)) {
+                    Util.dump(out, cr);
+                }
+            } else {
+                Util.dump(out, catfiles[i], catfiles[i].getName().endsWith(".gz"));
+            }
         %></pre>
     </div>
 <%
@@ -212,8 +229,9 @@ document.pageReady.push(function() { pageReadyList();});
         statistics.report(LOGGER, Level.FINE, "directory listing done", "dir.list.latency");
     } else if (rev.length() != 0) {
         // requesting a revision
-        File xrefFile;
-        if (cfg.isLatestRevision(rev) && (xrefFile = cfg.findDataFile()) != null) {
+        File xrefFile = null;
+        if (cfg.isLatestRevision(rev) &&
+                (cfg.hasXrefPackData() || (xrefFile = cfg.findDataFile()) != null)) {
             if (cfg.annotate()) {
                 // annotate
                 BufferedInputStream bin = new BufferedInputStream(new FileInputStream(resourceFile));
@@ -271,9 +289,18 @@ Click <a href="<%= rawPath %>">download <%= basename %></a><%
 %>
 <div id="src" data-navigate-window-enabled="<%= navigateWindowEnabled %>">
     <pre><%
-                    boolean compressed = xrefFile.getName().endsWith(".gz");
-                    Util.dumpXref(out, xrefFile, compressed,
-                            request.getContextPath());
+                    if (xrefFile != null) {
+                        boolean compressed = xrefFile.getName().endsWith(".gz");
+                        Util.dumpXref(out, xrefFile, compressed,
+                                request.getContextPath());
+                    } else {
+                        InputStream xrefPackData = cfg.findXrefPackData();
+                        if (xrefPackData != null) {
+                            try (Reader xr = new InputStreamReader(xrefPackData)) {
+                                Util.dumpXref(out, xr, request.getContextPath(), resourceFile);
+                            }
+                        }
+                    }
     %></pre>
 </div>
 <%
@@ -289,8 +316,20 @@ include file="/xref.jspf"
         }
     } else {
         // Requesting cross-referenced file with no known revision.
-        File xrefFile = cfg.findDataFile();
-        if (xrefFile != null) {
+        InputStream xrefPackData = cfg.findXrefPackData();
+        File xrefFile = xrefPackData == null ? cfg.findDataFile() : null;
+        if (xrefPackData != null) {
+            // For backward compatibility, read the OpenGrok-produced document using the system default charset.
+%>
+<div id="src" data-navigate-window-enabled="<%= navigateWindowEnabled %>">
+    <pre><%
+            try (Reader xr = new InputStreamReader(xrefPackData)) {
+                Util.dumpXref(out, xr, request.getContextPath(), resourceFile);
+            }
+    %></pre>
+</div>
+<%
+        } else if (xrefFile != null) {
 %>
 <div id="src" data-navigate-window-enabled="<%= navigateWindowEnabled %>">
     <pre><%
@@ -26,7 +26,9 @@ package org.opengrok.web.api.v1.controller;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 
 import java.util.concurrent.CountDownLatch;
@@ -48,6 +50,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.opengrok.indexer.configuration.Configuration;
+import org.opengrok.indexer.configuration.ConfigurationDelta;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
 import org.opengrok.indexer.web.ApiUtils;
 import org.opengrok.indexer.web.DummyHttpServletRequest;
@@ -109,6 +112,93 @@ class ConfigurationControllerTest extends OGKJerseyTest {
         assertEquals(configStr, returnedConfig);
     }
 
+    @Test
+    void testApplyConfigurationDelta() throws Exception {
+        Configuration config = new Configuration();
+        config.setSourceRoot("/foo");
+        String configStr = config.getXMLRepresentationAsString();
+        String version = ConfigurationDelta.getVersion(configStr);
+
+        Response response = target("configuration")
+                .queryParam("version", version)
+                .request()
+                .put(Entity.xml(configStr));
+        assertEquals(Response.Status.CREATED.getStatusCode(), ApiUtils.waitForAsyncApi(response).getStatus());
+        assertEquals(version, target("configuration").path("version").request().get(String.class));
+
+        Configuration newConfig = Configuration.makeXMLStringAsConfiguration(configStr);
+        newConfig.setHitsPerPage(42);
+        ConfigurationDelta delta = ConfigurationDelta.compute(config, newConfig, version, "next");
+
+        response = target("configuration")
+                .path("delta")
+                .request()
+                .put(Entity.xml(delta.getXMLRepresentationAsString()));
+        assertEquals(Response.Status.CREATED.getStatusCode(), ApiUtils.waitForAsyncApi(response).getStatus());
+        assertEquals(42, env.getHitsPerPage());
+        assertEquals("/foo", env.getSourceRootPath());
+        assertEquals("next", target("configuration").path("version").request().get(String.class));
+
+        // The delta no longer applies to the configuration.
+        response = target("configuration")
+                .path("delta")
+                .request()
+                .put(Entity.xml(delta.getXMLRepresentationAsString()));
+        assertEquals(Response.Status.CONFLICT.getStatusCode(), response.getStatus());
+
+        // Any other change of the configuration invalidates the version.
+        setValue("hitsPerPage", "25");
+        assertEquals(Response.Status.NOT_FOUND.getStatusCode(),
+                target("configuration").path("version").request().get().getStatus());
+    }
+
+    /**
+     * The delta sent after reindex should not initialize the suggester from scratch, only the data
+     * of the changed projects should be rebuilt.
+     */
+    @Test
+    void testApplyConfigurationDeltaSuggester() throws Exception {
+        Configuration config = new Configuration();
+        config.setSourceRoot("/foo");
+        String configStr = config.getXMLRepresentationAsString();
+        String version = ConfigurationDelta.getVersion(configStr);
+
+        Response response = target("configuration")
+                .queryParam("version", version)
+                .request()
+                .put(Entity.xml(configStr));
+        assertEquals(Response.Status.CREATED.getStatusCode(), ApiUtils.waitForAsyncApi(response).getStatus());
+
+        Configuration newConfig = Configuration.makeXMLStringAsConfiguration(configStr);
+        newConfig.setHitsPerPage(42);
+        ConfigurationDelta delta = ConfigurationDelta.compute(config, newConfig, version, "next");
+
+        reset(suggesterService);
+        response = target("configuration")
+                .path("delta")
+                .queryParam("reindex", true)
+                .request()
+                .put(Entity.xml(delta.getXMLRepresentationAsString()));
+        assertEquals(Response.Status.CREATED.getStatusCode(), ApiUtils.waitForAsyncApi(response).getStatus());
+        verify(suggesterService, timeout(5000)).rebuildChanged();
+        verify(suggesterService, never()).refresh();
+
+        // The suggester depends on the suggester configuration as a whole.
+        Configuration nextConfig = Configuration.makeXMLStringAsConfiguration(newConfig.getXMLRepresentationAsString());
+        nextConfig.getSuggesterConfig().setMaxResults(nextConfig.getSuggesterConfig().getMaxResults() + 1);
+        delta = ConfigurationDelta.compute(newConfig, nextConfig, "next", "last");
+
+        reset(suggesterService);
+        response = target("configuration")
+                .path("delta")
+                .queryParam("reindex", true)
+                .request()
+                .put(Entity.xml(delta.getXMLRepresentationAsString()));
+        assertEquals(Response.Status.CREATED.getStatusCode(), ApiUtils.waitForAsyncApi(response).getStatus());
+        verify(suggesterService).refresh();
+        verify(suggesterService, never()).rebuildChanged();
+    }
+
     @Test
     void testApplySetInvalidMethod() throws Exception {
         Response r = setValue("noMethodExists", "1000");
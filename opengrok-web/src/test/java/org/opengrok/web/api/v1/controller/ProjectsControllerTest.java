@@ -23,7 +23,10 @@
  */
 package org.opengrok.web.api.v1.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.client.WebTarget;
 import jakarta.ws.rs.core.GenericType;
 import jakarta.ws.rs.core.Response;
 import org.glassfish.jersey.internal.inject.AbstractBinder;
@@ -73,6 +76,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -686,4 +690,50 @@ class ProjectsControllerTest extends OGKJerseyTest {
 
         assertEquals(expectedFiles, filesFromRequest);
     }
+
+    @Test
+    void testListFilesStream() throws IOException, IndexerException {
+        final String projectName = "mercurial";
+
+        Indexer.getInstance().prepareIndexer(
+                env,
+                true, // don't search for repositories
+                true, // add projects
+                // don't create dictionary
+                new ArrayList<>(), // subFiles - needed when refreshing history partially
+                new ArrayList<>()); // repositories - needed when refreshing history partially
+        Indexer.getInstance().doIndexerExecution(null, null);
+
+        List<String> filesFromRequest = new ArrayList<>();
+        String after = null;
+        do {
+            WebTarget target = target("projects")
+                    .path(projectName)
+                    .path("files")
+                    .path(ProjectsController.FILES_STREAM_PATH)
+                    .queryParam("limit", 2);
+            if (after != null) {
+                target = target.queryParam("after", after);
+            }
+            JsonNode page = new ObjectMapper().readTree(target.request().get(String.class));
+            page.get("files").forEach(node -> filesFromRequest.add(node.asText()));
+            after = page.get("after").isNull() ? null : page.get("after").asText();
+        } while (after != null);
+
+        filesFromRequest.sort(String::compareTo);
+        List<String> expectedFiles = Stream.of("Makefile", "bar.txt", "header.h", "main.c", "novel.txt")
+                .map(file -> "/" + projectName + "/" + file)
+                .sorted()
+                .collect(Collectors.toList());
+        assertEquals(expectedFiles, filesFromRequest);
+
+        Response response = target("projects")
+                .path(projectName)
+                .path("files")
+                .path(ProjectsController.FILES_STREAM_PATH)
+                .queryParam("limit", -1)
+                .request()
+                .get();
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+    }
 }
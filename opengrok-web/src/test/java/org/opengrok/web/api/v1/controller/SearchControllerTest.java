@@ -23,7 +23,11 @@
  */
 package org.opengrok.web.api.v1.controller;
 
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.client.WebTarget;
+import jakarta.ws.rs.core.GenericType;
 import jakarta.ws.rs.core.Response;
+import org.apache.lucene.search.ScoreDoc;
 import org.glassfish.jersey.servlet.ServletContainer;
 import org.glassfish.jersey.test.DeploymentContext;
 import org.glassfish.jersey.test.ServletDeploymentContext;
@@ -32,14 +36,24 @@ import org.glassfish.jersey.test.spi.TestContainerException;
 import org.glassfish.jersey.test.spi.TestContainerFactory;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
+import org.jetbrains.annotations.Nullable;
 import org.junit.jupiter.api.Test;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.index.Indexer;
 import org.opengrok.indexer.util.TestRepository;
 import org.opengrok.web.api.v1.RestApp;
 
+import java.nio.ByteBuffer;
+import java.util.Base64;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.opengrok.web.api.v1.filter.CorsFilter.ALLOW_CORS_HEADER;
 import static org.opengrok.web.api.v1.filter.CorsFilter.CORS_REQUEST_HEADER;
 
@@ -68,7 +82,10 @@ class SearchControllerTest extends OGKJerseyTest {
 
         env.setHistoryEnabled(false);
         env.setProjectsEnabled(true);
+        Indexer.getInstance().prepareIndexer(env, true, true,
+                null, null);
         env.setDefaultProjectsFromNames(Collections.singleton("__all__"));
+        Indexer.getInstance().doIndexerExecution(null, null);
 
         env.getSuggesterConfig().setRebuildCronConfig(null);
     }
@@ -86,4 +103,121 @@ class SearchControllerTest extends OGKJerseyTest {
                 .get();
         assertEquals("*", response.getHeaderString(ALLOW_CORS_HEADER));
     }
+
+    @Test
+    void testSearchStreamInvalidField() {
+        Response response = target(SearchController.PATH)
+                .path(SearchController.STREAM_PATH)
+                .queryParam("full", "main")
+                .queryParam("fields", "path,foo")
+                .request()
+                .get();
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+    }
+
+    @Test
+    void testSearchStreamInvalidCursor() {
+        Response response = target(SearchController.PATH)
+                .path(SearchController.STREAM_PATH)
+                .queryParam("full", "main")
+                .queryParam("searchAfter", "foo")
+                .request()
+                .get();
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+    }
+
+    @Test
+    void testSearchCursor() {
+        ScoreDoc scoreDoc = new ScoreDoc(42, 1.5f, 3);
+        String encoded = new SearchController.SearchCursor(scoreDoc, 7, 11).encode();
+
+        SearchController.SearchCursor cursor = SearchController.SearchCursor.decode(encoded, 7);
+        ScoreDoc decoded = cursor.getScoreDoc();
+        assertEquals(scoreDoc.doc, decoded.doc);
+        assertEquals(scoreDoc.score, decoded.score);
+        assertEquals(scoreDoc.shardIndex, decoded.shardIndex);
+        assertEquals(11, cursor.getIndexVersion());
+
+        // The cursor cannot be used for different query.
+        assertThrows(WebApplicationException.class, () -> SearchController.SearchCursor.decode(encoded, 8));
+    }
+
+    @Test
+    void testSearchCursorIndexVersion() {
+        long version = SearchController.SearchCursor.getIndexVersion(Map.of("foo", 1L, "bar", 2L));
+        assertEquals(version, SearchController.SearchCursor.getIndexVersion(Map.of("bar", 2L, "foo", 1L)));
+        assertNotEquals(version, SearchController.SearchCursor.getIndexVersion(Map.of("foo", 2L, "bar", 2L)));
+        assertNotEquals(version, SearchController.SearchCursor.getIndexVersion(Map.of("foo", 1L)));
+        assertEquals(0, SearchController.SearchCursor.getIndexVersion(null));
+    }
+
+    private Map<String, Object> searchStream(int maxResults, @Nullable String searchAfter) {
+        WebTarget target = target(SearchController.PATH)
+                .path(SearchController.STREAM_PATH)
+                .queryParam("full", "main")
+                .queryParam("maxresults", maxResults)
+                .queryParam("fields", "path,score");
+        if (searchAfter != null) {
+            target = target.queryParam("searchAfter", searchAfter);
+        }
+        Response response = target.request().get();
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        return response.readEntity(new GenericType<>() {
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> getPaths(Map<String, Object> result) {
+        return ((List<Map<String, Object>>) result.get("results")).stream()
+                .map(r -> (String) r.get("path"))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Page through the results with the cursor and compare them with the results of single page.
+     */
+    @Test
+    void testSearchStreamPaging() {
+        final int pageSize = 2;
+        Map<String, Object> all = searchStream(2 * pageSize, null);
+        List<String> allPaths = getPaths(all);
+        assertEquals(2 * pageSize, allPaths.size(), "need enough search hits for two pages");
+
+        Map<String, Object> first = searchStream(pageSize, null);
+        assertEquals(all.get("resultCount"), first.get("resultCount"));
+        List<String> firstPaths = getPaths(first);
+        assertEquals(allPaths.subList(0, pageSize), firstPaths);
+        String cursor = (String) first.get("searchAfter");
+        assertNotNull(cursor);
+
+        Map<String, Object> second = searchStream(pageSize, cursor);
+        assertEquals(all.get("resultCount"), second.get("resultCount"));
+        assertEquals(allPaths.subList(pageSize, 2 * pageSize), getPaths(second));
+        assertNotNull(second.get("searchAfter"));
+        assertNotEquals(cursor, second.get("searchAfter"));
+    }
+
+    /**
+     * The cursor for different version of the index should be rejected.
+     */
+    @Test
+    void testSearchStreamStaleCursor() {
+        String cursor = (String) searchStream(1, null).get("searchAfter");
+        assertNotNull(cursor);
+
+        // Change the index version stored at the end of the cursor.
+        ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(cursor));
+        int position = buffer.capacity() - Long.BYTES;
+        buffer.putLong(position, buffer.getLong(position) + 1);
+        String staleCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+
+        Response response = target(SearchController.PATH)
+                .path(SearchController.STREAM_PATH)
+                .queryParam("full", "main")
+                .queryParam("maxresults", 1)
+                .queryParam("searchAfter", staleCursor)
+                .request()
+                .get();
+        assertEquals(Response.Status.GONE.getStatusCode(), response.getStatus());
+    }
 }
@@ -24,14 +24,15 @@
 package org.opengrok.suggest;
 
 import org.opengrok.suggest.query.PhraseScorer;
-import org.opengrok.suggest.query.data.IntsHolder;
+import org.opengrok.suggest.query.data.DocIdSetIntsHolder;
 
 /**
  * Stores Suggester Query result Data.
  * @author Gino Augustine
  */
 class ComplexQueryData {
-    IntsHolder documentIds;
+    /** Matching documents of the segment, the IDs are relative to the segment. */
+    DocIdSetIntsHolder documentIds;
 
     PhraseScorer scorer;
 }
@@ -60,6 +60,13 @@ class LookupPriorityQueue extends PriorityQueue<LookupResultItem> {
         return Arrays.asList(res);
     }
 
+    /**
+     * @return whether the queue holds {@code maxSize} elements, i.e. new elements replace the lowest scored ones
+     */
+    boolean isFull() {
+        return size() >= maxSize;
+    }
+
     /**
      * Determines whether element with {@code score} would be inserted into this queue.
      * @param score score of the element to insert
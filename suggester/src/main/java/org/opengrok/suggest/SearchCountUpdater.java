@@ -0,0 +1,211 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.suggest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.opengrok.suggest.util.ThreadUtil;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Updates the search counts (i.e. the data for the most popular completion) off the request threads.
+ * The searches are put into a bounded lock-free queue which is periodically drained by a background thread.
+ * The increments are coalesced per project and term so that each project is updated once per batch.
+ * If the queue is full, the search is dropped and counted in the {@code suggester.search.count.updates}
+ * metric with the {@code dropped} tag.
+ */
+final class SearchCountUpdater implements Closeable {
+
+    /**
+     * Destination of the coalesced search count increments.
+     */
+    @FunctionalInterface
+    interface Sink {
+        /**
+         * @param project project key
+         * @param counts values to increment the search counts of the terms by
+         */
+        void increment(String project, Map<Term, Integer> counts);
+    }
+
+    static final int QUEUE_CAPACITY_DEFAULT = 10_000;
+
+    static final Duration FLUSH_INTERVAL_DEFAULT = Duration.ofSeconds(1);
+
+    private static final Logger LOGGER = Logger.getLogger(SearchCountUpdater.class.getName());
+
+    private final Queue<Search> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Number of searches in the queue. {@link ConcurrentLinkedQueue#size()} traverses the queue.
+     */
+    private final AtomicInteger queueSize = new AtomicInteger();
+
+    private final int capacity;
+
+    private final Sink sink;
+
+    private final ScheduledExecutorService flushExecutor;
+
+    private final Counter queuedCounter;
+
+    private final Counter droppedCounter;
+
+    private static final class Search {
+        private final List<String> projects;
+        private final Query query;
+
+        private Search(final List<String> projects, final Query query) {
+            this.projects = projects;
+            this.query = query;
+        }
+    }
+
+    /**
+     * @param capacity maximum number of searches waiting for the flush
+     * @param flushInterval interval between the flushes
+     * @param sink destination of the search count increments
+     * @param registry meter registry
+     */
+    SearchCountUpdater(final int capacity, final Duration flushInterval, final Sink sink,
+                       final MeterRegistry registry) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity needs to be positive");
+        }
+        this.capacity = capacity;
+        this.sink = sink;
+
+        queuedCounter = Counter.builder("suggester.search.count.updates").
+                description("searches queued for suggester search count update").
+                tag("result", "queued").
+                register(registry);
+        droppedCounter = Counter.builder("suggester.search.count.updates").
+                description("searches queued for suggester search count update").
+                tag("result", "dropped").
+                register(registry);
+
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            // This should match the naming in OpenGrokThreadFactory class.
+            thread.setName("OpenGrok-suggester-search-count-" + ThreadUtil.getThreadId(thread));
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = flushInterval.toMillis();
+        flushExecutor.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues the search for the update of the search counts. Does not block.
+     * @param projects keys of the projects the search was performed in
+     * @param query query of the search
+     * @return {@code false} if the search was dropped because the queue is full, {@code true} otherwise
+     */
+    boolean add(final List<String> projects, final Query query) {
+        if (queueSize.incrementAndGet() > capacity) {
+            queueSize.decrementAndGet();
+            droppedCounter.increment();
+            return false;
+        }
+        queue.offer(new Search(projects, query));
+        queuedCounter.increment();
+        return true;
+    }
+
+    /**
+     * @return number of searches waiting for the flush
+     */
+    int getQueueSize() {
+        return queueSize.get();
+    }
+
+    /**
+     * Drains the queue and passes the coalesced increments to the sink.
+     */
+    synchronized void flush() {
+        Map<String, Map<Term, Integer>> batch = new HashMap<>();
+        Search search;
+        while ((search = queue.poll()) != null) {
+            queueSize.decrementAndGet();
+            List<Term> terms = SuggesterUtils.intoTerms(search.query);
+            if (terms.isEmpty()) {
+                continue;
+            }
+            for (String project : search.projects) {
+                Map<Term, Integer> counts = batch.computeIfAbsent(project, p -> new HashMap<>());
+                for (Term term : terms) {
+                    counts.merge(term, 1, Integer::sum);
+                }
+            }
+        }
+
+        for (Map.Entry<String, Map<Term, Integer>> entry : batch.entrySet()) {
+            try {
+                sink.increment(entry.getKey(), entry.getValue());
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, e, () -> "Could not update search count map for " + entry.getKey());
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        // an exception would cancel the subsequent runs of the task
+        try {
+            flush();
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Could not update search counts", e);
+        }
+    }
+
+    /**
+     * Stops the background thread and flushes the searches still in the queue.
+     */
+    @Override
+    public void close() {
+        flushExecutor.shutdown();
+        try {
+            if (!flushExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOGGER.log(Level.WARNING, "Search count updates did not finish in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
@@ -31,8 +31,8 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.LeafCollector;
 import org.apache.lucene.search.Scorable;
 import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.util.FixedBitSet;
 import org.opengrok.suggest.query.PhraseScorer;
-import org.opengrok.suggest.query.data.BitIntsHolder;
 
 import java.io.IOException;
 
@@ -43,10 +43,10 @@ import java.io.IOException;
 class SuggestResultCollector implements Collector {
     private final LeafReaderContext leafReaderContext;
     private final ComplexQueryData data;
-    private final BitIntsHolder documentIds;
+    private final FixedBitSet documentIds;
 
     SuggestResultCollector(LeafReaderContext leafReaderContext, ComplexQueryData data,
-                                  BitIntsHolder documentIds) {
+                                  FixedBitSet documentIds) {
         this.leafReaderContext = leafReaderContext;
         this.data = data;
         this.documentIds = documentIds;
@@ -72,11 +72,9 @@ class SuggestResultCollector implements Collector {
 
     private final class SuggesterLeafCollector implements LeafCollector {
         private final LeafReaderContext context;
-        private final int docBase;
 
         private SuggesterLeafCollector(LeafReaderContext context) {
             this.context = context;
-            docBase = this.context.docBase;
         }
 
         /**
@@ -124,7 +122,7 @@ class SuggestResultCollector implements Collector {
         @Override
         public void collect(int doc) throws IOException {
             if (leafReaderContext == context) {
-                documentIds.set(docBase + doc);
+                documentIds.set(doc);
             }
         }
     }
@@ -22,6 +22,8 @@
  */
 package org.opengrok.suggest;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.apache.commons.lang3.time.DurationFormatUtils;
@@ -34,6 +36,7 @@ import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.util.BytesRef;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.VisibleForTesting;
+import org.opengrok.suggest.popular.impl.chronicle.ChronicleMapAccounting;
 import org.opengrok.suggest.util.ThreadUtil;
 import org.opengrok.suggest.query.SuggesterPrefixQuery;
 import org.opengrok.suggest.query.SuggesterQuery;
@@ -48,6 +51,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -108,10 +112,29 @@ public final class Suggester implements Closeable {
     private final Timer suggesterRebuildTimer;  // per suggester data
     private final Timer suggesterInitTimer;     // per suggester data
 
+    private final Counter resultCacheHits;
+    private final Counter resultCacheMisses;
+
+    private volatile SuggesterResultCache resultCache;
+
     private final ExecutorService searchExecutorService;
 
+    private final ExecutorService leafSearchExecutorService;
+
     private final ExecutorService initRebuildExecutor;
 
+    private final SearchCountUpdater searchCountUpdater;
+
+    private final ChronicleMapAccounting searchCountMapAccounting = new ChronicleMapAccounting();
+
+    /**
+     * The gauges are bound to this instance, so they have to be removed from the registry on {@link #close()}.
+     * Otherwise, the registry would keep returning them for the subsequently created instances.
+     */
+    private final List<Gauge> searchCountGauges = new ArrayList<>();
+
+    private final MeterRegistry registry;
+
     /**
      * @param suggesterDir directory under which the suggester data should be created
      * @param resultSize maximum number of items that should be returned
@@ -166,6 +189,15 @@ public final class Suggester implements Closeable {
                     return thread;
                 });
 
+        // separate pool for the index segments so that the lookup tasks never wait for each other
+        this.leafSearchExecutorService = Executors.newFixedThreadPool(searchParallelismLevel,
+                runnable -> {
+                    Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                    // This should match the naming in OpenGrokThreadFactory class.
+                    thread.setName("OpenGrok-suggester-leaf-" + ThreadUtil.getThreadId(thread));
+                    return thread;
+                });
+
         this.initRebuildExecutor = Executors.newFixedThreadPool(rebuildParallelismLevel,
                 runnable -> {
                     Thread thread = Executors.defaultThreadFactory().newThread(runnable);
@@ -180,6 +212,37 @@ public final class Suggester implements Closeable {
         suggesterInitTimer = Timer.builder("suggester.init.latency").
                 description("suggester initialization latency").
                 register(registry);
+        resultCacheHits = Counter.builder("suggester.cache").
+                description("suggester result cache lookups").
+                tag("result", "hit").
+                register(registry);
+        resultCacheMisses = Counter.builder("suggester.cache").
+                description("suggester result cache lookups").
+                tag("result", "miss").
+                register(registry);
+
+        this.registry = registry;
+        searchCountGauges.add(Gauge.builder("suggester.search.count.memory", searchCountMapAccounting,
+                        ChronicleMapAccounting::getOffHeapMemoryUsed).
+                description("off-heap memory used by the suggester search count maps").
+                baseUnit("bytes").
+                register(registry));
+        searchCountGauges.add(Gauge.builder("suggester.search.count.memory.budget", searchCountMapAccounting,
+                        ChronicleMapAccounting::getBudget).
+                description("off-heap memory budget for the suggester search count maps, 0 is unlimited").
+                baseUnit("bytes").
+                register(registry));
+        searchCountGauges.add(Gauge.builder("suggester.search.count.maps", searchCountMapAccounting,
+                        ChronicleMapAccounting::getMapCount).
+                description("number of the suggester search count maps").
+                register(registry));
+        searchCountGauges.add(Gauge.builder("suggester.search.count.entries", searchCountMapAccounting,
+                        ChronicleMapAccounting::getEntryCount).
+                description("number of the entries in the suggester search count maps").
+                register(registry));
+
+        searchCountUpdater = new SearchCountUpdater(SearchCountUpdater.QUEUE_CAPACITY_DEFAULT,
+                SearchCountUpdater.FLUSH_INTERVAL_DEFAULT, this::incrementSearchCounts, registry);
     }
 
     /**
@@ -225,6 +288,9 @@ public final class Suggester implements Closeable {
                 }
             }
 
+            // The shares of the memory budget are known only after the maps of all the projects were initialized.
+            projectDataMap.values().forEach(SuggesterProjectData::applySearchCountMemoryBudget);
+
             initDone.countDown();
             Duration duration = Duration.between(start, Instant.now());
             LOGGER.log(Level.INFO, "{0} (took {1})", new Object[]{"Suggesters for " + luceneIndexes + " were initialized",
@@ -246,7 +312,7 @@ public final class Suggester implements Closeable {
         SuggesterProjectData projectData = null;
         try {
             projectData = new SuggesterProjectData(FSDirectory.open(indexDir.path),
-                    getSuggesterDir(indexDir.name), allowMostPopular, allowedFields);
+                    getSuggesterDir(indexDir.name), allowMostPopular, allowedFields, searchCountMapAccounting);
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, String.format("creating suggester data for %s failed", indexDir), e);
             return null;
@@ -383,6 +449,9 @@ public final class Suggester implements Closeable {
                 }
             }
 
+            // The rebuilt maps might have changed the shares of the other maps.
+            projectDataMap.values().forEach(SuggesterProjectData::applySearchCountMemoryBudget);
+
             Duration duration = Duration.between(start, Instant.now());
             LOGGER.log(Level.INFO, "{0} (took {1})", new Object[]{"Suggesters for " + indexDirs + " were rebuilt",
                     DurationFormatUtils.formatDurationWords(duration.toMillis(),
@@ -398,6 +467,28 @@ public final class Suggester implements Closeable {
         }
     }
 
+    /**
+     * Rebuilds the data structures only for the indexes which changed since the data structures were built
+     * (or for which there are no data structures yet), e.g. after some of the indexes were updated by the indexer.
+     * @param indexDirs paths to lucene indexes and name with which the index should be associated
+     */
+    public void rebuildChanged(final Collection<NamedIndexDir> indexDirs) {
+        if (indexDirs == null) {
+            return;
+        }
+        List<NamedIndexDir> changedIndexDirs = indexDirs.stream().
+                filter(indexDir -> {
+                    SuggesterProjectData projectData = projectDataMap.get(getProjectDataKey(indexDir));
+                    return projectData == null || !projectData.isCurrent();
+                }).
+                collect(Collectors.toList());
+        if (changedIndexDirs.isEmpty()) {
+            LOGGER.log(Level.FINE, "Not rebuilding suggester data because none of the indexes changed");
+            return;
+        }
+        rebuild(changedIndexDirs);
+    }
+
     /**
      * wait for rebuild to finish.
      * @param timeout timeout value
@@ -480,15 +571,83 @@ public final class Suggester implements Closeable {
                     indexReaders.get(0).getReader()));
         }
 
+        boolean complex = SuggesterUtils.isComplexQuery(query, suggesterQuery);
+
+        SuggesterResultCache cache = resultCache;
+        SuggesterResultCache.Key cacheKey = null;
+        long[] cacheStamps = null;
+        if (cache != null) {
+            readers = readers.stream().sorted(Comparator.comparing(NamedIndexReader::getName))
+                    .collect(Collectors.toList());
+            // The stamps are taken before the lookup so that concurrent rebuild makes the entry stale.
+            cacheStamps = getCacheStamps(readers, complex);
+            cacheKey = getCacheKey(readers, suggesterQuery, complex ? query : null);
+            if (cacheStamps != null && cacheKey != null) {
+                List<LookupResultItem> items = cache.get(cacheKey, cacheStamps);
+                if (items != null) {
+                    resultCacheHits.increment();
+                    return new Suggestions(items, false);
+                }
+                resultCacheMisses.increment();
+            }
+        }
+
         Suggestions suggestions;
-        if (!SuggesterUtils.isComplexQuery(query, suggesterQuery)) { // use WFST for lone prefix
+        if (!complex) { // use WFST for lone prefix
             suggestions = prefixLookup(readers, (SuggesterPrefixQuery) suggesterQuery);
         } else {
             suggestions = complexLookup(readers, suggesterQuery, query);
         }
 
-        return new Suggestions(SuggesterUtils.combineResults(suggestions.items, resultSize),
-                suggestions.partialResult);
+        List<LookupResultItem> items = SuggesterUtils.combineResults(suggestions.items, resultSize);
+        if (cache != null && cacheStamps != null && cacheKey != null && !suggestions.partialResult) {
+            cache.put(cacheKey, cacheStamps, items);
+        }
+
+        return new Suggestions(items, suggestions.partialResult);
+    }
+
+    /**
+     * The prefix lookup depends only on the suggester data which change with rebuild. The complex lookup
+     * reads the index directly, however with most popular completion enabled, it also uses the search counts
+     * which change with every search.
+     * @return stamps of the suggester data of the projects or {@code null} if some of the data is not available
+     */
+    @Nullable
+    private long[] getCacheStamps(final List<NamedIndexReader> readers, final boolean complex) {
+        long[] stamps = new long[readers.size()];
+        for (int i = 0; i < stamps.length; i++) {
+            SuggesterProjectData data = projectDataMap.get(readers.get(i).name);
+            if (data == null) {
+                return null;
+            }
+            stamps[i] = data.getLookupStamp();
+            if (complex && allowMostPopular) {
+                stamps[i] = Math.max(stamps[i], data.getSearchCountStamp());
+            }
+        }
+        return stamps;
+    }
+
+    @Nullable
+    private static SuggesterResultCache.Key getCacheKey(
+            final List<NamedIndexReader> readers,
+            final SuggesterQuery suggesterQuery,
+            @Nullable final Query query
+    ) {
+        List<String> names = new ArrayList<>(readers.size());
+        List<Object> readerKeys = new ArrayList<>();
+        for (NamedIndexReader namedReader : readers) {
+            names.add(namedReader.name);
+            if (query != null) {
+                IndexReader.CacheHelper cacheHelper = namedReader.reader.getReaderCacheHelper();
+                if (cacheHelper == null) {
+                    return null;
+                }
+                readerKeys.add(cacheHelper.getKey());
+            }
+        }
+        return new SuggesterResultCache.Key(suggesterQuery, query, names, readerKeys);
     }
 
     private Suggestions prefixLookup(
@@ -569,32 +728,30 @@ public final class Suggester implements Closeable {
     }
 
     /**
-     * Handler for search events.
+     * Handler for search events. The search counts are updated asynchronously, see {@link SearchCountUpdater}.
      * @param projects projects that the {@code query} was used to search in
      * @param query query that was used to perform the search
      */
     public void onSearch(final Iterable<String> projects, final Query query) {
-        if (!allowMostPopular || projects == null) {
+        if (!allowMostPopular || projects == null || query == null) {
             return;
         }
-        try {
-            List<Term> terms = SuggesterUtils.intoTerms(query);
 
-            if (!projectsEnabled) {
-                incrementSearchCount(terms, PROJECTS_DISABLED_KEY);
-            } else {
-                projects.forEach(project -> incrementSearchCount(terms, project));
-            }
-        } catch (Exception e) {
-            LOGGER.log(Level.FINE,
-                    String.format("Could not update search count map%s",
-                            projectsEnabled ? " for projects: " + projects : ""), e);
+        List<String> projectDataKeys;
+        if (!projectsEnabled) {
+            projectDataKeys = Collections.singletonList(PROJECTS_DISABLED_KEY);
+        } else {
+            projectDataKeys = new ArrayList<>();
+            projects.forEach(projectDataKeys::add);
+        }
+        if (!searchCountUpdater.add(projectDataKeys, query)) {
+            LOGGER.log(Level.FINEST, "Search count update queue is full, ignoring query {0}", query);
         }
     }
 
-    private void incrementSearchCount(List<Term> terms, final String projectDataKey) {
+    private void incrementSearchCounts(final String projectDataKey, final Map<Term, Integer> counts) {
         Optional.ofNullable(projectDataMap.get(projectDataKey))
-                .ifPresent(data -> terms.forEach(data::incrementSearchCount));
+                .ifPresent(data -> data.incrementSearchCounts(counts));
     }
 
     /**
@@ -606,6 +763,39 @@ public final class Suggester implements Closeable {
             throw new IllegalArgumentException("Result size cannot be negative");
         }
         this.resultSize = resultSize;
+        SuggesterResultCache cache = resultCache;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Sets the maximum number of cached suggestion results. The cache is keyed by the suggester query,
+     * the query the suggestions depend on and the projects. The entries are invalidated when the suggester
+     * data of any of the projects are rebuilt.
+     * @param resultCacheSize maximum number of cached results, 0 disables the cache
+     */
+    public void setResultCacheSize(final int resultCacheSize) {
+        if (resultCacheSize < 0) {
+            throw new IllegalArgumentException("Result cache size cannot be negative");
+        }
+        this.resultCache = resultCacheSize > 0 ? new SuggesterResultCache(resultCacheSize) : null;
+    }
+
+    /**
+     * Sets the budget for the off-heap memory of the search count maps (used for the most popular completion)
+     * of all the projects. If the budget would be exceeded, the number of entries of each map is shrunk
+     * proportionally. Takes effect for the maps initialized afterwards, i.e. on the next init or rebuild.
+     * @param budget memory budget in bytes, 0 means unlimited
+     */
+    public void setSearchCountMemoryBudget(final long budget) {
+        searchCountMapAccounting.setBudget(budget);
+    }
+
+    @VisibleForTesting
+    int getResultCacheEntries() {
+        SuggesterResultCache cache = resultCache;
+        return cache != null ? cache.size() : 0;
     }
 
     /**
@@ -644,7 +834,8 @@ public final class Suggester implements Closeable {
     }
 
     /**
-     * Returns the searched terms sorted according to their popularity.
+     * Returns the searched terms sorted according to their popularity. The pending search count updates
+     * are applied first.
      * @param project project for which to return the data
      * @param field field for which to return the data
      * @param page which page of data to retrieve
@@ -657,6 +848,8 @@ public final class Suggester implements Closeable {
             final int page,
             final int pageSize
     ) {
+        searchCountUpdater.flush();
+
         SuggesterProjectData data = projectDataMap.get(project);
         if (data == null) {
             LOGGER.log(Level.FINE, "Cannot retrieve search counts because suggester data for project {0} was not found",
@@ -680,6 +873,9 @@ public final class Suggester implements Closeable {
     @Override
     public void close() {
         searchExecutorService.shutdownNow();
+        leafSearchExecutorService.shutdownNow();
+        searchCountUpdater.close();
+        searchCountGauges.forEach(registry::remove);
         shutdownAndAwaitTermination(initRebuildExecutor);
         projectDataMap.values().forEach(f -> {
             try {
@@ -728,7 +924,8 @@ public final class Suggester implements Closeable {
                 }
 
                 try {
-                    SuggesterSearcher searcher = new SuggesterSearcher(namedIndexReader.reader, resultSize);
+                    SuggesterSearcher searcher = new SuggesterSearcher(namedIndexReader.reader, resultSize,
+                            leafSearchExecutorService);
 
                     List<LookupResultItem> resultItems = searcher.suggest(query, namedIndexReader.name, suggesterQuery,
                             data.getSearchCounts(suggesterQuery.getField()));
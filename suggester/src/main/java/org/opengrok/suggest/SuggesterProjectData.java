@@ -35,8 +35,10 @@ import org.apache.lucene.search.suggest.fst.WFSTCompletionLookup;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.util.BytesRef;
+import org.jetbrains.annotations.VisibleForTesting;
 import org.opengrok.suggest.popular.PopularityCounter;
 import org.opengrok.suggest.popular.PopularityMap;
+import org.opengrok.suggest.popular.impl.chronicle.ChronicleMapAccounting;
 import org.opengrok.suggest.popular.impl.chronicle.ChronicleMapAdapter;
 import org.opengrok.suggest.popular.impl.chronicle.ChronicleMapConfiguration;
 
@@ -57,6 +59,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
@@ -85,6 +88,12 @@ class SuggesterProjectData implements Closeable {
 
     private static final double AVERAGE_LENGTH_DEFAULT = 22;
 
+    /**
+     * Source of the stamps, shared by all instances so that data removed and created again
+     * under the same name never reuse a stamp.
+     */
+    private static final AtomicLong STAMP_SEQUENCE = new AtomicLong();
+
     private final Directory indexDir;
 
     private final Path suggesterDir;
@@ -105,18 +114,38 @@ class SuggesterProjectData implements Closeable {
 
     private final Directory tempDir;
 
+    private final ChronicleMapAccounting mapAccounting;
+
     private boolean initialized;    // Whether init() was called.
 
+    private volatile long lookupStamp = STAMP_SEQUENCE.incrementAndGet();
+
+    private volatile long searchCountStamp = STAMP_SEQUENCE.incrementAndGet();
+
     SuggesterProjectData(
             final Directory indexDir,
             final Path suggesterDir,
             final boolean allowMostPopular,
             final Set<String> allowedFields
+    ) throws IOException {
+        this(indexDir, suggesterDir, allowMostPopular, allowedFields, new ChronicleMapAccounting());
+    }
+
+    /**
+     * @param mapAccounting accounting of the search count maps shared with the data of the other projects
+     */
+    SuggesterProjectData(
+            final Directory indexDir,
+            final Path suggesterDir,
+            final boolean allowMostPopular,
+            final Set<String> allowedFields,
+            final ChronicleMapAccounting mapAccounting
     ) throws IOException {
         this.indexDir = indexDir;
         this.suggesterDir = suggesterDir;
         this.allowMostPopular = allowMostPopular;
         this.allowedFields = allowedFields;
+        this.mapAccounting = mapAccounting;
 
         tempDir = FSDirectory.open(Paths.get(System.getProperty(TMP_DIR_PROPERTY)));
 
@@ -168,6 +197,7 @@ class SuggesterProjectData implements Closeable {
 
             initialized = true;
         } finally {
+            lookupStamp = STAMP_SEQUENCE.incrementAndGet();
             lock.writeLock().unlock();
         }
     }
@@ -249,10 +279,26 @@ class SuggesterProjectData implements Closeable {
 
             storeDataVersion(getCommitVersion());
         } finally {
+            lookupStamp = STAMP_SEQUENCE.incrementAndGet();
             lock.writeLock().unlock();
         }
     }
 
+    /**
+     * @return whether the data are initialized and were built from the current commit of the index
+     */
+    public boolean isCurrent() {
+        lock.readLock().lock();
+        try {
+            return initialized && getCommitVersion() == getDataVersion();
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.FINE, e, () -> "Could not determine index version of " + this);
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     public boolean isInitialized() {
         lock.writeLock().lock();
         try {
@@ -305,8 +351,7 @@ class SuggesterProjectData implements Closeable {
 
     @SuppressWarnings("{java:S2095,java:S1181}")
     private void initSearchCountMap() throws IOException {
-        searchCountMaps.values().forEach(PopularityMap::close);
-        searchCountMaps.clear();
+        closeSearchCountMaps();
 
         for (String field : fields) {
             int numEntries = (int) lookups.get(field).getCount();
@@ -316,34 +361,93 @@ class SuggesterProjectData implements Closeable {
                 continue;
             }
 
+            File f = getChronicleMapFile(field);
+            // number of entries shrunk to fit the memory budget shared with the other maps
+            int entries = mapAccounting.getEntries(f, numEntries, getAverageLength(field));
+
             ChronicleMapConfiguration conf = ChronicleMapConfiguration.load(suggesterDir, field);
             if (conf == null) { // it was not yet initialized
-                conf = new ChronicleMapConfiguration(numEntries, getAverageLength(field));
+                conf = new ChronicleMapConfiguration(entries, getAverageLength(field));
                 conf.save(suggesterDir, field);
             }
 
-            File f = getChronicleMapFile(field);
-
             var chronicleMapAdapter = createChronicleMapAdapter(field, conf, f);
             if (Objects.isNull(chronicleMapAdapter)) {
+                mapAccounting.unregister(f);
                 return;
             }
-            if (getCommitVersion() != getDataVersion()) {
+            boolean dataChanged = getCommitVersion() != getDataVersion();
+            if (dataChanged) {
                 removeOldTerms(chronicleMapAdapter, lookups.get(field));
+            }
+            if ((dataChanged && conf.getEntries() < entries) ||
+                    (mapAccounting.isLimited() && conf.getEntries() > entries)) {
+                double newKeyAvgLength = getAverageLength(field);
 
-                if (conf.getEntries() < lookups.get(field).getCount()) {
-                    int newEntriesCount = (int) lookups.get(field).getCount();
-                    double newKeyAvgLength = getAverageLength(field);
+                conf.setEntries(entries);
+                conf.setAverageKeySize(newKeyAvgLength);
+                conf.save(suggesterDir, field);
 
-                    conf.setEntries(newEntriesCount);
-                    conf.setAverageKeySize(newKeyAvgLength);
-                    conf.save(suggesterDir, field);
+                chronicleMapAdapter.resize(entries, newKeyAvgLength);
+            }
+            mapAccounting.register(f, chronicleMapAdapter);
+            searchCountMaps.put(field, chronicleMapAdapter);
+
+        }
+    }
 
-                    chronicleMapAdapter.resize(newEntriesCount, newKeyAvgLength);
+    /**
+     * Shrinks the search count maps which exceed their share of the memory budget. The share depends on
+     * the requests of the maps of all the projects, hence this should be called once the data of all the projects
+     * are initialized.
+     */
+    void applySearchCountMemoryBudget() {
+        if (!mapAccounting.isLimited()) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Entry<String, PopularityMap> entry : searchCountMaps.entrySet()) {
+                String field = entry.getKey();
+                int entries = mapAccounting.getEntries(getChronicleMapFile(field));
+                if (!(entry.getValue() instanceof ChronicleMapAdapter) || entries <= 0) {
+                    continue;
+                }
+                ChronicleMapAdapter chronicleMapAdapter = (ChronicleMapAdapter) entry.getValue();
+                if (chronicleMapAdapter.getEntries() <= entries) {
+                    continue;
+                }
+
+                double averageKeySize = getAverageLength(field);
+                ChronicleMapConfiguration conf = new ChronicleMapConfiguration(entries, averageKeySize);
+                conf.save(suggesterDir, field);
+                try {
+                    chronicleMapAdapter.resize(entries, averageKeySize);
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, String.format("Could not shrink search count map for field %s in '%s'",
+                            field, suggesterDir), e);
                 }
             }
-            searchCountMaps.put(field, chronicleMapAdapter);
+        } finally {
+            searchCountStamp = STAMP_SEQUENCE.incrementAndGet();
+            lock.writeLock().unlock();
+        }
+    }
 
+    /**
+     * @param field term field
+     * @return number of entries the search count map of the field was created with or {@code -1} if there is
+     * no such map
+     */
+    @VisibleForTesting
+    int getSearchCountMapEntries(final String field) {
+        lock.readLock().lock();
+        try {
+            PopularityMap map = searchCountMaps.get(field);
+            return map instanceof ChronicleMapAdapter ? ((ChronicleMapAdapter) map).getEntries() : -1;
+        } finally {
+            lock.readLock().unlock();
         }
     }
 
@@ -417,6 +521,21 @@ class SuggesterProjectData implements Closeable {
         return Collections.emptyList();
     }
 
+    /**
+     * @return stamp that changes whenever the results of {@link #lookup(String, String, int)} might change,
+     * i.e. after initialization or rebuild
+     */
+    long getLookupStamp() {
+        return lookupStamp;
+    }
+
+    /**
+     * @return stamp that changes whenever a search count is incremented
+     */
+    long getSearchCountStamp() {
+        return searchCountStamp;
+    }
+
     /**
      * Removes all stored data structures.
      */
@@ -476,22 +595,61 @@ class SuggesterProjectData implements Closeable {
         }
 
         try {
-            WFSTCompletionLookup lookup = lookups.get(term.field());
-            if (lookup == null || lookup.get(term.text()) == null) {
-                logger.log(Level.FINE, "Cannot increment search count for unknown term {0} in ''{1}''",
-                        new Object[]{term, suggesterDir});
-                return false; // unknown term
-            }
+            ret = doIncrementSearchCount(term, value);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return ret;
+    }
 
-            PopularityMap map = searchCountMaps.get(term.field());
-            if (map != null) {
-                map.increment(term.bytes(), value);
-                ret = true;
+    /**
+     * Increments search counts of multiple terms under single acquisition of the lock. The counts are not
+     * incremented if the data are being rebuilt.
+     * @param counts values to increment the search counts of the terms by
+     * @return number of terms whose search count was incremented
+     */
+    int incrementSearchCounts(final Map<Term, Integer> counts) {
+        if (!lock.readLock().tryLock()) {
+            logger.log(Level.INFO, "Cannot increment search counts for {0} terms in ''{1}'', rebuild in progress",
+                    new Object[]{counts.size(), suggesterDir});
+            return 0;
+        }
+
+        int incremented = 0;
+        try {
+            for (Entry<Term, Integer> entry : counts.entrySet()) {
+                if (doIncrementSearchCount(entry.getKey(), entry.getValue())) {
+                    incremented++;
+                }
             }
         } finally {
             lock.readLock().unlock();
         }
-        return ret;
+        return incremented;
+    }
+
+    private boolean doIncrementSearchCount(final Term term, final int value) {
+        WFSTCompletionLookup lookup = lookups.get(term.field());
+        if (lookup == null || lookup.get(term.text()) == null) {
+            logger.log(Level.FINE, "Cannot increment search count for unknown term {0} in ''{1}''",
+                    new Object[]{term, suggesterDir});
+            return false; // unknown term
+        }
+
+        PopularityMap map = searchCountMaps.get(term.field());
+        if (map == null) {
+            return false;
+        }
+        try {
+            map.increment(term.bytes(), value);
+        } catch (IllegalStateException e) {
+            // the map is full even after trimming, do not let it abort the increments of the other terms
+            logger.log(Level.FINE, e, () -> String.format("Cannot increment search count for term %s in '%s'",
+                    term, suggesterDir));
+            return false;
+        }
+        searchCountStamp = STAMP_SEQUENCE.incrementAndGet();
+        return true;
     }
 
     /**
@@ -516,13 +674,7 @@ class SuggesterProjectData implements Closeable {
     public void close() throws IOException {
         lock.writeLock().lock();
         try {
-            searchCountMaps.values().forEach(val -> {
-                try {
-                    val.close();
-                } catch (Exception e) {
-                    logger.log(Level.WARNING, "Could not properly close most popular completion data", e);
-                }
-            });
+            closeSearchCountMaps();
             indexDir.close();
 
             tempDir.close();
@@ -531,6 +683,18 @@ class SuggesterProjectData implements Closeable {
         }
     }
 
+    private void closeSearchCountMaps() {
+        for (Entry<String, PopularityMap> entry : searchCountMaps.entrySet()) {
+            mapAccounting.unregister(getChronicleMapFile(entry.getKey()));
+            try {
+                entry.getValue().close();
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Could not properly close most popular completion data", e);
+            }
+        }
+        searchCountMaps.clear();
+    }
+
     private long getDataVersion() {
         File versionFile = getFile(VERSION_FILE_NAME);
         if (!versionFile.exists()) {
@@ -0,0 +1,146 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.suggest;
+
+import org.apache.lucene.search.Query;
+import org.jetbrains.annotations.Nullable;
+import org.opengrok.suggest.query.SuggesterQuery;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * LRU cache of the merged suggestions. Each entry remembers the stamps of the suggester data of the projects
+ * it was computed from (see {@link SuggesterProjectData#getLookupStamp()}), the entry is considered stale
+ * once any of the stamps changes.
+ */
+class SuggesterResultCache {
+
+    private final int maxSize;
+
+    private final Map<Key, Value> map;
+
+    SuggesterResultCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Key, Value> eldest) {
+                return size() > SuggesterResultCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param key cache key
+     * @param stamps current stamps of the suggester data of the projects in the key
+     * @return cached suggestions or {@code null} if there are no suggestions for the key or they are stale
+     */
+    @Nullable
+    synchronized List<LookupResultItem> get(final Key key, final long[] stamps) {
+        Value value = map.get(key);
+        if (value == null) {
+            return null;
+        }
+        if (!Arrays.equals(value.stamps, stamps)) {
+            map.remove(key);
+            return null;
+        }
+        return value.items;
+    }
+
+    synchronized void put(final Key key, final long[] stamps, final List<LookupResultItem> items) {
+        map.put(key, new Value(stamps, List.copyOf(items)));
+    }
+
+    synchronized void clear() {
+        map.clear();
+    }
+
+    synchronized int size() {
+        return map.size();
+    }
+
+    private static final class Value {
+
+        private final long[] stamps;
+
+        private final List<LookupResultItem> items;
+
+        private Value(final long[] stamps, final List<LookupResultItem> items) {
+            this.stamps = stamps;
+            this.items = items;
+        }
+    }
+
+    /**
+     * Identifies the suggestions request. The queries are immutable and implement {@code equals()}.
+     */
+    static final class Key {
+
+        private final SuggesterQuery suggesterQuery;
+
+        private final Query query;
+
+        private final List<String> projects;
+
+        private final List<Object> readerKeys;
+
+        /**
+         * @param suggesterQuery query for the suggestions
+         * @param query query on which the suggestions depend, {@code null} for the prefix lookup
+         * @param projects names of the projects
+         * @param readerKeys cache keys of the index readers the suggestions were computed from if the data
+         * were read directly from the index rather than from the suggester data
+         */
+        Key(final SuggesterQuery suggesterQuery, @Nullable final Query query, final List<String> projects,
+            final List<Object> readerKeys) {
+            this.suggesterQuery = suggesterQuery;
+            this.query = query;
+            this.projects = projects;
+            this.readerKeys = readerKeys;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return suggesterQuery.equals(key.suggesterQuery) &&
+                    Objects.equals(query, key.query) &&
+                    projects.equals(key.projects) &&
+                    readerKeys.equals(key.readerKeys);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(suggesterQuery, query, projects, readerKeys);
+        }
+    }
+}
@@ -35,10 +35,13 @@ import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Weight;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.jetbrains.annotations.Nullable;
 import org.opengrok.suggest.popular.PopularityCounter;
 import org.opengrok.suggest.query.SuggesterRangeQuery;
-import org.opengrok.suggest.query.data.BitIntsHolder;
+import org.opengrok.suggest.query.data.DocIdSetIntsHolder;
 import org.opengrok.suggest.query.data.IntsHolder;
 import org.opengrok.suggest.query.SuggesterQuery;
 import org.opengrok.suggest.query.customized.CustomPhraseQuery;
@@ -50,6 +53,10 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -65,21 +72,34 @@ class SuggesterSearcher extends IndexSearcher {
 
     private final int resultSize;
 
-    private boolean interrupted;
+    private volatile boolean interrupted;
 
     private final int numDocs;
 
     private final IndexSearcher is;
 
+    private final ExecutorService leafExecutor;
+
     /**
      * @param reader reader of the index for which to provide suggestions
      * @param resultSize size of the results
      */
     SuggesterSearcher(final IndexReader reader, final int resultSize) {
+        this(reader, resultSize, null);
+    }
+
+    /**
+     * @param reader reader of the index for which to provide suggestions
+     * @param resultSize size of the results
+     * @param leafExecutor executor used to scan the index segments in parallel, if {@code null} the segments
+     * are scanned sequentially in the calling thread
+     */
+    SuggesterSearcher(final IndexReader reader, final int resultSize, @Nullable final ExecutorService leafExecutor) {
         super(reader);
         is = new IndexSearcher(reader);
         numDocs = reader.numDocs();
         this.resultSize = resultSize;
+        this.leafExecutor = leafExecutor;
     }
 
     /**
@@ -111,15 +131,15 @@ class SuggesterSearcher extends IndexSearcher {
             return results;
         }
 
-        for (LeafReaderContext context : this.leafContexts) {
-            if (interrupted) {
-                break;
-            }
-            try {
-                results.addAll(suggest(rewrittenQuery, context, project, suggesterQuery, popularityCounter));
-            } catch (IOException e) {
-                logger.log(Level.WARNING, "Cannot perform suggester search", e);
+        if (leafExecutor == null || leafContexts.size() < 2) {
+            for (LeafReaderContext context : this.leafContexts) {
+                if (interrupted) {
+                    break;
+                }
+                results.addAll(suggestLeaf(rewrittenQuery, context, project, suggesterQuery, popularityCounter));
             }
+        } else {
+            suggestParallel(rewrittenQuery, project, suggesterQuery, popularityCounter, results);
         }
 
         if (results.size() > resultSize) {
@@ -129,6 +149,57 @@ class SuggesterSearcher extends IndexSearcher {
         return results;
     }
 
+    /**
+     * Scans the segments in {@link #leafExecutor}. If the calling thread is interrupted (i.e. the suggestions
+     * timed out), the interrupt is propagated to the segment tasks.
+     */
+    private void suggestParallel(
+            final Query query,
+            final String project,
+            final SuggesterQuery suggesterQuery,
+            final PopularityCounter popularityCounter,
+            final List<LookupResultItem> results
+    ) {
+        List<Future<List<LookupResultItem>>> futures = new ArrayList<>(leafContexts.size());
+        for (LeafReaderContext context : this.leafContexts) {
+            futures.add(leafExecutor.submit(() ->
+                    suggestLeaf(query, context, project, suggesterQuery, popularityCounter)));
+        }
+
+        for (Future<List<LookupResultItem>> future : futures) {
+            if (interrupted) {
+                future.cancel(true);
+                continue;
+            }
+            try {
+                results.addAll(future.get());
+            } catch (InterruptedException e) {
+                interrupted = true;
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+            } catch (CancellationException e) {
+                interrupted = true;
+            } catch (ExecutionException e) {
+                logger.log(Level.WARNING, "Cannot perform suggester search", e.getCause());
+            }
+        }
+    }
+
+    private List<LookupResultItem> suggestLeaf(
+            final Query query,
+            final LeafReaderContext context,
+            final String project,
+            final SuggesterQuery suggesterQuery,
+            final PopularityCounter popularityCounter
+    ) {
+        try {
+            return suggest(query, context, project, suggesterQuery, popularityCounter);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Cannot perform suggester search", e);
+            return Collections.emptyList();
+        }
+    }
+
     private List<LookupResultItem> suggest(
             final Query query,
             final LeafReaderContext leafReaderContext,
@@ -171,34 +242,62 @@ class SuggesterSearcher extends IndexSearcher {
 
         PostingsEnum postingsEnum = null;
 
-        BytesRef term = termsEnum.next();
-        while (term != null) {
-            if (Thread.currentThread().isInterrupted()) {
+        for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+            if (interrupted || Thread.currentThread().isInterrupted()) {
                 interrupted = true;
                 break;
             }
-            postingsEnum = derivePostingsEnum(postingsEnum, termsEnum, needPositionsAndFrequencies);
 
             int score = 0;
+            int searchCount = -1;
             if (!needsDocumentIds) {
                 score = normalizeDocumentFrequency(termsEnum.docFreq(), numDocs);
-            } else if (needPositionsAndFrequencies) {
-                score = getPhraseScore(complexQueryData, leafReaderContext.docBase, postingsEnum);
-            } else if (complexQueryData != null) {
-                score = getDocumentFrequency(complexQueryData.documentIds, leafReaderContext.docBase, postingsEnum);
+            } else if (needPositionsAndFrequencies || complexQueryData != null) {
+                if (queue.isFull()) {
+                    // Skip decoding the postings of the terms that cannot make it to the queue.
+                    searchCount = searchCounts.get(term);
+                    long upperBound = getScoreUpperBound(termsEnum, complexQueryData, needPositionsAndFrequencies)
+                            + (long) searchCount * TERM_ALREADY_SEARCHED_MULTIPLIER;
+                    if (!queue.canInsert(upperBound)) {
+                        continue;
+                    }
+                }
+
+                postingsEnum = derivePostingsEnum(postingsEnum, termsEnum, needPositionsAndFrequencies);
+                if (needPositionsAndFrequencies) {
+                    score = getPhraseScore(complexQueryData, postingsEnum);
+                } else {
+                    score = getDocumentFrequency(complexQueryData.documentIds, postingsEnum);
+                }
             }
 
             if (shouldAddScoreForTerm(score, term, tokensAlreadyIncluded)) {
-                score += searchCounts.get(term) * TERM_ALREADY_SEARCHED_MULTIPLIER;
+                if (searchCount < 0) {
+                    searchCount = searchCounts.get(term);
+                }
+                score += searchCount * TERM_ALREADY_SEARCHED_MULTIPLIER;
                 insertScoreToQueue(queue, score, term, project);
             }
-
-            term = termsEnum.next();
         }
 
         return queue.getResult();
     }
 
+    /**
+     * The phrase score counts the positions of the term so it cannot exceed the total term frequency,
+     * the document frequency score cannot exceed the score for all the documents of the term matching.
+     * @return upper bound of the score (without the search count part) of the current term of {@code termsEnum}
+     */
+    private static long getScoreUpperBound(final TermsEnum termsEnum, final ComplexQueryData data,
+                                           final boolean needPositionsAndFrequencies) throws IOException {
+        if (needPositionsAndFrequencies) {
+            long totalTermFreq = termsEnum.totalTermFreq();
+            return totalTermFreq >= 0 ? totalTermFreq : Long.MAX_VALUE / 2;
+        }
+        int documents = data.documentIds.numberOfElements();
+        return normalizeDocumentFrequency(Math.min(termsEnum.docFreq(), documents), documents);
+    }
+
     private PostingsEnum derivePostingsEnum(PostingsEnum postingsEnum,
                                            TermsEnum termsEnum,
                                            boolean needPositionsAndFrequencies) throws IOException {
@@ -232,13 +331,16 @@ class SuggesterSearcher extends IndexSearcher {
     private ComplexQueryData getComplexQueryData(final Query query, final LeafReaderContext leafReaderContext) {
         ComplexQueryData data = new ComplexQueryData();
         if (query == null || query instanceof SuggesterQuery) {
-            data.documentIds = new BitIntsHolder(0);
+            data.documentIds = new DocIdSetIntsHolder(new FixedBitSet(0));
             return data;
         }
 
-        BitIntsHolder documentIds = new BitIntsHolder();
+        // only the documents of the segment are needed so the other segments are not searched at all
+        FixedBitSet documentIds = new FixedBitSet(leafReaderContext.reader().maxDoc());
         try {
-            search(query, new SuggestResultCollector(leafReaderContext, data, documentIds));
+            SuggestResultCollector collector = new SuggestResultCollector(leafReaderContext, data, documentIds);
+            Weight weight = createWeight(rewrite(query), collector.scoreMode(), 1);
+            search(Collections.singletonList(leafReaderContext), weight, collector);
         } catch (IOException e) {
             if (Thread.currentThread().isInterrupted()) {
                 interrupted = true;
@@ -250,29 +352,28 @@ class SuggesterSearcher extends IndexSearcher {
             logger.log(Level.WARNING, e, () -> "Could not get document ids for " + query);
         }
 
-        data.documentIds = documentIds;
+        data.documentIds = new DocIdSetIntsHolder(documentIds);
         return data;
     }
 
-    private int getPhraseScore(final ComplexQueryData data, final int docBase, final PostingsEnum postingsEnum)
-            throws IOException {
+    private int getPhraseScore(final ComplexQueryData data, final PostingsEnum postingsEnum) throws IOException {
 
         int weight = 0;
-        while (postingsEnum.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
-            int docId = postingsEnum.docID();
-            if (data.documentIds.has(docBase + docId)) {
-                IntsHolder positions = data.scorer.getPositions(docId);
-                if (positions == null) {
-                    continue;
-                }
+        // the postings are positioned on the documents of the intersection
+        DocIdSetIterator documents = data.documentIds.intersect(postingsEnum);
+        int docId;
+        while ((docId = documents.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+            IntsHolder positions = data.scorer.getPositions(docId);
+            if (positions == null) {
+                continue;
+            }
 
-                int freq = postingsEnum.freq();
-                for (int i = 0; i < freq; i++) {
-                    int pos = postingsEnum.nextPosition();
+            int freq = postingsEnum.freq();
+            for (int i = 0; i < freq; i++) {
+                int pos = postingsEnum.nextPosition();
 
-                    if (positions.has(pos)) {
-                        weight++;
-                    }
+                if (positions.has(pos)) {
+                    weight++;
                 }
             }
         }
@@ -280,15 +381,10 @@ class SuggesterSearcher extends IndexSearcher {
         return weight;
     }
 
-    private int getDocumentFrequency(final IntsHolder documentIds, final int docBase, final PostingsEnum postingsEnum)
+    private int getDocumentFrequency(final DocIdSetIntsHolder documentIds, final PostingsEnum postingsEnum)
             throws IOException {
 
-        int weight = 0;
-        while (postingsEnum.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
-            if (documentIds.has(docBase + postingsEnum.docID())) {
-                weight++;
-            }
-        }
+        int weight = documentIds.intersectionCount(postingsEnum);
         return normalizeDocumentFrequency(weight, documentIds.numberOfElements());
     }
 
@@ -0,0 +1,169 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.suggest.popular.impl.chronicle;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Accounts for the off-heap memory of the {@link ChronicleMapAdapter}s of all the projects and fields and
+ * distributes the optional memory budget among them.
+ * <p>
+ * Each map requests the number of entries it would like to have (i.e. the number of terms of the field).
+ * If the estimated memory of all the requests exceeds the budget, the number of entries of each map is shrunk
+ * proportionally. Since the maps are initialized one by one, the maps created before the requests of the other
+ * maps were recorded would get larger share. Therefore, once the requests of all the maps are recorded, the maps
+ * should be shrunk to their final share obtained via {@link #getEntries(File)}.
+ * </p>
+ */
+public class ChronicleMapAccounting {
+
+    /**
+     * Rough estimate of the memory used by a map entry on top of the key and the value.
+     */
+    static final int ENTRY_OVERHEAD = 16;
+
+    /**
+     * Minimum number of entries of a map regardless of the budget.
+     */
+    static final int MIN_ENTRIES = 100;
+
+    private final Map<File, ChronicleMapAdapter> maps = new ConcurrentHashMap<>();
+
+    private final Map<File, Long> requestedBytes = new ConcurrentHashMap<>();
+
+    private final Map<File, Integer> requestedEntries = new ConcurrentHashMap<>();
+
+    private volatile long budget;
+
+    /**
+     * @return total memory budget in bytes for all the maps, 0 means unlimited
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @param budget total memory budget in bytes for all the maps, 0 means unlimited
+     */
+    public void setBudget(final long budget) {
+        if (budget < 0) {
+            throw new IllegalArgumentException("Memory budget cannot be negative");
+        }
+        this.budget = budget;
+    }
+
+    /**
+     * @return whether there is a memory budget
+     */
+    public boolean isLimited() {
+        return budget > 0;
+    }
+
+    /**
+     * Records the request of the map and returns the number of entries the map should be created with.
+     * @param file file of the map
+     * @param requestedEntries number of entries the map would like to have
+     * @param averageKeySize average key size of the map
+     * @return {@code requestedEntries} if there is no budget or the budget is not exceeded, otherwise
+     * {@code requestedEntries} shrunk in proportion to the estimated memory of all the requests
+     */
+    public int getEntries(final File file, final int requestedEntries, final double averageKeySize) {
+        requestedBytes.put(file, estimateBytes(requestedEntries, averageKeySize));
+        this.requestedEntries.put(file, requestedEntries);
+
+        return shrink(requestedEntries);
+    }
+
+    /**
+     * Returns the number of entries the map should have with respect to the requests of all the maps
+     * recorded so far, without recording a new request.
+     * @param file file of the map
+     * @return number of entries as in {@link #getEntries(File, int, double)} or {@code -1} if there is no
+     * request recorded for the map
+     */
+    public int getEntries(final File file) {
+        Integer requested = requestedEntries.get(file);
+        if (requested == null) {
+            return -1;
+        }
+        return shrink(requested);
+    }
+
+    private int shrink(final int requested) {
+        long currentBudget = budget;
+        if (currentBudget <= 0) {
+            return requested;
+        }
+        long total = requestedBytes.values().stream().mapToLong(Long::longValue).sum();
+        if (total <= currentBudget) {
+            return requested;
+        }
+        int entries = (int) (requested * ((double) currentBudget / total));
+        return Math.min(requested, Math.max(entries, MIN_ENTRIES));
+    }
+
+    static long estimateBytes(final int entries, final double averageKeySize) {
+        return (long) (entries * (averageKeySize + Integer.BYTES + ENTRY_OVERHEAD));
+    }
+
+    /**
+     * @param file file of the map
+     * @param map the opened map
+     */
+    public void register(final File file, final ChronicleMapAdapter map) {
+        maps.put(file, map);
+    }
+
+    /**
+     * Forgets the map and its request, to be called when the map is closed.
+     * @param file file of the map
+     */
+    public void unregister(final File file) {
+        maps.remove(file);
+        requestedBytes.remove(file);
+        requestedEntries.remove(file);
+    }
+
+    /**
+     * @return number of the opened maps
+     */
+    public int getMapCount() {
+        return maps.size();
+    }
+
+    /**
+     * @return total number of entries in the opened maps
+     */
+    public long getEntryCount() {
+        return maps.values().stream().mapToLong(ChronicleMapAdapter::size).sum();
+    }
+
+    /**
+     * @return off-heap memory in bytes used by the opened maps
+     */
+    public long getOffHeapMemoryUsed() {
+        return maps.values().stream().mapToLong(ChronicleMapAdapter::getOffHeapMemoryUsed).sum();
+    }
+}
@@ -35,16 +35,27 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Adapter for {@link ChronicleMap} to expose only the necessary operations needed for most popular completion.
  */
 public class ChronicleMapAdapter implements PopularityMap {
 
-    private ChronicleMap<BytesRef, Integer> map;
+    private static final Logger logger = Logger.getLogger(ChronicleMapAdapter.class.getName());
+
+    /**
+     * Portion of the entries kept when the map gets full.
+     */
+    private static final double TRIM_RATIO = 0.9;
+
+    private volatile ChronicleMap<BytesRef, Integer> map;
 
     private final File chronicleMapFile;
 
+    private int entries;
+
     public ChronicleMapAdapter(final String name, final double averageKeySize, final int entries, final File file)
             throws IOException {
         map = ChronicleMap.of(BytesRef.class, Integer.class)
@@ -54,6 +65,7 @@ public class ChronicleMapAdapter implements PopularityMap {
                 .entries(entries)
                 .createPersistedTo(file);
         this.chronicleMapFile = file;
+        this.entries = entries;
     }
 
     /** {@inheritDoc} */
@@ -68,7 +80,66 @@ public class ChronicleMapAdapter implements PopularityMap {
         if (value < 0) {
             throw new IllegalArgumentException("Cannot increment by negative value " + value);
         }
-        map.merge(key, value, Integer::sum);
+        try {
+            map.merge(key, value, Integer::sum);
+        } catch (IllegalStateException e) {
+            if (!map.isOpen()) {
+                throw e;
+            }
+            // the map is full, make room for the new terms at the expense of the least searched ones
+            int removed = trimLowestCounts((int) (Math.min(map.longSize(), entries) * TRIM_RATIO));
+            logger.log(Level.FINE, "Removed {0} least searched terms from full map {1}",
+                    new Object[]{removed, chronicleMapFile});
+            map.merge(key, value, Integer::sum);
+        }
+    }
+
+    /**
+     * Removes the entries with the lowest counts so that at most {@code maxSize} entries remain.
+     * @param maxSize maximum number of entries to keep
+     * @return number of removed entries
+     */
+    public synchronized int trimLowestCounts(final int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Cannot trim chronicle map to negative size");
+        }
+        if (map.longSize() <= maxSize) {
+            return 0;
+        }
+
+        List<Entry<BytesRef, Integer>> list = new ArrayList<>(map.entrySet());
+        list.sort(Entry.comparingByValue());
+        int toRemove = list.size() - maxSize;
+        for (int i = 0; i < toRemove; i++) {
+            map.remove(list.get(i).getKey());
+        }
+        return Math.max(toRemove, 0);
+    }
+
+    /**
+     * @return number of entries in the map
+     */
+    public long size() {
+        return map.longSize();
+    }
+
+    /**
+     * @return number of entries the map was created for
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return off-heap memory in bytes used by the map, 0 if the map is closed
+     */
+    public long getOffHeapMemoryUsed() {
+        ChronicleMap<BytesRef, Integer> m = map;
+        try {
+            return m.isOpen() ? m.offHeapMemoryUsed() : 0;
+        } catch (IllegalStateException e) { // closed in the meantime
+            return 0;
+        }
     }
 
     /** {@inheritDoc} */
@@ -105,7 +176,8 @@ public class ChronicleMapAdapter implements PopularityMap {
     }
 
     /**
-     * Resizes the underlying {@link ChronicleMap}.
+     * Resizes the underlying {@link ChronicleMap}. If the map has more entries than {@code newMapSize},
+     * the entries with the lowest counts are removed.
      * @param newMapSize new entries count
      * @param newMapAvgKey new average key size
      * @throws IOException if some error occurred
@@ -119,6 +191,8 @@ public class ChronicleMapAdapter implements PopularityMap {
             throw new IllegalArgumentException("Cannot resize chronicle map to map with negative key size");
         }
 
+        trimLowestCounts(newMapSize);
+
         Path tempFile = Files.createTempFile("opengrok", "chronicle");
 
         try {
@@ -138,6 +212,7 @@ public class ChronicleMapAdapter implements PopularityMap {
                     .createPersistedTo(chronicleMapFile);
             m.putAll(tempFile.toFile());
             map = m;
+            entries = newMapSize;
         } finally {
             Files.delete(tempFile);
         }
@@ -0,0 +1,139 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.suggest.query.data;
+
+import org.apache.lucene.search.ConjunctionUtils;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.FilteredDocIdSetIterator;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RoaringDocIdSet;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * {@link IntsHolder} implementation for the document IDs of a single index segment backed by
+ * a {@link FixedBitSet}. Unlike {@link BitIntsHolder}, the number of the documents is computed only once and
+ * sparse sets are in addition stored as a {@link RoaringDocIdSet} so that they can be iterated in time
+ * proportional to the number of the documents rather than to the size of the segment.
+ * <p>
+ * The intersection with postings adapts to the density. If the set is sparse and much smaller than the postings,
+ * {@link ConjunctionUtils} leapfrogs the iterators via {@link DocIdSetIterator#advance(int)} so that the postings
+ * skip the blocks without any document of the set. Otherwise, each document of the postings is just looked up
+ * in the bits.
+ * </p>
+ */
+public final class DocIdSetIntsHolder implements IntsHolder {
+
+    /**
+     * The set is sparse if less than 1/128 of the documents is set (same threshold as in Lucene's
+     * {@code DocIdSetBuilder}).
+     */
+    private static final int SPARSE_SHIFT = 7;
+
+    /**
+     * Leapfrogging pays off only if the postings have to be advanced over whole blocks (128 documents
+     * in the default postings format), i.e. if they contain many more documents than the set.
+     */
+    private static final int LEAPFROG_COST_RATIO = 32;
+
+    private final FixedBitSet bits;
+
+    private final int cardinality;
+
+    private final RoaringDocIdSet sparseSet;
+
+    /**
+     * @param bits document IDs of the segment, must not be modified afterwards
+     */
+    public DocIdSetIntsHolder(final FixedBitSet bits) {
+        this.bits = bits;
+        this.cardinality = bits.cardinality();
+        if (cardinality > 0 && cardinality < (bits.length() >>> SPARSE_SHIFT)) {
+            RoaringDocIdSet.Builder builder = new RoaringDocIdSet.Builder(bits.length());
+            for (int doc = bits.nextSetBit(0); doc != DocIdSetIterator.NO_MORE_DOCS;
+                 doc = doc + 1 < bits.length() ? bits.nextSetBit(doc + 1) : DocIdSetIterator.NO_MORE_DOCS) {
+                builder.add(doc);
+            }
+            sparseSet = builder.build();
+        } else {
+            sparseSet = null;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean has(final int i) {
+        return i >= 0 && i < bits.length() && bits.get(i);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int numberOfElements() {
+        return cardinality;
+    }
+
+    /**
+     * @return whether the IDs are stored in the sparse representation
+     */
+    public boolean isSparse() {
+        return sparseSet != null;
+    }
+
+    /**
+     * Returns the iterator over the documents which are both in this set and in {@code iterator}. The
+     * {@code iterator} is positioned on the current document of the returned iterator, i.e. e.g. the positions
+     * of postings can be read.
+     * @param iterator unpositioned iterator, e.g. postings of a term
+     * @return iterator of the intersection
+     * @throws IOException if the iterator of the set could not be created
+     */
+    public DocIdSetIterator intersect(final DocIdSetIterator iterator) throws IOException {
+        if (cardinality == 0) {
+            return DocIdSetIterator.empty();
+        }
+        if (sparseSet != null && (long) cardinality * LEAPFROG_COST_RATIO < iterator.cost()) {
+            return ConjunctionUtils.intersectIterators(List.of(iterator, sparseSet.iterator()));
+        }
+        return new FilteredDocIdSetIterator(iterator) {
+            @Override
+            protected boolean match(final int doc) {
+                return doc < bits.length() && bits.get(doc);
+            }
+        };
+    }
+
+    /**
+     * @param iterator unpositioned iterator, e.g. postings of a term
+     * @return number of documents which are both in this set and in {@code iterator}
+     * @throws IOException on I/O error while iterating
+     */
+    public int intersectionCount(final DocIdSetIterator iterator) throws IOException {
+        DocIdSetIterator intersection = intersect(iterator);
+        int count = 0;
+        while (intersection.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.suggest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.TermQuery;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchCountUpdaterTest {
+
+    private static final Term TERM1 = new Term("full", "term1");
+
+    private static final Term TERM2 = new Term("full", "term2");
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private final Map<String, Map<Term, Integer>> increments = new HashMap<>();
+
+    private int sinkCalls;
+
+    private void increment(final String project, final Map<Term, Integer> counts) {
+        sinkCalls++;
+        counts.forEach((term, count) ->
+                increments.computeIfAbsent(project, p -> new HashMap<>()).merge(term, count, Integer::sum));
+    }
+
+    private SearchCountUpdater createUpdater(final int capacity) {
+        // the interval is long enough for the background flush not to interfere
+        return new SearchCountUpdater(capacity, Duration.ofHours(1), this::increment, registry);
+    }
+
+    @Test
+    void testCoalescing() {
+        try (SearchCountUpdater updater = createUpdater(10)) {
+            updater.add(List.of("p1", "p2"), new BooleanQuery.Builder()
+                    .add(new TermQuery(TERM1), BooleanClause.Occur.MUST)
+                    .add(new TermQuery(TERM2), BooleanClause.Occur.MUST)
+                    .build());
+            updater.add(List.of("p1"), new TermQuery(TERM1));
+            assertEquals(2, updater.getQueueSize());
+            assertEquals(0, sinkCalls);
+
+            updater.flush();
+            assertEquals(0, updater.getQueueSize());
+        }
+
+        assertEquals(2, sinkCalls);
+        assertEquals(Map.of(TERM1, 2, TERM2, 1), increments.get("p1"));
+        assertEquals(Map.of(TERM1, 1, TERM2, 1), increments.get("p2"));
+    }
+
+    @Test
+    void testDropWhenFull() {
+        try (SearchCountUpdater updater = createUpdater(2)) {
+            assertTrue(updater.add(List.of("p1"), new TermQuery(TERM1)));
+            assertTrue(updater.add(List.of("p1"), new TermQuery(TERM1)));
+            assertFalse(updater.add(List.of("p1"), new TermQuery(TERM2)));
+            assertEquals(2, updater.getQueueSize());
+
+            updater.flush();
+            assertTrue(updater.add(List.of("p1"), new TermQuery(TERM2)));
+        }
+
+        assertEquals(Map.of(TERM1, 2, TERM2, 1), increments.get("p1"));
+        assertEquals(3.0, registry.get("suggester.search.count.updates").tag("result", "queued").counter().count());
+        assertEquals(1.0, registry.get("suggester.search.count.updates").tag("result", "dropped").counter().count());
+    }
+}
@@ -37,6 +37,7 @@ import org.hamcrest.Matchers;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.opengrok.suggest.popular.impl.chronicle.ChronicleMapAccounting;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -48,6 +49,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
@@ -329,4 +331,43 @@ class SuggesterProjectDataTest {
         assertFalse(getSuggestions(FIELD, "t", 10).isEmpty());
     }
 
+
+    @Test
+    void testSearchCountMemoryBudgetAppliedRegardlessOfInitOrder() throws IOException {
+        addText(FIELD, IntStream.range(0, 1000).mapToObj(i -> "term" + i).collect(Collectors.joining(" ")));
+        Directory otherDir = new ByteBuffersDirectory();
+        try (IndexWriter iw = new IndexWriter(otherDir, new IndexWriterConfig())) {
+            Document doc = new Document();
+            doc.add(new TextField(FIELD, IntStream.range(0, 1000).mapToObj(i -> "other" + i).
+                    collect(Collectors.joining(" ")), Field.Store.NO));
+            iw.addDocument(doc);
+        }
+        Path otherTempDir = Files.createTempDirectory("test");
+
+        ChronicleMapAccounting accounting = new ChronicleMapAccounting();
+        // enough for the maps of a single project
+        accounting.setBudget(40_000);
+        data = new SuggesterProjectData(dir, tempDir, true, Collections.singleton(FIELD), accounting);
+        SuggesterProjectData otherData = new SuggesterProjectData(otherDir, otherTempDir, true,
+                Collections.singleton(FIELD), accounting);
+        try {
+            data.init();
+            assertEquals(1000, data.getSearchCountMapEntries(FIELD));
+
+            otherData.init();
+            int share = otherData.getSearchCountMapEntries(FIELD);
+            assertTrue(share < 1000);
+
+            data.applySearchCountMemoryBudget();
+            otherData.applySearchCountMemoryBudget();
+            assertEquals(share, data.getSearchCountMapEntries(FIELD));
+            assertEquals(share, otherData.getSearchCountMapEntries(FIELD));
+
+            data.incrementSearchCount(new Term(FIELD, "term1"));
+            assertEquals(1, data.getSearchCounts(FIELD).get(new BytesRef("term1")));
+        } finally {
+            otherData.close();
+            FileUtils.deleteDirectory(otherTempDir.toFile());
+        }
+    }
 }
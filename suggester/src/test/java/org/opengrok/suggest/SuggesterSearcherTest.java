@@ -29,6 +29,7 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.store.ByteBuffersDirectory;
@@ -47,10 +48,13 @@ import org.opengrok.suggest.query.SuggesterWildcardQuery;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class SuggesterSearcherTest {
 
@@ -159,4 +163,44 @@ class SuggesterSearcherTest {
         assertThat(tokens, contains("opengrok", "opengrok2"));
     }
 
+
+    @Test
+    void testParallelLeavesWithPruning() throws IOException {
+        try (Directory multiDir = new ByteBuffersDirectory()) {
+            IndexWriterConfig config = new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+            try (IndexWriter iw = new IndexWriter(multiDir, config)) {
+                for (int i = 0; i < 4; i++) {
+                    for (int j = 0; j < 3; j++) {
+                        Document doc = new Document();
+                        doc.add(new TextField("test", "common opengrok", Field.Store.NO));
+                        iw.addDocument(doc);
+                    }
+                    // Terms sorted after "opengrok" are pruned once the queue is full.
+                    Document doc = new Document();
+                    doc.add(new TextField("test", "common openz" + i, Field.Store.NO));
+                    iw.addDocument(doc);
+                    iw.commit(); // one segment per iteration
+                }
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            try (IndexReader ir = DirectoryReader.open(multiDir)) {
+                assertEquals(4, ir.leaves().size());
+
+                TermQuery query = new TermQuery(new Term("test", "common"));
+                SuggesterWildcardQuery suggesterQuery = new SuggesterWildcardQuery(new Term("test", "open*"));
+                List<LookupResultItem> sequential = new SuggesterSearcher(ir, 1)
+                        .suggest(query, "test", suggesterQuery, k -> 0);
+                List<LookupResultItem> parallel = new SuggesterSearcher(ir, 1, executor)
+                        .suggest(query, "test", suggesterQuery, k -> 0);
+
+                assertThat(parallel.stream().map(LookupResultItem::getPhrase).collect(Collectors.toList()),
+                        contains("opengrok"));
+                assertEquals(sequential, parallel);
+                assertEquals(sequential.get(0).getScore(), parallel.get(0).getScore());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
 }
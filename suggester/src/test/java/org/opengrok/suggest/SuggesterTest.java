@@ -23,6 +23,7 @@
 package org.opengrok.suggest;
 
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.commons.io.FileUtils;
 import org.apache.lucene.document.Document;
@@ -62,6 +63,7 @@ import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -203,6 +205,58 @@ class SuggesterTest {
         t.close();
     }
 
+    @Test
+    void testRebuildChanged() throws Exception {
+        SuggesterTestData t = initSuggester();
+        Timer rebuildTimer = registry.get("suggester.rebuild.latency").timer();
+
+        // The data are current, nothing to rebuild.
+        t.s.rebuildChanged(Collections.singleton(t.getNamedIndexDir()));
+        assertEquals(0, rebuildTimer.count());
+
+        addText(t.getIndexDirectory(), "a1 a2");
+        t.s.rebuildChanged(Collections.singleton(t.getNamedIndexDir()));
+        assertEquals(1, rebuildTimer.count());
+
+        Suggester.NamedIndexReader ir = t.getNamedIndexReader();
+        List<LookupResultItem> res = t.s.search(Collections.singletonList(ir),
+                new SuggesterPrefixQuery(new Term("test", "a")), null).getItems();
+        assertThat(res.stream().map(LookupResultItem::getPhrase).collect(Collectors.toList()),
+                containsInAnyOrder("a1", "a2"));
+
+        t.close();
+    }
+
+    @Test
+    void testResultCache() throws Exception {
+        SuggesterTestData t = initSuggester();
+        t.s.setResultCacheSize(10);
+
+        Suggester.NamedIndexReader ir = t.getNamedIndexReader();
+        SuggesterPrefixQuery prefixQuery = new SuggesterPrefixQuery(new Term("test", "t"));
+        List<LookupResultItem> res1 = t.s.search(Collections.singletonList(ir), prefixQuery, null).getItems();
+        List<LookupResultItem> res2 = t.s.search(Collections.singletonList(ir), prefixQuery, null).getItems();
+        assertEquals(res1, res2);
+        assertEquals(1, t.s.getResultCacheEntries());
+        assertEquals(1.0, registry.get("suggester.cache").tag("result", "hit").counter().count());
+
+        // Rebuild makes the entry stale.
+        addText(t.getIndexDirectory(), "term4");
+        t.s.rebuild(Collections.singleton(t.getNamedIndexDir()));
+        List<LookupResultItem> res = t.s.search(Collections.singletonList(ir), prefixQuery, null).getItems();
+        assertThat(res.stream().map(LookupResultItem::getPhrase).collect(Collectors.toList()),
+                containsInAnyOrder("term1", "term2", "term3", "term4"));
+
+        // Search counts change the ordering of complex query results.
+        SuggesterWildcardQuery wildcardQuery = new SuggesterWildcardQuery(new Term("test", "term*"));
+        t.s.search(Collections.singletonList(ir), wildcardQuery, null);
+        t.s.increaseSearchCount("test", new Term("test", "term2"), 100, true);
+        res = t.s.search(Collections.singletonList(ir), wildcardQuery, null).getItems();
+        assertEquals("term2", res.get(0).getPhrase());
+
+        t.close();
+    }
+
     @Test
     void testIndexChangedWhileOffline() throws Exception {
         SuggesterTestData t = initSuggester();
@@ -318,4 +372,23 @@ class SuggesterTest {
         Suggester.NamedIndexDir namedIndexDir2 = new Suggester.NamedIndexDir("foo", Path.of("/bar"));
         assertNotEquals(namedIndexDir1, namedIndexDir2);
     }
+
+    @Test
+    void testSearchCountGaugesFollowNewInstance() throws IOException {
+        Path suggesterDir = Files.createTempDirectory("opengrok");
+        Suggester first = new Suggester(suggesterDir.toFile(), 10, Duration.ofMinutes(1), true,
+                true, Collections.singleton("test"), Integer.MAX_VALUE, 1, 1, registry, false);
+        first.setSearchCountMemoryBudget(1024);
+        assertEquals(1024, registry.get("suggester.search.count.memory.budget").gauge().value());
+        first.close();
+        assertNull(registry.find("suggester.search.count.memory.budget").gauge());
+
+        Suggester second = new Suggester(suggesterDir.toFile(), 10, Duration.ofMinutes(1), true,
+                true, Collections.singleton("test"), Integer.MAX_VALUE, 1, 1, registry, false);
+        second.setSearchCountMemoryBudget(2048);
+        assertEquals(2048, registry.get("suggester.search.count.memory.budget").gauge().value());
+        second.close();
+
+        FileUtils.deleteDirectory(suggesterDir.toFile());
+    }
 }
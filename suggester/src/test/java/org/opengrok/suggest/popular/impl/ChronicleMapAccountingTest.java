@@ -0,0 +1,115 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.suggest.popular.impl;
+
+import org.apache.lucene.util.BytesRef;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opengrok.suggest.popular.impl.chronicle.ChronicleMapAccounting;
+import org.opengrok.suggest.popular.impl.chronicle.ChronicleMapAdapter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChronicleMapAccountingTest {
+
+    @Test
+    void testUnlimited() {
+        ChronicleMapAccounting accounting = new ChronicleMapAccounting();
+        assertFalse(accounting.isLimited());
+        assertEquals(100_000, accounting.getEntries(new File("a"), 100_000, 10));
+        assertEquals(200_000, accounting.getEntries(new File("b"), 200_000, 10));
+    }
+
+    @Test
+    void testProportionalShrinking() {
+        ChronicleMapAccounting accounting = new ChronicleMapAccounting();
+        accounting.setBudget(10 * 1024 * 1024);
+        assertTrue(accounting.isLimited());
+
+        // fits the budget alone
+        assertEquals(100_000, accounting.getEntries(new File("a"), 100_000, 10));
+
+        int b = accounting.getEntries(new File("b"), 300_000, 10);
+        assertTrue(b < 300_000);
+        // re-initialization of the first map takes the second one into account
+        int a = accounting.getEntries(new File("a"), 100_000, 10);
+        assertTrue(a < 100_000);
+        assertEquals(3.0, (double) b / a, 0.01);
+
+        // the request of closed map no longer counts
+        accounting.unregister(new File("b"));
+        assertEquals(100_000, accounting.getEntries(new File("a"), 100_000, 10));
+    }
+
+    @Test
+    void testFinalShareDoesNotDependOnOrder() {
+        ChronicleMapAccounting accounting = new ChronicleMapAccounting();
+        accounting.setBudget(10 * 1024 * 1024);
+
+        assertEquals(-1, accounting.getEntries(new File("a")));
+        // the first map fits the budget alone
+        assertEquals(100_000, accounting.getEntries(new File("a"), 100_000, 10));
+        int b = accounting.getEntries(new File("b"), 300_000, 10);
+
+        // once both requests are known, the first map gets the same share as if it came second
+        int a = accounting.getEntries(new File("a"));
+        assertTrue(a < 100_000);
+        assertEquals(3.0, (double) b / a, 0.01);
+        assertEquals(b, accounting.getEntries(new File("b")));
+    }
+
+    @Test
+    void testNegativeBudget() {
+        ChronicleMapAccounting accounting = new ChronicleMapAccounting();
+        assertThrows(IllegalArgumentException.class, () -> accounting.setBudget(-1));
+    }
+
+    @Test
+    void testMemoryUsed(@TempDir Path dir) throws IOException {
+        ChronicleMapAccounting accounting = new ChronicleMapAccounting();
+        File file = dir.resolve("test.db").toFile();
+        ChronicleMapAdapter map = new ChronicleMapAdapter("test", 10, 1000, file);
+        try {
+            accounting.register(file, map);
+            map.increment(new BytesRef("term"), 1);
+
+            assertEquals(1, accounting.getMapCount());
+            assertEquals(1, accounting.getEntryCount());
+            assertEquals(map.getOffHeapMemoryUsed(), accounting.getOffHeapMemoryUsed());
+            assertTrue(accounting.getOffHeapMemoryUsed() > 0);
+        } finally {
+            map.close();
+        }
+
+        accounting.unregister(file);
+        assertEquals(0, accounting.getMapCount());
+        assertEquals(0, accounting.getOffHeapMemoryUsed());
+    }
+}
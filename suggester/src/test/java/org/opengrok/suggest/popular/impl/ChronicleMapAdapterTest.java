@@ -38,6 +38,7 @@ import java.util.Map.Entry;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ChronicleMapAdapterTest {
 
@@ -92,6 +93,39 @@ class ChronicleMapAdapterTest {
         checkData(500, map);
     }
 
+    @Test
+    void testTrimLowestCounts() {
+        fillData(0, 10, map);
+
+        assertEquals(4, map.trimLowestCounts(6));
+
+        assertEquals(6, map.size());
+        for (int i = 4; i < 10; i++) {
+            assertEquals(i, map.get(new BytesRef("" + i)));
+        }
+        assertEquals(0, map.trimLowestCounts(6));
+    }
+
+    @Test
+    void testIncrementWhenFull() {
+        int popular = 1000;
+        map.increment(new BytesRef("popular"), popular);
+
+        // many more terms than the map was created for
+        fillData(1, 200, map);
+
+        assertTrue(map.size() < 200);
+        assertEquals(popular, map.get(new BytesRef("popular")));
+        assertEquals(199, map.get(new BytesRef("199")));
+    }
+
+    @Test
+    void testOffHeapMemoryUsed() {
+        assertTrue(map.getOffHeapMemoryUsed() > 0);
+        map.close();
+        assertEquals(0, map.getOffHeapMemoryUsed());
+    }
+
     @Test
     @SuppressWarnings("unchecked") // for contains()
     void testGetPopularityData() {
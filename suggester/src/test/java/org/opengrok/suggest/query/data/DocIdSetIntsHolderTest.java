@@ -0,0 +1,124 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.suggest.query.data;
+
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.FixedBitSet;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DocIdSetIntsHolderTest {
+
+    private static final int MAX_DOC = 100_000;
+
+    private static FixedBitSet randomBits(final Random random, final int maxDoc, final double density) {
+        FixedBitSet bits = new FixedBitSet(maxDoc);
+        for (int i = 0; i < maxDoc; i++) {
+            if (random.nextDouble() < density) {
+                bits.set(i);
+            }
+        }
+        return bits;
+    }
+
+    private static DocIdSetIterator iterator(final FixedBitSet bits) {
+        return new BitSetIterator(bits, bits.cardinality());
+    }
+
+    private static List<Integer> expectedIntersection(final FixedBitSet set, final FixedBitSet postings) {
+        List<Integer> docs = new ArrayList<>();
+        for (int i = 0; i < set.length(); i++) {
+            if (set.get(i) && postings.get(i)) {
+                docs.add(i);
+            }
+        }
+        return docs;
+    }
+
+    private static void assertIntersection(final double setDensity, final double postingsDensity,
+                                           final boolean sparse) throws IOException {
+        Random random = new Random(42);
+        FixedBitSet bits = randomBits(random, MAX_DOC, setDensity);
+        FixedBitSet postings = randomBits(random, MAX_DOC, postingsDensity);
+
+        DocIdSetIntsHolder holder = new DocIdSetIntsHolder(bits.clone());
+        assertEquals(sparse, holder.isSparse());
+        assertEquals(bits.cardinality(), holder.numberOfElements());
+
+        List<Integer> expected = expectedIntersection(bits, postings);
+        assertEquals(expected.size(), holder.intersectionCount(iterator(postings)));
+
+        List<Integer> docs = new ArrayList<>();
+        DocIdSetIterator postingsIterator = iterator(postings);
+        DocIdSetIterator intersection = holder.intersect(postingsIterator);
+        for (int doc = intersection.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = intersection.nextDoc()) {
+            assertEquals(doc, postingsIterator.docID());
+            docs.add(doc);
+        }
+        assertEquals(expected, docs);
+    }
+
+    @Test
+    void testDenseIntersection() throws IOException {
+        assertIntersection(0.3, 0.01, false);
+        assertIntersection(0.3, 0.5, false);
+    }
+
+    @Test
+    void testSparseIntersection() throws IOException {
+        assertIntersection(0.001, 0.01, true);
+        assertIntersection(0.001, 0.5, true);
+    }
+
+    @Test
+    void testHas() {
+        FixedBitSet bits = new FixedBitSet(MAX_DOC);
+        bits.set(5);
+        bits.set(MAX_DOC - 1);
+        DocIdSetIntsHolder holder = new DocIdSetIntsHolder(bits);
+
+        assertTrue(holder.isSparse());
+        assertEquals(2, holder.numberOfElements());
+        assertTrue(holder.has(5));
+        assertTrue(holder.has(MAX_DOC - 1));
+        assertFalse(holder.has(6));
+        assertFalse(holder.has(MAX_DOC));
+    }
+
+    @Test
+    void testEmpty() throws IOException {
+        DocIdSetIntsHolder holder = new DocIdSetIntsHolder(new FixedBitSet(0));
+        assertEquals(0, holder.numberOfElements());
+        assertFalse(holder.has(0));
+        assertEquals(0, holder.intersectionCount(iterator(randomBits(new Random(1), MAX_DOC, 0.5))));
+    }
+}